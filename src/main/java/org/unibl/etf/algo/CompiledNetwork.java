@@ -0,0 +1,527 @@
+package org.unibl.etf.algo;
+
+import org.unibl.etf.model.City;
+import org.unibl.etf.model.Departure;
+import org.unibl.etf.model.DepartureTable;
+import org.unibl.etf.model.Station;
+
+import java.util.*;
+
+/**
+ * Klasa {@code CompiledNetwork} predstavlja kompaktni, cjelobrojno indeksirani oblik
+ * transportne mreže koji se jednom gradi iz mape gradova ({@link City}) i koristi
+ * u svim algoritmima pretrage.
+ * <p>
+ * Svaki grad i svaka stanica dobijaju gusti cjelobrojni identifikator, a polasci se
+ * čuvaju u CSR (<i>compressed sparse row</i>) rasporedu: polasci jednog grada zauzimaju
+ * kontinualan opseg indeksa {@code [firstDeparture(c), endDeparture(c))}, pri čemu su
+ * polasci sa autobuske stanice smješteni prije polazaka sa željezničke stanice.
+ * Unutar stanice polasci su poređani po minutu polaska (kao u {@link Station#getDepartures()}),
+ * pa se prvi polazak koji se može uhvatiti pronalazi binarnom pretragom
+ * ({@link #nextDeparture(int, int)}).
+ * </p>
+ * <p>
+ * Atributi polaska se ne kopiraju: mreža čuva samo permutaciju redova tabele polazaka
+ * ({@link DepartureTable}) u CSR redoslijedu, a minut, trajanje, cijena i minimalno
+ * vrijeme presjedanja se čitaju iz kolona tabele. Polazna stanica i odredišni grad se
+ * određuju iz identifikatora naziva u tabeli, preko nizova veličine rječnika, a ne broja
+ * polazaka. Mreža tako dodaje samo 4 bajta po polasku.
+ * </p>
+ * <p>
+ * Na ovaj način pretraga ne mora da radi sa {@code String} ključevima, {@link Map}
+ * pretragama niti sa privremenim listama stanica.
+ * </p>
+ *
+ * @author Saša Vujančević
+ */
+public class CompiledNetwork {
+
+    private final String[] cityNames;
+    private final City[] cities;
+    private final Map<String, Integer> cityIds;
+
+    private final String[] stationIds;
+    private final int[] stationCity;
+    private final int[] stationFirstDeparture;
+
+    private final int[] cityFirstDeparture;
+
+    /** Red tabele polazaka za svaki polazak mreže, u CSR redoslijedu. */
+    private final int[] depRow;
+    private DepartureTable departureTable;
+    /** Stanica mreže po identifikatoru naziva u tabeli polazaka, ili {@code -1}. */
+    private int[] nameStation = new int[0];
+    /** Grad mreže po identifikatoru naziva u tabeli polazaka, ili {@code -1}. */
+    private int[] nameCity = new int[0];
+
+    private final int[] cityX;
+    private final int[] cityY;
+    /** Najmanja cijena po koraku mreže kao razlomak {@code minStepPrice / minStepPriceSteps}. */
+    private int minStepPrice;
+    private int minStepPriceSteps = 1;
+    /** Najmanje trajanje po koraku mreže kao razlomak {@code minStepDuration / minStepDurationSteps}. */
+    private int minStepDuration;
+    private int minStepDurationSteps = 1;
+    private int gridRows;
+    private int gridColumns;
+
+    private volatile ConnectionScan connectionScan;
+    private volatile Raptor raptor;
+    private volatile McRaptor mcRaptor;
+    private volatile ContractionHierarchy contractionHierarchy;
+    private final ThreadLocal<SearchWorkspace> workspaces =
+            ThreadLocal.withInitial(() -> new SearchWorkspace(cityCount(), departureCount()));
+    private final ThreadLocal<OneToAllSearch> oneToAllSearches =
+            ThreadLocal.withInitial(() -> new OneToAllSearch(this));
+
+    private CompiledNetwork(int cityCount, int departureCount) {
+        this.cityNames = new String[cityCount];
+        this.cities = new City[cityCount];
+        this.cityIds = new HashMap<>(cityCount * 2);
+        this.stationIds = new String[cityCount * 2];
+        this.stationCity = new int[cityCount * 2];
+        this.stationFirstDeparture = new int[cityCount * 2 + 1];
+        this.cityFirstDeparture = new int[cityCount + 1];
+        this.depRow = new int[departureCount];
+        this.cityX = new int[cityCount];
+        this.cityY = new int[cityCount];
+    }
+
+    /**
+     * Gradi kompaktnu mrežu iz mape gradova.
+     * <p>
+     * Gradovi se numerišu po abecednom redu naziva, tako da su identifikatori
+     * stabilni za isti skup podataka. Autobuska stanica grada {@code c} dobija
+     * identifikator {@code 2c}, a željeznička {@code 2c + 1}. Polasci ka gradovima
+     * koji ne postoje u mapi se izostavljaju.
+     * </p>
+     *
+     * @param cityMap mapa gradova kakvu vraća {@link org.unibl.etf.data.JsonLoader#loadCityMap(String)}
+     * @return kompaktna mreža
+     */
+    public static CompiledNetwork compile(Map<String, City> cityMap) {
+        List<String> names = new ArrayList<>(cityMap.keySet());
+        Collections.sort(names);
+
+        Map<String, Integer> ids = new HashMap<>(names.size() * 2);
+        for (int i = 0; i < names.size(); i++) {
+            ids.put(names.get(i), i);
+        }
+
+        int departureCount = 0;
+        for (String name : names) {
+            City city = cityMap.get(name);
+            for (Station station : stationsOf(city)) {
+                if (station == null) continue;
+                DepartureTable table = station.getDepartureTable();
+                for (int i = 0; i < station.getDepartureCount(); i++) {
+                    if (ids.containsKey(table.to(station.getDepartureRow(i)))) departureCount++;
+                }
+            }
+        }
+
+        CompiledNetwork network = new CompiledNetwork(names.size(), departureCount);
+        network.cityIds.putAll(ids);
+
+        int d = 0;
+        for (int c = 0; c < names.size(); c++) {
+            City city = cityMap.get(names.get(c));
+            network.cityNames[c] = names.get(c);
+            network.cities[c] = city;
+            network.cityFirstDeparture[c] = d;
+
+            Station[] stations = stationsOf(city);
+            for (int k = 0; k < 2; k++) {
+                int s = 2 * c + k;
+                Station station = stations[k];
+                network.stationIds[s] = station != null ? station.getId() : null;
+                network.stationCity[s] = c;
+                network.stationFirstDeparture[s] = d;
+                if (station == null) continue;
+
+                DepartureTable table = station.getDepartureTable();
+                if (network.departureTable == null) {
+                    network.departureTable = table;
+                } else if (station.getDepartureCount() > 0 && table != network.departureTable) {
+                    throw new IllegalArgumentException("Sve stanice mreže moraju koristiti istu tabelu polazaka");
+                }
+                for (int i = 0; i < station.getDepartureCount(); i++) {
+                    int row = station.getDepartureRow(i);
+                    if (!ids.containsKey(table.to(row))) continue;
+                    network.depRow[d++] = row;
+                }
+            }
+        }
+        network.cityFirstDeparture[names.size()] = d;
+        network.stationFirstDeparture[names.size() * 2] = d;
+        network.indexNames();
+        network.computeLowerBounds();
+
+        return network;
+    }
+
+    /**
+     * Povezuje identifikatore naziva iz tabele polazaka sa stanicama i gradovima mreže.
+     */
+    private void indexNames() {
+        if (departureTable == null) return;
+        Map<String, Integer> stations = new HashMap<>(stationIds.length * 2);
+        for (int s = 0; s < stationIds.length; s++) {
+            if (stationIds[s] != null) stations.put(stationIds[s], s);
+        }
+        int count = departureTable.nameCount();
+        nameStation = new int[count];
+        nameCity = new int[count];
+        for (int id = 0; id < count; id++) {
+            String name = departureTable.name(id);
+            nameStation[id] = stations.getOrDefault(name, -1);
+            nameCity[id] = cityIds.getOrDefault(name, -1);
+        }
+    }
+
+    /**
+     * Čita koordinate gradova iz naziva oblika {@code G_x_y}, dimenzije mreže i najmanju
+     * cijenu i trajanje po koraku mreže, preko svih polazaka. Ako neki naziv nema taj
+     * oblik, donje granice i dimenzije mreže su nula.
+     */
+    private void computeLowerBounds() {
+        boolean grid = true;
+        for (int c = 0; c < cityNames.length && grid; c++) {
+            String name = cityNames[c];
+            int first = name.indexOf('_');
+            int second = name.indexOf('_', first + 1);
+            if (!name.startsWith("G_") || second < 0) {
+                grid = false;
+                break;
+            }
+            try {
+                cityX[c] = Integer.parseInt(name, first + 1, second, 10);
+                cityY[c] = Integer.parseInt(name, second + 1, name.length(), 10);
+            } catch (NumberFormatException e) {
+                grid = false;
+            }
+        }
+
+        if (!grid) return;
+        for (int c = 0; c < cityNames.length; c++) {
+            gridRows = Math.max(gridRows, cityX[c] + 1);
+            gridColumns = Math.max(gridColumns, cityY[c] + 1);
+        }
+
+        // razlomci se porede unakrsnim množenjem, bez zaokruživanja, da bi granice
+        // ostale tačno konzistentne
+        int priceSteps = 0;
+        int durationSteps = 0;
+        for (int d = 0; d < depRow.length; d++) {
+            int steps = gridDistance(fromCity(d), toCity(d));
+            if (steps == 0) continue;
+            if (priceSteps == 0 || (long) price(d) * priceSteps < (long) minStepPrice * steps) {
+                minStepPrice = price(d);
+                priceSteps = steps;
+            }
+            if (durationSteps == 0 || (long) duration(d) * durationSteps < (long) minStepDuration * steps) {
+                minStepDuration = duration(d);
+                durationSteps = steps;
+            }
+        }
+        if (priceSteps > 0) {
+            minStepPriceSteps = priceSteps;
+            minStepDurationSteps = durationSteps;
+        }
+    }
+
+    private int gridDistance(int from, int to) {
+        return Math.abs(cityX[from] - cityX[to]) + Math.abs(cityY[from] - cityY[to]);
+    }
+
+    /**
+     * Donja granica ukupne cijene od grada {@code from} do grada {@code to}: Manhattan
+     * udaljenost na mreži pomnožena najmanjom cijenom po koraku, zaokružena naniže. Koristi
+     * se kao dopustiva i konzistentna heuristika za A* pretragu: računa se u cijelim
+     * brojevima, pa za svaki polazak {@code d} važi
+     * {@code priceLowerBound(from(d), to) <= price(d) + priceLowerBound(to(d), to)} bez
+     * greške zaokruživanja, i ključevi u {@link RadixHeap} ostaju monotoni.
+     */
+    public int priceLowerBound(int from, int to) {
+        return (int) ((long) gridDistance(from, to) * minStepPrice / minStepPriceSteps);
+    }
+
+    /**
+     * Donja granica vremena vožnje od grada {@code from} do grada {@code to}, analogno
+     * {@link #priceLowerBound(int, int)}. Čekanje i presjedanja je samo povećavaju.
+     */
+    public int durationLowerBound(int from, int to) {
+        return (int) ((long) gridDistance(from, to) * minStepDuration / minStepDurationSteps);
+    }
+
+    private static Station[] stationsOf(City city) {
+        return new Station[]{city.getBusStation(), city.getTrainStation()};
+    }
+
+    /**
+     * Vraća apsolutno vrijeme prvog polaska u zadatom minutu dana koji nije raniji od {@code time}.
+     * Red vožnje se ponavlja svakog dana, pa je čekanje uvijek kraće od jednog dana.
+     *
+     * @param time   apsolutno vrijeme u minutima od ponoći prvog dana
+     * @param minute minut dana u kojem polazak kreće
+     * @return apsolutno vrijeme polaska
+     */
+    public static int departureAtOrAfter(int time, int minute) {
+        int dep = Math.floorDiv(time, ConnectionScan.MINUTES_PER_DAY) * ConnectionScan.MINUTES_PER_DAY + minute;
+        return dep < time ? dep + ConnectionScan.MINUTES_PER_DAY : dep;
+    }
+
+    public int cityCount() {
+        return cityNames.length;
+    }
+
+    /**
+     * @return broj redova mreže gradova {@code G_x_y} ili {@code 0} ako nazivi gradova nemaju taj oblik
+     */
+    public int gridRows() {
+        return gridRows;
+    }
+
+    /**
+     * @return broj kolona mreže gradova {@code G_x_y} ili {@code 0} ako nazivi gradova nemaju taj oblik
+     */
+    public int gridColumns() {
+        return gridColumns;
+    }
+
+    public int stationCount() {
+        return stationIds.length;
+    }
+
+    public int departureCount() {
+        return depRow.length;
+    }
+
+    /**
+     * Vraća identifikator grada sa zadatim nazivom.
+     *
+     * @param name naziv grada
+     * @return identifikator grada ili {@code -1} ako grad ne postoji
+     */
+    public int cityId(String name) {
+        Integer id = cityIds.get(name);
+        return id != null ? id : -1;
+    }
+
+    public String cityName(int city) {
+        return cityNames[city];
+    }
+
+    public City city(int city) {
+        return cities[city];
+    }
+
+    public String stationId(int station) {
+        return stationIds[station];
+    }
+
+    public int stationCity(int station) {
+        return stationCity[station];
+    }
+
+    public int firstDeparture(int city) {
+        return cityFirstDeparture[city];
+    }
+
+    public int endDeparture(int city) {
+        return cityFirstDeparture[city + 1];
+    }
+
+    public int stationFirstDeparture(int station) {
+        return stationFirstDeparture[station];
+    }
+
+    public int stationEndDeparture(int station) {
+        return stationFirstDeparture[station + 1];
+    }
+
+    /**
+     * Vraća indeks prvog polaska sa stanice u minutu {@code minute} ili kasnije istog dana.
+     * Ako takvog polaska nema, vraća se prvi polazak stanice, koji je naredni polazak
+     * narednog dana. Prolaz od vraćenog indeksa do kraja stanice, pa od početka stanice,
+     * obilazi polaske redom kojim se mogu uhvatiti.
+     *
+     * @param station identifikator stanice
+     * @param minute  minut dana, {@code [0, 1440)}
+     * @return indeks polaska ili {@code -1} ako stanica nema polazaka
+     */
+    public int nextDeparture(int station, int minute) {
+        int first = stationFirstDeparture[station];
+        int end = stationFirstDeparture[station + 1];
+        if (first == end) return -1;
+        int lo = first;
+        int hi = end;
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (minute(mid) < minute) lo = mid + 1;
+            else hi = mid;
+        }
+        return lo == end ? first : lo;
+    }
+
+    public int fromStation(int departure) {
+        return nameStation[departureTable.fromId(depRow[departure])];
+    }
+
+    public int fromCity(int departure) {
+        // autobuska stanica grada c je 2c, a željeznička 2c + 1
+        return fromStation(departure) >> 1;
+    }
+
+    public int toCity(int departure) {
+        return nameCity[departureTable.toId(depRow[departure])];
+    }
+
+    public int minute(int departure) {
+        return departureTable.minute(depRow[departure]);
+    }
+
+    public int duration(int departure) {
+        return departureTable.duration(depRow[departure]);
+    }
+
+    public int price(int departure) {
+        return departureTable.price(depRow[departure]);
+    }
+
+    public int minTransfer(int departure) {
+        return departureTable.minTransfer(depRow[departure]);
+    }
+
+    /**
+     * Vraća {@link ConnectionScan} nad ovom mrežom. Globalni niz veza sortiran po vremenu
+     * gradi se pri prvom pozivu i dijeli između svih narednih upita.
+     *
+     * @return CSA pretraga nad ovom mrežom
+     */
+    public ConnectionScan connectionScan() {
+        ConnectionScan scan = connectionScan;
+        if (scan == null) {
+            synchronized (this) {
+                scan = connectionScan;
+                if (scan == null) {
+                    scan = new ConnectionScan(this);
+                    connectionScan = scan;
+                }
+            }
+        }
+        return scan;
+    }
+
+    /**
+     * Vraća {@link Raptor} pretragu nad ovom mrežom. Linije i vožnje se grade pri
+     * prvom pozivu i dijele između svih narednih upita.
+     *
+     * @return RAPTOR pretraga nad ovom mrežom
+     */
+    public Raptor raptor() {
+        Raptor result = raptor;
+        if (result == null) {
+            synchronized (this) {
+                result = raptor;
+                if (result == null) {
+                    result = new Raptor(this);
+                    raptor = result;
+                }
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Vraća {@link McRaptor} pretragu nad ovom mrežom. Koristi iste linije kao
+     * {@link #raptor()}, a stanje pretrage ponovo koristi između upita iste niti.
+     *
+     * @return McRAPTOR pretraga nad ovom mrežom
+     */
+    public McRaptor mcRaptor() {
+        McRaptor result = mcRaptor;
+        if (result == null) {
+            synchronized (this) {
+                result = mcRaptor;
+                if (result == null) {
+                    result = new McRaptor(this);
+                    mcRaptor = result;
+                }
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Vraća {@link ContractionHierarchy} nad ovom mrežom, gradeći je pri prvom pozivu.
+     * Priprema je skuplja od ostalih struktura, pa se obično pokreće unaprijed pomoću
+     * {@link #prepareContractionHierarchy()}.
+     *
+     * @return CH struktura za upite po cijeni
+     */
+    public ContractionHierarchy contractionHierarchy() {
+        ContractionHierarchy result = contractionHierarchy;
+        if (result == null) {
+            synchronized (this) {
+                result = contractionHierarchy;
+                if (result == null) {
+                    result = new ContractionHierarchy(this);
+                    contractionHierarchy = result;
+                }
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Vraća radni prostor pretrage tekuće niti. Primjerak se pravi pri prvom pozivu iz
+     * niti i ponovo koristi za sve naredne upite te niti, pa pretrage ne alociraju nizove
+     * veličine mreže po upitu.
+     *
+     * @return radni prostor tekuće niti
+     */
+    SearchWorkspace workspace() {
+        return workspaces.get();
+    }
+
+    /**
+     * Vraća radni prostor pretrage prema svim gradovima za tekuću nit, po istom principu
+     * kao {@link #workspace()}. Koristi ga {@link CostMatrix}, pa uzastopne matrice nad
+     * istom mrežom ne alociraju nove nizove u radnim nitima.
+     *
+     * @return radni prostor tekuće niti
+     */
+    OneToAllSearch oneToAllSearch() {
+        return oneToAllSearches.get();
+    }
+
+    /**
+     * Vraća {@link ContractionHierarchy} samo ako je priprema završena, bez čekanja.
+     *
+     * @return CH struktura ili {@code null} ako još nije izgrađena
+     */
+    public ContractionHierarchy contractionHierarchyIfReady() {
+        return contractionHierarchy;
+    }
+
+    /**
+     * Pokreće izgradnju {@link ContractionHierarchy} u pozadinskoj niti. Do završetka
+     * pripreme pretraga po cijeni koristi A* algoritam.
+     */
+    public void prepareContractionHierarchy() {
+        if (contractionHierarchy != null) return;
+        Thread thread = new Thread(this::contractionHierarchy, "ch-preprocessing");
+        thread.setDaemon(true);
+        thread.setPriority(Thread.MIN_PRIORITY);
+        thread.start();
+    }
+
+    /**
+     * Vraća {@link Departure} – pogled na red tabele polazaka – za zadati indeks polaska;
+     * koristi se samo pri sastavljanju konačnih rezultata pretrage.
+     */
+    public Departure departure(int departure) {
+        return departureTable.get(depRow[departure]);
+    }
+}
@@ -0,0 +1,490 @@
+package org.unibl.etf.algo;
+
+import org.unibl.etf.model.Departure;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Klasa {@code ConnectionScan} implementira <i>Connection Scan Algorithm</i> (CSA)
+ * za pronalaženje najranijeg dolaska između dva grada.
+ * <p>
+ * Svi polasci mreže se jednom sortiraju po minutu polaska u jedan globalni niz veza.
+ * Upit se zatim izvršava kao linearni prolaz kroz taj niz, bez reda sa prioritetom:
+ * veza se može iskoristiti ako je grad iz kojeg polazi dostignut na vrijeme, a dolazak
+ * njome ažurira vrijeme od kojeg je odredišni grad spreman za naredni polazak.
+ * </p>
+ * <p>
+ * Red vožnje se ponavlja svakog dana, pa se niz veza prolazi dan po dan (vrijeme polaska
+ * je {@code dan * 1440 + minut}) sve dok se ne pronađe odredište ili dok naredni dani
+ * više ne mogu poboljšati nijedan grad. Pri svakom presjedanju poštuje se
+ * {@code minTransferTime} polaska kojim se stiglo u grad.
+ * </p>
+ *
+ * @author Saša Vujančević
+ */
+public class ConnectionScan {
+
+    static final int MINUTES_PER_DAY = Departure.MINUTES_PER_DAY;
+    private static final int INFINITY = Integer.MAX_VALUE;
+
+    private final CompiledNetwork network;
+
+    private final int[] connDeparture;
+    private final int[] connFrom;
+    private final int[] connTo;
+    private final int[] connMinute;
+    private final int[] connArrival;
+    private final int[] connTransfer;
+
+    private final ThreadLocal<Scan> scans;
+
+    /**
+     * Gradi globalni, po vremenu sortiran niz veza iz kompaktne mreže.
+     *
+     * @param network kompaktna mreža
+     */
+    public ConnectionScan(CompiledNetwork network) {
+        this.network = network;
+        int n = network.departureCount();
+
+        Integer[] order = new Integer[n];
+        for (int d = 0; d < n; d++) {
+            order[d] = d;
+        }
+        Arrays.sort(order, (a, b) -> Integer.compare(network.minute(a), network.minute(b)));
+
+        connDeparture = new int[n];
+        connFrom = new int[n];
+        connTo = new int[n];
+        connMinute = new int[n];
+        connArrival = new int[n];
+        connTransfer = new int[n];
+        for (int i = 0; i < n; i++) {
+            int d = order[i];
+            connDeparture[i] = d;
+            connFrom[i] = network.fromCity(d);
+            connTo[i] = network.toCity(d);
+            connMinute[i] = network.minute(d);
+            connArrival[i] = network.minute(d) + network.duration(d);
+            connTransfer[i] = network.minTransfer(d);
+        }
+        scans = ThreadLocal.withInitial(() -> new Scan(network.cityCount()));
+    }
+
+    /**
+     * Pronalazi putovanje sa najranijim dolaskom na odredište ako se iz polaznog grada
+     * krene najranije u zadato vrijeme.
+     *
+     * @param origin    identifikator polaznog grada
+     * @param target    identifikator odredišnog grada
+     * @param startTime vrijeme polaska u minutima od ponoći prvog dana
+     * @return putovanje sa najranijim dolaskom ili {@code null} ako odredište nije dostižno
+     */
+    public Journey earliestArrival(int origin, int target, int startTime) {
+        return earliestArrival(origin, target, startTime, SearchBudget.unlimited());
+    }
+
+    /**
+     * Pronalazi putovanje sa najranijim dolaskom uz ograničenje potrošnje upita. Rok i
+     * otkazivanje se provjeravaju tokom prolaza kroz veze; prekinuto skeniranje vraća
+     * dotad pronađeni dolazak na odredište, koji ne mora biti najraniji.
+     */
+    Journey earliestArrival(int origin, int target, int startTime, SearchBudget budget) {
+        if (origin == target) return null;
+        Scan scan = scans.get();
+        return scan.run(origin, target, startTime, INFINITY, budget) ? scan.journey(origin) : null;
+    }
+
+    /**
+     * Pronalazi najbrže putovanje između dva grada, bez obzira na vrijeme polaska.
+     * <p>
+     * Kako se trajanje mjeri od prvog polaska do dolaska, dovoljno je pokrenuti skeniranje
+     * za svaki različit minut polaska iz početnog grada i zadržati putovanje sa
+     * najkraćim trajanjem.
+     * </p>
+     *
+     * @param origin identifikator polaznog grada
+     * @param target identifikator odredišnog grada
+     * @return najbrže putovanje ili {@code null} ako odredište nije dostižno
+     */
+    public Journey fastest(int origin, int target) {
+        return fastest(origin, target, SearchBudget.unlimited());
+    }
+
+    /**
+     * Pronalazi najbrže putovanje uz ograničenje potrošnje upita. Rok i otkazivanje se
+     * provjeravaju prije i tokom svakog skeniranja; ako pretraga bude prekinuta, vraća se
+     * najbrže putovanje među dotad skeniranim minutima polaska.
+     */
+    Journey fastest(int origin, int target, SearchBudget budget) {
+        if (origin == target) return null;
+
+        int first = network.firstDeparture(origin);
+        int end = network.endDeparture(origin);
+        int[] startTimes = new int[end - first];
+        for (int d = first; d < end; d++) {
+            startTimes[d - first] = network.minute(d);
+        }
+        Arrays.sort(startTimes);
+
+        Scan scan = scans.get();
+        Journey best = null;
+        for (int i = 0; i < startTimes.length; i++) {
+            if (i > 0 && startTimes[i] == startTimes[i - 1]) continue;
+            if (!budget.check()) break;
+            if (!scan.run(origin, target, startTimes[i], INFINITY, budget)) {
+                return best;
+            }
+            Journey journey = scan.journey(origin);
+            if (best == null || journey.getDuration() < best.getDuration()) {
+                best = journey;
+            }
+        }
+        return best;
+    }
+
+    /**
+     * Profilni upit: pronalazi sva putovanja sa polaskom iz polaznog grada u zadatom
+     * vremenskom prozoru koja nisu dominirana – u prozoru ne postoji putovanje sa kasnijim
+     * (ili istim) polaskom i ranijim (ili istim) dolaskom. Zajedno čine funkciju najranijeg
+     * dolaska za cijeli prozor.
+     * <p>
+     * Umjesto zasebnog upita za svaki minut polaska, niz veza se prolazi jednom unazad,
+     * od najkasnijeg relevantnog polaska do početka prozora. Svaki grad čuva profil –
+     * parove (polazak, dolazak) poređane po opadajućem vremenu polaska, gdje se dolasci
+     * strogo smanjuju. Za vezu se najraniji dolazak određuje direktno (ako vodi do odredišta)
+     * ili binarnom pretragom profila grada u koji stiže, od trenutka kada je moguće
+     * presjedanje. Najkasniji relevantni dolazak ima putovanje koje počinje posljednjim
+     * polaskom u prozoru, pa se veze nakon njega ne skeniraju.
+     * </p>
+     *
+     * @param origin     identifikator polaznog grada
+     * @param target     identifikator odredišnog grada
+     * @param fromMinute početak prozora polaska, u minutima od ponoći
+     * @param toMinute   kraj prozora polaska (uključivo), u minutima od ponoći
+     * @return nedominirana putovanja poređana po vremenu polaska
+     */
+    public List<Journey> profile(int origin, int target, int fromMinute, int toMinute) {
+        return profile(origin, target, fromMinute, toMinute, SearchBudget.unlimited());
+    }
+
+    /**
+     * Profilni upit uz ograničenje potrošnje upita. Veze se prolaze unazad, pa prekinut
+     * prolaz vraća tačne unose za polaske nakon mjesta prekida, a ranije polaske izostavlja.
+     */
+    List<Journey> profile(int origin, int target, int fromMinute, int toMinute, SearchBudget budget) {
+        if (origin == target || toMinute < fromMinute) return Collections.emptyList();
+
+        int last = -1;
+        for (int d = network.firstDeparture(origin); d < network.endDeparture(origin); d++) {
+            int minute = network.minute(d);
+            if (minute >= fromMinute && minute <= toMinute) last = Math.max(last, minute);
+        }
+        if (last < 0) return Collections.emptyList();
+
+        Scan scan = scans.get();
+        if (!scan.run(origin, target, last, last, budget) || budget.stopped()) return Collections.emptyList();
+        int horizon = scan.targetArrival;
+
+        Profiles profiles = new Profiles(network.cityCount());
+        int n = connMinute.length;
+        int lastDay = Math.floorDiv(horizon, MINUTES_PER_DAY);
+        int firstIndex = firstConnectionAtOrAfter(fromMinute);
+
+        for (int day = lastDay; day >= 0 && !budget.stopped(); day--) {
+            int base = day * MINUTES_PER_DAY;
+            int stop = day == 0 ? firstIndex : 0;
+            for (int i = n - 1; i >= stop; i--) {
+                if (!budget.scan(i)) break;
+                int dep = base + connMinute[i];
+                if (dep > horizon) continue;
+                int from = connFrom[i];
+                // iz polaznog grada se kreće samo polascima iz prozora
+                if (from == origin && (day > 0 || connMinute[i] > toMinute)) continue;
+
+                int to = connTo[i];
+                int arrival = base + connArrival[i];
+                int best;
+                int next = -1;
+                if (to == target) {
+                    best = arrival;
+                } else {
+                    next = profiles.entryAtOrAfter(to, arrival + connTransfer[i]);
+                    if (next < 0) continue;
+                    best = profiles.arrival[next];
+                }
+                if (best > horizon) continue;
+                profiles.add(from, dep, best, i, next);
+            }
+        }
+
+        List<Journey> journeys = new ArrayList<>();
+        for (int e = profiles.head[origin]; e >= 0; e = profiles.previous[e]) {
+            journeys.add(profiles.journey(e));
+        }
+        return journeys;
+    }
+
+    /**
+     * Profili svih gradova u jednom skladištu: svaki unos čuva vrijeme polaska i dolaska,
+     * vezu kojom počinje i unos profila narednog grada kojim se putovanje nastavlja.
+     * Unosi jednog grada su povezani od posljednjeg (najranijeg polaska) ka prvom.
+     */
+    private class Profiles {
+        final int[] head;
+        final int[] count;
+        int[][] byCity;
+
+        int[] departure = new int[256];
+        int[] arrival = new int[256];
+        int[] conn = new int[256];
+        int[] next = new int[256];
+        int[] previous = new int[256];
+        int size;
+
+        Profiles(int cityCount) {
+            head = new int[cityCount];
+            count = new int[cityCount];
+            byCity = new int[cityCount][];
+            Arrays.fill(head, -1);
+        }
+
+        /**
+         * Vraća unos sa najranijim dolaskom među unosima grada čiji polazak nije raniji
+         * od {@code time}, ili {@code -1} ako takav ne postoji.
+         */
+        int entryAtOrAfter(int city, int time) {
+            int[] entries = byCity[city];
+            int lo = 0;
+            int hi = count[city];
+            // polasci opadaju sa indeksom, pa se traži posljednji unos sa polaskom >= time
+            while (lo < hi) {
+                int mid = (lo + hi) >>> 1;
+                if (departure[entries[mid]] >= time) lo = mid + 1;
+                else hi = mid;
+            }
+            return lo == 0 ? -1 : entries[lo - 1];
+        }
+
+        void add(int city, int dep, int arr, int connection, int nextEntry) {
+            int h = head[city];
+            if (h >= 0 && arrival[h] <= arr) return;
+            // unos sa istim polaskom, a kasnijim dolaskom, se zamjenjuje
+            if (h >= 0 && departure[h] == dep) {
+                count[city]--;
+                h = previous[h];
+            }
+
+            if (size == departure.length) {
+                int capacity = size * 2;
+                departure = Arrays.copyOf(departure, capacity);
+                arrival = Arrays.copyOf(arrival, capacity);
+                conn = Arrays.copyOf(conn, capacity);
+                next = Arrays.copyOf(next, capacity);
+                previous = Arrays.copyOf(previous, capacity);
+            }
+            int e = size++;
+            departure[e] = dep;
+            arrival[e] = arr;
+            conn[e] = connection;
+            next[e] = nextEntry;
+            previous[e] = h;
+            head[city] = e;
+
+            int[] entries = byCity[city];
+            if (entries == null) entries = new int[4];
+            else if (count[city] == entries.length) entries = Arrays.copyOf(entries, entries.length * 2);
+            entries[count[city]++] = e;
+            byCity[city] = entries;
+        }
+
+        Journey journey(int entry) {
+            List<Departure> legs = new ArrayList<>();
+            int price = 0;
+            for (int e = entry; e >= 0; e = next[e]) {
+                int d = connDeparture[conn[e]];
+                legs.add(network.departure(d));
+                price += network.price(d);
+            }
+            return new Journey(legs, departure[entry], arrival[entry], price);
+        }
+    }
+
+    /**
+     * Skenira sve veze od polaznog grada bez odredišta i za svaki grad upisuje najraniji
+     * dolazak, kao i cijenu i broj presjedanja putovanja kojim se do njega stiže.
+     * <p>
+     * Koristi se za {@link OneToAllSearch}: skeniranje se ne prekida dolaskom u neki grad, već
+     * traje dok u cijelom danu nijedan grad nije poboljšan, a svi gradovi su bili spremni
+     * prije početka tog dana. Cijena i presjedanja se prenose sa putovanja kojim je grad
+     * najranije spreman za naredni polazak.
+     * </p>
+     *
+     * @param origin    identifikator polaznog grada
+     * @param startTime vrijeme polaska u minutima od ponoći prvog dana
+     * @param search    radni prostor sa pripremljenim nizovima; rezultat se upisuje u njega
+     * @param budget    ograničenje potrošnje; nakon prekida su vremena dolaska gornje granice
+     */
+    void scanAll(int origin, int startTime, OneToAllSearch search, SearchBudget budget) {
+        int[] ready = search.ready;
+        int[] readyPrice = search.readyPrice;
+        int[] readyLegs = search.readyLegs;
+        int[] arrival = search.arrival;
+        int[] price = search.price;
+        int[] transfers = search.transfers;
+
+        int day = Math.floorDiv(startTime, MINUTES_PER_DAY);
+        int from = firstConnectionAtOrAfter(Math.floorMod(startTime, MINUTES_PER_DAY));
+        int maxReady = startTime;
+
+        while (true) {
+            int base = day * MINUTES_PER_DAY;
+            boolean improved = false;
+            for (int i = from; i < connMinute.length; i++) {
+                if (!budget.scan(i)) break;
+                int fromCity = connFrom[i];
+                int dep = base + connMinute[i];
+                if (ready[fromCity] > dep) continue;
+                int to = connTo[i];
+                if (to == origin) continue;
+
+                int arrivalTime = base + connArrival[i];
+                int cost = readyPrice[fromCity] + network.price(connDeparture[i]);
+                int legs = readyLegs[fromCity] + 1;
+                if (arrivalTime < arrival[to]) {
+                    arrival[to] = arrivalTime;
+                    price[to] = cost;
+                    transfers[to] = legs - 1;
+                    improved = true;
+                }
+
+                int readyAt = arrivalTime + connTransfer[i];
+                if (readyAt < ready[to]) {
+                    ready[to] = readyAt;
+                    readyPrice[to] = cost;
+                    readyLegs[to] = legs;
+                    improved = true;
+                    maxReady = Math.max(maxReady, readyAt);
+                }
+            }
+
+            if (budget.stopped() || !improved && maxReady <= base) break;
+            from = 0;
+            day++;
+        }
+    }
+
+    /**
+     * Stanje jednog skeniranja; nizovi se ponovo koriste između uzastopnih skeniranja,
+     * a svaka nit ima svoj primjerak za sve svoje upite. Niz {@code ready} se briše punim
+     * prolazom, jer linearni prolaz kroz sve veze ionako dominira cijenom upita.
+     */
+    private class Scan {
+        final int[] ready;
+        final int[] parentConn;
+        final int[] parentDay;
+        int target;
+        int targetArrival;
+        int targetConn;
+        int targetDay;
+
+        Scan(int cityCount) {
+            ready = new int[cityCount];
+            parentConn = new int[cityCount];
+            parentDay = new int[cityCount];
+        }
+
+        /**
+         * @param originDeadline najkasnije vrijeme polaska iz polaznog grada
+         * @param budget         ograničenje potrošnje; prekinuto skeniranje zadržava dotad
+         *                       pronađeni dolazak na odredište
+         */
+        boolean run(int origin, int target, int startTime, int originDeadline, SearchBudget budget) {
+            Arrays.fill(ready, INFINITY);
+            ready[origin] = startTime;
+            this.target = target;
+            targetArrival = INFINITY;
+            targetConn = -1;
+
+            int day = Math.floorDiv(startTime, MINUTES_PER_DAY);
+            int from = firstConnectionAtOrAfter(Math.floorMod(startTime, MINUTES_PER_DAY));
+            int maxReady = startTime;
+
+            while (true) {
+                int base = day * MINUTES_PER_DAY;
+                if (base >= targetArrival) break;
+
+                boolean improved = false;
+                for (int i = from; i < connMinute.length; i++) {
+                    if (!budget.scan(i)) break;
+                    int dep = base + connMinute[i];
+                    if (dep >= targetArrival) break;
+                    if (ready[connFrom[i]] > dep) continue;
+                    if (connFrom[i] == origin && dep > originDeadline) continue;
+
+                    int to = connTo[i];
+                    int arrival = base + connArrival[i];
+                    if (to == target) {
+                        if (arrival < targetArrival) {
+                            targetArrival = arrival;
+                            targetConn = i;
+                            targetDay = day;
+                        }
+                        continue;
+                    }
+
+                    int readyAt = arrival + connTransfer[i];
+                    if (readyAt < ready[to]) {
+                        ready[to] = readyAt;
+                        parentConn[to] = i;
+                        parentDay[to] = day;
+                        improved = true;
+                        maxReady = Math.max(maxReady, readyAt);
+                    }
+                }
+
+                // ako u cijelom danu nijedan grad nije poboljšan, a svi su bili spremni
+                // prije početka tog dana, naredni dani daju samo kasnije dolaske
+                if (budget.stopped() || !improved && maxReady <= base) break;
+                from = 0;
+                day++;
+            }
+            return targetConn >= 0;
+        }
+
+        Journey journey(int origin) {
+            List<Departure> legs = new ArrayList<>();
+            int price = 0;
+            int conn = targetConn;
+            int day = targetDay;
+            int departureTime;
+            while (true) {
+                int d = connDeparture[conn];
+                legs.add(network.departure(d));
+                price += network.price(d);
+                departureTime = day * MINUTES_PER_DAY + connMinute[conn];
+
+                int from = connFrom[conn];
+                if (from == origin) break;
+                conn = parentConn[from];
+                day = parentDay[from];
+            }
+            Collections.reverse(legs);
+            return new Journey(legs, departureTime, targetArrival, price);
+        }
+    }
+
+    private int firstConnectionAtOrAfter(int minute) {
+        int lo = 0;
+        int hi = connMinute.length;
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (connMinute[mid] < minute) lo = mid + 1;
+            else hi = mid;
+        }
+        return lo;
+    }
+}
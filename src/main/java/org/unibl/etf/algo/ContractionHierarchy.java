@@ -0,0 +1,551 @@
+package org.unibl.etf.algo;
+
+import org.unibl.etf.model.Departure;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Klasa {@code ContractionHierarchy} implementira <i>Contraction Hierarchies</i> (CH)
+ * za trenutno pronalaženje najjeftinije rute.
+ * <p>
+ * Cijena rute ne zavisi od vremena polaska, pa se mreža svodi na graf gradova u kojem
+ * između dva grada postoji najviše jedna grana – najjeftiniji polazak među paralelnim
+ * polascima ({@link org.unibl.etf.model.Station#getDepartures()}). Pri pripremi se gradovi
+ * jedan po jedan <i>kontrahuju</i> redom koji određuje razlika broja dodatih prečica i
+ * uklonjenih grana. Kada se grad ukloni, između svakog para susjeda čija najjeftinija veza
+ * vodi kroz njega dodaje se prečica, osim ako lokalna pretraga ne pronađe svjedoka –
+ * jednako jeftin put koji ga zaobilazi.
+ * </p>
+ * <p>
+ * Upit je dvosmjerna Dijkstra pretraga koja od polaznog grada ide samo granama ka gradovima
+ * višeg ranga, a od odredišta samo granama iz gradova višeg ranga. Obje pretrage obilaze
+ * mali dio mreže, a pronađena ruta se zatim raspakuje iz prečica nazad u konkretne
+ * {@link Departure} objekte.
+ * </p>
+ *
+ * @author Saša Vujančević
+ */
+public class ContractionHierarchy {
+
+    private static final int SIMULATION_SETTLE_LIMIT = 40;
+    private static final int CONTRACTION_SETTLE_LIMIT = 400;
+    private static final long INFINITY = Long.MAX_VALUE;
+
+    private final CompiledNetwork network;
+    private final int cityCount;
+
+    private int[] edgeFrom = new int[64];
+    private int[] edgeTo = new int[64];
+    private long[] edgeWeight = new long[64];
+    private int[] edgeDeparture = new int[64];
+    private int[] edgeFirst = new int[64];
+    private int[] edgeSecond = new int[64];
+    private int edgeCount;
+
+    private final int[] rank;
+    private int[] upFirst;
+    private int[] upEdge;
+    private int[] downFirst;
+    private int[] downEdge;
+
+    private final ThreadLocal<Query> queries;
+
+    /**
+     * Kontrahuje graf gradova kompaktne mreže. Priprema može trajati, pa se obično
+     * pokreće u pozadini ({@link CompiledNetwork#prepareContractionHierarchy()}).
+     *
+     * @param network kompaktna mreža
+     */
+    public ContractionHierarchy(CompiledNetwork network) {
+        this.network = network;
+        this.cityCount = network.cityCount();
+        this.rank = new int[cityCount];
+        new Preprocessing().run();
+        this.queries = ThreadLocal.withInitial(() -> new Query(cityCount));
+    }
+
+    /**
+     * Pronalazi najjeftiniju rutu između dva grada.
+     *
+     * @param origin identifikator polaznog grada
+     * @param target identifikator odredišnog grada
+     * @return najjeftinije putovanje ili {@code null} ako odredište nije dostižno
+     */
+    public Journey cheapest(int origin, int target) {
+        return cheapest(origin, target, SearchBudget.unlimited());
+    }
+
+    /**
+     * Pronalazi najjeftiniju rutu uz ograničenje potrošnje upita; svaki grad preuzet iz
+     * jednog od dva reda troši jedno proširenje. Prekinuta pretraga vraća najjeftiniju
+     * rutu kroz dotad pronađeni grad susreta, koja ne mora biti najjeftinija.
+     */
+    Journey cheapest(int origin, int target, SearchBudget budget) {
+        if (origin == target) return null;
+        Query query = queries.get();
+        try {
+            int meeting = query.run(origin, target, budget);
+            if (meeting < 0) return null;
+
+            List<Departure> legs = new ArrayList<>();
+            List<Integer> upward = new ArrayList<>();
+            for (int city = meeting; city != origin; city = edgeFrom[query.forwardParent[city]]) {
+                upward.add(query.forwardParent[city]);
+            }
+            Collections.reverse(upward);
+            for (int e : upward) {
+                unpack(e, legs);
+            }
+            for (int city = meeting; city != target; city = edgeTo[query.backwardParent[city]]) {
+                unpack(query.backwardParent[city], legs);
+            }
+            return Journey.of(legs);
+        } finally {
+            query.reset();
+        }
+    }
+
+    /**
+     * Zamjenjuje granu nizom polazaka koje predstavlja; prečice se raspakuju rekurzivno.
+     */
+    private void unpack(int edge, List<Departure> legs) {
+        if (edgeDeparture[edge] >= 0) {
+            legs.add(network.departure(edgeDeparture[edge]));
+        } else {
+            unpack(edgeFirst[edge], legs);
+            unpack(edgeSecond[edge], legs);
+        }
+    }
+
+    private int addEdge(int from, int to, long weight, int departure, int first, int second) {
+        if (edgeCount == edgeFrom.length) {
+            int capacity = edgeCount * 2;
+            edgeFrom = Arrays.copyOf(edgeFrom, capacity);
+            edgeTo = Arrays.copyOf(edgeTo, capacity);
+            edgeWeight = Arrays.copyOf(edgeWeight, capacity);
+            edgeDeparture = Arrays.copyOf(edgeDeparture, capacity);
+            edgeFirst = Arrays.copyOf(edgeFirst, capacity);
+            edgeSecond = Arrays.copyOf(edgeSecond, capacity);
+        }
+        int e = edgeCount++;
+        edgeFrom[e] = from;
+        edgeTo[e] = to;
+        edgeWeight[e] = weight;
+        edgeDeparture[e] = departure;
+        edgeFirst[e] = first;
+        edgeSecond[e] = second;
+        return e;
+    }
+
+    /**
+     * Stanje pripreme: dinamičke liste ulaznih i izlaznih grana i lokalna pretraga svjedoka.
+     */
+    private class Preprocessing {
+        final int[][] out = new int[cityCount][];
+        final int[] outSize = new int[cityCount];
+        final int[][] in = new int[cityCount][];
+        final int[] inSize = new int[cityCount];
+        final boolean[] contracted = new boolean[cityCount];
+        final int[] contractedNeighbours = new int[cityCount];
+
+        final long[] dist = new long[cityCount];
+        final int[] targetStamp = new int[cityCount];
+        int stamp;
+        final int[] touched = new int[cityCount];
+        int touchedCount;
+        final LongHeap heap = new LongHeap();
+
+        void run() {
+            Arrays.fill(dist, INFINITY);
+            addOriginalEdges();
+
+            LongHeap order = new LongHeap();
+            for (int v = 0; v < cityCount; v++) {
+                order.push(pack(priority(v), v));
+            }
+
+            int nextRank = 0;
+            while (!order.isEmpty()) {
+                int v = unpackNode(order.pop());
+                int priority = priority(v);
+                if (!order.isEmpty() && pack(priority, v) > order.peek()) {
+                    order.push(pack(priority, v));
+                    continue;
+                }
+                contract(v, false);
+                contracted[v] = true;
+                rank[v] = nextRank++;
+            }
+            buildSearchGraphs();
+        }
+
+        /**
+         * Između dva grada zadržava samo najjeftiniji polazak.
+         */
+        void addOriginalEdges() {
+            int[] cheapest = new int[cityCount];
+            Arrays.fill(cheapest, -1);
+            for (int u = 0; u < cityCount; u++) {
+                int first = network.firstDeparture(u);
+                int end = network.endDeparture(u);
+                for (int d = first; d < end; d++) {
+                    int v = network.toCity(d);
+                    if (v == u) continue;
+                    if (cheapest[v] < 0 || network.price(d) < network.price(cheapest[v])) {
+                        cheapest[v] = d;
+                    }
+                }
+                for (int d = first; d < end; d++) {
+                    int v = network.toCity(d);
+                    if (cheapest[v] == d) {
+                        link(addEdge(u, v, network.price(d), d, -1, -1));
+                    }
+                }
+                for (int d = first; d < end; d++) {
+                    cheapest[network.toCity(d)] = -1;
+                }
+            }
+        }
+
+        void link(int e) {
+            int u = edgeFrom[e];
+            int v = edgeTo[e];
+            out[u] = append(out[u], outSize[u]++, e);
+            in[v] = append(in[v], inSize[v]++, e);
+        }
+
+        /**
+         * Uklanja granu iz lista, pa liste sadrže samo grane između nekontrahovanih gradova.
+         */
+        void unlink(int e) {
+            int u = edgeFrom[e];
+            int v = edgeTo[e];
+            outSize[u] = remove(out[u], outSize[u], e);
+            inSize[v] = remove(in[v], inSize[v], e);
+        }
+
+        int remove(int[] list, int size, int e) {
+            for (int i = 0; i < size; i++) {
+                if (list[i] == e) {
+                    list[i] = list[size - 1];
+                    return size - 1;
+                }
+            }
+            return size;
+        }
+
+        /**
+         * Dodaje prečicu, zamjenjujući postojeću skuplju granu između istih gradova.
+         */
+        void addShortcut(int u, int w, long weight, int first, int second) {
+            for (int i = 0; i < outSize[u]; i++) {
+                int e = out[u][i];
+                if (edgeTo[e] == w) {
+                    if (edgeWeight[e] <= weight) return;
+                    unlink(e);
+                    break;
+                }
+            }
+            link(addEdge(u, w, weight, -1, first, second));
+        }
+
+        int[] append(int[] list, int size, int e) {
+            if (list == null) list = new int[4];
+            else if (size == list.length) list = Arrays.copyOf(list, size * 2);
+            list[size] = e;
+            return list;
+        }
+
+        /**
+         * Prioritet kontrakcije: razlika broja prečica i uklonjenih grana, uvećana za broj
+         * već kontrahovanih susjeda kako bi se kontrakcija ravnomjerno širila kroz mrežu.
+         */
+        int priority(int v) {
+            int removed = 0;
+            for (int i = 0; i < inSize[v]; i++) {
+                if (!contracted[edgeFrom[in[v][i]]]) removed++;
+            }
+            for (int i = 0; i < outSize[v]; i++) {
+                if (!contracted[edgeTo[out[v][i]]]) removed++;
+            }
+            return contract(v, true) - removed + contractedNeighbours[v];
+        }
+
+        /**
+         * Dodaje (ili samo broji, ako je {@code simulate}) prečice potrebne za uklanjanje grada {@code v}.
+         */
+        int contract(int v, boolean simulate) {
+            int shortcuts = 0;
+            long maxOut = 0;
+            for (int j = 0; j < outSize[v]; j++) {
+                maxOut = Math.max(maxOut, edgeWeight[out[v][j]]);
+            }
+
+            for (int i = 0; i < inSize[v]; i++) {
+                int incoming = in[v][i];
+                int u = edgeFrom[incoming];
+                if (contracted[u]) continue;
+                if (!simulate) contractedNeighbours[u]++;
+
+                stamp++;
+                int targets = 0;
+                for (int j = 0; j < outSize[v]; j++) {
+                    int w = edgeTo[out[v][j]];
+                    if (w != u && targetStamp[w] != stamp) {
+                        targetStamp[w] = stamp;
+                        targets++;
+                    }
+                }
+                witnessSearch(u, v, edgeWeight[incoming] + maxOut, targets,
+                        simulate ? SIMULATION_SETTLE_LIMIT : CONTRACTION_SETTLE_LIMIT);
+                for (int j = 0; j < outSize[v]; j++) {
+                    int outgoing = out[v][j];
+                    int w = edgeTo[outgoing];
+                    if (contracted[w] || w == u) continue;
+
+                    long weight = edgeWeight[incoming] + edgeWeight[outgoing];
+                    if (dist[w] <= weight) continue;
+                    shortcuts++;
+                    if (!simulate) {
+                        addShortcut(u, w, weight, incoming, outgoing);
+                    }
+                }
+                clearWitness();
+            }
+            if (!simulate) {
+                for (int j = 0; j < outSize[v]; j++) {
+                    int e = out[v][j];
+                    contractedNeighbours[edgeTo[e]]++;
+                    int w = edgeTo[e];
+                    inSize[w] = remove(in[w], inSize[w], e);
+                }
+                for (int i = 0; i < inSize[v]; i++) {
+                    int e = in[v][i];
+                    int u = edgeFrom[e];
+                    outSize[u] = remove(out[u], outSize[u], e);
+                }
+            }
+            return shortcuts;
+        }
+
+        /**
+         * Ograničena Dijkstra pretraga iz {@code source} koja zaobilazi grad {@code via}
+         * i kontrahovane gradove. Završava se kada su svi ciljni susjedi preuzeti iz reda,
+         * kada udaljenost pređe {@code maxWeight} ili nakon {@code settleLimit} gradova.
+         */
+        void witnessSearch(int source, int via, long maxWeight, int targets, int settleLimit) {
+            dist[source] = 0;
+            touched[touchedCount++] = source;
+            heap.push(pack(0, source));
+            int settled = 0;
+            while (!heap.isEmpty() && settled < settleLimit) {
+                long entry = heap.pop();
+                int u = unpackNode(entry);
+                long d = unpackKey(entry);
+                if (d > dist[u]) continue;
+                if (d > maxWeight) break;
+                settled++;
+                if (targetStamp[u] == stamp && --targets == 0) break;
+                for (int i = 0; i < outSize[u]; i++) {
+                    int e = out[u][i];
+                    int w = edgeTo[e];
+                    if (w == via || contracted[w]) continue;
+                    long nd = d + edgeWeight[e];
+                    if (nd < dist[w]) {
+                        if (dist[w] == INFINITY) touched[touchedCount++] = w;
+                        dist[w] = nd;
+                        heap.push(pack(nd, w));
+                    }
+                }
+            }
+            heap.clear();
+        }
+
+        void clearWitness() {
+            for (int i = 0; i < touchedCount; i++) {
+                dist[touched[i]] = INFINITY;
+            }
+            touchedCount = 0;
+        }
+
+        /**
+         * Gradi CSR liste grana naviše (po polaznom gradu) i grana naniže (po odredišnom gradu).
+         */
+        void buildSearchGraphs() {
+            upFirst = new int[cityCount + 1];
+            downFirst = new int[cityCount + 1];
+            for (int e = 0; e < edgeCount; e++) {
+                if (rank[edgeTo[e]] > rank[edgeFrom[e]]) upFirst[edgeFrom[e] + 1]++;
+                else downFirst[edgeTo[e] + 1]++;
+            }
+            for (int c = 0; c < cityCount; c++) {
+                upFirst[c + 1] += upFirst[c];
+                downFirst[c + 1] += downFirst[c];
+            }
+            upEdge = new int[upFirst[cityCount]];
+            downEdge = new int[downFirst[cityCount]];
+            int[] upNext = Arrays.copyOf(upFirst, cityCount);
+            int[] downNext = Arrays.copyOf(downFirst, cityCount);
+            for (int e = 0; e < edgeCount; e++) {
+                if (rank[edgeTo[e]] > rank[edgeFrom[e]]) upEdge[upNext[edgeFrom[e]]++] = e;
+                else downEdge[downNext[edgeTo[e]]++] = e;
+            }
+        }
+    }
+
+    /**
+     * Stanje jednog upita; svaka nit koristi svoj primjerak, a nakon upita se vraćaju
+     * samo vrijednosti gradova koje je upit dotakao.
+     */
+    private class Query {
+        final long[] forwardDist;
+        final long[] backwardDist;
+        final int[] forwardParent;
+        final int[] backwardParent;
+        final int[] touched;
+        int touchedCount;
+        final LongHeap forward = new LongHeap();
+        final LongHeap backward = new LongHeap();
+
+        Query(int cityCount) {
+            forwardDist = new long[cityCount];
+            backwardDist = new long[cityCount];
+            forwardParent = new int[cityCount];
+            backwardParent = new int[cityCount];
+            touched = new int[cityCount];
+            Arrays.fill(forwardDist, INFINITY);
+            Arrays.fill(backwardDist, INFINITY);
+        }
+
+        /**
+         * @return grad u kojem se sastaju pretrage na najjeftinijoj ruti ili {@code -1}
+         */
+        int run(int origin, int target, SearchBudget budget) {
+            touch(origin);
+            touch(target);
+            forwardDist[origin] = 0;
+            backwardDist[target] = 0;
+            forward.push(pack(0, origin));
+            backward.push(pack(0, target));
+
+            long best = INFINITY;
+            int meeting = -1;
+            while (true) {
+                long forwardMin = forward.isEmpty() ? INFINITY : unpackKey(forward.peek());
+                long backwardMin = backward.isEmpty() ? INFINITY : unpackKey(backward.peek());
+                if (Math.min(forwardMin, backwardMin) >= best || !budget.expand()) break;
+
+                boolean isForward = forwardMin <= backwardMin;
+                LongHeap heap = isForward ? forward : backward;
+                long[] dist = isForward ? forwardDist : backwardDist;
+                long[] other = isForward ? backwardDist : forwardDist;
+                int[] parent = isForward ? forwardParent : backwardParent;
+
+                long entry = heap.pop();
+                int u = unpackNode(entry);
+                long d = unpackKey(entry);
+                if (d > dist[u]) continue;
+
+                if (other[u] != INFINITY && d + other[u] < best) {
+                    best = d + other[u];
+                    meeting = u;
+                }
+
+                int first = isForward ? upFirst[u] : downFirst[u];
+                int end = isForward ? upFirst[u + 1] : downFirst[u + 1];
+                int[] edges = isForward ? upEdge : downEdge;
+                for (int i = first; i < end; i++) {
+                    int e = edges[i];
+                    int w = isForward ? edgeTo[e] : edgeFrom[e];
+                    long nd = d + edgeWeight[e];
+                    if (nd < dist[w]) {
+                        touch(w);
+                        dist[w] = nd;
+                        parent[w] = e;
+                        heap.push(pack(nd, w));
+                    }
+                }
+            }
+            return meeting;
+        }
+
+        void touch(int city) {
+            if (forwardDist[city] == INFINITY && backwardDist[city] == INFINITY) {
+                touched[touchedCount++] = city;
+            }
+        }
+
+        void reset() {
+            for (int i = 0; i < touchedCount; i++) {
+                forwardDist[touched[i]] = INFINITY;
+                backwardDist[touched[i]] = INFINITY;
+            }
+            touchedCount = 0;
+            forward.clear();
+            backward.clear();
+        }
+    }
+
+    private static long pack(long key, int node) {
+        return key << 24 | node;
+    }
+
+    private static long unpackKey(long entry) {
+        return entry >> 24;
+    }
+
+    private static int unpackNode(long entry) {
+        return (int) (entry & 0xFFFFFF);
+    }
+
+    /**
+     * Binarni min-hip nad {@code long} vrijednostima; ključ i grad su spakovani u jednu vrijednost.
+     */
+    private static class LongHeap {
+        long[] items = new long[64];
+        int size;
+
+        boolean isEmpty() {
+            return size == 0;
+        }
+
+        long peek() {
+            return items[0];
+        }
+
+        void clear() {
+            size = 0;
+        }
+
+        void push(long item) {
+            if (size == items.length) items = Arrays.copyOf(items, size * 2);
+            int i = size++;
+            while (i > 0) {
+                int parent = (i - 1) >>> 1;
+                if (items[parent] <= item) break;
+                items[i] = items[parent];
+                i = parent;
+            }
+            items[i] = item;
+        }
+
+        long pop() {
+            long top = items[0];
+            long last = items[--size];
+            int i = 0;
+            int half = size >>> 1;
+            while (i < half) {
+                int child = 2 * i + 1;
+                if (child + 1 < size && items[child + 1] < items[child]) child++;
+                if (last <= items[child]) break;
+                items[i] = items[child];
+                i = child;
+            }
+            items[i] = last;
+            return top;
+        }
+    }
+}
@@ -0,0 +1,109 @@
+package org.unibl.etf.algo;
+
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Klasa {@code CostMatrix} računa matricu vrijednosti kriterijuma između skupa polaznih
+ * i skupa odredišnih gradova (<i>many-to-many</i>).
+ * <p>
+ * Za svaki polazni grad izvršava se jedna pretraga prema svim gradovima
+ * ({@link OneToAllSearch}), pa cijena jednog reda ne zavisi od broja odredišta, a
+ * nedostižni parovi ne troše ništa dodatno. Redovi se raspoređuju po jezgrima kroz
+ * {@link ForkJoinPool}: zadatak se dijeli na polovine sve dok ne ostane jedan red, a
+ * svaka radna nit koristi svoj radni prostor pretrage iz mreže
+ * ({@link CompiledNetwork#oneToAllSearch()}), koji se ponovo koristi za sve redove, pa i
+ * za naredne matrice nad istom mrežom.
+ * </p>
+ *
+ * @author Saša Vujančević
+ */
+public class CostMatrix {
+
+    private final CompiledNetwork network;
+    private final RouteFinder.Criteria criteria;
+    private final int startTime;
+
+    /**
+     * @param network   kompaktna mreža
+     * @param criteria  kriterijum čije se vrijednosti upisuju u matricu
+     * @param startTime vrijeme polaska u minutima od ponoći prvog dana
+     */
+    public CostMatrix(CompiledNetwork network, RouteFinder.Criteria criteria, int startTime) {
+        this.network = network;
+        this.criteria = criteria;
+        this.startTime = startTime;
+    }
+
+    /**
+     * Računa matricu u zajedničkom {@link ForkJoinPool}-u.
+     *
+     * @param origins      identifikatori polaznih gradova ({@code -1} za nepostojeći grad)
+     * @param destinations identifikatori odredišnih gradova ({@code -1} za nepostojeći grad)
+     * @return matrica {@code [origin][destination]}; nedostižni parovi imaju {@link Integer#MAX_VALUE}
+     */
+    public int[][] compute(int[] origins, int[] destinations) {
+        return compute(origins, destinations, ForkJoinPool.commonPool());
+    }
+
+    /**
+     * Računa matricu u zadatom {@link ForkJoinPool}-u.
+     *
+     * @param origins      identifikatori polaznih gradova ({@code -1} za nepostojeći grad)
+     * @param destinations identifikatori odredišnih gradova ({@code -1} za nepostojeći grad)
+     * @param pool         pool u kojem se izvršavaju pretrage
+     * @return matrica {@code [origin][destination]}; nedostižni parovi imaju {@link Integer#MAX_VALUE}
+     */
+    public int[][] compute(int[] origins, int[] destinations, ForkJoinPool pool) {
+        int[][] matrix = new int[origins.length][destinations.length];
+        if (origins.length > 0) {
+            pool.invoke(new Rows(origins, destinations, matrix, 0, origins.length));
+        }
+        return matrix;
+    }
+
+    private void computeRow(int origin, int[] destinations, int[] row) {
+        if (origin < 0) {
+            Arrays.fill(row, OneToAllSearch.UNREACHABLE);
+            return;
+        }
+        OneToAllSearch search = network.oneToAllSearch();
+        search.run(origin, startTime, criteria, SearchBudget.unlimited());
+        for (int j = 0; j < destinations.length; j++) {
+            row[j] = destinations[j] < 0 ? OneToAllSearch.UNREACHABLE : search.cost(destinations[j]);
+        }
+    }
+
+    /**
+     * Zadatak koji računa redove {@code [from, to)} matrice.
+     */
+    private class Rows extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        final int[] origins;
+        final int[] destinations;
+        final int[][] matrix;
+        final int from;
+        final int to;
+
+        Rows(int[] origins, int[] destinations, int[][] matrix, int from, int to) {
+            this.origins = origins;
+            this.destinations = destinations;
+            this.matrix = matrix;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from == 1) {
+                computeRow(origins[from], destinations, matrix[from]);
+                return;
+            }
+            int mid = (from + to) >>> 1;
+            invokeAll(new Rows(origins, destinations, matrix, from, mid),
+                    new Rows(origins, destinations, matrix, mid, to));
+        }
+    }
+}
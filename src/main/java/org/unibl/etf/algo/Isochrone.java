@@ -0,0 +1,109 @@
+package org.unibl.etf.algo;
+
+/**
+ * Klasa {@code Isochrone} predstavlja rezultat pretrage iz jednog grada prema svim
+ * ostalim gradovima (<i>one-to-all</i>).
+ * <p>
+ * Za svaki grad čuva vrijeme dolaska, cijenu i broj presjedanja najbolje rute po zadatom
+ * kriterijumu, pa se pitanja tipa "gdje se može stići za 6 sati" ili "gdje se može stići
+ * za manje od 2000 KM" odgovaraju jednim prolazom, umjesto zasebnog upita za svaki grad:
+ * skeniranje svih veza za {@link RouteFinder.Criteria#TIME}, odnosno jedna Dijkstra pretraga
+ * za ostale kriterijume ({@link OneToAllSearch}).
+ * Vremena su izražena u minutima od ponoći prvog dana. Za nedostižne gradove vrijeme
+ * dolaska i cijena su {@link Integer#MAX_VALUE}, a broj presjedanja {@code -1}.
+ * </p>
+ *
+ * @author Saša Vujančević
+ */
+public class Isochrone {
+
+    private final OneToAllSearch search;
+
+    private Isochrone(OneToAllSearch search) {
+        this.search = search;
+    }
+
+    /**
+     * Računa najbolje rute od polaznog grada do svih gradova mreže.
+     *
+     * @param network   kompaktna mreža
+     * @param origin    identifikator polaznog grada
+     * @param startTime vrijeme polaska u minutima od ponoći prvog dana
+     * @param criteria  kriterijum po kojem se bira ruta do svakog grada
+     * @return vremena dolaska, cijene i broj presjedanja za sve gradove
+     */
+    public static Isochrone compute(CompiledNetwork network, int origin, int startTime, RouteFinder.Criteria criteria) {
+        return compute(network, origin, startTime, criteria, SearchBudget.unlimited());
+    }
+
+    /**
+     * Računa najbolje rute uz ograničenje potrošnje upita. Nakon prekida su dostignuti samo
+     * gradovi do kojih je pretraga stigla, a njihove vrijednosti ne moraju biti najbolje.
+     */
+    static Isochrone compute(CompiledNetwork network, int origin, int startTime, RouteFinder.Criteria criteria,
+                             SearchBudget budget) {
+        OneToAllSearch search = new OneToAllSearch(network);
+        search.run(origin, startTime, criteria, budget);
+        return new Isochrone(search);
+    }
+
+    public int getOrigin() {
+        return search.origin;
+    }
+
+    public int getStartTime() {
+        return search.startTime;
+    }
+
+    public RouteFinder.Criteria getCriteria() {
+        return search.criteria;
+    }
+
+    public int getCityCount() {
+        return search.arrival.length;
+    }
+
+    public boolean isReachable(int city) {
+        return search.arrival[city] != OneToAllSearch.UNREACHABLE;
+    }
+
+    public int getArrivalTime(int city) {
+        return search.arrival[city];
+    }
+
+    public int getPrice(int city) {
+        return search.price[city];
+    }
+
+    public int getTransfers(int city) {
+        return search.transfers[city];
+    }
+
+    /**
+     * @return trajanje od vremena polaska do dolaska u grad, ili {@link Integer#MAX_VALUE} ako grad nije dostižan
+     */
+    public int getDuration(int city) {
+        return isReachable(city) ? search.arrival[city] - search.startTime : OneToAllSearch.UNREACHABLE;
+    }
+
+    /**
+     * Vraća vrijednost po kriterijumu pretrage: trajanje u minutima, cijenu ili broj presjedanja.
+     *
+     * @param city identifikator grada
+     * @return vrijednost kriterijuma, ili {@link Integer#MAX_VALUE} ako grad nije dostižan
+     */
+    public int getCost(int city) {
+        return search.cost(city);
+    }
+
+    /**
+     * @return broj gradova (uključujući polazni) čija vrijednost kriterijuma ne prelazi zadatu granicu
+     */
+    public int countWithin(int limit) {
+        int count = 0;
+        for (int c = 0; c < getCityCount(); c++) {
+            if (search.cost(c) <= limit) count++;
+        }
+        return count;
+    }
+}
@@ -0,0 +1,92 @@
+package org.unibl.etf.algo;
+
+import org.unibl.etf.model.Departure;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Klasa {@code Journey} predstavlja jedno konkretno putovanje koje vraćaju algoritmi pretrage.
+ * <p>
+ * Pored liste polazaka ({@link Departure}), putovanje čuva apsolutno vrijeme prvog polaska
+ * i posljednjeg dolaska izraženo u minutima od ponoći prvog dana, kao i ukupnu cijenu.
+ * Time se izbjegava ponovno računanje vremena i cijene iz liste polazaka.
+ * </p>
+ *
+ * @author Saša Vujančević
+ */
+public class Journey {
+
+    private final List<Departure> legs;
+    private final int departureTime;
+    private final int arrivalTime;
+    private final int price;
+
+    public Journey(List<Departure> legs, int departureTime, int arrivalTime, int price) {
+        this.legs = Collections.unmodifiableList(legs);
+        this.departureTime = departureTime;
+        this.arrivalTime = arrivalTime;
+        this.price = price;
+    }
+
+    /**
+     * Sastavlja putovanje iz liste polazaka koju je vratila pretraga.
+     * <p>
+     * Prvi polazak kreće prvog dana, a svaki naredni polazak se pomjera na prvi dan u kojem
+     * kreće nakon dolaska prethodnim polaskom i isteka njegovog minimalnog vremena presjedanja.
+     * Računa se samo sa cijelim brojevima minuta, bez parsiranja vremena.
+     * </p>
+     *
+     * @param legs lista polazaka
+     * @return putovanje sa apsolutnim vremenima polaska i dolaska
+     */
+    public static Journey of(List<Departure> legs) {
+        if (legs.isEmpty()) {
+            return new Journey(legs, 0, 0, 0);
+        }
+        int departureTime = legs.get(0).getDepartureMinute();
+        int readyAt = departureTime;
+        int arrivalTime = departureTime;
+        int price = 0;
+        for (Departure d : legs) {
+            int dep = CompiledNetwork.departureAtOrAfter(readyAt, d.getDepartureMinute());
+            arrivalTime = dep + d.getDuration();
+            readyAt = arrivalTime + d.getMinTransferTime();
+            price += d.getPrice();
+        }
+        return new Journey(legs, departureTime, arrivalTime, price);
+    }
+
+    public List<Departure> getLegs() {
+        return legs;
+    }
+
+    /**
+     * @return vrijeme prvog polaska u minutima od ponoći prvog dana
+     */
+    public int getDepartureTime() {
+        return departureTime;
+    }
+
+    /**
+     * @return vrijeme dolaska na odredište u minutima od ponoći prvog dana
+     */
+    public int getArrivalTime() {
+        return arrivalTime;
+    }
+
+    /**
+     * @return ukupno trajanje putovanja u minutima
+     */
+    public int getDuration() {
+        return arrivalTime - departureTime;
+    }
+
+    public int getPrice() {
+        return price;
+    }
+
+    public int getTransfers() {
+        return Math.max(0, legs.size() - 1);
+    }
+}
@@ -0,0 +1,338 @@
+package org.unibl.etf.algo;
+
+import org.unibl.etf.model.Departure;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.Set;
+
+/**
+ * Klasa {@code KShortestPaths} implementira Yen-ov algoritam za pronalaženje {@code k}
+ * najboljih ruta bez ponavljanja gradova, poređanih tačno po cijeni rute.
+ * <p>
+ * Svaka naredna ruta nastaje iz prethodne: za svaki grad na prethodnoj ruti (<i>spur</i>)
+ * zadržava se dio rute do tog grada (<i>root</i>), uklanjaju se polasci kojima već pronađene
+ * rute sa istim početkom napuštaju taj grad, blokiraju se gradovi iz početnog dijela, a
+ * ostatak rute se traži A* pretragom. Kandidati se čuvaju u redu sa prioritetom po
+ * cijeni, pa se pretraga zaustavlja čim se pronađe {@code limit} ruta.
+ * </p>
+ * <p>
+ * Cijena rute zavisi od kriterijuma:
+ * <ul>
+ *     <li>{@link RouteFinder.Criteria#PRICE} – zbir cijena polazaka,</li>
+ *     <li>{@link RouteFinder.Criteria#TIME} – vrijeme od prvog polaska do dolaska na odredište,</li>
+ *     <li>{@link RouteFinder.Criteria#TRANSFERS} – broj presjedanja, pa trajanje.</li>
+ * </ul>
+ * Kod vremenskih kriterijuma pretraga ostatka rute kreće od trenutka kada je početni dio
+ * rute spreman za naredni polazak (dolazak uvećan za {@code minTransferTime}). Kako red
+ * vožnje dozvoljava čekanje, raniji dolazak u grad nikada ne daje kasniji dolazak na
+ * odredište, pa je pretraga po vremenu tačna. Trajanje rute zavisi i od vremena
+ * prvog polaska, pa se za prazan početni dio pretraga pokreće posebno za svaki dozvoljeni
+ * prvi polazak.
+ * </p>
+ *
+ * @author Saša Vujančević
+ */
+public class KShortestPaths {
+
+    private final CompiledNetwork network;
+    private final RouteFinder.Criteria criteria;
+    private final int maxLegs;
+
+    private SearchWorkspace workspace;
+    private long nextSequence;
+    private SearchBudget budget;
+
+    /**
+     * @param network  kompaktna mreža
+     * @param criteria kriterijum po kojem se rute porede
+     * @param maxLegs  najveći dozvoljeni broj vožnji na ruti
+     */
+    public KShortestPaths(CompiledNetwork network, RouteFinder.Criteria criteria, int maxLegs) {
+        this.network = network;
+        this.criteria = criteria;
+        this.maxLegs = maxLegs;
+    }
+
+    /**
+     * Pronalazi najviše {@code limit} najboljih ruta između dva grada.
+     *
+     * @param origin identifikator polaznog grada
+     * @param target identifikator odredišnog grada
+     * @param limit  najveći broj ruta
+     * @return putovanja poređana od najboljeg
+     */
+    public List<Journey> find(int origin, int target, int limit) {
+        return find(origin, target, limit, SearchBudget.unlimited());
+    }
+
+    /**
+     * Pronalazi najviše {@code limit} najboljih ruta, uz ograničenje potrošnje upita.
+     * Ako pretraga bude prekinuta, vraćaju se rute prihvaćene do prekida, a razlog
+     * prekida je u {@code budget}.
+     * <p>
+     * Nizovi pretrage se uzimaju iz radnog prostora niti ({@link CompiledNetwork#workspace()}),
+     * pa ni pojedinačne <i>spur</i> pretrage ni uzastopni upiti ne alociraju nizove
+     * veličine mreže.
+     * </p>
+     */
+    List<Journey> find(int origin, int target, int limit, SearchBudget budget) {
+        if (origin == target || limit <= 0) return Collections.emptyList();
+        this.budget = budget;
+        this.workspace = network.workspace();
+
+        List<Path> accepted = new ArrayList<>();
+        PriorityQueue<Path> candidates = new PriorityQueue<>(
+                Comparator.comparingLong((Path p) -> p.cost).thenComparingLong(p -> p.sequence));
+        Set<Path> seen = new HashSet<>();
+
+        Path first = spur(origin, target, new int[0], accepted);
+        if (first == null) return Collections.emptyList();
+        seen.add(first);
+        accepted.add(first);
+
+        while (accepted.size() < limit && !budget.stopped()) {
+            int[] previous = accepted.get(accepted.size() - 1).departures;
+            for (int i = 0; i < previous.length && !budget.stopped(); i++) {
+                Path candidate = spur(origin, target, Arrays.copyOf(previous, i), accepted);
+                if (candidate != null && seen.add(candidate)) {
+                    candidates.add(candidate);
+                }
+            }
+            // kandidati iz prekinute iteracije nisu potpuni, pa naredni nije nužno najbolji
+            if (budget.stopped() || candidates.isEmpty()) break;
+            accepted.add(candidates.poll());
+        }
+
+        List<Journey> journeys = new ArrayList<>(accepted.size());
+        for (Path path : accepted) {
+            List<Departure> legs = new ArrayList<>(path.departures.length);
+            for (int d : path.departures) {
+                legs.add(network.departure(d));
+            }
+            journeys.add(Journey.of(legs));
+        }
+        return journeys;
+    }
+
+    /**
+     * Pronalazi najbolju rutu koja počinje zadatim početnim dijelom, a ne nastavlja se
+     * polaskom kojim to čini neka već prihvaćena ruta.
+     */
+    private Path spur(int origin, int target, int[] root, List<Path> accepted) {
+        BitSet removed = workspace.removedDepartures;
+        removed.clear();
+        for (Path path : accepted) {
+            int[] deps = path.departures;
+            if (deps.length > root.length && Arrays.equals(deps, 0, root.length, root, 0, root.length)) {
+                removed.set(deps[root.length]);
+            }
+        }
+
+        workspace.resetMarks();
+        workspace.mark(origin);
+        int spurCity = origin;
+        int ready = 0;
+        for (int j = 0; j < root.length; j++) {
+            int d = root[j];
+            int dep = j == 0 ? network.minute(d) : CompiledNetwork.departureAtOrAfter(ready, network.minute(d));
+            ready = dep + network.duration(d) + network.minTransfer(d);
+            spurCity = network.toCity(d);
+            workspace.mark(spurCity);
+        }
+
+        if (root.length > 0 || criteria == RouteFinder.Criteria.PRICE) {
+            int[] rest = search(spurCity, target, ready, root.length);
+            return rest == null ? null : path(root, rest);
+        }
+
+        // trajanje zavisi od prvog polaska, pa se svaki dozvoljeni prvi polazak razmatra posebno
+        Path bestPath = null;
+        for (int d = network.firstDeparture(origin); d < network.endDeparture(origin) && !budget.stopped(); d++) {
+            if (removed.get(d)) continue;
+            int to = network.toCity(d);
+            int[] rest;
+            if (to == target) {
+                rest = new int[0];
+            } else {
+                rest = search(to, target, network.minute(d) + network.duration(d) + network.minTransfer(d), 1);
+                if (rest == null) continue;
+            }
+            int[] firstLeg = {d};
+            Path path = path(firstLeg, rest);
+            if (bestPath == null || path.cost < bestPath.cost) {
+                bestPath = path;
+            }
+        }
+        return bestPath;
+    }
+
+    /**
+     * A* pretraga od grada {@code from} do odredišta koja zaobilazi blokirane gradove
+     * i uklonjene polaske. Cijena se kod kriterijuma {@link RouteFinder.Criteria#PRICE}
+     * računa od grada {@code from}, jer početni dio rute samo dodaje konstantu.
+     * <p>
+     * Ključ oznake je cijena do grada uvećana za donju granicu cijene do odredišta
+     * ({@link #lowerBound(int, int)}). Granica je konzistentna, pa je prvo preuzimanje
+     * odredišta iz reda i dalje optimalno, a pretraga se širi samo u pojasu između
+     * polaznog grada i odredišta umjesto preko cijele mreže. Ključevi su zato i monotoni,
+     * pa je red {@link RadixHeap} nad gradovima. Red, oznake i najbolji ključevi su u
+     * radnom prostoru niti i brišu se povećanjem generacije, ne prolazom kroz nizove.
+     * </p>
+     *
+     * @return indeksi polazaka ostatka rute ili {@code null} ako odredište nije dostižno
+     */
+    private int[] search(int from, int target, int ready, int legs) {
+        SearchWorkspace ws = workspace;
+        ws.reset();
+        RadixHeap queue = ws.queue;
+        SearchLabels labels = ws.labels;
+        BitSet removed = ws.removedDepartures;
+
+        long startKey = key(legs, ready, 0) + lowerBound(from, target);
+        ws.set(from, startKey, labels.add(from, -1, -1, startKey, ready, 0));
+        queue.push(from, startKey);
+
+        while (!queue.isEmpty() && budget.expand()) {
+            int city = queue.pop();
+            int current = ws.label(city);
+            if (city == target) {
+                int[] rest = new int[labels.length(current)];
+                for (int l = current, i = rest.length - 1; i >= 0; l = labels.parent(l), i--) {
+                    rest[i] = labels.departure(l);
+                }
+                return rest;
+            }
+
+            int length = legs + labels.length(current);
+            if (length >= maxLegs) continue;
+
+            if (criteria == RouteFinder.Criteria.PRICE) {
+                long currentPrice = labels.cost(current) - lowerBound(city, target);
+                for (int d = network.firstDeparture(city); d < network.endDeparture(city); d++) {
+                    if (removed.get(d)) continue;
+                    relax(current, d, target, length, currentPrice, 0);
+                }
+                continue;
+            }
+
+            // polasci svake stanice se obilaze redom kojim se mogu uhvatiti; kod kriterijuma
+            // vremena polazak koji nije raniji od najboljeg poznatog dolaska na odredište ne
+            // može ga popraviti, a nisu ni svi kasniji polasci te stanice
+            int readyAt = labels.time(current);
+            int readyMinute = Math.floorMod(readyAt, ConnectionScan.MINUTES_PER_DAY);
+            long bound = criteria == RouteFinder.Criteria.TIME ? ws.distance(target) : Long.MAX_VALUE;
+            for (int s = 2 * city; s <= 2 * city + 1; s++) {
+                int next = network.nextDeparture(s, readyMinute);
+                if (next < 0) continue;
+                int first = network.stationFirstDeparture(s);
+                int end = network.stationEndDeparture(s);
+                for (int i = next; i < next + end - first; i++) {
+                    int d = i < end ? i : i - (end - first);
+                    int dep = CompiledNetwork.departureAtOrAfter(readyAt, network.minute(d));
+                    if (dep >= bound) break;
+                    if (removed.get(d)) continue;
+                    int arrival = dep + network.duration(d);
+                    int time = network.toCity(d) == target ? arrival : arrival + network.minTransfer(d);
+                    relax(current, d, target, length, 0, time);
+                }
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Proširuje oznaku {@code current} polaskom {@code d} ako time popravlja ključ grada
+     * u koji polazak vodi.
+     */
+    private void relax(int current, int d, int target, int length, long currentPrice, int time) {
+        SearchWorkspace ws = workspace;
+        int to = network.toCity(d);
+        if (ws.marked(to)) return;
+        long key = key(length + 1, time, currentPrice + network.price(d)) + lowerBound(to, target);
+        if (key < ws.distance(to)) {
+            ws.set(to, key, ws.labels.add(to, current, d, key, time, 0));
+            ws.queue.push(to, key);
+        }
+    }
+
+    /**
+     * Ključ oznake u redu sa prioritetom. Kod vremenskih kriterijuma vrijeme je vrijeme
+     * spremnosti za naredni polazak, odnosno vrijeme dolaska na odredište.
+     */
+    private long key(int legs, int time, long price) {
+        return switch (criteria) {
+            case PRICE -> price;
+            case TIME -> time;
+            case TRANSFERS -> ((long) legs << 32) | time;
+        };
+    }
+
+    /**
+     * Donja granica preostale cijene od grada do odredišta; za broj presjedanja se ne koristi.
+     */
+    private long lowerBound(int city, int target) {
+        return switch (criteria) {
+            case PRICE -> network.priceLowerBound(city, target);
+            case TIME -> network.durationLowerBound(city, target);
+            case TRANSFERS -> 0;
+        };
+    }
+
+    private Path path(int[] root, int[] rest) {
+        int[] departures = Arrays.copyOf(root, root.length + rest.length);
+        System.arraycopy(rest, 0, departures, root.length, rest.length);
+
+        long price = 0;
+        for (int d : departures) {
+            price += network.price(d);
+        }
+        if (criteria == RouteFinder.Criteria.PRICE) {
+            return new Path(departures, price, nextSequence++);
+        }
+
+        int start = network.minute(departures[0]);
+        int ready = start;
+        int arrival = start;
+        for (int d : departures) {
+            arrival = CompiledNetwork.departureAtOrAfter(ready, network.minute(d)) + network.duration(d);
+            ready = arrival + network.minTransfer(d);
+        }
+        int duration = arrival - start;
+        return new Path(departures, criteria == RouteFinder.Criteria.TIME
+                ? duration
+                : ((long) departures.length << 32) | duration, nextSequence++);
+    }
+
+    /**
+     * Ruta predstavljena nizom indeksa polazaka, sa cijenom po zadatom kriterijumu.
+     * Dvije rute su jednake ako se sastoje od istih polazaka.
+     */
+    private static final class Path {
+        final int[] departures;
+        final long cost;
+        final long sequence;
+
+        Path(int[] departures, long cost, long sequence) {
+            this.departures = departures;
+            this.cost = cost;
+            this.sequence = sequence;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            return o instanceof Path other && Arrays.equals(departures, other.departures);
+        }
+
+        @Override
+        public int hashCode() {
+            return Arrays.hashCode(departures);
+        }
+    }
+}
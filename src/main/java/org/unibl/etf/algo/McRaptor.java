@@ -0,0 +1,240 @@
+package org.unibl.etf.algo;
+
+import org.unibl.etf.model.Departure;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Klasa {@code McRaptor} implementira višekriterijumsku varijantu RAPTOR pretrage
+ * (<i>McRAPTOR</i>) koja u jednom prolazu pronalazi sve Pareto-optimalne rute po
+ * vremenu dolaska, ukupnoj cijeni i broju presjedanja.
+ * <p>
+ * Umjesto jedne oznake po gradu, svaki grad čuva <i>vreću</i> (bag) oznaka, gdje je svaka
+ * oznaka par (vrijeme, cijena) dobijen u određenoj rundi. Nova oznaka se odbacuje ako je
+ * dominira neka postojeća oznaka istog grada ili neka oznaka odredišta, a oznake iste runde
+ * koje nova oznaka dominira se uklanjaju. Broj presjedanja je određen rundom, pa oznake
+ * iz ranijih rundi nikada ne mogu biti dominirane kasnijim.
+ * </p>
+ * <p>
+ * Koristi iste linije i vožnje kao i {@link Raptor}. Stanje pretrage (arena oznaka i vreće
+ * gradova) se čuva po niti i ponovo koristi između upita, pa se jedna instanca dobija
+ * preko {@link CompiledNetwork#mcRaptor()} i dijeli između svih upita nad mrežom.
+ * </p>
+ *
+ * @author Saša Vujančević
+ */
+public class McRaptor {
+
+    private static final int MINUTES_PER_DAY = ConnectionScan.MINUTES_PER_DAY;
+
+    private final CompiledNetwork network;
+    private final Raptor routes;
+    private final ThreadLocal<Search> searches;
+
+    public McRaptor(CompiledNetwork network) {
+        this.network = network;
+        this.routes = network.raptor();
+        this.searches = ThreadLocal.withInitial(() -> new Search(network.cityCount()));
+    }
+
+    /**
+     * Pronalazi Pareto front ruta između dva grada.
+     *
+     * @param origin    identifikator polaznog grada
+     * @param target    identifikator odredišnog grada
+     * @param startTime vrijeme polaska u minutima od ponoći prvog dana
+     * @param maxRounds najveći dozvoljeni broj vožnji na ruti
+     * @return Pareto-optimalna putovanja sortirana po vremenu dolaska
+     */
+    public List<Journey> paretoFront(int origin, int target, int startTime, int maxRounds) {
+        return paretoFront(origin, target, startTime, maxRounds, SearchBudget.unlimited());
+    }
+
+    /**
+     * Pronalazi Pareto front uz ograničenje potrošnje upita. Rok i otkazivanje se
+     * provjeravaju za svaku oznaku runde; prekinuta pretraga vraća oznake odredišta
+     * pronađene do prekida, koje ne moraju činiti cijeli front.
+     */
+    List<Journey> paretoFront(int origin, int target, int startTime, int maxRounds, SearchBudget budget) {
+        if (origin == target) return Collections.emptyList();
+        Search search = searches.get();
+        search.reset();
+        search.run(origin, target, startTime, maxRounds, budget);
+        return search.journeys(target);
+    }
+
+    /**
+     * Stanje jedne pretrage: oznake se čuvaju u paralelnim nizovima (arena),
+     * a vreće gradova sadrže samo indekse oznaka.
+     */
+    private class Search {
+        int[] labelCity = new int[256];
+        int[] labelTime = new int[256];
+        int[] labelPrice = new int[256];
+        int[] labelParent = new int[256];
+        int[] labelTrip = new int[256];
+        int[] labelDay = new int[256];
+        int[] labelRound = new int[256];
+        boolean[] labelDead = new boolean[256];
+        int labelCount;
+
+        final int[][] bags;
+        final int[] bagSize;
+
+        Search(int cityCount) {
+            bags = new int[cityCount][];
+            bagSize = new int[cityCount];
+        }
+
+        /**
+         * Prazni vreće gradova koje je prethodni upit popunio i oslobađa arenu oznaka;
+         * cijena je srazmjerna broju oznaka prethodnog upita.
+         */
+        void reset() {
+            for (int l = 0; l < labelCount; l++) {
+                bagSize[labelCity[l]] = 0;
+            }
+            labelCount = 0;
+        }
+
+        void run(int origin, int target, int startTime, int maxRounds, SearchBudget budget) {
+            int root = newLabel(origin, startTime, 0, -1, -1, 0, 0);
+            addToBag(origin, root);
+
+            int[] frontier = {root};
+            int frontierSize = 1;
+
+            for (int k = 1; k <= maxRounds && frontierSize > 0; k++) {
+                int[] next = new int[16];
+                int nextSize = 0;
+
+                for (int f = 0; f < frontierSize; f++) {
+                    if (!budget.scan(f)) return;
+                    int l = frontier[f];
+                    if (labelDead[l]) continue;
+
+                    int u = labelCity[l];
+                    int readyAt = labelTime[l];
+                    int day = Math.floorDiv(readyAt, MINUTES_PER_DAY);
+                    int minute = Math.floorMod(readyAt, MINUTES_PER_DAY);
+
+                    for (int r = routes.cityFirstRoute[u]; r < routes.cityFirstRoute[u + 1]; r++) {
+                        int v = routes.routeToCity[r];
+                        if (v == origin) continue;
+
+                        int first = routes.routeFirstTrip[r];
+                        int tripCount = routes.routeFirstTrip[r + 1] - first;
+                        int start = routes.firstTripAtOrAfter(first, first + tripCount, minute) - first;
+
+                        // jedan krug kroz sve vožnje linije; kasniji dani nude iste cijene uz kasniji dolazak
+                        for (int j = 0; j < tripCount; j++) {
+                            int index = start + j;
+                            int tripDay = day + index / tripCount;
+                            int t = first + index % tripCount;
+                            int arrival = tripDay * MINUTES_PER_DAY + routes.tripMinute[t] + routes.tripDuration[t];
+                            int price = labelPrice[l] + network.price(routes.tripDeparture[t]);
+
+                            if (dominated(target, arrival, price)) continue;
+                            int time = v == target ? arrival : arrival + routes.tripTransfer[t];
+                            if (v != target && dominated(v, time, price)) continue;
+
+                            int label = newLabel(v, time, price, l, t, tripDay, k);
+                            removeDominated(v, time, price, k);
+                            addToBag(v, label);
+                            if (v != target) {
+                                if (nextSize == next.length) next = Arrays.copyOf(next, nextSize * 2);
+                                next[nextSize++] = label;
+                            }
+                        }
+                    }
+                }
+
+                frontier = next;
+                frontierSize = nextSize;
+            }
+        }
+
+        boolean dominated(int city, int time, int price) {
+            int[] bag = bags[city];
+            for (int i = 0; i < bagSize[city]; i++) {
+                int l = bag[i];
+                if (labelTime[l] <= time && labelPrice[l] <= price) return true;
+            }
+            return false;
+        }
+
+        void removeDominated(int city, int time, int price, int round) {
+            int[] bag = bags[city];
+            int size = 0;
+            for (int i = 0; i < bagSize[city]; i++) {
+                int l = bag[i];
+                if (labelRound[l] == round && labelTime[l] >= time && labelPrice[l] >= price) {
+                    labelDead[l] = true;
+                } else {
+                    bag[size++] = l;
+                }
+            }
+            bagSize[city] = size;
+        }
+
+        void addToBag(int city, int label) {
+            int[] bag = bags[city];
+            if (bag == null) {
+                bag = new int[4];
+            } else if (bagSize[city] == bag.length) {
+                bag = Arrays.copyOf(bag, bag.length * 2);
+            }
+            bags[city] = bag;
+            bag[bagSize[city]++] = label;
+        }
+
+        int newLabel(int city, int time, int price, int parent, int trip, int day, int round) {
+            if (labelCount == labelCity.length) {
+                int capacity = labelCount * 2;
+                labelCity = Arrays.copyOf(labelCity, capacity);
+                labelTime = Arrays.copyOf(labelTime, capacity);
+                labelPrice = Arrays.copyOf(labelPrice, capacity);
+                labelParent = Arrays.copyOf(labelParent, capacity);
+                labelTrip = Arrays.copyOf(labelTrip, capacity);
+                labelDay = Arrays.copyOf(labelDay, capacity);
+                labelRound = Arrays.copyOf(labelRound, capacity);
+                labelDead = Arrays.copyOf(labelDead, capacity);
+            }
+            int l = labelCount++;
+            labelCity[l] = city;
+            labelTime[l] = time;
+            labelPrice[l] = price;
+            labelParent[l] = parent;
+            labelTrip[l] = trip;
+            labelDay[l] = day;
+            labelRound[l] = round;
+            labelDead[l] = false;
+            return l;
+        }
+
+        List<Journey> journeys(int target) {
+            List<Journey> journeys = new ArrayList<>();
+            for (int i = 0; i < bagSize[target]; i++) {
+                journeys.add(journey(bags[target][i]));
+            }
+            journeys.sort(Comparator.comparingInt(Journey::getArrivalTime).thenComparingInt(Journey::getPrice));
+            return journeys;
+        }
+
+        Journey journey(int label) {
+            List<Departure> legs = new ArrayList<>();
+            int departureTime = 0;
+            for (int l = label; labelParent[l] >= 0; l = labelParent[l]) {
+                int t = labelTrip[l];
+                legs.add(network.departure(routes.tripDeparture[t]));
+                departureTime = labelDay[l] * MINUTES_PER_DAY + routes.tripMinute[t];
+            }
+            Collections.reverse(legs);
+            return new Journey(legs, departureTime, labelTime[label], labelPrice[label]);
+        }
+    }
+}
@@ -0,0 +1,143 @@
+package org.unibl.etf.algo;
+
+import java.util.Arrays;
+
+/**
+ * Radni prostor pretrage iz jednog grada prema svim ostalim gradovima.
+ * <p>
+ * Svi nizovi su veličine broja gradova i ponovo se koriste između uzastopnih pretraga,
+ * pa jedna nit koja računa više pretraga (npr. redove matrice cijena u {@link CostMatrix})
+ * ne alocira memoriju po pretrazi. Rezultat posljednje pretrage je u nizovima
+ * {@link #arrival}, {@link #price} i {@link #transfers}.
+ * </p>
+ * <ul>
+ *     <li>{@link RouteFinder.Criteria#TIME} – skeniranje svih veza bez odredišta
+ *     ({@link ConnectionScan#scanAll(int, int, OneToAllSearch, SearchBudget)}),</li>
+ *     <li>{@link RouteFinder.Criteria#PRICE} i {@link RouteFinder.Criteria#TRANSFERS} –
+ *     Dijkstra pretraga po ključu (cijena ili broj vožnji, vrijeme spremnosti). Red vožnje
+ *     dozvoljava čekanje, pa raniji dolazak u grad nikada ne daje kasniji dolazak dalje,
+ *     i leksikografski ključ je ispravan za pretragu sa fiksiranim oznakama. Ključevi
+ *     su monotoni, pa je red {@link RadixHeap}.</li>
+ * </ul>
+ *
+ * @author Saša Vujančević
+ */
+class OneToAllSearch {
+
+    static final int UNREACHABLE = Integer.MAX_VALUE;
+
+    private final CompiledNetwork network;
+
+    final int[] arrival;
+    final int[] price;
+    final int[] transfers;
+
+    final int[] ready;
+    final int[] readyPrice;
+    final int[] readyLegs;
+    private final long[] best;
+    private final RadixHeap queue;
+
+    int origin;
+    int startTime;
+    RouteFinder.Criteria criteria;
+
+    OneToAllSearch(CompiledNetwork network) {
+        this.network = network;
+        int n = network.cityCount();
+        arrival = new int[n];
+        price = new int[n];
+        transfers = new int[n];
+        ready = new int[n];
+        readyPrice = new int[n];
+        readyLegs = new int[n];
+        best = new long[n];
+        queue = new RadixHeap(n);
+    }
+
+    /**
+     * Računa najbolje rute od polaznog grada do svih gradova mreže.
+     *
+     * @param origin    identifikator polaznog grada
+     * @param startTime vrijeme polaska u minutima od ponoći prvog dana
+     * @param criteria  kriterijum po kojem se bira ruta do svakog grada
+     * @param budget    ograničenje potrošnje; nakon prekida rezultat sadrži gradove
+     *                  dostignute do prekida, sa vrijednostima koje ne moraju biti najbolje
+     */
+    void run(int origin, int startTime, RouteFinder.Criteria criteria, SearchBudget budget) {
+        this.origin = origin;
+        this.startTime = startTime;
+        this.criteria = criteria;
+
+        Arrays.fill(arrival, UNREACHABLE);
+        Arrays.fill(price, UNREACHABLE);
+        Arrays.fill(transfers, -1);
+        Arrays.fill(ready, UNREACHABLE);
+        arrival[origin] = startTime;
+        price[origin] = 0;
+        transfers[origin] = 0;
+        ready[origin] = startTime;
+        readyPrice[origin] = 0;
+        readyLegs[origin] = 0;
+
+        if (criteria == RouteFinder.Criteria.TIME) {
+            network.connectionScan().scanAll(origin, startTime, this, budget);
+        } else {
+            search(budget);
+        }
+    }
+
+    /**
+     * Vraća vrijednost po kriterijumu posljednje pretrage: trajanje u minutima od vremena
+     * polaska, cijenu ili broj presjedanja.
+     *
+     * @param city identifikator grada
+     * @return vrijednost kriterijuma, ili {@link #UNREACHABLE} ako grad nije dostižan
+     */
+    int cost(int city) {
+        if (arrival[city] == UNREACHABLE) return UNREACHABLE;
+        return switch (criteria) {
+            case TIME -> arrival[city] - startTime;
+            case PRICE -> price[city];
+            case TRANSFERS -> transfers[city];
+        };
+    }
+
+    private void search(SearchBudget budget) {
+        Arrays.fill(best, Long.MAX_VALUE);
+        queue.clear();
+
+        best[origin] = key(0, 0, startTime);
+        queue.push(origin, best[origin]);
+
+        while (!queue.isEmpty() && budget.expand()) {
+            int city = queue.pop();
+
+            for (int d = network.firstDeparture(city); d < network.endDeparture(city); d++) {
+                int to = network.toCity(d);
+                if (to == origin) continue;
+
+                int arrivalTime = CompiledNetwork.departureAtOrAfter(ready[city], network.minute(d)) + network.duration(d);
+                int readyAt = arrivalTime + network.minTransfer(d);
+                int cost = readyPrice[city] + network.price(d);
+                int legs = readyLegs[city] + 1;
+                long key = key(cost, legs, readyAt);
+                if (key < best[to]) {
+                    best[to] = key;
+                    ready[to] = readyAt;
+                    readyPrice[to] = cost;
+                    readyLegs[to] = legs;
+                    arrival[to] = arrivalTime;
+                    price[to] = cost;
+                    transfers[to] = legs - 1;
+                    queue.push(to, key);
+                }
+            }
+        }
+    }
+
+    private long key(int cost, int legs, int readyAt) {
+        long primary = criteria == RouteFinder.Criteria.PRICE ? cost : legs;
+        return (primary << 32) | readyAt;
+    }
+}
@@ -0,0 +1,82 @@
+package org.unibl.etf.algo;
+
+import java.time.Duration;
+import java.util.function.BooleanSupplier;
+
+/**
+ * Opcije koje ograničavaju trajanje jedne pretrage u {@link RouteFinder}-u.
+ * <ul>
+ *     <li><b>rok</b> – najduže vrijeme izvršavanja upita, mjereno od njegovog početka,</li>
+ *     <li><b>budžet proširenja</b> – najveći broj čvorova preuzetih iz reda sa prioritetom,</li>
+ *     <li><b>otkazivanje</b> – uslov koji se provjerava tokom pretrage; kada postane
+ *     {@code true}, pretraga se prekida (npr. {@code task::isCancelled} za JavaFX {@code Task}).</li>
+ * </ul>
+ * Pretraga koja je prekinuta vraća najbolji rezultat do tog trenutka i razlog prekida
+ * ({@link SearchResult}, {@link SearchStatus}). Objekti su nepromjenljivi; metode
+ * {@code with...} vraćaju novu kopiju.
+ *
+ * @author Saša Vujančević
+ */
+public class QueryOptions {
+
+    /** Podrazumijevani budžet proširenja, jednak ranijem ograničenju broja iteracija. */
+    public static final long DEFAULT_EXPANSION_BUDGET = 200_000;
+
+    private static final BooleanSupplier NEVER_CANCELLED = () -> false;
+
+    private final Duration deadline;
+    private final long expansionBudget;
+    private final BooleanSupplier cancellation;
+
+    private QueryOptions(Duration deadline, long expansionBudget, BooleanSupplier cancellation) {
+        this.deadline = deadline;
+        this.expansionBudget = expansionBudget;
+        this.cancellation = cancellation;
+    }
+
+    /**
+     * @return opcije bez roka i otkazivanja, sa {@link #DEFAULT_EXPANSION_BUDGET} budžetom
+     */
+    public static QueryOptions defaults() {
+        return new QueryOptions(null, DEFAULT_EXPANSION_BUDGET, NEVER_CANCELLED);
+    }
+
+    /**
+     * @return opcije bez ikakvih ograničenja
+     */
+    public static QueryOptions unlimited() {
+        return new QueryOptions(null, Long.MAX_VALUE, NEVER_CANCELLED);
+    }
+
+    public QueryOptions withDeadline(Duration deadline) {
+        return new QueryOptions(deadline, expansionBudget, cancellation);
+    }
+
+    public QueryOptions withExpansionBudget(long expansionBudget) {
+        return new QueryOptions(deadline, expansionBudget, cancellation);
+    }
+
+    public QueryOptions withCancellation(BooleanSupplier cancellation) {
+        return new QueryOptions(deadline, expansionBudget, cancellation);
+    }
+
+    public Duration getDeadline() {
+        return deadline;
+    }
+
+    public long getExpansionBudget() {
+        return expansionBudget;
+    }
+
+    public BooleanSupplier getCancellation() {
+        return cancellation;
+    }
+
+    /**
+     * Započinje mjerenje jednog upita; rok se računa od ovog trenutka.
+     */
+    SearchBudget start() {
+        long deadlineNanos = deadline == null ? Long.MAX_VALUE : System.nanoTime() + deadline.toNanos();
+        return new SearchBudget(deadlineNanos, expansionBudget, cancellation);
+    }
+}
@@ -0,0 +1,150 @@
+package org.unibl.etf.algo;
+
+import java.util.Arrays;
+
+/**
+ * Monotoni <i>radix heap</i> nad gustim identifikatorima čvorova {@code [0, capacity)},
+ * sa ključevima tipa {@code long} i operacijom smanjenja ključa.
+ * <p>
+ * Red se oslanja na to da Dijkstra i A* sa konzistentnom heuristikom nikada ne dodaju
+ * ključ manji od posljednjeg preuzetog. Čvor sa ključem {@code k} se čuva u korpi čiji
+ * je indeks pozicija najvišeg bita po kojem se {@code k} razlikuje od posljednjeg
+ * preuzetog ključa, pa korpa 0 sadrži samo čvorove sa tim ključem. Kada se korpa 0
+ * isprazni, najniža neprazna korpa se raspoređuje u niže korpe oko svog najmanjeg ključa;
+ * svaki čvor se tako premješta najviše 64 puta, bez poređenja u logaritamskom broju
+ * koraka i bez objekata po unosu.
+ * </p>
+ * <p>
+ * Svaki čvor je u redu najviše jednom: {@link #push(int, long)} za čvor koji je već
+ * u redu samo smanjuje njegov ključ, pa nema zastarjelih unosa koje treba preskakati.
+ * Ključ manji od posljednjeg preuzetog znači da heuristika pozivaoca nije konzistentna i
+ * odbija se izuzetkom, umjesto da pretraga tiho vrati rezultat koji nije optimalan.
+ * </p>
+ *
+ * @author Saša Vujančević
+ */
+class RadixHeap {
+
+    private static final int BUCKETS = 65;
+
+    private final long[] key;
+    private final int[] bucketOf;
+    private final int[] position;
+
+    private final int[][] buckets = new int[BUCKETS][];
+    private final int[] bucketSize = new int[BUCKETS];
+
+    private long last;
+    private int size;
+
+    RadixHeap(int capacity) {
+        key = new long[capacity];
+        bucketOf = new int[capacity];
+        position = new int[capacity];
+        Arrays.fill(bucketOf, -1);
+        for (int b = 0; b < BUCKETS; b++) {
+            buckets[b] = new int[4];
+        }
+    }
+
+    boolean isEmpty() {
+        return size == 0;
+    }
+
+    boolean contains(int node) {
+        return bucketOf[node] >= 0;
+    }
+
+    long key(int node) {
+        return key[node];
+    }
+
+    /**
+     * Prazni red; cijena je srazmjerna broju čvorova koji su još u redu.
+     */
+    void clear() {
+        for (int b = 0; b < BUCKETS; b++) {
+            for (int i = 0; i < bucketSize[b]; i++) {
+                bucketOf[buckets[b][i]] = -1;
+            }
+            bucketSize[b] = 0;
+        }
+        size = 0;
+        last = 0;
+    }
+
+    /**
+     * Dodaje čvor ili smanjuje ključ čvora koji je već u redu.
+     *
+     * @param node čvor
+     * @param k    novi ključ, ne manji od posljednjeg preuzetog
+     * @throws IllegalArgumentException ako je ključ manji od posljednjeg preuzetog
+     */
+    void push(int node, long k) {
+        if (k < last) {
+            throw new IllegalArgumentException("Ključ " + k + " je manji od posljednjeg preuzetog ključa " + last);
+        }
+        if (bucketOf[node] >= 0) {
+            if (k >= key[node]) return;
+            remove(node);
+        } else {
+            size++;
+        }
+        key[node] = k;
+        insert(node, bucket(k));
+    }
+
+    /**
+     * Preuzima čvor sa najmanjim ključem.
+     *
+     * @return čvor; njegov ključ je dostupan preko {@link #lastKey()}
+     */
+    int pop() {
+        if (bucketSize[0] == 0) {
+            int b = 1;
+            while (bucketSize[b] == 0) b++;
+
+            int[] items = buckets[b];
+            int count = bucketSize[b];
+            long min = Long.MAX_VALUE;
+            for (int i = 0; i < count; i++) {
+                min = Math.min(min, key[items[i]]);
+            }
+            last = min;
+            bucketSize[b] = 0;
+            for (int i = 0; i < count; i++) {
+                int node = items[i];
+                insert(node, bucket(key[node]));
+            }
+        }
+        int node = buckets[0][--bucketSize[0]];
+        bucketOf[node] = -1;
+        size--;
+        return node;
+    }
+
+    long lastKey() {
+        return last;
+    }
+
+    private int bucket(long k) {
+        return k == last ? 0 : 64 - Long.numberOfLeadingZeros(k ^ last);
+    }
+
+    private void insert(int node, int b) {
+        if (bucketSize[b] == buckets[b].length) {
+            buckets[b] = Arrays.copyOf(buckets[b], bucketSize[b] * 2);
+        }
+        bucketOf[node] = b;
+        position[node] = bucketSize[b];
+        buckets[b][bucketSize[b]++] = node;
+    }
+
+    private void remove(int node) {
+        int b = bucketOf[node];
+        int p = position[node];
+        int moved = buckets[b][--bucketSize[b]];
+        buckets[b][p] = moved;
+        position[moved] = p;
+    }
+}
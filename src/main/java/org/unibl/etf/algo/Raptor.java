@@ -0,0 +1,497 @@
+package org.unibl.etf.algo;
+
+import org.unibl.etf.model.Departure;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Klasa {@code Raptor} implementira RAPTOR (<i>Round-bAsed Public Transit Optimized Router</i>)
+ * pretragu po rundama.
+ * <p>
+ * Polasci sa svake stanice ({@link org.unibl.etf.model.Station#getDepartures()}) grupišu se u
+ * <i>linije</i> – sve polaske sa iste stanice ka istom gradu – a polasci unutar linije
+ * (<i>vožnje</i>) sortiraju se po minutu polaska. U rundi {@code k} obrađuju se samo gradovi
+ * čija je oznaka poboljšana u rundi {@code k - 1}, pa oznaka grada nakon runde {@code k}
+ * predstavlja najraniji dolazak sa najviše {@code k} vožnji, odnosno {@code k - 1} presjedanja.
+ * </p>
+ * <p>
+ * Iz jednog pokretanja dobijaju se i ruta sa najmanjim brojem presjedanja (prva runda u kojoj je
+ * odredište dostignuto) i najbrže rute sa ograničenim brojem presjedanja, bez skupova posjećenih
+ * stanja sa {@code String} ključevima i bez kopiranja putanja.
+ * </p>
+ *
+ * @author Saša Vujančević
+ */
+public class Raptor {
+
+    private static final int MINUTES_PER_DAY = ConnectionScan.MINUTES_PER_DAY;
+    private static final int INFINITY = Integer.MAX_VALUE;
+
+    private final CompiledNetwork network;
+
+    final int[] cityFirstRoute;
+    final int[] routeToCity;
+    final int[] routeFirstTrip;
+
+    final int[] tripDeparture;
+    final int[] tripMinute;
+    final int[] tripDuration;
+    final int[] tripTransfer;
+
+    private final ThreadLocal<Result> reusableResults;
+
+    /**
+     * Gradi linije i vožnje iz kompaktne mreže.
+     *
+     * @param network kompaktna mreža
+     */
+    public Raptor(CompiledNetwork network) {
+        this.network = network;
+        int cityCount = network.cityCount();
+        int n = network.departureCount();
+
+        Integer[] order = new Integer[n];
+        for (int d = 0; d < n; d++) {
+            order[d] = d;
+        }
+        // polasci su već grupisani po gradu i stanici, pa je dovoljno sortirati unutar stanice
+        for (int s = 0; s < network.stationCount(); s++) {
+            Arrays.sort(order, network.stationFirstDeparture(s), network.stationEndDeparture(s), (a, b) -> {
+                int cmp = Integer.compare(network.toCity(a), network.toCity(b));
+                return cmp != 0 ? cmp : Integer.compare(network.minute(a), network.minute(b));
+            });
+        }
+
+        tripDeparture = new int[n];
+        tripMinute = new int[n];
+        tripDuration = new int[n];
+        tripTransfer = new int[n];
+
+        int routeCount = 0;
+        for (int i = 0; i < n; i++) {
+            if (i == 0 || startsRoute(order[i - 1], order[i])) routeCount++;
+        }
+        routeToCity = new int[routeCount];
+        routeFirstTrip = new int[routeCount + 1];
+        cityFirstRoute = new int[cityCount + 1];
+
+        int r = -1;
+        int city = 0;
+        for (int i = 0; i < n; i++) {
+            int d = order[i];
+            if (i == 0 || startsRoute(order[i - 1], d)) {
+                r++;
+                routeToCity[r] = network.toCity(d);
+                routeFirstTrip[r] = i;
+                while (city <= network.fromCity(d)) {
+                    cityFirstRoute[city++] = r;
+                }
+            }
+            tripDeparture[i] = d;
+            tripMinute[i] = network.minute(d);
+            tripDuration[i] = network.duration(d);
+            tripTransfer[i] = network.minTransfer(d);
+        }
+        routeFirstTrip[routeCount] = n;
+        while (city <= cityCount) {
+            cityFirstRoute[city++] = routeCount;
+        }
+        reusableResults = ThreadLocal.withInitial(() -> new Result(cityCount));
+    }
+
+    private boolean startsRoute(int previous, int current) {
+        return network.fromStation(previous) != network.fromStation(current)
+                || network.toCity(previous) != network.toCity(current);
+    }
+
+    /**
+     * Pokreće pretragu po rundama iz zadatog grada.
+     *
+     * @param origin    identifikator polaznog grada
+     * @param target    identifikator odredišnog grada
+     * @param startTime vrijeme polaska u minutima od ponoći prvog dana
+     * @param maxRounds najveći dozvoljeni broj vožnji na ruti
+     * @return rezultat pretrage iz kojeg se mogu izdvojiti rute po broju presjedanja
+     */
+    public Result run(int origin, int target, int startTime, int maxRounds) {
+        return run(origin, target, startTime, maxRounds, new Result(network.cityCount()), SearchBudget.unlimited());
+    }
+
+    /**
+     * Pokreće pretragu kao {@link #run(int, int, int, int)}, ali u rezultat koji pripada
+     * tekućoj niti i ponovo se koristi. Pozivalac koji pretragu pokreće za mnogo vremena
+     * polaska tako ne alocira nove nizove oznaka za svako pokretanje, a brišu se samo
+     * runde koje je prethodno pokretanje stvarno dostiglo.
+     * <p>
+     * Vraćeni rezultat važi samo do narednog poziva ove metode iz iste niti. Rok i
+     * otkazivanje iz {@code budget} se provjeravaju za svaki grad runde; prekinuta pretraga
+     * vraća runde završene do prekida.
+     * </p>
+     */
+    Result runReusing(int origin, int target, int startTime, int maxRounds, SearchBudget budget) {
+        return run(origin, target, startTime, maxRounds, reusableResults.get(), budget);
+    }
+
+    private Result run(int origin, int target, int startTime, int maxRounds, Result result, SearchBudget budget) {
+        result.reset(origin, target);
+        if (origin == target) return result;
+
+        int[] best = result.best;
+        best[origin] = startTime;
+        result.row(0)[origin] = startTime;
+
+        int[] marked = result.marked;
+        int markedCount = 1;
+        marked[0] = origin;
+        int[] nextMarked = result.nextMarked;
+
+        for (int k = 1; k <= maxRounds && markedCount > 0; k++) {
+            int[] label = result.row(k);
+            int[] parentTrip = result.parentTrip[k];
+            int[] parentDay = result.parentDay[k];
+            int nextCount = 0;
+
+            for (int m = 0; m < markedCount; m++) {
+                if (!budget.scan(m)) return result;
+                int u = marked[m];
+                int readyAt = best[u];
+                int day = Math.floorDiv(readyAt, MINUTES_PER_DAY);
+                int minute = Math.floorMod(readyAt, MINUTES_PER_DAY);
+
+                for (int r = cityFirstRoute[u]; r < cityFirstRoute[u + 1]; r++) {
+                    int v = routeToCity[r];
+                    if (v == origin) continue;
+
+                    int first = routeFirstTrip[r];
+                    int tripCount = routeFirstTrip[r + 1] - first;
+                    int start = firstTripAtOrAfter(first, first + tripCount, minute) - first;
+
+                    for (int j = 0; j < tripCount; j++) {
+                        int index = start + j;
+                        int tripDay = day + index / tripCount;
+                        int t = first + index % tripCount;
+                        int dep = tripDay * MINUTES_PER_DAY + tripMinute[t];
+
+                        int bound = Math.min(Math.min(best[v], label[v]), result.targetBest);
+                        if (dep >= bound) break;
+
+                        int arrival = dep + tripDuration[t];
+                        int value = v == target ? arrival : arrival + tripTransfer[t];
+                        if (value < Math.min(best[v], label[v]) && (v == target || arrival < result.targetBest)) {
+                            if (label[v] == INFINITY) {
+                                nextMarked[nextCount++] = v;
+                            }
+                            label[v] = value;
+                            parentTrip[v] = t;
+                            parentDay[v] = tripDay;
+                        }
+                    }
+                }
+            }
+
+            markedCount = 0;
+            for (int i = 0; i < nextCount; i++) {
+                int v = nextMarked[i];
+                best[v] = label[v];
+                if (v == target) {
+                    result.targetBest = label[v];
+                    result.targetRounds.add(k);
+                } else {
+                    marked[markedCount++] = v;
+                }
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Pronalazi putovanje sa najmanjim brojem vožnji, a među takvima najkraće, bez obzira
+     * na vrijeme polaska iz polaznog grada (<i>rRAPTOR</i>).
+     * <p>
+     * Red vožnje se ponavlja svakog dana i čekanje je dozvoljeno, pa najmanji broj vožnji
+     * ne zavisi od vremena polaska i dobija se pretragom u širinu po linijama. Zatim se
+     * pretraga sa tim brojem rundi pokreće za svaki različit minut polaska, od najkasnijeg
+     * ka najranijem, bez brisanja oznaka između pokretanja: dolazak ostvaren iz kasnijeg
+     * polaska je dostižan i iz ranijeg, pa oznake ostaju ispravne gornje granice, a svako
+     * pokretanje obrađuje samo gradove koje stvarno popravlja. Koristi rezultat tekuće
+     * niti, kao {@link #runReusing(int, int, int, int, SearchBudget)}.
+     * </p>
+     *
+     * @param origin    identifikator polaznog grada
+     * @param target    identifikator odredišnog grada
+     * @param maxRounds najveći dozvoljeni broj vožnji na ruti
+     * @param budget    ograničenje potrošnje; prekinuta pretraga vraća najkraće putovanje
+     *                  među dotad obrađenim minutima polaska
+     * @return putovanje ili {@code null} ako odredište nije dostižno
+     */
+    Journey fewestTransfers(int origin, int target, int maxRounds, SearchBudget budget) {
+        Result result = reusableResults.get();
+        result.reset(origin, target);
+        if (origin == target) return null;
+        int rounds = fewestRoutes(origin, target, maxRounds, result);
+        if (rounds < 0) return null;
+
+        int firstDeparture = network.firstDeparture(origin);
+        int[] minutes = new int[network.endDeparture(origin) - firstDeparture];
+        for (int i = 0; i < minutes.length; i++) {
+            minutes[i] = network.minute(firstDeparture + i);
+        }
+        Arrays.sort(minutes);
+
+        for (int k = 0; k <= rounds; k++) {
+            result.row(k);
+        }
+        int[][] label = result.label;
+        int[] marked = result.marked;
+        int[] nextMarked = result.nextMarked;
+        int targetBest = INFINITY;
+        Journey best = null;
+
+        for (int i = minutes.length - 1; i >= 0 && budget.check(); i--) {
+            if (i < minutes.length - 1 && minutes[i] == minutes[i + 1]) continue;
+            label[0][origin] = minutes[i];
+            int markedCount = 1;
+            marked[0] = origin;
+            int targetRound = -1;
+
+            for (int k = 1; k <= rounds && markedCount > 0; k++) {
+                int[] previous = label[k - 1];
+                int[] current = label[k];
+                int stamp = result.nextStamp();
+                int nextCount = 0;
+
+                for (int m = 0; m < markedCount; m++) {
+                    if (!budget.scan(m)) return best;
+                    int u = marked[m];
+                    int readyAt = previous[u];
+                    int day = Math.floorDiv(readyAt, MINUTES_PER_DAY);
+                    int minute = Math.floorMod(readyAt, MINUTES_PER_DAY);
+
+                    for (int r = cityFirstRoute[u]; r < cityFirstRoute[u + 1]; r++) {
+                        int v = routeToCity[r];
+                        if (v == origin) continue;
+
+                        int first = routeFirstTrip[r];
+                        int tripCount = routeFirstTrip[r + 1] - first;
+                        int start = firstTripAtOrAfter(first, first + tripCount, minute) - first;
+
+                        for (int j = 0; j < tripCount; j++) {
+                            int index = start + j;
+                            int tripDay = day + index / tripCount;
+                            int t = first + index % tripCount;
+                            int dep = tripDay * MINUTES_PER_DAY + tripMinute[t];
+
+                            if (dep >= Math.min(current[v], targetBest)) break;
+
+                            int arrival = dep + tripDuration[t];
+                            int value = v == target ? arrival : arrival + tripTransfer[t];
+                            if (value < current[v] && (v == target || arrival < targetBest)) {
+                                if (result.markedIn[v] != stamp) {
+                                    result.markedIn[v] = stamp;
+                                    nextMarked[nextCount++] = v;
+                                }
+                                // oznaka runde k važi i za sve naredne runde, pa oznake ne
+                                // rastu sa brojem rundi i runda k je granica za sve kasnije
+                                for (int q = k; q <= rounds && value < label[q][v]; q++) {
+                                    label[q][v] = value;
+                                    result.parentTrip[q][v] = t;
+                                    result.parentDay[q][v] = tripDay;
+                                }
+                            }
+                        }
+                    }
+                }
+
+                markedCount = 0;
+                for (int n = 0; n < nextCount; n++) {
+                    int v = nextMarked[n];
+                    if (v == target) {
+                        targetBest = current[v];
+                        targetRound = k;
+                    } else {
+                        marked[markedCount++] = v;
+                    }
+                }
+            }
+
+            // jednako kratko putovanje sa ranijim polaskom zamjenjuje kasnije
+            if (targetRound > 0) {
+                Journey journey = result.journey(targetRound);
+                if (best == null || journey.getDuration() <= best.getDuration()) {
+                    best = journey;
+                }
+            }
+        }
+        return best;
+    }
+
+    /**
+     * Pretraga u širinu po linijama: najmanji broj vožnji od polaznog do odredišnog grada,
+     * ili {@code -1} ako ga nema unutar {@code maxRounds}. Koristi nizove rezultata kao
+     * radni prostor ({@code best} za broj vožnji, {@code marked} kao red).
+     */
+    private int fewestRoutes(int origin, int target, int maxRounds, Result result) {
+        int[] hops = result.best;
+        int[] queue = result.marked;
+        hops[origin] = 0;
+        queue[0] = origin;
+        int head = 0;
+        int tail = 1;
+        while (head < tail) {
+            int u = queue[head++];
+            if (hops[u] >= maxRounds) continue;
+            for (int r = cityFirstRoute[u]; r < cityFirstRoute[u + 1]; r++) {
+                int v = routeToCity[r];
+                if (hops[v] != INFINITY) continue;
+                hops[v] = hops[u] + 1;
+                if (v == target) return hops[v];
+                queue[tail++] = v;
+            }
+        }
+        return -1;
+    }
+
+    int firstTripAtOrAfter(int from, int to, int minute) {
+        int lo = from;
+        int hi = to;
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (tripMinute[mid] < minute) lo = mid + 1;
+            else hi = mid;
+        }
+        return lo;
+    }
+
+    /**
+     * Rezultat jednog pokretanja RAPTOR pretrage. Čuva oznake svih rundi, pa se iz
+     * istog rezultata mogu sastaviti rute sa različitim brojem presjedanja.
+     * <p>
+     * Nizovi runde se alociraju tek kada pretraga dođe do te runde i zadržavaju se
+     * ako se rezultat ponovo koristi ({@link #runReusing(int, int, int, int, SearchBudget)}).
+     * </p>
+     */
+    public class Result {
+        private int origin;
+        private int target;
+        private int[][] label = new int[0][];
+        private int[][] parentTrip = new int[0][];
+        private int[][] parentDay = new int[0][];
+        private int usedRounds = -1;
+        private final List<Integer> targetRounds = new ArrayList<>();
+        private int targetBest = INFINITY;
+
+        private final int[] best;
+        private final int[] marked;
+        private final int[] nextMarked;
+        /** Oznaka runde u kojoj je grad dodat u naredne gradove; koristi je {@link #fewestTransfers}. */
+        private final int[] markedIn;
+        private int stamp;
+
+        private Result(int cityCount) {
+            best = new int[cityCount];
+            marked = new int[cityCount];
+            nextMarked = new int[cityCount];
+            markedIn = new int[cityCount];
+        }
+
+        private int nextStamp() {
+            if (++stamp == Integer.MAX_VALUE) {
+                Arrays.fill(markedIn, 0);
+                stamp = 1;
+            }
+            return stamp;
+        }
+
+        private void reset(int origin, int target) {
+            this.origin = origin;
+            this.target = target;
+            for (int k = 0; k <= usedRounds; k++) {
+                Arrays.fill(label[k], INFINITY);
+            }
+            usedRounds = -1;
+            Arrays.fill(best, INFINITY);
+            targetRounds.clear();
+            targetBest = INFINITY;
+        }
+
+        /**
+         * Vraća oznake runde {@code k}, alocirajući nizove runde pri prvom dolasku do nje.
+         */
+        private int[] row(int k) {
+            if (k >= label.length) {
+                int rounds = k + 1;
+                int oldRounds = label.length;
+                label = Arrays.copyOf(label, rounds);
+                parentTrip = Arrays.copyOf(parentTrip, rounds);
+                parentDay = Arrays.copyOf(parentDay, rounds);
+                for (int i = oldRounds; i < rounds; i++) {
+                    label[i] = new int[best.length];
+                    Arrays.fill(label[i], INFINITY);
+                    parentTrip[i] = new int[best.length];
+                    parentDay[i] = new int[best.length];
+                }
+            }
+            usedRounds = Math.max(usedRounds, k);
+            return label[k];
+        }
+
+        /**
+         * @return najmanji broj vožnji kojim se stiže do odredišta ili {@code -1} ako odredište nije dostižno
+         */
+        public int fewestLegs() {
+            return targetRounds.isEmpty() ? -1 : targetRounds.get(0);
+        }
+
+        /**
+         * Vraća najbrže putovanje sa najviše {@code maxLegs} vožnji.
+         *
+         * @param maxLegs najveći dozvoljeni broj vožnji
+         * @return putovanje ili {@code null} ako odredište nije dostižno sa toliko vožnji
+         */
+        public Journey fastestWithin(int maxLegs) {
+            int rounds = -1;
+            for (int k : targetRounds) {
+                if (k <= maxLegs) rounds = k;
+            }
+            return rounds < 0 ? null : journey(rounds);
+        }
+
+        /**
+         * Vraća sva Pareto-optimalna putovanja po broju presjedanja i vremenu dolaska,
+         * poređana od najmanjeg broja presjedanja.
+         *
+         * @return lista putovanja
+         */
+        public List<Journey> paretoJourneys() {
+            List<Journey> journeys = new ArrayList<>();
+            for (int k : targetRounds) {
+                journeys.add(journey(k));
+            }
+            return journeys;
+        }
+
+        private Journey journey(int rounds) {
+            List<Departure> legs = new ArrayList<>();
+            int price = 0;
+            int city = target;
+            int departureTime = 0;
+            for (int k = rounds; k > 0; k--) {
+                while (label[k][city] == INFINITY) {
+                    k--;
+                }
+                int t = parentTrip[k][city];
+                int d = tripDeparture[t];
+                legs.add(network.departure(d));
+                price += network.price(d);
+                departureTime = parentDay[k][city] * MINUTES_PER_DAY + tripMinute[t];
+                city = network.fromCity(d);
+                if (city == origin) break;
+            }
+            Collections.reverse(legs);
+            return new Journey(legs, departureTime, label[rounds][target], price);
+        }
+    }
+}
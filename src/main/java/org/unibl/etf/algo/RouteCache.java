@@ -0,0 +1,205 @@
+package org.unibl.etf.algo;
+
+import org.unibl.etf.model.Departure;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongSupplier;
+import java.util.function.Supplier;
+
+/**
+ * Klasa {@code RouteCache} čuva rezultate pretrage ruta po ključu
+ * (polazni grad, odredišni grad, kriterijum, broj ruta).
+ * <p>
+ * Keš je ograničen brojem unosa i ukupnom <i>težinom</i> – zbirom broja polazaka u svim
+ * sačuvanim rutama – pa nekoliko dugih top-N rezultata ne može potisnuti sve ostale
+ * unose bez kontrole. Kada se pređe bilo koja granica, izbacuju se najdavnije korišćeni
+ * unosi (LRU). Unosi su vezani za verziju skupa podataka koju vraća {@code versionSource};
+ * čim se ona promijeni (npr. novim učitavanjem mreže), cijeli keš se prazni.
+ * </p>
+ * <p>
+ * Keš je bezbjedan za korišćenje iz više niti. Mapa je zaštićena zaključavanjem samo
+ * za kratko čitanje i upis, dok se sama pretraga izvršava van zaključavanja, pa spora
+ * pretraga jedne relacije ne blokira pogotke za druge relacije. Brojači pogodaka i
+ * promašaja se mogu čitati bez zaključavanja.
+ * </p>
+ *
+ * @author Saša Vujančević
+ */
+public class RouteCache {
+
+    private final int maxEntries;
+    private final long maxWeight;
+    private final LongSupplier versionSource;
+
+    private final LinkedHashMap<Key, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+    private long weight;
+    private long version;
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+
+    /**
+     * @param maxEntries    najveći broj sačuvanih rezultata
+     * @param maxWeight     najveći ukupan broj polazaka u svim sačuvanim rutama
+     * @param versionSource izvor trenutne verzije skupa podataka
+     */
+    public RouteCache(int maxEntries, long maxWeight, LongSupplier versionSource) {
+        this.maxEntries = maxEntries;
+        this.maxWeight = maxWeight;
+        this.versionSource = versionSource;
+        this.version = versionSource.getAsLong();
+    }
+
+    /**
+     * Vraća sačuvani rezultat za zadati ključ ili ga izračunava i čuva. Čuvaju se samo
+     * rezultati završenih pretraga; prekinuta pretraga ({@link SearchResult#isComplete()})
+     * vraća se pozivaocu, ali ne ulazi u keš.
+     *
+     * @param origin      polazni grad
+     * @param destination odredišni grad
+     * @param criteria    kriterijum pretrage
+     * @param limit       broj traženih ruta ({@code 0} za jednu najbolju rutu iz {@link RouteFinder#findRoute})
+     * @param loader      pretraga koja se izvršava pri promašaju
+     * @return rezultat sa nepromjenljivom listom ruta
+     */
+    public SearchResult<List<List<Departure>>> get(String origin, String destination, RouteFinder.Criteria criteria, int limit,
+                                                   Supplier<SearchResult<List<List<Departure>>>> loader) {
+        Key key = new Key(origin, destination, criteria, limit);
+        long currentVersion = versionSource.getAsLong();
+
+        synchronized (this) {
+            checkVersion(currentVersion);
+            Entry entry = entries.get(key);
+            if (entry != null) {
+                hits.increment();
+                return new SearchResult<>(entry.routes, SearchStatus.COMPLETE);
+            }
+        }
+
+        misses.increment();
+        SearchResult<List<List<Departure>>> result = loader.get();
+        List<List<Departure>> routes = freeze(result.getValue());
+        if (!result.isComplete()) {
+            return new SearchResult<>(routes, result.getStatus());
+        }
+
+        synchronized (this) {
+            checkVersion(versionSource.getAsLong());
+            // rezultat se ne čuva ako su podaci promijenjeni dok je pretraga trajala
+            if (version == currentVersion) {
+                Entry entry = new Entry(routes, weightOf(routes));
+                Entry previous = entries.put(key, entry);
+                if (previous != null) weight -= previous.weight;
+                weight += entry.weight;
+                evict();
+            }
+        }
+        return new SearchResult<>(routes, SearchStatus.COMPLETE);
+    }
+
+    /**
+     * Uklanja sve sačuvane rezultate.
+     */
+    public synchronized void invalidateAll() {
+        entries.clear();
+        weight = 0;
+    }
+
+    public long getHitCount() {
+        return hits.sum();
+    }
+
+    public long getMissCount() {
+        return misses.sum();
+    }
+
+    public long getEvictionCount() {
+        return evictions.sum();
+    }
+
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    public synchronized long getWeight() {
+        return weight;
+    }
+
+    private void checkVersion(long currentVersion) {
+        if (currentVersion != version) {
+            entries.clear();
+            weight = 0;
+            version = currentVersion;
+        }
+    }
+
+    private void evict() {
+        Iterator<Map.Entry<Key, Entry>> it = entries.entrySet().iterator();
+        while ((entries.size() > maxEntries || weight > maxWeight) && it.hasNext()) {
+            weight -= it.next().getValue().weight;
+            it.remove();
+            evictions.increment();
+        }
+    }
+
+    private static List<List<Departure>> freeze(List<List<Departure>> routes) {
+        List<List<Departure>> frozen = new ArrayList<>(routes.size());
+        for (List<Departure> route : routes) {
+            frozen.add(List.copyOf(route));
+        }
+        return List.copyOf(frozen);
+    }
+
+    private static long weightOf(List<List<Departure>> routes) {
+        long w = 1;
+        for (List<Departure> route : routes) {
+            w += route.size();
+        }
+        return w;
+    }
+
+    private static final class Entry {
+        final List<List<Departure>> routes;
+        final long weight;
+
+        Entry(List<List<Departure>> routes, long weight) {
+            this.routes = routes;
+            this.weight = weight;
+        }
+    }
+
+    private static final class Key {
+        final String origin;
+        final String destination;
+        final RouteFinder.Criteria criteria;
+        final int limit;
+
+        Key(String origin, String destination, RouteFinder.Criteria criteria, int limit) {
+            this.origin = origin;
+            this.destination = destination;
+            this.criteria = criteria;
+            this.limit = limit;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            return o instanceof Key other
+                    && limit == other.limit
+                    && criteria == other.criteria
+                    && origin.equals(other.origin)
+                    && destination.equals(other.destination);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(origin, destination, criteria, limit);
+        }
+    }
+}
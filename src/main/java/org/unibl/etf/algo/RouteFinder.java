@@ -4,11 +4,6 @@ import org.unibl.etf.model.City;
 import org.unibl.etf.model.Departure;
 import org.unibl.etf.model.Station;
 
-import java.time.LocalDate;
-import java.time.LocalDateTime;
-import java.time.LocalTime;
-import java.time.format.DateTimeFormatter;
-import java.time.temporal.ChronoUnit;
 import java.util.*;
 
 /**
@@ -16,31 +11,46 @@ import java.util.*;
  * između gradova na osnovu različitih kriterijuma: vremena, cijene i broja presjedanja.
  * <p>
  * Gradovi su predstavljeni pomoću objekata {@link City}, a veze između njih preko
- * polazaka {@link Departure} sa stanica {@link Station}.
+ * polazaka {@link Departure} sa stanica {@link Station}. Sve pretrage se izvršavaju nad
+ * {@link CompiledNetwork} strukturom, u kojoj su gradovi i polasci indeksirani cijelim brojevima.
  * </p>
  *
  * <h2>Korišćeni algoritmi</h2>
  * <ul>
- *     <li><b>Pronalaženje rute po vremenu:</b> koristi se algoritam sličan
- *     <i>Dijkstra algoritmu</i> uz pomoć {@link PriorityQueue}, gdje se prioritet daje
- *     rutama sa najmanjim ukupnim vremenom putovanja.</li>
+ *     <li><b>Pronalaženje rute po vremenu:</b> koristi se <i>Connection Scan</i>
+ *     algoritam ({@link ConnectionScan}) koji u jednom linearnom prolazu kroz po vremenu
+ *     sortirane polaske pronalazi najraniji dolazak, uz poštovanje vremena presjedanja.</li>
  *
- *     <li><b>Pronalaženje rute po cijeni:</b> takođe se koristi varijacija
- *     <i>Dijkstra algoritma</i>, ali se heuristika zasniva na ukupnoj cijeni umjesto na vremenu.</li>
+ *     <li><b>Pronalaženje rute po cijeni:</b> koristi se <i>Contraction Hierarchies</i>
+ *     ({@link ContractionHierarchy}) pripremljene u pozadini, a dok priprema traje <i>A*</i>
+ *     algoritam, gdje je heuristika Manhattan udaljenost na mreži gradova pomnožena
+ *     najmanjom cijenom po koraku.</li>
  *
  *     <li><b>Pronalaženje rute po broju presjedanja:</b> koristi se
- *     <i>BFS (Breadth-First Search)</i> algoritam preko {@link LinkedList} reda,
- *     jer je cilj da se pronađe ruta sa najmanjim brojem koraka (presjedanja).</li>
+ *     <i>RAPTOR</i> pretraga po rundama ({@link Raptor}), gdje runda {@code k}
+ *     daje najraniji dolazak sa najviše {@code k} vožnji.</li>
  *
- *     <li><b>Pronalaženje više najboljih ruta:</b> nakon što se pronađe optimalna ruta,
- *     algoritam nastavlja pretragu i sortira rezultate kako bi se dobilo prvih N ruta
- *     (npr. top 5 najboljih po vremenu, cijeni ili broju presjedanja).</li>
+ *     <li><b>Pronalaženje Pareto-optimalnih ruta:</b> <i>McRAPTOR</i> ({@link McRaptor})
+ *     u jednom prolazu vraća sve rute koje nisu dominirane ni po vremenu, ni po cijeni,
+ *     ni po broju presjedanja.</li>
+ *
+ *     <li><b>Pronalaženje više najboljih ruta:</b> Yen-ov algoritam ({@link KShortestPaths})
+ *     iz svake pronađene rute izvodi kandidate za narednu, pa se prvih N ruta
+ *     (npr. top 5 najboljih po vremenu, cijeni ili broju presjedanja) dobija tačno po redu.</li>
+ *
+ *     <li><b>Polazak u zadato vrijeme:</b> {@link #findRouteDepartingAt(String, String, Criteria, int)}
+ *     traži rutu od izabranog vremena polaska; polasci stanica su poređani po minutu, pa
+ *     pretrage kreću od prvog polaska koji se može uhvatiti.</li>
  * </ul>
  *
  * <p>
- * Uvedena su i ograničenja poput maksimalnog broja presjedanja ({@link #MAX_TRANSFERS})
- * i maksimalnog broja iteracija, kako bi se spriječilo beskonačno pretraživanje
- * u složenim mrežama.
+ * Uvedena su i ograničenja poput maksimalnog broja presjedanja ({@link #MAX_TRANSFERS}),
+ * kako bi se spriječilo beskonačno pretraživanje u složenim mrežama. Trajanje pojedinačnog
+ * upita ograničavaju opcije upita ({@link QueryOptions}): rok, budžet proširenih čvorova
+ * i otkazivanje, koji se provjeravaju u glavnim petljama pretraga. Prekinuta pretraga
+ * vraća najbolji rezultat do prekida i razlog prekida ({@link SearchResult}). Metode bez
+ * parametra opcija koriste {@link QueryOptions#defaults()}, pa ni one ne pretražuju
+ * neograničeno; neograničena pretraga se traži eksplicitno ({@link QueryOptions#unlimited()}).
  * </p>
  *
  * @author Saša Vujančević
@@ -52,10 +62,34 @@ public class RouteFinder {
     }
 
     private static final int MAX_TRANSFERS = 50;
-    private final Map<String, City> cityMap;
+    private final CompiledNetwork network;
+    private final RouteCache cache;
 
     public RouteFinder(Map<String, City> cityMap) {
-        this.cityMap = cityMap;
+        this(CompiledNetwork.compile(cityMap));
+    }
+
+    /**
+     * Kreira {@code RouteFinder} nad već izgrađenom kompaktnom mrežom, čime se
+     * izbjegava ponovno prevođenje mape gradova za svaki upit.
+     *
+     * @param network kompaktna mreža
+     */
+    public RouteFinder(CompiledNetwork network) {
+        this(network, null);
+    }
+
+    /**
+     * Kreira {@code RouteFinder} koji rezultate {@link #findRoute(String, String, Criteria)}
+     * i {@link #findTopRoutes(String, String, Criteria, int)} čuva u zadatom kešu, pa se
+     * ponovljeni upiti za istu relaciju ne računaju ponovo.
+     *
+     * @param network kompaktna mreža
+     * @param cache   keš rezultata, ili {@code null} ako se rezultati ne čuvaju
+     */
+    public RouteFinder(CompiledNetwork network, RouteCache cache) {
+        this.network = network;
+        this.cache = cache;
     }
 
     /**
@@ -67,14 +101,100 @@ public class RouteFinder {
      * @return lista polazaka koja predstavlja najbolju rutu
      */
     public List<Departure> findRoute(String startCity, String endCity, Criteria criteria) {
-        
+        return findRoute(startCity, endCity, criteria, QueryOptions.defaults()).getValue();
+    }
+
+    /**
+     * Pronalazi najbolju rutu između dva grada uz ograničenja zadata opcijama upita
+     * (rok, budžet proširenja, otkazivanje).
+     *
+     * @param startCity početni grad
+     * @param endCity   krajnji grad
+     * @param criteria  kriterijum (vrijeme, cijena ili broj presjedanja)
+     * @param options   opcije upita
+     * @return ruta i razlog završetka; prekinuta pretraga vraća najbolju rutu pronađenu do prekida
+     */
+    public SearchResult<List<Departure>> findRoute(String startCity, String endCity, Criteria criteria, QueryOptions options) {
+        if (cache != null) {
+            SearchResult<List<List<Departure>>> cached = cache.get(startCity, endCity, criteria, 0, () -> {
+                SearchResult<List<Departure>> result = computeRoute(startCity, endCity, criteria, options.start());
+                return new SearchResult<>(List.of(result.getValue()), result.getStatus());
+            });
+            return new SearchResult<>(cached.getValue().get(0), cached.getStatus());
+        }
+        return computeRoute(startCity, endCity, criteria, options.start());
+    }
+
+    private SearchResult<List<Departure>> computeRoute(String startCity, String endCity, Criteria criteria, SearchBudget budget) {
         List<Departure> result = switch (criteria) {
-            case TIME -> findBestTimeRoute(startCity, endCity);
-            case PRICE -> findBestPriceRoute(startCity, endCity);
-            case TRANSFERS -> findBestTransfersRoute(startCity, endCity);
+            case TIME -> findBestTimeRoute(startCity, endCity, budget);
+            case PRICE -> findBestPriceRoute(startCity, endCity, budget);
+            case TRANSFERS -> findBestTransfersRoute(startCity, endCity, budget);
         };
 
-        return result;
+        return new SearchResult<>(result, budget.status());
+    }
+
+    /**
+     * Pronalazi najbolju rutu sa polaskom iz početnog grada u zadato vrijeme ili kasnije.
+     *
+     * @param startCity       početni grad
+     * @param endCity         krajnji grad
+     * @param criteria        kriterijum (vrijeme, cijena ili broj presjedanja)
+     * @param departureMinute vrijeme polaska u minutima od ponoći
+     * @return lista polazaka koja predstavlja najbolju rutu
+     * @see #findRouteDepartingAt(String, String, Criteria, int, QueryOptions)
+     */
+    public List<Departure> findRouteDepartingAt(String startCity, String endCity, Criteria criteria, int departureMinute) {
+        return findRouteDepartingAt(startCity, endCity, criteria, departureMinute, QueryOptions.defaults()).getValue();
+    }
+
+    /**
+     * Pronalazi najbolju rutu sa polaskom iz početnog grada u zadato vrijeme ili kasnije,
+     * uz ograničenja zadata opcijama upita.
+     * <p>
+     * Za razliku od {@link #findRoute(String, String, Criteria)}, koja bira najbolju rutu
+     * bez obzira na vrijeme polaska, ovdje putnik kreće u {@code departureMinute}, pa se
+     * čekanje na prvi polazak računa u vrijeme putovanja:
+     * </p>
+     * <ul>
+     *     <li>{@link Criteria#TIME} – najraniji dolazak, jednim skeniranjem veza od prve veze
+     *     u zadatom minutu ({@link ConnectionScan#earliestArrival(int, int, int)}),</li>
+     *     <li>{@link Criteria#PRICE} – najjeftinija ruta, a među jednako skupim ona sa
+     *     najranijim dolaskom,</li>
+     *     <li>{@link Criteria#TRANSFERS} – najmanji broj presjedanja, pa najraniji dolazak
+     *     ({@link Raptor}, koji na svakoj liniji kreće od prve vožnje koja se može uhvatiti).</li>
+     * </ul>
+     * <p>
+     * Rezultat zavisi od vremena polaska, pa se ne čuva u kešu.
+     * </p>
+     *
+     * @param startCity       početni grad
+     * @param endCity         krajnji grad
+     * @param criteria        kriterijum (vrijeme, cijena ili broj presjedanja)
+     * @param departureMinute vrijeme polaska u minutima od ponoći
+     * @param options         opcije upita
+     * @return ruta i razlog završetka; prekinuta pretraga vraća najbolju rutu pronađenu do prekida
+     */
+    public SearchResult<List<Departure>> findRouteDepartingAt(String startCity, String endCity, Criteria criteria,
+                                                              int departureMinute, QueryOptions options) {
+        int start = network.cityId(startCity);
+        int end = network.cityId(endCity);
+        SearchBudget budget = options.start();
+        if (start < 0 || end < 0 || start == end || !budget.check()) {
+            return new SearchResult<>(Collections.emptyList(), budget.status());
+        }
+
+        int startTime = Math.floorMod(departureMinute, Departure.MINUTES_PER_DAY);
+        List<Departure> result = switch (criteria) {
+            case TIME -> legsOf(network.connectionScan().earliestArrival(start, end, startTime, budget));
+            case PRICE -> findCheapestRouteDepartingAt(start, end, startTime, budget);
+            case TRANSFERS -> {
+                Raptor.Result rounds = network.raptor().runReusing(start, end, startTime, MAX_TRANSFERS, budget);
+                yield rounds.fewestLegs() < 0 ? Collections.emptyList() : rounds.paretoJourneys().get(0).getLegs();
+            }
+        };
+        return new SearchResult<>(result, budget.status());
     }
 
     /**
@@ -87,535 +207,445 @@ public class RouteFinder {
      * @return lista ruta, gdje svaka ruta predstavlja listu polazaka
      */
     public List<List<Departure>> findTopRoutes(String startCity, String endCity, Criteria criteria, int limit) {
-        
+        return findTopRoutes(startCity, endCity, criteria, limit, QueryOptions.defaults()).getValue();
+    }
+
+    /**
+     * Pronalazi više najboljih ruta između dva grada uz ograničenja zadata opcijama upita.
+     *
+     * @param startCity početni grad
+     * @param endCity   krajnji grad
+     * @param criteria  kriterijum pretrage
+     * @param limit     maksimalan broj ruta koje treba pronaći
+     * @param options   opcije upita
+     * @return rute i razlog završetka; prekinuta pretraga vraća rute pronađene do prekida
+     */
+    public SearchResult<List<List<Departure>>> findTopRoutes(String startCity, String endCity, Criteria criteria, int limit,
+                                                             QueryOptions options) {
+        if (cache != null) {
+            return cache.get(startCity, endCity, criteria, limit,
+                    () -> computeTopRoutes(startCity, endCity, criteria, limit, options.start()));
+        }
+        return computeTopRoutes(startCity, endCity, criteria, limit, options.start());
+    }
+
+    private SearchResult<List<List<Departure>>> computeTopRoutes(String startCity, String endCity, Criteria criteria, int limit,
+                                                                 SearchBudget budget) {
         List<List<Departure>> result = switch (criteria) {
-            case TIME -> findTopFastestRoutes(startCity, endCity, limit);
-            case PRICE -> findTopByPrice(startCity, endCity, limit);
-            case TRANSFERS -> findTopByTransfers(startCity, endCity, limit);
+            case TIME -> findTopFastestRoutes(startCity, endCity, limit, budget);
+            case PRICE -> findTopByPrice(startCity, endCity, limit, budget);
+            case TRANSFERS -> findTopByTransfers(startCity, endCity, limit, budget);
         };
 
-        return result;
+        return new SearchResult<>(result, budget.status());
     }
 
     /**
-     * Vraća najbolju rutu između dva grada po zadatom kriterijumu.
+     * Pronalazi sve Pareto-optimalne rute između dva grada po vremenu dolaska,
+     * ukupnoj cijeni i broju presjedanja, jednim pokretanjem {@link McRaptor} pretrage.
+     * <p>
+     * Ruta je Pareto-optimalna ako ne postoji druga ruta koja je po svim kriterijumima
+     * jednako dobra, a po barem jednom bolja. Vrijeme dolaska se računa za polazak od ponoći.
+     * </p>
      *
      * @param startCity početni grad
      * @param endCity   krajnji grad
-     * @param criteria  kriterijum pretrage
-     * @return najbolja ruta kao lista polazaka
+     * @return lista Pareto-optimalnih putovanja sortirana po vremenu dolaska
      */
-    public List<Departure> findBestRoute(String startCity, String endCity, Criteria criteria) {
-        List<List<Departure>> topRoutes = findTopRoutes(startCity, endCity, criteria, 1);
-        return topRoutes.isEmpty() ? Collections.emptyList() : topRoutes.get(0);
+    public List<Journey> findParetoRoutes(String startCity, String endCity) {
+        return findParetoRoutes(startCity, endCity, 0, QueryOptions.defaults()).getValue();
+    }
+
+    /**
+     * Pronalazi sve Pareto-optimalne rute za putnika koji kreće u {@code departureMinute},
+     * uz ograničenja zadata opcijama upita. Kao i kod
+     * {@link #findRouteDepartingAt(String, String, Criteria, int, QueryOptions)}, vrijeme
+     * dolaska uključuje čekanje na prvi polazak.
+     *
+     * @param startCity       početni grad
+     * @param endCity         krajnji grad
+     * @param departureMinute vrijeme polaska u minutima od ponoći
+     * @param options         opcije upita
+     * @return Pareto-optimalna putovanja sortirana po vremenu dolaska i razlog završetka;
+     * nakon prekida lista sadrži samo putovanja pronađena do prekida
+     */
+    public SearchResult<List<Journey>> findParetoRoutes(String startCity, String endCity, int departureMinute,
+                                                        QueryOptions options) {
+        int start = network.cityId(startCity);
+        int end = network.cityId(endCity);
+        SearchBudget budget = options.start();
+        if (start < 0 || end < 0) {
+            return new SearchResult<>(Collections.emptyList(), budget.status());
+        }
+        int startTime = Math.floorMod(departureMinute, Departure.MINUTES_PER_DAY);
+        List<Journey> journeys = network.mcRaptor().paretoFront(start, end, startTime, MAX_TRANSFERS, budget);
+        return new SearchResult<>(journeys, budget.status());
     }
 
     /**
-     * Pronalazi najbržu rutu između dva grada koristeći algoritam
-     * sličan Dijkstra algoritmu.
+     * Pronalazi sva nedominirana putovanja između dva grada sa polaskom u zadatom
+     * vremenskom prozoru, jednim prolazom unazad kroz niz veza
+     * ({@link ConnectionScan#profile(int, int, int, int)}).
      * <p>
-     * Algoritam koristi {@link PriorityQueue} u kojoj se čuvaju parcijalne rute,
-     * a prioritet imaju one sa najmanjim ukupnim vremenom putovanja.
-     * Svaka ruta se proširuje dodavanjem novih polazaka iz trenutnog grada,
-     * dok se ne stigne do odredišta.
+     * Putovanje je u rezultatu ako ne postoji drugo putovanje sa kasnijim polaskom
+     * i ranijim dolaskom, pa rezultat odgovara redu vožnje za izabrani prozor.
      * </p>
      *
-     * @param start početni grad
-     * @param end   krajnji grad
-     * @return lista polazaka koja predstavlja najbržu rutu ili prazna lista ako ruta ne postoji
+     * @param startCity  početni grad
+     * @param endCity    krajnji grad
+     * @param fromMinute početak prozora polaska, u minutima od ponoći
+     * @param toMinute   kraj prozora polaska (uključivo), u minutima od ponoći
+     * @return putovanja poređana po vremenu polaska
      */
-    private List<Departure> findBestTimeRoute(String start, String end) {
-        PriorityQueue<RouteNode> queue = new PriorityQueue<>((a, b) -> Long.compare(a.totalTime, b.totalTime));
-        Map<String, Long> bestTimes = new HashMap<>();
+    public List<Journey> findProfile(String startCity, String endCity, int fromMinute, int toMinute) {
+        return findProfile(startCity, endCity, fromMinute, toMinute, QueryOptions.defaults()).getValue();
+    }
 
-        City startCity = cityMap.get(start);
-        if (startCity == null) {
-            return Collections.emptyList();
-        }
-        
-        int initialCount = 0;
-        for (Station station : List.of(startCity.getBusStation(), startCity.getTrainStation())) {
-            for (Departure dep : station.getDepartures()) {
-                List<Departure> path = new ArrayList<>();
-                path.add(dep);
-                long totalTime = calculateTotalTime(path);
-                queue.add(new RouteNode(dep.to, path, totalTime));
-                bestTimes.put(dep.to, totalTime);
-                initialCount++;
-            }
+    /**
+     * Pronalazi nedominirana putovanja u zadatom prozoru polaska uz ograničenja zadata
+     * opcijama upita. Rok i otkazivanje se provjeravaju tokom prolaza kroz veze.
+     *
+     * @param startCity  početni grad
+     * @param endCity    krajnji grad
+     * @param fromMinute početak prozora polaska, u minutima od ponoći
+     * @param toMinute   kraj prozora polaska (uključivo), u minutima od ponoći
+     * @param options    opcije upita
+     * @return putovanja i razlog završetka; prekinuta pretraga vraća samo polaske nakon mjesta prekida
+     */
+    public SearchResult<List<Journey>> findProfile(String startCity, String endCity, int fromMinute, int toMinute,
+                                                   QueryOptions options) {
+        int start = network.cityId(startCity);
+        int end = network.cityId(endCity);
+        SearchBudget budget = options.start();
+        if (start < 0 || end < 0) {
+            return new SearchResult<>(Collections.emptyList(), budget.status());
         }
-        
-        int iterations = 0;
-        int maxIterations = 200000;
-        
-        while (!queue.isEmpty() && iterations < maxIterations) {
-            iterations++;
-            RouteNode current = queue.poll();
-            
-            if (current.path.size() > MAX_TRANSFERS) continue;
-            
-            if (current.city.equals(end)) {
-                return current.path;
-            }
+        List<Journey> journeys = network.connectionScan().profile(start, end, fromMinute, toMinute, budget);
+        return new SearchResult<>(journeys, budget.status());
+    }
 
-            Long bestTime = bestTimes.get(current.city);
-            if (bestTime != null && current.totalTime > bestTime) continue;
-
-            City currentCity = cityMap.get(current.city);
-            if (currentCity == null) continue;
-            
-            for (Station station : List.of(currentCity.getBusStation(), currentCity.getTrainStation())) {
-                for (Departure dep : station.getDepartures()) {
-                    List<Departure> newPath = new ArrayList<>(current.path);
-                    newPath.add(dep);
-                    long newTotalTime = calculateTotalTime(newPath);
-
-                    Long existingTime = bestTimes.get(dep.to);
-                    if (existingTime == null || newTotalTime <= existingTime) {
-                        queue.add(new RouteNode(dep.to, newPath, newTotalTime));
-                        bestTimes.put(dep.to, newTotalTime);
-                    }
-                }
-            }
+    /**
+     * Računa najbolje rute od jednog grada do svih ostalih gradova jednim prolazom
+     * ({@link Isochrone#compute(CompiledNetwork, int, int, Criteria)}), umjesto zasebnog
+     * upita {@link #findRoute(String, String, Criteria)} za svaki grad.
+     *
+     * @param startCity   početni grad
+     * @param startMinute vrijeme polaska u minutima od ponoći
+     * @param criteria    kriterijum po kojem se bira ruta do svakog grada
+     * @return vremena dolaska, cijene i broj presjedanja za sve gradove, ili {@code null} ako grad ne postoji
+     */
+    public Isochrone findIsochrone(String startCity, int startMinute, Criteria criteria) {
+        return findIsochrone(startCity, startMinute, criteria, QueryOptions.defaults()).getValue();
+    }
+
+    /**
+     * Računa najbolje rute od jednog grada do svih ostalih gradova uz ograničenja zadata
+     * opcijama upita.
+     *
+     * @param startCity   početni grad
+     * @param startMinute vrijeme polaska u minutima od ponoći
+     * @param criteria    kriterijum po kojem se bira ruta do svakog grada
+     * @param options     opcije upita
+     * @return rezultat ({@code null} ako grad ne postoji) i razlog završetka; nakon prekida
+     * su dostignuti samo gradovi do kojih je pretraga stigla
+     */
+    public SearchResult<Isochrone> findIsochrone(String startCity, int startMinute, Criteria criteria, QueryOptions options) {
+        int start = network.cityId(startCity);
+        SearchBudget budget = options.start();
+        if (start < 0) {
+            return new SearchResult<>(null, budget.status());
         }
-        
-        return Collections.emptyList();
+        Isochrone isochrone = Isochrone.compute(network, start, startMinute, criteria, budget);
+        return new SearchResult<>(isochrone, budget.status());
     }
 
     /**
-     * Pronalazi najjeftiniju rutu između dva grada koristeći algoritam
-     * zasnovan na Dijkstra algoritmu.
+     * Računa matricu vrijednosti kriterijuma između svih parova polaznih i odredišnih gradova
+     * ({@link CostMatrix}). Za svaki polazni grad izvršava se jedna pretraga prema svim
+     * gradovima, a polazni gradovi se raspoređuju po jezgrima.
      * <p>
-     * Umjesto vremena, prioritet u {@link PriorityQueue} određuje ukupna cijena rute.
-     * Svaka ruta se proširuje tako što se dodaje novi polazak iz trenutnog grada
-     * i ponovo računa cijena. Najmanja ukupna cijena se čuva u mapi
-     * kako bi se spriječilo ponovno razmatranje skupljih varijanti.
+     * Kod kriterijuma {@link Criteria#TIME} vrijednost je vrijeme od {@code startMinute}
+     * do najranijeg dolaska, uključujući čekanje na prvi polazak.
      * </p>
      *
-     * @param start početni grad
-     * @param end   krajnji grad
-     * @return lista polazaka koja predstavlja najjeftiniju rutu ili prazna lista ako ruta ne postoji
+     * @param origins      polazni gradovi
+     * @param destinations odredišni gradovi
+     * @param criteria     kriterijum čije se vrijednosti upisuju u matricu
+     * @param startMinute  vrijeme polaska u minutima od ponoći
+     * @return matrica {@code [origin][destination]}; nedostižni parovi i nepostojeći gradovi imaju {@link Integer#MAX_VALUE}
      */
-    private List<Departure> findBestPriceRoute(String start, String end) {
-
-        PriorityQueue<RouteNode> queue = new PriorityQueue<>((a, b) -> Long.compare(a.totalTime, b.totalTime));
-        Map<String, Integer> bestPrices = new HashMap<>();
-
-        City startCity = cityMap.get(start);
-        if (startCity == null) {
-            return Collections.emptyList();
+    public int[][] findCostMatrix(List<String> origins, List<String> destinations, Criteria criteria, int startMinute) {
+        int[] originIds = new int[origins.size()];
+        for (int i = 0; i < originIds.length; i++) {
+            originIds[i] = network.cityId(origins.get(i));
         }
-        
-        int initialCount = 0;
-        for (Station station : List.of(startCity.getBusStation(), startCity.getTrainStation())) {
-            for (Departure dep : station.getDepartures()) {
-                List<Departure> path = new ArrayList<>();
-                path.add(dep);
-                int totalPrice = calculateTotalPrice(path);
-                queue.add(new RouteNode(dep.to, path, totalPrice));
-                bestPrices.put(dep.to, totalPrice);
-                initialCount++;
-            }
+        int[] destinationIds = new int[destinations.size()];
+        for (int j = 0; j < destinationIds.length; j++) {
+            destinationIds[j] = network.cityId(destinations.get(j));
         }
+        return new CostMatrix(network, criteria, startMinute).compute(originIds, destinationIds);
+    }
 
-        int iterations = 0;
-        int maxIterations = 200000;
-        
-        while (!queue.isEmpty() && iterations < maxIterations) {
-            iterations++;
-            RouteNode current = queue.poll();
-            
-            if (current.path.size() > MAX_TRANSFERS) continue;
-            
-            if (current.city.equals(end)) {
-                return current.path;
-            }
+    /**
+     * Vraća najbolju rutu između dva grada po zadatom kriterijumu.
+     *
+     * @param startCity početni grad
+     * @param endCity   krajnji grad
+     * @param criteria  kriterijum pretrage
+     * @return najbolja ruta kao lista polazaka
+     */
+    public List<Departure> findBestRoute(String startCity, String endCity, Criteria criteria) {
+        return findBestRoute(startCity, endCity, criteria, QueryOptions.defaults()).getValue();
+    }
 
-            Integer bestPrice = bestPrices.get(current.city);
-            if (bestPrice != null && current.totalTime > bestPrice) continue;
-
-            City currentCity = cityMap.get(current.city);
-            if (currentCity == null) continue;
-            
-            for (Station station : List.of(currentCity.getBusStation(), currentCity.getTrainStation())) {
-                for (Departure dep : station.getDepartures()) {
-                    List<Departure> newPath = new ArrayList<>(current.path);
-                    newPath.add(dep);
-                    int newTotalPrice = calculateTotalPrice(newPath);
-
-                    Integer existingPrice = bestPrices.get(dep.to);
-                    if (existingPrice == null || newTotalPrice <= existingPrice) {
-                        queue.add(new RouteNode(dep.to, newPath, newTotalPrice));
-                        bestPrices.put(dep.to, newTotalPrice);
-                    }
-                }
-            }
-        }
-        
-        return Collections.emptyList();
+    /**
+     * Vraća najbolju rutu između dva grada po zadatom kriterijumu, uz ograničenja zadata opcijama upita.
+     *
+     * @param startCity početni grad
+     * @param endCity   krajnji grad
+     * @param criteria  kriterijum pretrage
+     * @param options   opcije upita
+     * @return najbolja ruta i razlog završetka
+     */
+    public SearchResult<List<Departure>> findBestRoute(String startCity, String endCity, Criteria criteria, QueryOptions options) {
+        SearchResult<List<List<Departure>>> topRoutes = findTopRoutes(startCity, endCity, criteria, 1, options);
+        List<Departure> route = topRoutes.getValue().isEmpty() ? Collections.emptyList() : topRoutes.getValue().get(0);
+        return new SearchResult<>(route, topRoutes.getStatus());
     }
 
     /**
-     * Pronalazi rutu sa najmanjim brojem presjedanja koristeći
-     * algoritam BFS (Breadth-First Search).
+     * Pronalazi najbržu rutu između dva grada koristeći <i>Connection Scan</i> algoritam.
      * <p>
-     * U ovom slučaju koristi se {@link LinkedList} red za pretragu po širini.
-     * BFS je pogodan jer uvijek prvo pronalazi rutu sa najmanjim brojem koraka
-     * (tj. najmanjim brojem presjedanja). Svaka ruta se proširuje dodavanjem
-     * svih mogućih narednih polazaka dok se ne stigne do cilja.
+     * Umjesto reda sa prioritetom, {@link ConnectionScan} prolazi jednom kroz globalni,
+     * po vremenu sortiran niz svih polazaka za svaki mogući minut polaska iz početnog grada,
+     * uz poštovanje minimalnog vremena presjedanja.
      * </p>
      *
      * @param start početni grad
      * @param end   krajnji grad
-     * @return lista polazaka koja predstavlja rutu sa najmanje presjedanja ili prazna lista ako ruta ne postoji
+     * @return lista polazaka koja predstavlja najbržu rutu ili prazna lista ako ruta ne postoji
      */
-    private List<Departure> findBestTransfersRoute(String start, String end) {
-
-        Queue<RouteNode> queue = new LinkedList<>();
-        Set<String> visited = new HashSet<>();
-
-        City startCity = cityMap.get(start);
-        if (startCity == null) {
+    private List<Departure> findBestTimeRoute(String start, String end, SearchBudget budget) {
+        int startCity = network.cityId(start);
+        int endCity = network.cityId(end);
+        if (startCity < 0 || endCity < 0) {
             return Collections.emptyList();
         }
-        
-        int initialCount = 0;
-        for (Station station : List.of(startCity.getBusStation(), startCity.getTrainStation())) {
-            for (Departure dep : station.getDepartures()) {
-                List<Departure> path = new ArrayList<>();
-                path.add(dep);
-                int transfers = path.size() - 1;
-                queue.add(new RouteNode(dep.to, path, transfers));
-                initialCount++;
-            }
-        }
-
-        int iterations = 0;
-        int maxIterations = 200000;
-        
-        while (!queue.isEmpty() && iterations < maxIterations) {
-            iterations++;
-            RouteNode current = queue.poll();
-            
-            if (current.path.size() > MAX_TRANSFERS) continue;
-            
-            if (current.city.equals(end)) {
-                return current.path;
-            }
 
-            String visitedKey = current.city + "_" + current.path.size();
-            if (!visited.add(visitedKey)) continue;
-
-            City currentCity = cityMap.get(current.city);
-            if (currentCity == null) continue;
-            
-            for (Station station : List.of(currentCity.getBusStation(), currentCity.getTrainStation())) {
-                for (Departure dep : station.getDepartures()) {
-                    List<Departure> newPath = new ArrayList<>(current.path);
-                    newPath.add(dep);
-                    int newTransfers = newPath.size() - 1;
-                    queue.add(new RouteNode(dep.to, newPath, newTransfers));
-                }
-            }
-        }
-        
-        return Collections.emptyList();
+        Journey journey = network.connectionScan().fastest(startCity, endCity, budget);
+        return journey != null ? journey.getLegs() : Collections.emptyList();
     }
 
     /**
-     * Pronalazi više najbržih ruta između dva grada.
+     * Pronalazi najjeftiniju rutu između dva grada.
      * <p>
-     * Ova metoda koristi kombinaciju algoritma sličnog Dijkstra algoritmu
-     * i BFS proširenja kako bi pronašla više različitih ruta.
-     * Nakon što se generišu kandidati, rezultati se sortiraju po ukupnom vremenu putovanja,
-     * a vraća se najviše {@code limit} najboljih ruta.
+     * Ako je priprema {@link ContractionHierarchy} završena, ruta se dobija dvosmjernom
+     * pretragom kroz hijerarhiju. U suprotnom se koristi A* algoritam. Hijerarhija ne
+     * ograničava broj vožnji, pa se ruta sa više od {@link #MAX_TRANSFERS} vožnji odbacuje
+     * i traži A* pretragom, kao i kada hijerarhija nije spremna.
+     * </p>
+     * <p>
+     * Umjesto vremena, prioritet u redu određuje ukupna cijena rute uvećana
+     * za donju granicu cijene do odredišta ({@link CompiledNetwork#priceLowerBound(int, int)}),
+     * pa se pretraga širi samo u pojasu između dva grada. Heuristika je konzistentna, pa su
+     * ključevi monotoni i red je {@link RadixHeap} nad identifikatorima gradova, sa
+     * smanjenjem ključa umjesto ponovnog dodavanja.
+     * Stanja pretrage su kompaktne oznake ({@link SearchLabels}) koje pamte samo prethodnu
+     * oznaku i cijenu prenesenu sa nje, pa proširenje polaskom košta O(1), a cijela
+     * putanja se sastavlja tek za pronađeni rezultat. Najmanja ukupna cijena po gradu
+     * se čuva kako bi se spriječilo ponovno razmatranje skupljih varijanti. Red, oznake i
+     * najmanje cijene su u radnom prostoru niti ({@link CompiledNetwork#workspace()}), pa
+     * upit ne alocira nizove veličine mreže.
      * </p>
      *
      * @param start početni grad
      * @param end   krajnji grad
-     * @param limit maksimalan broj ruta koje treba vratiti
-     * @return lista najboljih ruta sortiranih po vremenu
+     * @return lista polazaka koja predstavlja najjeftiniju rutu ili prazna lista ako ruta ne postoji
      */
-    private List<List<Departure>> findTopFastestRoutes(String start, String end, int limit) {
+    private List<Departure> findBestPriceRoute(String start, String end, SearchBudget budget) {
+        int startCity = network.cityId(start);
+        int endCity = network.cityId(end);
+        if (startCity < 0 || endCity < 0) {
+            return Collections.emptyList();
+        }
 
-        List<Departure> bestRoute = findBestTimeRoute(start, end);
+        ContractionHierarchy hierarchy = network.contractionHierarchyIfReady();
+        if (hierarchy != null) {
+            Journey journey = hierarchy.cheapest(startCity, endCity, budget);
+            if (journey == null) {
+                return Collections.emptyList();
+            }
+            if (journey.getLegs().size() <= MAX_TRANSFERS) {
+                return journey.getLegs();
+            }
+            if (budget.stopped()) {
+                return Collections.emptyList();
+            }
+        }
 
-        Queue<RouteNode> queue = new LinkedList<>();
-        Set<String> visited = new HashSet<>();
-        List<List<Departure>> results = new ArrayList<>();
+        SearchWorkspace workspace = network.workspace();
+        workspace.reset();
+        SearchLabels labels = workspace.labels;
+        RadixHeap queue = workspace.queue;
 
-        if (!bestRoute.isEmpty()) {
-            results.add(bestRoute);
+        workspace.set(startCity, 0, labels.addRoot(startCity, 0));
+        queue.push(startCity, network.priceLowerBound(startCity, endCity));
 
-        }
+        while (!queue.isEmpty() && budget.expand()) {
+            int city = queue.pop();
+            int current = workspace.label(city);
 
-        City startCity = cityMap.get(start);
-        if (startCity == null) {
-            return results;
-        }
-        
-        int initialCount = 0;
-        for (Station station : List.of(startCity.getBusStation(), startCity.getTrainStation())) {
-            for (Departure dep : station.getDepartures()) {
-                List<Departure> path = new ArrayList<>();
-                path.add(dep);
-                long totalTime = calculateTotalTime(path);
-                queue.add(new RouteNode(dep.to, path, totalTime));
-                initialCount++;
+            if (city == endCity) {
+                return labels.path(current, network);
             }
-        }
-        
-        int iterations = 0;
-        int maxIterations = 200000;
-        
-        while (!queue.isEmpty() && results.size() < limit && iterations < maxIterations) {
-            iterations++;
-            RouteNode current = queue.poll();
-            
-            if (current.path.size() > MAX_TRANSFERS) continue;
-            
-            if (current.city.equals(end)) {
-                if (!results.contains(current.path)) {
-                    results.add(current.path);
+            if (labels.length(current) >= MAX_TRANSFERS) continue;
+
+            for (int d = network.firstDeparture(city); d < network.endDeparture(city); d++) {
+                long newTotalPrice = labels.cost(current) + network.price(d);
+                int to = network.toCity(d);
+                if (newTotalPrice < workspace.distance(to)) {
+                    workspace.set(to, newTotalPrice, labels.add(to, current, d, newTotalPrice, 0, 0));
+                    queue.push(to, newTotalPrice + network.priceLowerBound(to, endCity));
                 }
-                continue;
             }
+        }
+
+        int bestTarget = workspace.distance(endCity) < Long.MAX_VALUE ? workspace.label(endCity) : -1;
+        // prekinuta pretraga vraća najjeftiniju do sada pronađenu rutu do odredišta
+        return bestTarget >= 0 && budget.stopped() ? labels.path(bestTarget, network) : Collections.emptyList();
+    }
 
-            String visitedKey = current.city + "_" + current.path.size();
-            if (!visited.add(visitedKey)) continue;
-
-            City currentCity = cityMap.get(current.city);
-            if (currentCity == null) continue;
-            
-            for (Station station : List.of(currentCity.getBusStation(), currentCity.getTrainStation())) {
-                for (Departure dep : station.getDepartures()) {
-                    List<Departure> newPath = new ArrayList<>(current.path);
-                    newPath.add(dep);
-                    long newTotalTime = calculateTotalTime(newPath);
-                    queue.add(new RouteNode(dep.to, newPath, newTotalTime));
+    /**
+     * Najjeftinija ruta sa polaskom u {@code startTime} ili kasnije. Ključ oznake je par
+     * (cijena uvećana za donju granicu cijene do odredišta, vrijeme spremnosti za naredni
+     * polazak), pa se među jednako skupim rutama bira ona sa najranijim dolaskom. Red
+     * vožnje dozvoljava čekanje, pa raniji dolazak u grad nikada ne daje kasniji dolazak
+     * dalje, i pretraga sa fiksiranim oznakama ostaje tačna.
+     */
+    private List<Departure> findCheapestRouteDepartingAt(int startCity, int endCity, int startTime, SearchBudget budget) {
+        SearchWorkspace workspace = network.workspace();
+        workspace.reset();
+        SearchLabels labels = workspace.labels;
+        RadixHeap queue = workspace.queue;
+
+        long startKey = ((long) network.priceLowerBound(startCity, endCity) << 32) | startTime;
+        workspace.set(startCity, startKey, labels.addRoot(startCity, startTime));
+        queue.push(startCity, startKey);
+
+        while (!queue.isEmpty() && budget.expand()) {
+            int city = queue.pop();
+            int current = workspace.label(city);
+
+            if (city == endCity) {
+                return labels.path(current, network);
+            }
+            if (labels.length(current) >= MAX_TRANSFERS) continue;
+
+            int readyAt = labels.time(current);
+            for (int d = network.firstDeparture(city); d < network.endDeparture(city); d++) {
+                int to = network.toCity(d);
+                int arrival = CompiledNetwork.departureAtOrAfter(readyAt, network.minute(d)) + network.duration(d);
+                int time = to == endCity ? arrival : arrival + network.minTransfer(d);
+                long price = labels.cost(current) + network.price(d);
+                long key = ((price + network.priceLowerBound(to, endCity)) << 32) | time;
+                if (key < workspace.distance(to)) {
+                    workspace.set(to, key, labels.add(to, current, d, price, time, 0));
+                    queue.push(to, key);
                 }
             }
         }
 
-        results.sort(Comparator.comparingLong((List<Departure> path) -> calculateTotalTime(path)));
-        return results;
+        int bestTarget = workspace.distance(endCity) < Long.MAX_VALUE ? workspace.label(endCity) : -1;
+        return bestTarget >= 0 && budget.stopped() ? labels.path(bestTarget, network) : Collections.emptyList();
+    }
+
+    private static List<Departure> legsOf(Journey journey) {
+        return journey != null ? journey.getLegs() : Collections.emptyList();
     }
 
     /**
-     * Pronalazi više najjeftinijih ruta između dva grada.
+     * Pronalazi rutu sa najmanjim brojem presjedanja koristeći RAPTOR pretragu po rundama.
      * <p>
-     * Algoritam je zasnovan na Dijkstra algoritmu, ali se umjesto vremena
-     * koristi ukupna cijena kao metrika prioriteta. Nakon što se pronađe
-     * više kandidata, rezultati se sortiraju po cijeni i vraća se
-     * najviše {@code limit} ruta.
+     * Runda {@code k} daje najraniji dolazak sa najviše {@code k} vožnji, pa prva runda
+     * u kojoj je odredište dostignuto određuje najmanji broj presjedanja. Među rutama sa
+     * istim brojem presjedanja bira se najbrža za bilo koje vrijeme polaska, jednim
+     * prolazom kroz minute polaska koji zadržava oznake između njih
+     * ({@link Raptor#fewestTransfers(int, int, int, SearchBudget)}).
      * </p>
      *
      * @param start početni grad
      * @param end   krajnji grad
-     * @param limit maksimalan broj ruta koje treba vratiti
-     * @return lista najboljih ruta sortiranih po cijeni
+     * @return lista polazaka koja predstavlja rutu sa najmanje presjedanja ili prazna lista ako ruta ne postoji
      */
-    private List<List<Departure>> findTopByPrice(String start, String end, int limit) {
-
-        List<Departure> bestRoute = findBestPriceRoute(start, end);
-
-        Queue<RouteNode> queue = new LinkedList<>();
-        Set<String> visited = new HashSet<>();
-        List<List<Departure>> results = new ArrayList<>();
-
-        if (!bestRoute.isEmpty()) {
-            results.add(bestRoute);
-        }
-
-        City startCity = cityMap.get(start);
-        if (startCity == null) {
-            return results;
-        }
-        
-        int initialCount = 0;
-        for (Station station : List.of(startCity.getBusStation(), startCity.getTrainStation())) {
-            for (Departure dep : station.getDepartures()) {
-                List<Departure> path = new ArrayList<>();
-                path.add(dep);
-                int totalPrice = calculateTotalPrice(path);
-                queue.add(new RouteNode(dep.to, path, totalPrice));
-                initialCount++;
-            }
-        }
-
-        int iterations = 0;
-        int maxIterations = 200000;
-        
-        while (!queue.isEmpty() && results.size() < limit && iterations < maxIterations) {
-            iterations++;
-            RouteNode current = queue.poll();
-            
-            if (current.path.size() > MAX_TRANSFERS) continue;
-            
-            if (current.city.equals(end)) {
-                if (!results.contains(current.path)) {
-                    results.add(current.path);
-                }
-                continue;
-            }
-
-            String visitedKey = current.city + "_" + current.path.size();
-            if (!visited.add(visitedKey)) continue;
-
-            City currentCity = cityMap.get(current.city);
-            if (currentCity == null) continue;
-            
-            for (Station station : List.of(currentCity.getBusStation(), currentCity.getTrainStation())) {
-                for (Departure dep : station.getDepartures()) {
-                    List<Departure> newPath = new ArrayList<>(current.path);
-                    newPath.add(dep);
-                    int newTotalPrice = calculateTotalPrice(newPath);
-                    queue.add(new RouteNode(dep.to, newPath, newTotalPrice));
-                }
-            }
+    private List<Departure> findBestTransfersRoute(String start, String end, SearchBudget budget) {
+        int startCity = network.cityId(start);
+        int endCity = network.cityId(end);
+        if (startCity < 0 || endCity < 0) {
+            return Collections.emptyList();
         }
 
-        results.sort(Comparator.comparingInt((List<Departure> path) -> calculateTotalPrice(path)));
-        return results;
+        Journey best = network.raptor().fewestTransfers(startCity, endCity, MAX_TRANSFERS, budget);
+        return best != null ? best.getLegs() : Collections.emptyList();
     }
 
     /**
-     * Pronalazi više ruta sa najmanjim brojem presjedanja između dva grada.
-     * <p>
-     * Algoritam koristi BFS pretragu za generisanje više ruta i vodi računa
-     * da se ne posjećuju iste kombinacije grada i broja presjedanja.
-     * Nakon što se generiše skup kandidata, rezultati se sortiraju
-     * po broju presjedanja i vraća se najviše {@code limit} ruta.
-     * </p>
+     * Pronalazi više najbržih ruta između dva grada Yen-ovim algoritmom ({@link KShortestPaths}).
+     * Rute su poređane tačno po ukupnom vremenu putovanja, uključujući čekanje na presjedanjima.
      *
      * @param start početni grad
      * @param end   krajnji grad
      * @param limit maksimalan broj ruta koje treba vratiti
-     * @return lista najboljih ruta sortiranih po broju presjedanja
+     * @return lista najboljih ruta sortiranih po vremenu
      */
-    private List<List<Departure>> findTopByTransfers(String start, String end, int limit) {
-
-        List<Departure> bestRoute = findBestTransfersRoute(start, end);
-
-        Queue<RouteNode> queue = new LinkedList<>();
-        Set<String> visited = new HashSet<>();
-        List<List<Departure>> results = new ArrayList<>();
-
-        if (!bestRoute.isEmpty()) {
-            results.add(bestRoute);
-        }
-
-        City startCity = cityMap.get(start);
-        if (startCity == null) {
-            return results;
-        }
-        
-        int initialCount = 0;
-        for (Station station : List.of(startCity.getBusStation(), startCity.getTrainStation())) {
-            for (Departure dep : station.getDepartures()) {
-                List<Departure> path = new ArrayList<>();
-                path.add(dep);
-                int transfers = path.size() - 1;
-                queue.add(new RouteNode(dep.to, path, transfers));
-                initialCount++;
-            }
-        }
-        
-        int iterations = 0;
-        int maxIterations = 200000;
-        
-        while (!queue.isEmpty() && results.size() < limit && iterations < maxIterations) {
-            iterations++;
-            RouteNode current = queue.poll();
-            
-            if (current.path.size() > MAX_TRANSFERS) continue;
-            
-            if (current.city.equals(end)) {
-                if (!results.contains(current.path)) {
-                    results.add(current.path);
-                }
-                continue;
-            }
-
-            String visitedKey = current.city + "_" + current.path.size();
-            if (!visited.add(visitedKey)) continue;
-
-            City currentCity = cityMap.get(current.city);
-            if (currentCity == null) continue;
-            
-            for (Station station : List.of(currentCity.getBusStation(), currentCity.getTrainStation())) {
-                for (Departure dep : station.getDepartures()) {
-                    List<Departure> newPath = new ArrayList<>(current.path);
-                    newPath.add(dep);
-                    int newTransfers = newPath.size() - 1;
-                    queue.add(new RouteNode(dep.to, newPath, newTransfers));
-                }
-            }
-        }
-
-        results.sort(Comparator.comparingInt(path -> path.size() - 1));
-        return results;
+    private List<List<Departure>> findTopFastestRoutes(String start, String end, int limit, SearchBudget budget) {
+        return findTopRoutesByYen(start, end, Criteria.TIME, limit, budget);
     }
 
-    private static class RouteNode {
-        String city;
-        List<Departure> path;
-        long totalTime;
-
-        RouteNode(String city, List<Departure> path, long totalTime) {
-            this.city = city;
-            this.path = path;
-            this.totalTime = totalTime;
-        }
+    /**
+     * Pronalazi više najjeftinijih ruta između dva grada Yen-ovim algoritmom ({@link KShortestPaths}).
+     *
+     * @param start početni grad
+     * @param end   krajnji grad
+     * @param limit maksimalan broj ruta koje treba vratiti
+     * @return lista najboljih ruta sortiranih po cijeni
+     */
+    private List<List<Departure>> findTopByPrice(String start, String end, int limit, SearchBudget budget) {
+        return findTopRoutesByYen(start, end, Criteria.PRICE, limit, budget);
     }
 
+
     /**
-     * Računa ukupno trajanje putovanja za datu rutu.
-     * <p>
-     * Vrijeme se računa na osnovu prvog polaska i poslednjeg dolaska.
-     * Algoritam vodi računa o prelasku dana – ako naredni polazak
-     * kreće prije prethodnog dolaska, automatski se dodaje jedan dan.
-     * </p>
+     * Pronalazi više ruta sa najmanjim brojem presjedanja između dva grada Yen-ovim
+     * algoritmom ({@link KShortestPaths}). Rute sa istim brojem presjedanja su poređane
+     * po trajanju.
      *
-     * @param path lista polazaka koja čini rutu
-     * @return ukupno trajanje u minutima
+     * @param start početni grad
+     * @param end   krajnji grad
+     * @param limit maksimalan broj ruta koje treba vratiti
+     * @return lista najboljih ruta sortiranih po broju presjedanja
      */
-    private long calculateTotalTime(List<Departure> path) {
-        if (path.isEmpty()) return 0;
-        
-        try {
-            DateTimeFormatter formatter = DateTimeFormatter.ofPattern("HH:mm");
-            LocalDate today = LocalDate.now();
-            
-            LocalDateTime firstDeparture = LocalDateTime.of(today, LocalTime.parse(path.get(0).departureTime, formatter));
-            LocalDateTime lastArrival = firstDeparture;
-            
-            for (Departure dep : path) {
-                LocalTime depTime = LocalTime.parse(dep.departureTime, formatter);
-                LocalDateTime depDateTime = LocalDateTime.of(today, depTime);
-                
-                if (depDateTime.isBefore(lastArrival)) {
-                    today = today.plusDays(1);
-                    depDateTime = LocalDateTime.of(today, depTime);
-                }
-                
-                LocalDateTime arrDateTime = depDateTime.plusMinutes(dep.duration);
-                lastArrival = arrDateTime;
-            }
-            
-            return ChronoUnit.MINUTES.between(firstDeparture, lastArrival);
-        } catch (Exception e) {
-            return 0;
-        }
+    private List<List<Departure>> findTopByTransfers(String start, String end, int limit, SearchBudget budget) {
+        return findTopRoutesByYen(start, end, Criteria.TRANSFERS, limit, budget);
     }
 
     /**
-     * Računa ukupnu cijenu rute.
-     *
-     * @param path lista polazaka koja čini rutu
-     * @return zbir svih cijena na ruti
+     * Pokreće {@link KShortestPaths} po zadatom kriterijumu. Pretraga vraća rute tačno po
+     * redu cijene i staje nakon {@code limit} ruta, bez naknadnog sortiranja i poređenja
+     * sa već pronađenim rutama.
      */
-    private int calculateTotalPrice(List<Departure> path) {
-        return path.stream().mapToInt(dep -> dep.price).sum();
+    private List<List<Departure>> findTopRoutesByYen(String start, String end, Criteria criteria, int limit, SearchBudget budget) {
+        int startCity = network.cityId(start);
+        int endCity = network.cityId(end);
+        if (startCity < 0 || endCity < 0) {
+            return new ArrayList<>();
+        }
+
+        List<List<Departure>> results = new ArrayList<>();
+        for (Journey journey : new KShortestPaths(network, criteria, MAX_TRANSFERS).find(startCity, endCity, limit, budget)) {
+            results.add(journey.getLegs());
+        }
+        return results;
     }
+
+
 }
@@ -0,0 +1,97 @@
+package org.unibl.etf.algo;
+
+import java.util.function.BooleanSupplier;
+
+/**
+ * Brojač potrošnje jednog upita, napravljen iz {@link QueryOptions}.
+ * <p>
+ * Pretrage pozivaju {@link #expand()} za svaki čvor preuzet iz reda sa prioritetom,
+ * {@link #scan(int)} za svaki korak petlji bez reda (veze u skeniranju, gradovi runde)
+ * i {@link #check()} u spoljnim petljama (npr. po minutu polaska). Provjera roka i
+ * otkazivanja u {@link #expand()} i {@link #scan(int)} se radi tek na svakih
+ * {@value #CHECK_INTERVAL} koraka, pa je cijena u glavnoj petlji jedno povećanje
+ * brojača ili maskiranje indeksa i jedno poređenje.
+ * Kada se prekid jednom desi, svi naredni pozivi vraćaju {@code false}.
+ * </p>
+ *
+ * @author Saša Vujančević
+ */
+class SearchBudget {
+
+    private static final int CHECK_INTERVAL = 256;
+
+    private final long deadlineNanos;
+    private final long maxExpansions;
+    private final BooleanSupplier cancellation;
+
+    private long expansions;
+    private SearchStatus status = SearchStatus.COMPLETE;
+
+    SearchBudget(long deadlineNanos, long maxExpansions, BooleanSupplier cancellation) {
+        this.deadlineNanos = deadlineNanos;
+        this.maxExpansions = maxExpansions;
+        this.cancellation = cancellation;
+    }
+
+    /**
+     * @return budžet bez ograničenja, za pozive bez opcija upita
+     */
+    static SearchBudget unlimited() {
+        return QueryOptions.unlimited().start();
+    }
+
+    /**
+     * Bilježi jedno proširenje čvora.
+     *
+     * @return {@code true} ako pretraga smije da nastavi
+     */
+    boolean expand() {
+        if (status != SearchStatus.COMPLETE) return false;
+        if (++expansions > maxExpansions) {
+            status = SearchStatus.BUDGET_EXHAUSTED;
+            return false;
+        }
+        return (expansions & (CHECK_INTERVAL - 1)) != 0 || check();
+    }
+
+    /**
+     * Bilježi jedan korak petlje bez reda sa prioritetom. Koraci se ne računaju u budžet
+     * proširenja, jer skeniranje prolazi kroz mnogo više veza nego što Dijkstra pretraga
+     * proširi čvorova; provjeravaju se samo rok i otkazivanje.
+     *
+     * @param step redni broj koraka u petlji
+     * @return {@code true} ako pretraga smije da nastavi
+     */
+    boolean scan(int step) {
+        if (status != SearchStatus.COMPLETE) return false;
+        return (step & (CHECK_INTERVAL - 1)) != 0 || check();
+    }
+
+    /**
+     * Provjerava otkazivanje i rok.
+     *
+     * @return {@code true} ako pretraga smije da nastavi
+     */
+    boolean check() {
+        if (status == SearchStatus.COMPLETE) {
+            if (cancellation.getAsBoolean()) {
+                status = SearchStatus.CANCELLED;
+            } else if (deadlineNanos != Long.MAX_VALUE && System.nanoTime() - deadlineNanos > 0) {
+                status = SearchStatus.DEADLINE_EXCEEDED;
+            }
+        }
+        return status == SearchStatus.COMPLETE;
+    }
+
+    boolean stopped() {
+        return status != SearchStatus.COMPLETE;
+    }
+
+    SearchStatus status() {
+        return status;
+    }
+
+    long expansions() {
+        return expansions;
+    }
+}
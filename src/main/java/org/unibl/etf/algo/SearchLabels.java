@@ -0,0 +1,133 @@
+package org.unibl.etf.algo;
+
+import org.unibl.etf.model.Departure;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Kompaktno skladište oznaka (stanja) pretrage.
+ * <p>
+ * Umjesto da svako stanje čuva kopiju cijele putanje, oznaka čuva samo grad, indeks
+ * prethodne oznake, indeks posljednjeg polaska, dužinu putanje i cijenu koja se prenosi
+ * sa prethodne oznake. Sve vrijednosti se drže u paralelnim nizovima primitivnih tipova,
+ * a putanja se rekonstruiše praćenjem prethodnika samo za konačne rezultate.
+ * </p>
+ * <p>
+ * Oznaka sa prethodnikom {@code -1} predstavlja početni grad, bez polaska.
+ * </p>
+ *
+ * @author Saša Vujančević
+ */
+class SearchLabels {
+
+    private int[] city = new int[64];
+    private int[] parent = new int[64];
+    private int[] departure = new int[64];
+    private int[] length = new int[64];
+    private long[] cost = new long[64];
+    private int[] time = new int[64];
+    private int[] start = new int[64];
+    private int size;
+
+    /**
+     * Dodaje početnu oznaku za zadati grad.
+     *
+     * @param origin    identifikator početnog grada
+     * @param startTime vrijeme od kojeg se može krenuti iz početnog grada
+     * @return indeks nove oznake
+     */
+    int addRoot(int origin, int startTime) {
+        return add(origin, -1, -1, 0, startTime, startTime);
+    }
+
+    /**
+     * Dodaje oznaku dobijenu proširenjem oznake {@code parent} polaskom {@code departure}.
+     *
+     * @param city      grad u koji se stiže
+     * @param parent    indeks prethodne oznake
+     * @param departure indeks polaska u {@link CompiledNetwork}
+     * @param cost      ukupna cijena (ili drugi trošak) putanje
+     * @param time      apsolutno vrijeme od kojeg je moguć naredni polazak
+     * @param start     apsolutno vrijeme prvog polaska na putanji
+     * @return indeks nove oznake
+     */
+    int add(int city, int parent, int departure, long cost, int time, int start) {
+        if (size == this.city.length) {
+            int capacity = size * 2;
+            this.city = Arrays.copyOf(this.city, capacity);
+            this.parent = Arrays.copyOf(this.parent, capacity);
+            this.departure = Arrays.copyOf(this.departure, capacity);
+            this.length = Arrays.copyOf(this.length, capacity);
+            this.cost = Arrays.copyOf(this.cost, capacity);
+            this.time = Arrays.copyOf(this.time, capacity);
+            this.start = Arrays.copyOf(this.start, capacity);
+        }
+        int label = size++;
+        this.city[label] = city;
+        this.parent[label] = parent;
+        this.departure[label] = departure;
+        this.length[label] = parent < 0 ? 0 : this.length[parent] + 1;
+        this.cost[label] = cost;
+        this.time[label] = time;
+        this.start[label] = start;
+        return label;
+    }
+
+    /**
+     * Uklanja sve oznake, zadržavajući alocirane nizove za narednu pretragu.
+     */
+    void clear() {
+        size = 0;
+    }
+
+    int size() {
+        return size;
+    }
+
+    int city(int label) {
+        return city[label];
+    }
+
+    int parent(int label) {
+        return parent[label];
+    }
+
+    int departure(int label) {
+        return departure[label];
+    }
+
+    int length(int label) {
+        return length[label];
+    }
+
+    long cost(int label) {
+        return cost[label];
+    }
+
+    int time(int label) {
+        return time[label];
+    }
+
+    int start(int label) {
+        return start[label];
+    }
+
+    /**
+     * Rekonstruiše listu polazaka od početnog grada do zadate oznake.
+     *
+     * @param label   indeks oznake
+     * @param network mreža iz koje se uzimaju {@link Departure} objekti
+     * @return lista polazaka
+     */
+    List<Departure> path(int label, CompiledNetwork network) {
+        List<Departure> path = new ArrayList<>(length[label]);
+        for (int l = label; parent[l] >= 0; l = parent[l]) {
+            path.add(network.departure(departure[l]));
+        }
+        Collections.reverse(path);
+        return path;
+    }
+}
@@ -0,0 +1,34 @@
+package org.unibl.etf.algo;
+
+/**
+ * Rezultat pretrage zajedno sa razlogom njenog završetka.
+ * <p>
+ * Ako pretraga nije završena ({@link #isComplete()} vraća {@code false}), vrijednost je
+ * najbolji rezultat pronađen do prekida i ne mora biti optimalan, a može biti i prazan.
+ * </p>
+ *
+ * @param <T> tip rezultata
+ * @author Saša Vujančević
+ */
+public class SearchResult<T> {
+
+    private final T value;
+    private final SearchStatus status;
+
+    public SearchResult(T value, SearchStatus status) {
+        this.value = value;
+        this.status = status;
+    }
+
+    public T getValue() {
+        return value;
+    }
+
+    public SearchStatus getStatus() {
+        return status;
+    }
+
+    public boolean isComplete() {
+        return status == SearchStatus.COMPLETE;
+    }
+}
@@ -0,0 +1,21 @@
+package org.unibl.etf.algo;
+
+/**
+ * Razlog završetka pretrage ograničene opcijama upita ({@link QueryOptions}).
+ *
+ * @author Saša Vujančević
+ */
+public enum SearchStatus {
+
+    /** Pretraga je završena; rezultat je tačan. */
+    COMPLETE,
+
+    /** Isteklo je vrijeme zadato opcijom {@link QueryOptions#withDeadline(java.time.Duration)}; vraća se najbolji rezultat do tog trenutka. */
+    DEADLINE_EXCEEDED,
+
+    /** Potrošen je dozvoljeni broj proširenih čvorova; vraća se najbolji rezultat do tog trenutka. */
+    BUDGET_EXHAUSTED,
+
+    /** Pretraga je otkazana (npr. korisnik je izabrao drugi grad); vraća se najbolji rezultat do tog trenutka. */
+    CANCELLED
+}
@@ -0,0 +1,97 @@
+package org.unibl.etf.algo;
+
+import java.util.Arrays;
+import java.util.BitSet;
+
+/**
+ * Radni prostor pretrage koji se ponovo koristi između upita iste niti.
+ * <p>
+ * Sadrži primitivne nizove veličine broja gradova – najmanju vrijednost ključa po gradu,
+ * oznaku (prethodnika) kojom je ta vrijednost postignuta i oznaku posjećenosti – kao i red
+ * ({@link RadixHeap}) i skladište oznaka ({@link SearchLabels}). Umjesto brisanja nizova,
+ * svaki upis pamti <i>generaciju</i> u kojoj je napravljen, pa se {@link #reset()} i
+ * {@link #resetMarks()} svode na povećanje brojača: vrijednost iz starije generacije se
+ * čita kao da nije postavljena. Nizovi se brišu samo kada brojač generacija dođe do kraja
+ * opsega.
+ * </p>
+ * <p>
+ * Radni prostor nije bezbjedan za više niti; {@link CompiledNetwork#workspace()} vraća
+ * zaseban primjerak za svaku nit.
+ * </p>
+ *
+ * @author Saša Vujančević
+ */
+class SearchWorkspace {
+
+    final RadixHeap queue;
+    final SearchLabels labels = new SearchLabels();
+
+    /** Polasci isključeni iz pretrage; briše ga onaj ko ga koristi. */
+    final BitSet removedDepartures;
+
+    private final long[] distance;
+    private final int[] label;
+    private final int[] distanceStamp;
+    private final int[] markStamp;
+    private int generation;
+    private int markGeneration;
+
+    SearchWorkspace(int cityCount, int departureCount) {
+        queue = new RadixHeap(cityCount);
+        removedDepartures = new BitSet(departureCount);
+        distance = new long[cityCount];
+        label = new int[cityCount];
+        distanceStamp = new int[cityCount];
+        markStamp = new int[cityCount];
+    }
+
+    /**
+     * Započinje novu pretragu: sve vrijednosti postaju nepostavljene, red i oznake se prazne.
+     */
+    void reset() {
+        if (++generation == Integer.MAX_VALUE) {
+            Arrays.fill(distanceStamp, 0);
+            generation = 1;
+        }
+        queue.clear();
+        labels.clear();
+    }
+
+    /**
+     * Briše sve oznake posjećenosti (npr. blokirane gradove) u O(1).
+     */
+    void resetMarks() {
+        if (++markGeneration == Integer.MAX_VALUE) {
+            Arrays.fill(markStamp, 0);
+            markGeneration = 1;
+        }
+    }
+
+    /**
+     * @return vrijednost ključa grada u tekućoj pretrazi ili {@link Long#MAX_VALUE} ako nije postavljena
+     */
+    long distance(int city) {
+        return distanceStamp[city] == generation ? distance[city] : Long.MAX_VALUE;
+    }
+
+    /**
+     * @return oznaka kojom je postignuta vrijednost {@link #distance(int)}; važi samo ako je vrijednost postavljena
+     */
+    int label(int city) {
+        return label[city];
+    }
+
+    void set(int city, long value, int label) {
+        distanceStamp[city] = generation;
+        distance[city] = value;
+        this.label[city] = label;
+    }
+
+    boolean marked(int city) {
+        return markStamp[city] == markGeneration;
+    }
+
+    void mark(int city) {
+        markStamp[city] = markGeneration;
+    }
+}
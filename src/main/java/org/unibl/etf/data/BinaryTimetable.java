@@ -0,0 +1,484 @@
+package org.unibl.etf.data;
+
+import org.unibl.etf.model.City;
+import org.unibl.etf.model.Departure;
+import org.unibl.etf.model.DepartureTable;
+import org.unibl.etf.model.Station;
+import org.unibl.etf.model.TransportType;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Klasa {@code BinaryTimetable} čita i piše mrežu u kompaktnom binarnom formatu, koji se
+ * umjesto parsiranja teksta učitava jednim skupnim čitanjem fajla ({@link FileChannel#read}).
+ * <p>
+ * Format (redoslijed bajtova <i>big-endian</i>):
+ * <ul>
+ *     <li>zaglavlje – {@link #MAGIC}, {@link #FORMAT_VERSION}, pa veličina i vrijeme
+ *     izmjene ({@code long}, milisekunde) izvornog JSON fajla iz kojeg je red vožnje
+ *     napravljen ({@link Source}), odnosno {@code -1} i {@code 0} ako izvora nema,</li>
+ *     <li>rječnik – broj riječi, pa za svaku dužina u bajtovima i UTF-8 zapis; nazivi
+ *     gradova i identifikatori stanica se čuvaju jednom i dalje se navode indeksom u
+ *     rječniku,</li>
+ *     <li>gradovi – broj gradova, pa kolone naziv, autobuska stanica, željeznička stanica
+ *     ({@code -1} ako stanica ne postoji), broj polazaka autobuske i broj polazaka
+ *     željezničke stanice,</li>
+ *     <li>polasci – broj polazaka, pa kolone vrsta prevoza ({@code byte}, redni broj
+ *     {@link TransportType}), polazna stanica, odredište, minut polaska ({@code short}),
+ *     trajanje, cijena i minimalno vrijeme presjedanja; svaka kolona je neprekidan niz
+ *     od po jednog broja za svaki polazak.</li>
+ * </ul>
+ * Polasci su poređani po gradovima, u redoslijedu sekcije gradova, unutar grada prvo
+ * polasci autobuske pa željezničke stanice, a unutar stanice po minutu polaska. Kolone
+ * imaju isti oblik kao kolone {@link DepartureTable}, a rječnik je njen rječnik naziva,
+ * pa se pri čitanju svaka kolona prenosi u tabelu jednim skupnim kopiranjem iz bafera,
+ * bez dodavanja polazaka jedan po jedan. Stanice samo pamte opseg svojih redova
+ * ({@link Station#Station(String, DepartureTable, int, int)}).
+ * </p>
+ * <p>
+ * Kolone se ionako kopiraju u nizove tabele, pa se fajl ne mapira u memoriju, nego čita
+ * u jedan bafer na hipu i odmah zatvara. Fajl se piše u privremeni fajl koji se zatim
+ * premješta na odredište, pa djelimično upisan fajl nikada nije vidljiv pod konačnim
+ * nazivom.
+ * </p>
+ *
+ * @author Saša Vujančević
+ */
+public class BinaryTimetable {
+
+    /** Oznaka na početku fajla ("TTBL"). */
+    public static final int MAGIC = 0x5454424C;
+    public static final int FORMAT_VERSION = 3;
+
+    private static final String EXTENSION = ".bin";
+    private static final int HEADER_BYTES = 4 + 4 + 8 + 8;
+
+    private static final int TYPE = 0;
+    private static final int FROM = 1;
+    private static final int TO = 2;
+    private static final int MINUTE = 3;
+    private static final int DURATION = 4;
+    private static final int PRICE = 5;
+    private static final int MIN_TRANSFER = 6;
+    private static final int DEPARTURE_COLUMNS = 7;
+
+    /**
+     * Vraća putanju binarnog fajla koji se čuva pored JSON fajla: ista putanja, sa
+     * ekstenzijom {@code .bin} umjesto {@code .json}.
+     *
+     * @param jsonPath putanja do JSON fajla
+     * @return putanja binarnog fajla
+     */
+    public static Path pathFor(String jsonPath) {
+        String base = jsonPath.endsWith(".json") ? jsonPath.substring(0, jsonPath.length() - 5) : jsonPath;
+        return Path.of(base + EXTENSION);
+    }
+
+    /**
+     * Učitava gradove, stanice i polaske iz binarnog fajla.
+     *
+     * @param path putanja binarnog fajla
+     * @return mapa gradova po nazivu
+     * @throws IOException ako fajl nije moguće pročitati ili nije u ovom formatu
+     */
+    public static Map<String, City> read(Path path) throws IOException {
+        ByteBuffer buffer;
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size > Integer.MAX_VALUE) {
+                throw new IOException("Binarni red vožnje je prevelik: " + path);
+            }
+            buffer = ByteBuffer.allocate((int) size);
+            while (buffer.hasRemaining()) {
+                if (channel.read(buffer) < 0) break;
+            }
+        }
+        buffer.flip();
+        try {
+            return read(buffer);
+        } catch (RuntimeException e) {
+            // BufferUnderflowException, IllegalArgumentException... – fajl je skraćen ili oštećen
+            throw new IOException("Neispravan binarni red vožnje: " + path, e);
+        }
+    }
+
+    /**
+     * Čita iz zaglavlja binarnog fajla izvorni JSON fajl iz kojeg je napravljen. Binarni
+     * fajl odgovara JSON fajlu samo ako je ovo jednako {@link Source#of(Path)} tog fajla.
+     *
+     * @param path putanja binarnog fajla
+     * @return izvor upisan u zaglavlje, ili {@code null} ako fajl nije u ovom formatu ili
+     * je napravljen bez izvora
+     * @throws IOException ako fajl nije moguće pročitati
+     */
+    public static Source readSource(Path path) throws IOException {
+        ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES);
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            while (header.hasRemaining()) {
+                if (channel.read(header) < 0) return null;
+            }
+        }
+        header.flip();
+        if (header.getInt() != MAGIC || header.getInt() != FORMAT_VERSION) return null;
+        long size = header.getLong();
+        long lastModified = header.getLong();
+        return size < 0 ? null : new Source(size, lastModified);
+    }
+
+    private static Map<String, City> read(ByteBuffer buffer) throws IOException {
+        if (buffer.getInt() != MAGIC) {
+            throw new IOException("Fajl nije binarni red vožnje");
+        }
+        int version = buffer.getInt();
+        if (version != FORMAT_VERSION) {
+            throw new IOException("Nepodržana verzija binarnog reda vožnje: " + version);
+        }
+        buffer.position(HEADER_BYTES);
+
+        String[] words = new String[buffer.getInt()];
+        byte[] bytes = new byte[64];
+        for (int i = 0; i < words.length; i++) {
+            int length = buffer.getInt();
+            if (length > bytes.length) bytes = new byte[Math.max(length, bytes.length * 2)];
+            buffer.get(bytes, 0, length);
+            words[i] = new String(bytes, 0, length, StandardCharsets.UTF_8);
+        }
+
+        int cityCount = buffer.getInt();
+        int[] cityNames = ints(buffer, cityCount);
+        int[] busStations = ints(buffer, cityCount);
+        int[] trainStations = ints(buffer, cityCount);
+        int[] busDepartures = ints(buffer, cityCount);
+        int[] trainDepartures = ints(buffer, cityCount);
+
+        int departureCount = buffer.getInt();
+        byte[] type = new byte[departureCount];
+        buffer.get(type);
+        int[] from = ints(buffer, departureCount);
+        int[] to = ints(buffer, departureCount);
+        short[] minute = new short[departureCount];
+        buffer.asShortBuffer().get(minute);
+        buffer.position(buffer.position() + 2 * departureCount);
+        int[] duration = ints(buffer, departureCount);
+        int[] price = ints(buffer, departureCount);
+        int[] minTransfer = ints(buffer, departureCount);
+        DepartureTable table = new DepartureTable(words, type, from, to, minute, duration, price, minTransfer);
+
+        Map<String, City> cityMap = new HashMap<>(cityCount * 2);
+        int row = 0;
+        for (int c = 0; c < cityCount; c++) {
+            Station bus = station(words, busStations[c], table, from, row, busDepartures[c]);
+            row += busDepartures[c];
+            Station train = station(words, trainStations[c], table, from, row, trainDepartures[c]);
+            row += trainDepartures[c];
+            String name = words[cityNames[c]];
+            cityMap.put(name, new City(name, bus, train));
+        }
+        if (row != departureCount) {
+            throw new IOException("Broj polazaka stanica ne odgovara broju polazaka");
+        }
+        return cityMap;
+    }
+
+    private static int[] ints(ByteBuffer buffer, int count) {
+        int[] column = new int[count];
+        buffer.asIntBuffer().get(column);
+        buffer.position(buffer.position() + 4 * count);
+        return column;
+    }
+
+    private static Station station(String[] words, int id, DepartureTable table, int[] from,
+                                   int firstRow, int count) throws IOException {
+        if (id < 0) {
+            if (count != 0) throw new IOException("Polasci sa nepostojeće stanice");
+            return null;
+        }
+        Station station = new Station(words[id], table, firstRow, count);
+        for (int row = firstRow; row < firstRow + count; row++) {
+            if (from[row] != id) throw new IOException("Polazak u redu " + row + " ne pripada stanici " + words[id]);
+        }
+        return station;
+    }
+
+    /**
+     * Upisuje učitanu mapu gradova u binarni fajl, bez izvornog JSON fajla.
+     *
+     * @param cityMap mapa gradova
+     * @param path    putanja binarnog fajla
+     * @throws IOException ako upis nije uspio
+     */
+    public static void write(Map<String, City> cityMap, Path path) throws IOException {
+        write(cityMap, path, null);
+    }
+
+    /**
+     * Upisuje učitanu mapu gradova u binarni fajl.
+     *
+     * @param cityMap mapa gradova
+     * @param path    putanja binarnog fajla
+     * @param source  izvorni JSON fajl iz kojeg je mapa učitana, ili {@code null}
+     * @throws IOException ako upis nije uspio
+     */
+    public static void write(Map<String, City> cityMap, Path path, Source source) throws IOException {
+        Builder builder = new Builder();
+        for (City city : cityMap.values()) {
+            Station bus = city.getBusStation();
+            Station train = city.getTrainStation();
+            builder.addCity(city.getName(), bus != null ? bus.getId() : null, train != null ? train.getId() : null);
+        }
+        for (City city : cityMap.values()) {
+            for (Station station : new Station[]{city.getBusStation(), city.getTrainStation()}) {
+                if (station == null) continue;
+                for (Departure d : station.getDepartures()) {
+                    builder.addDeparture(d.getType(), d.getFrom(), d.getTo(), d.getDepartureMinute(),
+                            d.getDuration(), d.getPrice(), d.getMinTransferTime());
+                }
+            }
+        }
+        builder.write(path, source);
+    }
+
+    /**
+     * Veličina i vrijeme izmjene izvornog JSON fajla, po kojima se provjerava da li binarni
+     * fajl još odgovara JSON fajlu. Za razliku od poređenja samo vremena izmjene, otkriva i
+     * JSON fajl zamijenjen kopijom sa starijim vremenom izmjene.
+     */
+    public static class Source {
+        private final long size;
+        private final long lastModified;
+
+        private Source(long size, long lastModified) {
+            this.size = size;
+            this.lastModified = lastModified;
+        }
+
+        /**
+         * @param json putanja JSON fajla
+         * @return trenutna veličina i vrijeme izmjene fajla
+         * @throws IOException ako atribute fajla nije moguće pročitati
+         */
+        public static Source of(Path json) throws IOException {
+            BasicFileAttributes attributes = Files.readAttributes(json, BasicFileAttributes.class);
+            return new Source(attributes.size(), attributes.lastModifiedTime().toMillis());
+        }
+
+        public long getSize() {
+            return size;
+        }
+
+        public long getLastModified() {
+            return lastModified;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (!(o instanceof Source)) return false;
+            Source other = (Source) o;
+            return size == other.size && lastModified == other.lastModified;
+        }
+
+        @Override
+        public int hashCode() {
+            return Long.hashCode(size) * 31 + Long.hashCode(lastModified);
+        }
+    }
+
+    /**
+     * Postepeno sastavlja binarni red vožnje. Koristi ga i generator podataka, koji tako
+     * piše binarni fajl direktno, bez prolaska kroz JSON. Gradovi i polasci se mogu
+     * dodavati bilo kojim redoslijedom; pri upisu se gradovi poređaju po nazivu, a polasci
+     * po stanici i minutu polaska. Polasci sa stanica koje ne pripadaju nijednom gradu se
+     * ne upisuju, jer ih ni učitavanje JSON fajla ne dodaje nijednoj stanici.
+     */
+    public static class Builder {
+        private final Map<String, Integer> wordIds = new HashMap<>();
+        private final List<String> words = new ArrayList<>();
+
+        private int[] cityColumns = new int[3 * 64];
+        private int cityCount;
+
+        private int[][] departureColumns = new int[DEPARTURE_COLUMNS][64];
+        private int departureCount;
+
+        /**
+         * Dodaje grad sa njegovim stanicama.
+         *
+         * @param city         naziv grada
+         * @param busStation   identifikator autobuske stanice ili {@code null}
+         * @param trainStation identifikator željezničke stanice ili {@code null}
+         * @return ovaj builder
+         */
+        public Builder addCity(String city, String busStation, String trainStation) {
+            if (3 * cityCount + 3 > cityColumns.length) {
+                cityColumns = Arrays.copyOf(cityColumns, cityColumns.length * 2);
+            }
+            int base = 3 * cityCount++;
+            cityColumns[base] = word(city);
+            cityColumns[base + 1] = busStation != null ? word(busStation) : -1;
+            cityColumns[base + 2] = trainStation != null ? word(trainStation) : -1;
+            return this;
+        }
+
+        /**
+         * Dodaje polazak.
+         *
+         * @param departureMinute minut polaska od ponoći, {@code [0, 1440)}
+         * @return ovaj builder
+         */
+        public Builder addDeparture(TransportType type, String from, String to, int departureMinute,
+                                    int duration, int price, int minTransferTime) {
+            if (departureMinute < 0 || departureMinute >= Departure.MINUTES_PER_DAY) {
+                throw new IllegalArgumentException("Minut polaska van dana: " + departureMinute);
+            }
+            if (departureCount == departureColumns[0].length) {
+                for (int c = 0; c < DEPARTURE_COLUMNS; c++) {
+                    departureColumns[c] = Arrays.copyOf(departureColumns[c], departureCount * 2);
+                }
+            }
+            int d = departureCount++;
+            departureColumns[TYPE][d] = type.ordinal();
+            departureColumns[FROM][d] = word(from);
+            departureColumns[TO][d] = word(to);
+            departureColumns[MINUTE][d] = departureMinute;
+            departureColumns[DURATION][d] = duration;
+            departureColumns[PRICE][d] = price;
+            departureColumns[MIN_TRANSFER][d] = minTransferTime;
+            return this;
+        }
+
+        /**
+         * Upisuje sastavljeni red vožnje u fajl, bez izvornog JSON fajla.
+         *
+         * @param path putanja binarnog fajla
+         * @throws IOException ako upis nije uspio
+         */
+        public void write(Path path) throws IOException {
+            write(path, null);
+        }
+
+        /**
+         * Upisuje sastavljeni red vožnje u fajl.
+         *
+         * @param path   putanja binarnog fajla
+         * @param source izvorni JSON fajl sa istim sadržajem, ili {@code null}
+         * @throws IOException ako upis nije uspio
+         */
+        public void write(Path path, Source source) throws IOException {
+            Integer[] cities = new Integer[cityCount];
+            for (int c = 0; c < cityCount; c++) cities[c] = c;
+            Arrays.sort(cities, (a, b) -> words.get(cityColumns[3 * a]).compareTo(words.get(cityColumns[3 * b])));
+
+            // stanica grada na mjestu i dobija mjesto 2i (autobuska) odnosno 2i + 1 (željeznička)
+            int[] stationSlot = new int[words.size()];
+            Arrays.fill(stationSlot, -1);
+            for (int i = 0; i < cityCount; i++) {
+                int base = 3 * cities[i];
+                if (cityColumns[base + 1] >= 0) stationSlot[cityColumns[base + 1]] = 2 * i;
+                if (cityColumns[base + 2] >= 0) stationSlot[cityColumns[base + 2]] = 2 * i + 1;
+            }
+            int[] order = departureOrder(stationSlot);
+            int[] slotDepartures = new int[2 * cityCount];
+            for (int d : order) {
+                slotDepartures[stationSlot[departureColumns[FROM][d]]]++;
+            }
+
+            Path temp = path.resolveSibling(path.getFileName() + ".tmp");
+            try (OutputStream file = Files.newOutputStream(temp);
+                 DataOutputStream out = new DataOutputStream(new BufferedOutputStream(file, 1 << 16))) {
+                out.writeInt(MAGIC);
+                out.writeInt(FORMAT_VERSION);
+                out.writeLong(source != null ? source.size : -1);
+                out.writeLong(source != null ? source.lastModified : 0);
+
+                out.writeInt(words.size());
+                for (String word : words) {
+                    byte[] bytes = word.getBytes(StandardCharsets.UTF_8);
+                    out.writeInt(bytes.length);
+                    out.write(bytes);
+                }
+
+                out.writeInt(cityCount);
+                for (int column = 0; column < 3; column++) {
+                    for (int city : cities) {
+                        out.writeInt(cityColumns[3 * city + column]);
+                    }
+                }
+                for (int k = 0; k < 2; k++) {
+                    for (int i = 0; i < cityCount; i++) {
+                        out.writeInt(slotDepartures[2 * i + k]);
+                    }
+                }
+
+                out.writeInt(order.length);
+                for (int d : order) out.writeByte(departureColumns[TYPE][d]);
+                for (int d : order) out.writeInt(departureColumns[FROM][d]);
+                for (int d : order) out.writeInt(departureColumns[TO][d]);
+                for (int d : order) out.writeShort(departureColumns[MINUTE][d]);
+                for (int d : order) out.writeInt(departureColumns[DURATION][d]);
+                for (int d : order) out.writeInt(departureColumns[PRICE][d]);
+                for (int d : order) out.writeInt(departureColumns[MIN_TRANSFER][d]);
+            } catch (IOException e) {
+                Files.deleteIfExists(temp);
+                throw e;
+            }
+            Files.move(temp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        }
+
+        /**
+         * Vraća polaske sa poznatih stanica poređane po mjestu stanice, a unutar stanice po
+         * minutu polaska. Oba sortiranja su prebrojavanjem i stabilna, pa polasci sa istim
+         * minutom zadržavaju redoslijed dodavanja, kao u {@link Station#getDepartures()}.
+         */
+        private int[] departureOrder(int[] stationSlot) {
+            int[] byMinute = new int[departureCount];
+            int[] start = new int[Departure.MINUTES_PER_DAY + 1];
+            for (int d = 0; d < departureCount; d++) start[departureColumns[MINUTE][d] + 1]++;
+            for (int m = 0; m < Departure.MINUTES_PER_DAY; m++) start[m + 1] += start[m];
+            for (int d = 0; d < departureCount; d++) byMinute[start[departureColumns[MINUTE][d]]++] = d;
+
+            int slots = 2 * cityCount;
+            int[] slotStart = new int[slots + 1];
+            int known = 0;
+            for (int d = 0; d < departureCount; d++) {
+                int slot = stationSlot[departureColumns[FROM][d]];
+                if (slot < 0) continue;
+                slotStart[slot + 1]++;
+                known++;
+            }
+            for (int s = 0; s < slots; s++) slotStart[s + 1] += slotStart[s];
+            int[] order = new int[known];
+            for (int d : byMinute) {
+                int slot = stationSlot[departureColumns[FROM][d]];
+                if (slot >= 0) order[slotStart[slot]++] = d;
+            }
+            return order;
+        }
+
+        private int word(String word) {
+            Integer id = wordIds.get(word);
+            if (id == null) {
+                id = words.size();
+                wordIds.put(word, id);
+                words.add(word);
+            }
+            return id;
+        }
+    }
+}
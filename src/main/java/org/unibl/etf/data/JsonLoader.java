@@ -1,13 +1,20 @@
 package org.unibl.etf.data;
 
-import com.fasterxml.jackson.databind.JsonNode;
-import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParseException;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
 import org.unibl.etf.model.*;
 
 import java.io.File;
 import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
  * Klasa {@code JsonLoader} služi za učitavanje podataka iz JSON fajla
@@ -15,50 +22,295 @@ import java.util.Map;
  * <p>
  * JSON fajl treba da sadrži sljedeće sekcije:
  * <ul>
+ *     <li><b>countryMap</b> – nazivi gradova po redovima mreže; čita se samo kroz {@link #loadCountryMap(String)}</li>
  *     <li><b>stations</b> – lista stanica sa pripadajućim gradom, autobuskom i željezničkom stanicom</li>
  *     <li><b>departures</b> – lista polazaka (autobus ili voz) sa svim potrebnim informacijama</li>
  * </ul>
  * <p>
+ * Vrijeme polaska se parsira samo jednom, pri učitavanju, i čuva u polasku kao broj
+ * minuta od ponoći.
+ * <p>
  * Učitani podaci se čuvaju u mapama, gde se grad identifikuje po imenu,
  * a stanice po svom ID-u.
+ * <p>
+ * Mreža se, kada je to moguće, učitava iz binarnog reda vožnje ({@link BinaryTimetable})
+ * koji se čuva pored JSON fajla.
+ * <p>
+ * Svako učitavanje povećava verziju skupa podataka ({@link #datasetVersion()}).
  *
  * @author Saša Vujančević
  */
 public class JsonLoader {
 
+    private static final JsonFactory JSON_FACTORY = new JsonFactory();
+    private static final AtomicLong datasetVersion = new AtomicLong();
+
+    /**
+     * Vraća verziju učitanog skupa podataka. Verzija se povećava nakon svakog uspješnog
+     * učitavanja, pa keševi izvedeni iz mreže (npr. {@link org.unibl.etf.algo.RouteCache})
+     * mogu prepoznati da su njihovi rezultati zastarjeli.
+     *
+     * @return broj uspješnih učitavanja od pokretanja aplikacije
+     */
+    public static long datasetVersion() {
+        return datasetVersion.get();
+    }
+
+    /**
+     * Povećava verziju skupa podataka kada je mreža napravljena bez učitavanja fajla,
+     * npr. direktno iz generisanih podataka.
+     */
+    public static void datasetReplaced() {
+        datasetVersion.incrementAndGet();
+    }
+
+    /**
+     * Učitava gradove, stanice i polaske.
+     * <p>
+     * Ako pored JSON fajla postoji binarni red vožnje ({@link BinaryTimetable#pathFor(String)})
+     * napravljen upravo iz tog JSON fajla (ista veličina i vrijeme izmjene,
+     * {@link BinaryTimetable.Source}), mreža se učitava iz njega jednim čitanjem fajla, bez
+     * parsiranja teksta; ako JSON fajla nema, koristi se sam binarni fajl. U suprotnom se
+     * čita JSON fajl, a binarni fajl se upisuje pored njega za naredna pokretanja.
+     * Neispravan binarni fajl i neuspješan upis binarnog fajla ne prekidaju učitavanje,
+     * nego se samo prijavljuju.
+     * </p>
+     *
+     * @param filePath putanja do JSON fajla
+     * @return mapa gradova po nazivu
+     * @throws IOException ako fajl nije moguće pročitati ili nije ispravan
+     */
     public static Map<String, City> loadCityMap(String filePath) throws IOException {
-        ObjectMapper mapper = new ObjectMapper();
-        JsonNode root = mapper.readTree(new File(filePath));
+        Path binary = BinaryTimetable.pathFor(filePath);
+        Path json = Path.of(filePath);
+        // atributi se čitaju prije parsiranja, pa izmjena tokom čitanja ostavlja zastario binarni fajl
+        BinaryTimetable.Source source = Files.exists(json) ? BinaryTimetable.Source.of(json) : null;
+        Map<String, City> cityMap = null;
+        if (isUpToDate(binary, source)) {
+            try {
+                cityMap = BinaryTimetable.read(binary);
+            } catch (IOException e) {
+                // oštećen ili zastario format: čita se JSON, a binarni fajl se piše ponovo
+                System.err.println("Binarni red vožnje se ne može koristiti: " + e.getMessage());
+            }
+        }
+        if (cityMap == null) {
+            cityMap = parseJson(filePath);
+            try {
+                BinaryTimetable.write(cityMap, binary, source);
+            } catch (IOException e) {
+                System.err.println("Greška pri upisu binarnog reda vožnje: " + e.getMessage());
+            }
+        }
+
+        datasetVersion.incrementAndGet();
+        return cityMap;
+    }
+
+    private static boolean isUpToDate(Path binary, BinaryTimetable.Source source) {
+        if (!Files.isRegularFile(binary)) return false;
+        if (source == null) return true;
+        try {
+            return source.equals(BinaryTimetable.readSource(binary));
+        } catch (IOException e) {
+            return false;
+        }
+    }
 
+    /**
+     * Učitava gradove, stanice i polaske iz JSON fajla.
+     * <p>
+     * Fajl se čita kao niz tokena ({@link JsonParser}), a objekti modela se prave čim se
+     * pročita pojedinačna stanica ili polazak, bez međukoraka u obliku stabla cijelog
+     * dokumenta. Sekcija {@code countryMap} i nepoznata polja se preskaču bez pravljenja
+     * objekata. Polasci se upisuju kao redovi jedne {@link DepartureTable}, čiji rječnik
+     * čuva svaki identifikator stanice i naziv grada samo jednom.
+     * </p>
+     * <p>
+     * Redoslijed sekcija nije bitan: polasci pročitani prije svoje stanice se dodaju
+     * stanici na kraju učitavanja.
+     * </p>
+     *
+     * @param filePath putanja do JSON fajla
+     * @return mapa gradova po nazivu
+     * @throws IOException ako fajl nije moguće pročitati ili nije ispravan
+     */
+    private static Map<String, City> parseJson(String filePath) throws IOException {
         Map<String, Station> stationMap = new HashMap<>();
         Map<String, City> cityMap = new HashMap<>();
+        DepartureTable table = new DepartureTable();
+        List<Integer> pending = new ArrayList<>();
 
-        for (JsonNode s : root.get("stations")) {
-            String cityName = s.get("city").asText();
-            String busId = s.get("busStation").asText();
-            String trainId = s.get("trainStation").asText();
-            Station bus = new Station(busId);
-            Station train = new Station(trainId);
-            stationMap.put(busId, bus);
-            stationMap.put(trainId, train);
-            cityMap.put(cityName, new City(cityName, bus, train));
-        }
-
-        for (JsonNode d : root.get("departures")) {
-            Departure dep = new Departure(
-                    d.get("type").asText(),
-                    d.get("from").asText(),
-                    d.get("to").asText(),
-                    d.get("departureTime").asText(),
-                    d.get("duration").asInt(),
-                    d.get("price").asInt(),
-                    d.get("minTransferTime").asInt()
-            );
-            Station fromStation = stationMap.get(dep.from);
-            if (fromStation != null)
-                fromStation.addDeparture(dep);
+        try (JsonParser parser = JSON_FACTORY.createParser(new File(filePath))) {
+            expect(parser, parser.nextToken(), JsonToken.START_OBJECT);
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                String section = parser.currentName();
+                JsonToken token = parser.nextToken();
+                switch (section) {
+                    case "stations" -> {
+                        expect(parser, token, JsonToken.START_ARRAY);
+                        while (parser.nextToken() == JsonToken.START_OBJECT) {
+                            readStation(parser, table, stationMap, cityMap);
+                        }
+                    }
+                    case "departures" -> {
+                        expect(parser, token, JsonToken.START_ARRAY);
+                        while (parser.nextToken() == JsonToken.START_OBJECT) {
+                            int row = readDeparture(parser, table);
+                            Station fromStation = stationMap.get(table.from(row));
+                            if (fromStation != null) fromStation.addDeparture(row);
+                            else pending.add(row);
+                        }
+                    }
+                    default -> parser.skipChildren();
+                }
+            }
         }
 
+        for (int row : pending) {
+            Station fromStation = stationMap.get(table.from(row));
+            if (fromStation != null)
+                fromStation.addDeparture(row);
+        }
+        table.trimToSize();
+        for (Station station : stationMap.values()) {
+            station.trimToSize();
+        }
         return cityMap;
     }
+
+    /**
+     * Učitava samo mapu države ({@code countryMap}) – nazive gradova po redovima mreže.
+     * Čitanje se prekida odmah nakon te sekcije, pa se polasci ne parsiraju.
+     *
+     * @param filePath putanja do JSON fajla
+     * @return nazivi gradova {@code [red][kolona]} ili prazan niz ako sekcija ne postoji
+     * @throws IOException ako fajl nije moguće pročitati ili nije ispravan
+     */
+    public static String[][] loadCountryMap(String filePath) throws IOException {
+        try (JsonParser parser = JSON_FACTORY.createParser(new File(filePath))) {
+            expect(parser, parser.nextToken(), JsonToken.START_OBJECT);
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                String section = parser.currentName();
+                JsonToken token = parser.nextToken();
+                if (!section.equals("countryMap")) {
+                    parser.skipChildren();
+                    continue;
+                }
+                expect(parser, token, JsonToken.START_ARRAY);
+                List<String[]> rows = new ArrayList<>();
+                while (parser.nextToken() == JsonToken.START_ARRAY) {
+                    List<String> row = new ArrayList<>();
+                    while (parser.nextToken() == JsonToken.VALUE_STRING) {
+                        row.add(parser.getText());
+                    }
+                    rows.add(row.toArray(new String[0]));
+                }
+                return rows.toArray(new String[0][]);
+            }
+        }
+        return new String[0][];
+    }
+
+    private static void readStation(JsonParser parser, DepartureTable table,
+                                    Map<String, Station> stationMap, Map<String, City> cityMap) throws IOException {
+        String cityName = null;
+        String busId = null;
+        String trainId = null;
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String field = parser.currentName();
+            parser.nextToken();
+            switch (field) {
+                case "city" -> cityName = parser.getText();
+                case "busStation" -> busId = intern(table, parser.getText());
+                case "trainStation" -> trainId = intern(table, parser.getText());
+                default -> parser.skipChildren();
+            }
+        }
+        if (cityName == null || busId == null || trainId == null) {
+            throw new JsonParseException(parser, "Stanica mora imati polja city, busStation i trainStation");
+        }
+        Station bus = new Station(busId, table);
+        Station train = new Station(trainId, table);
+        stationMap.put(busId, bus);
+        stationMap.put(trainId, train);
+        cityMap.put(cityName, new City(cityName, bus, train));
+    }
+
+    private static int readDeparture(JsonParser parser, DepartureTable table) throws IOException {
+        String type = null;
+        String from = null;
+        String to = null;
+        String departureTime = null;
+        int duration = 0;
+        int price = 0;
+        int minTransferTime = 0;
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String field = parser.currentName();
+            parser.nextToken();
+            switch (field) {
+                case "type" -> type = parser.getText();
+                case "from" -> from = parser.getText();
+                case "to" -> to = parser.getText();
+                case "departureTime" -> departureTime = parser.getText();
+                case "duration" -> duration = parser.getValueAsInt();
+                case "price" -> price = parser.getValueAsInt();
+                case "minTransferTime" -> minTransferTime = parser.getValueAsInt();
+                default -> parser.skipChildren();
+            }
+        }
+        if (type == null || from == null || to == null || departureTime == null) {
+            throw new JsonParseException(parser, "Polazak mora imati polja type, from, to i departureTime");
+        }
+        try {
+            return table.add(TransportType.fromCode(type), from, to, parseMinute(departureTime),
+                    duration, price, minTransferTime);
+        } catch (IllegalArgumentException e) {
+            // nepoznata vrsta prevoza ili neispravno vrijeme polaska
+            throw new JsonParseException(parser, e.getMessage(), e);
+        }
+    }
+
+    private static String intern(DepartureTable table, String value) {
+        return table.name(table.nameId(value));
+    }
+
+    private static void expect(JsonParser parser, JsonToken actual, JsonToken expected) throws IOException {
+        if (actual != expected) {
+            throw new JsonParseException(parser, "Očekivano " + expected + ", pronađeno " + actual);
+        }
+    }
+
+    /**
+     * Pretvara vrijeme u formatu "HH:mm" (ili "H:mm") u broj minuta od ponoći.
+     *
+     * @param time vrijeme u formatu "HH:mm"
+     * @return broj minuta od ponoći
+     * @throws IllegalArgumentException ako vrijeme nije u formatu "HH:mm" ili nije vrijeme u danu
+     */
+    public static int parseMinute(String time) {
+        int colon = time.indexOf(':');
+        if (colon < 1 || colon > 2 || time.length() != colon + 3) {
+            throw new IllegalArgumentException("Neispravno vrijeme polaska (očekivano HH:mm): " + time);
+        }
+        int hours = digits(time, 0, colon);
+        int minutes = digits(time, colon + 1, time.length());
+        if (hours < 0 || minutes < 0 || hours > 23 || minutes > 59) {
+            throw new IllegalArgumentException("Neispravno vrijeme polaska (očekivano HH:mm): " + time);
+        }
+        return hours * 60 + minutes;
+    }
+
+    /**
+     * @return broj zapisan ciframa {@code [from, to)}, ili {@code -1} ako neki znak nije cifra
+     */
+    private static int digits(String text, int from, int to) {
+        int value = 0;
+        for (int i = from; i < to; i++) {
+            char c = text.charAt(i);
+            if (c < '0' || c > '9') return -1;
+            value = value * 10 + (c - '0');
+        }
+        return value;
+    }
 }
@@ -0,0 +1,284 @@
+package org.unibl.etf.generator;
+
+import java.util.Arrays;
+
+/**
+ * Profil generisanja podataka za {@link TransportDataGenerator}: opisuje koliko polazaka
+ * ima svaka stanica, kuda vode i u koje doba dana kreću.
+ * <ul>
+ *     <li><b>broj polazaka po stanici</b> – najmanji broj polazaka i eksponent repa
+ *     Pareto raspodjele; eksponent {@code 0} znači isti broj polazaka za svaku stanicu,
+ *     a manji pozitivni eksponent daje rjeđe, ali veoma prometne stanice,</li>
+ *     <li><b>čvorišta</b> (<i>hub-and-spoke</i>) – dio gradova su čvorišta sa višestruko
+ *     više polazaka prema gradovima u svom radijusu, a gradovi u radijusu dio polazaka
+ *     šalju prema najbližem čvorištu,</li>
+ *     <li><b>brzi koridori</b> – cijeli redovi ili kolone mreže na kojima dio vozova
+ *     preskače više gradova, brže i po višoj cijeni,</li>
+ *     <li><b>kriva doba dana</b> – relativna gustina polazaka po satima; bez krive su
+ *     svi sati jednako vjerovatni.</li>
+ * </ul>
+ * Podrazumijevani profil ({@link #uniform()}) odgovara ranijem generatoru: pet polazaka
+ * po stanici prema nasumičnom susjedu i ravnomjerno raspoređena vremena. Objekti su
+ * nepromjenljivi; metode {@code with...} vraćaju novu kopiju.
+ *
+ * @author Saša Vujančević
+ */
+public class GenerationProfile {
+
+    /**
+     * Relativna gustina polazaka po satima sa jutarnjim i popodnevnim vršnim periodom.
+     * Niz je promjenljiv, pa je privatan; kopija je dostupna preko
+     * {@code rushHour().getHourWeights()}.
+     */
+    private static final double[] RUSH_HOUR_WEIGHTS = {
+            0.2, 0.1, 0.1, 0.1, 0.3, 1.0, 2.5, 4.0, 4.0, 2.5, 1.5, 1.5,
+            1.5, 1.5, 2.0, 3.0, 4.0, 4.0, 3.0, 2.0, 1.2, 0.8, 0.5, 0.3
+    };
+
+    private final String name;
+    private final int departuresPerStation;
+    private final double departuresTailExponent;
+    private final int maxDeparturesPerStation;
+    private final double hubShare;
+    private final int hubDepartureFactor;
+    private final int hubRadius;
+    private final double spokeShare;
+    private final int expressCorridors;
+    private final int expressStride;
+    private final double expressShare;
+    private final double[] hourWeights;
+
+    private GenerationProfile(String name, int departuresPerStation, double departuresTailExponent,
+                              int maxDeparturesPerStation, double hubShare, int hubDepartureFactor,
+                              int hubRadius, double spokeShare, int expressCorridors, int expressStride,
+                              double expressShare, double[] hourWeights) {
+        this.name = name;
+        this.departuresPerStation = departuresPerStation;
+        this.departuresTailExponent = departuresTailExponent;
+        this.maxDeparturesPerStation = maxDeparturesPerStation;
+        this.hubShare = hubShare;
+        this.hubDepartureFactor = hubDepartureFactor;
+        this.hubRadius = hubRadius;
+        this.spokeShare = spokeShare;
+        this.expressCorridors = expressCorridors;
+        this.expressStride = expressStride;
+        this.expressShare = expressShare;
+        this.hourWeights = hourWeights;
+    }
+
+    /**
+     * @return pet polazaka po stanici prema susjednim gradovima, ravnomjerno tokom dana
+     */
+    public static GenerationProfile uniform() {
+        return new GenerationProfile("uniform", 5, 0, 5, 0, 1, 0, 0, 0, 1, 0, null);
+    }
+
+    /**
+     * @return čvorišta (pola procenta gradova) sa 40 puta više polazaka i radijusom od 5 gradova
+     */
+    public static GenerationProfile hubs() {
+        return uniform().withName("hubs").withHubs(0.005, 40, 5, 0.5);
+    }
+
+    /**
+     * @return četiri brza koridora na kojima polovina vozova preskače po 5 gradova
+     */
+    public static GenerationProfile express() {
+        return uniform().withName("express").withExpressCorridors(4, 5, 0.5);
+    }
+
+    /**
+     * @return polasci zgusnuti u jutarnjem i popodnevnom vršnom periodu
+     */
+    public static GenerationProfile rushHour() {
+        return uniform().withName("rush-hour").withHourWeights(RUSH_HOUR_WEIGHTS);
+    }
+
+    /**
+     * @return broj polazaka po stanici sa teškim repom (najmanje 2, eksponent 1.2, najviše 500)
+     */
+    public static GenerationProfile heavyTail() {
+        return uniform().withName("heavy-tail").withDepartures(2, 1.2, 500);
+    }
+
+    /**
+     * @return kombinacija čvorišta, brzih koridora, vršnih perioda i teškog repa
+     */
+    public static GenerationProfile realistic() {
+        return uniform().withName("realistic")
+                .withDepartures(3, 1.5, 300)
+                .withHubs(0.005, 40, 5, 0.3)
+                .withExpressCorridors(4, 5, 0.4)
+                .withHourWeights(RUSH_HOUR_WEIGHTS);
+    }
+
+    /**
+     * Vraća unaprijed definisan profil po nazivu.
+     *
+     * @param name {@code uniform}, {@code hubs}, {@code express}, {@code rush-hour},
+     *             {@code heavy-tail} ili {@code realistic}
+     * @return profil
+     * @throws IllegalArgumentException ako profil sa tim nazivom ne postoji
+     */
+    public static GenerationProfile forName(String name) {
+        return switch (name) {
+            case "uniform" -> uniform();
+            case "hubs" -> hubs();
+            case "express" -> express();
+            case "rush-hour" -> rushHour();
+            case "heavy-tail" -> heavyTail();
+            case "realistic" -> realistic();
+            default -> throw new IllegalArgumentException("Nepoznat profil generisanja: " + name);
+        };
+    }
+
+    public GenerationProfile withName(String name) {
+        return new GenerationProfile(name, departuresPerStation, departuresTailExponent, maxDeparturesPerStation,
+                hubShare, hubDepartureFactor, hubRadius, spokeShare, expressCorridors, expressStride,
+                expressShare, hourWeights);
+    }
+
+    /**
+     * @param minimum     najmanji broj polazaka po stanici (i tačan broj ako je eksponent {@code 0})
+     * @param tailExponent eksponent repa Pareto raspodjele, {@code 0} za fiksan broj polazaka
+     * @param maximum     najveći broj polazaka po stanici, prije uvećanja za čvorišta
+     */
+    public GenerationProfile withDepartures(int minimum, double tailExponent, int maximum) {
+        if (minimum < 1 || maximum < minimum || tailExponent < 0) {
+            throw new IllegalArgumentException("Neispravna raspodjela broja polazaka");
+        }
+        return new GenerationProfile(name, minimum, tailExponent, maximum,
+                hubShare, hubDepartureFactor, hubRadius, spokeShare, expressCorridors, expressStride,
+                expressShare, hourWeights);
+    }
+
+    /**
+     * @param share           udio gradova koji su čvorišta, {@code [0, 1]}; bar jedno čvorište ako je veći od nule
+     * @param departureFactor koliko puta više polazaka ima stanica u čvorištu
+     * @param radius          najveća udaljenost (po redovima i kolonama) grada od čvorišta sa kojim je povezan
+     * @param spokeShare      udio polazaka gradova u radijusu koji vode prema čvorištu
+     */
+    public GenerationProfile withHubs(double share, int departureFactor, int radius, double spokeShare) {
+        if (share < 0 || share > 1 || departureFactor < 1 || radius < 1 || spokeShare < 0 || spokeShare > 1) {
+            throw new IllegalArgumentException("Neispravni parametri čvorišta");
+        }
+        return new GenerationProfile(name, departuresPerStation, departuresTailExponent, maxDeparturesPerStation,
+                share, departureFactor, radius, spokeShare, expressCorridors, expressStride,
+                expressShare, hourWeights);
+    }
+
+    /**
+     * @param corridors broj brzih koridora (redova ili kolona mreže)
+     * @param stride    broj gradova koje brzi voz preskače
+     * @param share     udio vozova na koridoru koji su brzi
+     */
+    public GenerationProfile withExpressCorridors(int corridors, int stride, double share) {
+        if (corridors < 0 || stride < 1 || share < 0 || share > 1) {
+            throw new IllegalArgumentException("Neispravni parametri brzih koridora");
+        }
+        return new GenerationProfile(name, departuresPerStation, departuresTailExponent, maxDeparturesPerStation,
+                hubShare, hubDepartureFactor, hubRadius, spokeShare, corridors, stride,
+                share, hourWeights);
+    }
+
+    /**
+     * @param weights relativne gustine polazaka za 24 sata dana ili {@code null} za ravnomjernu raspodjelu
+     */
+    public GenerationProfile withHourWeights(double... weights) {
+        if (weights != null && (weights.length != 24 || Arrays.stream(weights).anyMatch(w -> w < 0)
+                || Arrays.stream(weights).sum() <= 0)) {
+            throw new IllegalArgumentException("Kriva doba dana mora imati 24 nenegativne težine");
+        }
+        return new GenerationProfile(name, departuresPerStation, departuresTailExponent, maxDeparturesPerStation,
+                hubShare, hubDepartureFactor, hubRadius, spokeShare, expressCorridors, expressStride,
+                expressShare, weights != null ? weights.clone() : null);
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public int getDeparturesPerStation() {
+        return departuresPerStation;
+    }
+
+    public double getDeparturesTailExponent() {
+        return departuresTailExponent;
+    }
+
+    public int getMaxDeparturesPerStation() {
+        return maxDeparturesPerStation;
+    }
+
+    public double getHubShare() {
+        return hubShare;
+    }
+
+    public int getHubDepartureFactor() {
+        return hubDepartureFactor;
+    }
+
+    public int getHubRadius() {
+        return hubRadius;
+    }
+
+    public double getSpokeShare() {
+        return spokeShare;
+    }
+
+    public int getExpressCorridors() {
+        return expressCorridors;
+    }
+
+    public int getExpressStride() {
+        return expressStride;
+    }
+
+    public double getExpressShare() {
+        return expressShare;
+    }
+
+    /**
+     * @return kopija relativnih gustina po satima ili {@code null} za ravnomjernu raspodjelu
+     */
+    public double[] getHourWeights() {
+        return hourWeights != null ? hourWeights.clone() : null;
+    }
+
+    /**
+     * Zapisuje profil kao JSON objekat; generator ga upisuje u izlazni fajl zajedno sa
+     * sjemenom, pa se isti podaci mogu ponovo generisati.
+     */
+    void appendJson(StringBuilder json) {
+        json.append("{\"name\": \"").append(name).append('"')
+                .append(", \"departuresPerStation\": ").append(departuresPerStation)
+                .append(", \"departuresTailExponent\": ").append(departuresTailExponent)
+                .append(", \"maxDeparturesPerStation\": ").append(maxDeparturesPerStation)
+                .append(", \"hubShare\": ").append(hubShare)
+                .append(", \"hubDepartureFactor\": ").append(hubDepartureFactor)
+                .append(", \"hubRadius\": ").append(hubRadius)
+                .append(", \"spokeShare\": ").append(spokeShare)
+                .append(", \"expressCorridors\": ").append(expressCorridors)
+                .append(", \"expressStride\": ").append(expressStride)
+                .append(", \"expressShare\": ").append(expressShare)
+                .append(", \"hourWeights\": ");
+        if (hourWeights == null) {
+            json.append("null");
+        } else {
+            json.append('[');
+            for (int h = 0; h < hourWeights.length; h++) {
+                if (h > 0) json.append(", ");
+                json.append(hourWeights[h]);
+            }
+            json.append(']');
+        }
+        json.append('}');
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder json = new StringBuilder();
+        appendJson(json);
+        return json.toString();
+    }
+}
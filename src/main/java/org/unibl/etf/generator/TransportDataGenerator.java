@@ -1,8 +1,23 @@
 package org.unibl.etf.generator;
 
-import java.io.FileWriter;
+import org.unibl.etf.data.BinaryTimetable;
+import org.unibl.etf.data.JsonLoader;
+import org.unibl.etf.model.City;
+import org.unibl.etf.model.DepartureTable;
+import org.unibl.etf.model.TransportType;
+
+import java.io.BufferedWriter;
 import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
 
 /**
  * Klasa {@code TransportDataGenerator} služi za generisanje testnih podataka
@@ -15,6 +30,21 @@ import java.util.*;
  *     <li>polaske (Departure) sa nasumičnim parametrima poput vremena, trajanja, cijene i minimalnog vremena presjedanja</li>
  * </ul>
  *
+ * Podaci se mogu sačuvati kao JSON ({@link #saveToJson}) ili direktno u binarnom
+ * formatu ({@link #saveToBinary}) koji aplikacija učitava bez parsiranja teksta, a
+ * {@link #buildCityMap} od njih pravi mrežu gradova bez prolaska kroz fajl.
+ *
+ * Polasci se generišu po pojasevima redova mreže. Svaki pojas ima svoj
+ * {@link SplittableRandom}, izveden iz sjemena generatora redom po pojasevima, pa se
+ * pojasevi mogu generisati paralelno, a isto sjeme uvijek daje iste podatke, bez obzira
+ * na broj niti. Za velike mreže {@link #writeJson(Path)} piše JSON fajl postepeno, pojas
+ * po pojas, bez držanja svih polazaka u memoriji.
+ *
+ * Broj polazaka, njihova odredišta i vremena određuje {@link GenerationProfile}
+ * (čvorišta, brzi koridori, vršni periodi, raspodjela broja polazaka). Raspored čvorišta
+ * i koridora se bira jednom, iz sjemena, prije generisanja pojaseva. Sjeme i profil se
+ * upisuju u sekciju {@code generator} izlaznog JSON fajla.
+ *
  * Ova klasa omogućava simulaciju mreže gradova i transportnih polazaka, što je korisno
  * za testiranje i razvoj algoritama za pronalaženje ruta.
  *
@@ -23,15 +53,89 @@ import java.util.*;
 public class TransportDataGenerator {
     private int rows;
     private int cols;
-    private static final int DEPARTURES_PER_STATION = 5;
-    private static final Random random = new Random();
+    private final long seed;
+    private final GenerationProfile profile;
+    /** Gradovi koji su čvorišta, po indeksu {@code x * cols + y}. */
+    private final BitSet hubs = new BitSet();
+    private final BitSet corridorRows = new BitSet();
+    private final BitSet corridorCols = new BitSet();
+    /** Kumulativne gustine polazaka po satima ili {@code null} za ravnomjernu raspodjelu. */
+    private final double[] cumulativeHourWeights;
+    /** Dodaje se sjemenu za izbor čvorišta i koridora, da ne bi ponovio niz prvog pojasa. */
+    private static final long LAYOUT_SALT = 0x2545F4914F6CDD1DL;
+    /** Približan broj gradova u jednom pojasu redova. */
+    private static final int CITIES_PER_BAND = 1024;
+    private static final int[][] DIRECTIONS = {{-1, 0}, {1, 0}, {0, -1}, {0, 1}};
+    /** Sva moguća vremena polaska ("HH:mm", svakih 15 minuta), da se ne formatiraju po polasku. */
+    private static final String[] DEPARTURE_TIMES = new String[24 * 4];
+
+    static {
+        for (int i = 0; i < DEPARTURE_TIMES.length; i++) {
+            DEPARTURE_TIMES[i] = String.format("%02d:%02d", i / 4, i % 4 * 15);
+        }
+    }
 
     public TransportDataGenerator(int rows, int cols) {
+        this(rows, cols, new SplittableRandom().nextLong());
+    }
+
+    /**
+     * @param rows broj redova mreže
+     * @param cols broj kolona mreže
+     * @param seed sjeme generatora; isto sjeme i iste dimenzije daju iste podatke
+     */
+    public TransportDataGenerator(int rows, int cols, long seed) {
+        this(rows, cols, seed, GenerationProfile.uniform());
+    }
+
+    /**
+     * @param rows    broj redova mreže
+     * @param cols    broj kolona mreže
+     * @param seed    sjeme generatora; isto sjeme, dimenzije i profil daju iste podatke
+     * @param profile profil generisanja
+     */
+    public TransportDataGenerator(int rows, int cols, long seed, GenerationProfile profile) {
         this.rows = rows;
         this.cols = cols;
+        this.seed = seed;
+        this.profile = profile;
+
+        SplittableRandom layout = new SplittableRandom(seed ^ LAYOUT_SALT);
+        int cities = rows * cols;
+        int hubCount = profile.getHubShare() > 0
+                ? (int) Math.min(cities, Math.max(1, Math.round(profile.getHubShare() * cities)))
+                : 0;
+        while (hubs.cardinality() < hubCount) {
+            hubs.set(layout.nextInt(cities));
+        }
+        int corridors = Math.min(profile.getExpressCorridors(), rows + cols);
+        for (int placed = 0; placed < corridors; ) {
+            int line = layout.nextInt(rows + cols);
+            BitSet lines = line < rows ? corridorRows : corridorCols;
+            int index = line < rows ? line : line - rows;
+            if (!lines.get(index)) {
+                lines.set(index);
+                placed++;
+            }
+        }
+        double[] weights = profile.getHourWeights();
+        if (weights != null) {
+            for (int h = 1; h < weights.length; h++) weights[h] += weights[h - 1];
+        }
+        cumulativeHourWeights = weights;
+    }
+
+    public long getSeed() {
+        return seed;
+    }
+
+    public GenerationProfile getProfile() {
+        return profile;
     }
 
     public static class TransportData {
+        public long seed;
+        public GenerationProfile profile;
         public String[][] countryMap;
         public List<Station> stations;
         public List<Departure> departures;
@@ -55,9 +159,11 @@ public class TransportDataGenerator {
 
     public TransportData generateData() {
         TransportData data = new TransportData();
+        data.seed = seed;
+        data.profile = profile;
         data.countryMap = generateCountryMap();
         data.stations = generateStations();
-        data.departures = generateDepartures(data.stations);
+        data.departures = generateDepartures();
         return data;
     }
 
@@ -75,119 +181,457 @@ public class TransportDataGenerator {
         List<Station> stations = new ArrayList<>();
         for (int x = 0; x < rows; x++) {
             for (int y = 0; y < cols; y++) {
-                Station station = new Station();
-                station.city = "G_" + x + "_" + y;
-                station.busStation = "A_" + x + "_" + y;
-                station.trainStation = "Z_" + x + "_" + y;
-                stations.add(station);
+                stations.add(station(x, y));
             }
         }
         return stations;
     }
 
-    private List<Departure> generateDepartures(List<Station> stations) {
-        List<Departure> departures = new ArrayList<>();
+    private static Station station(int x, int y) {
+        Station station = new Station();
+        station.city = "G_" + x + "_" + y;
+        station.busStation = "A_" + x + "_" + y;
+        station.trainStation = "Z_" + x + "_" + y;
+        return station;
+    }
+
+    private List<Departure> generateDepartures() {
+        SplittableRandom[] randoms = bandRandoms();
+        return IntStream.range(0, randoms.length)
+                .parallel()
+                .mapToObj(band -> generateBand(band, randoms[band]))
+                .flatMap(List::stream)
+                .collect(Collectors.toList());
+    }
 
-        for (Station station : stations) {
-            int x = Integer.parseInt(station.city.split("_")[1]);
-            int y = Integer.parseInt(station.city.split("_")[2]);
+    /**
+     * @return broj redova mreže u jednom pojasu
+     */
+    private int bandRows() {
+        return Math.max(1, CITIES_PER_BAND / Math.max(1, cols));
+    }
 
-            for (int i = 0; i < DEPARTURES_PER_STATION; i++) {
-                departures.add(generateDeparture("bus", station.busStation, x, y));
-            }
-            for (int i = 0; i < DEPARTURES_PER_STATION; i++) {
-                departures.add(generateDeparture("train", station.trainStation, x, y));
+    /**
+     * Izvodi po jedan generator slučajnih brojeva za svaki pojas redova. Generatori se
+     * izvode redom iz sjemena, pa pojas uvijek dobija isti niz brojeva, bez obzira na to
+     * koja nit ga generiše i kojim redoslijedom.
+     */
+    private SplittableRandom[] bandRandoms() {
+        int bandRows = bandRows();
+        SplittableRandom root = new SplittableRandom(seed);
+        SplittableRandom[] randoms = new SplittableRandom[(rows + bandRows - 1) / bandRows];
+        for (int band = 0; band < randoms.length; band++) {
+            randoms[band] = root.split();
+        }
+        return randoms;
+    }
+
+    private List<Departure> generateBand(int band, SplittableRandom random) {
+        int firstRow = band * bandRows();
+        int lastRow = Math.min(rows, firstRow + bandRows());
+        List<Departure> departures = new ArrayList<>((lastRow - firstRow) * cols * 2 * profile.getDeparturesPerStation());
+        for (int x = firstRow; x < lastRow; x++) {
+            for (int y = 0; y < cols; y++) {
+                boolean hub = hubs.get(x * cols + y);
+                int nearestHub = hub ? -1 : nearestHub(x, y);
+                String busStation = "A_" + x + "_" + y;
+                String trainStation = "Z_" + x + "_" + y;
+                for (int i = departureCount(random, hub); i > 0; i--) {
+                    departures.add(generateDeparture(random, "bus", busStation, x, y, hub, nearestHub));
+                }
+                for (int i = departureCount(random, hub); i > 0; i--) {
+                    departures.add(generateDeparture(random, "train", trainStation, x, y, hub, nearestHub));
+                }
             }
         }
         return departures;
     }
 
-    private Departure generateDeparture(String type, String from, int x, int y) {
+    /**
+     * Bira broj polazaka jedne stanice: fiksan broj, ili Pareto raspodjela sa najmanjim
+     * brojem {@link GenerationProfile#getDeparturesPerStation()} ako je eksponent repa
+     * pozitivan. Stanice u čvorištima imaju višestruko više polazaka.
+     */
+    private int departureCount(SplittableRandom random, boolean hub) {
+        int count = profile.getDeparturesPerStation();
+        double exponent = profile.getDeparturesTailExponent();
+        if (exponent > 0) {
+            double u = 1.0 - random.nextDouble();
+            count = (int) Math.min(profile.getMaxDeparturesPerStation(), Math.floor(count * Math.pow(u, -1.0 / exponent)));
+        }
+        return hub ? count * profile.getHubDepartureFactor() : count;
+    }
+
+    private Departure generateDeparture(SplittableRandom random, String type, String from, int x, int y,
+                                        boolean hub, int nearestHub) {
         Departure departure = new Departure();
         departure.type = type;
         departure.from = from;
 
-        List<String> neighbors = getNeighbors(x, y);
-        departure.to = neighbors.isEmpty() ? from : neighbors.get(random.nextInt(neighbors.size()));
+        int target = -1;
+        boolean express = false;
+        if (hub) {
+            target = randomCityAround(random, x, y, profile.getHubRadius());
+        } else if (nearestHub >= 0 && random.nextDouble() < profile.getSpokeShare()) {
+            target = nearestHub;
+        } else if (type.equals("train") && (corridorRows.get(x) || corridorCols.get(y))
+                && random.nextDouble() < profile.getExpressShare()) {
+            target = expressTarget(random, x, y);
+            express = target >= 0;
+        }
+        int distance = 1;
+        if (target < 0) {
+            departure.to = randomNeighbor(random, x, y, from);
+        } else {
+            int tx = target / cols;
+            int ty = target % cols;
+            departure.to = "G_" + tx + "_" + ty;
+            distance = Math.abs(tx - x) + Math.abs(ty - y);
+        }
 
-        int hour = random.nextInt(24);
-        int minute = random.nextInt(4) * 15;
-        departure.departureTime = String.format("%02d:%02d", hour, minute);
+        departure.departureTime = DEPARTURE_TIMES[randomHour(random) * 4 + random.nextInt(4)];
 
-        departure.duration = 30 + random.nextInt(151);
-        departure.price = 100 + random.nextInt(901);
+        // trajanje i cijena rastu sa udaljenošću; brzi vozovi su tri puta brži i skuplji za polovinu
+        departure.duration = (30 + random.nextInt(151)) * distance;
+        departure.price = (100 + random.nextInt(901)) * distance;
+        if (express) {
+            departure.duration = Math.max(30, departure.duration / 3);
+            departure.price = departure.price * 3 / 2;
+        }
         departure.minTransferTime = 5 + random.nextInt(26);
 
         return departure;
     }
 
-    private List<String> getNeighbors(int x, int y) {
-        List<String> neighbors = new ArrayList<>();
-        int[][] directions = {{-1, 0}, {1, 0}, {0, -1}, {0, 1}};
+    private int randomHour(SplittableRandom random) {
+        if (cumulativeHourWeights == null) return random.nextInt(24);
+        double u = random.nextDouble() * cumulativeHourWeights[cumulativeHourWeights.length - 1];
+        int hour = 0;
+        while (hour < cumulativeHourWeights.length - 1 && u >= cumulativeHourWeights[hour]) hour++;
+        return hour;
+    }
+
+    /**
+     * Vraća najbliže čvorište (po većoj od razlika redova i kolona) unutar radijusa
+     * čvorišta, ili {@code -1} ako ga nema. Kvadrati oko grada se pretražuju od
+     * najbližeg, pa je rezultat isti bez obzira na broj čvorišta.
+     */
+    private int nearestHub(int x, int y) {
+        if (hubs.isEmpty()) return -1;
+        for (int r = 1; r <= profile.getHubRadius(); r++) {
+            for (int nx = Math.max(0, x - r); nx <= Math.min(rows - 1, x + r); nx++) {
+                int step = nx == x - r || nx == x + r ? 1 : 2 * r;
+                for (int ny = y - r; ny <= y + r; ny += step) {
+                    if (ny >= 0 && ny < cols && hubs.get(nx * cols + ny)) return nx * cols + ny;
+                }
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Bira nasumičan grad najviše {@code radius} redova i kolona udaljen od {@code (x, y)},
+     * različit od njega; vraća {@code -1} ako takav grad nije pronađen.
+     */
+    private int randomCityAround(SplittableRandom random, int x, int y, int radius) {
+        for (int attempt = 0; attempt < 16; attempt++) {
+            int nx = x + random.nextInt(2 * radius + 1) - radius;
+            int ny = y + random.nextInt(2 * radius + 1) - radius;
+            if ((nx != x || ny != y) && nx >= 0 && nx < rows && ny >= 0 && ny < cols) {
+                return nx * cols + ny;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Vraća grad udaljen {@link GenerationProfile#getExpressStride()} gradova duž koridora
+     * (ili posljednji grad koridora u tom smjeru), ili {@code -1} ako takvog grada nema.
+     */
+    private int expressTarget(SplittableRandom random, int x, int y) {
+        boolean alongRow = corridorRows.get(x) && (!corridorCols.get(y) || random.nextBoolean());
+        int position = alongRow ? y : x;
+        int length = alongRow ? cols : rows;
+        int stride = random.nextBoolean() ? profile.getExpressStride() : -profile.getExpressStride();
+        int next = position + stride;
+        if (next < 0 || next >= length) next = position - stride;
+        next = Math.max(0, Math.min(length - 1, next));
+        if (next == position) return -1;
+        return alongRow ? x * cols + next : next * cols + y;
+    }
 
-        for (int[] dir : directions) {
-            int nx = x + dir[0];
-            int ny = y + dir[1];
+    /**
+     * Bira nasumičnog susjeda grada {@code (x, y)}; ako grad nema susjeda, vraća {@code self}.
+     */
+    private String randomNeighbor(SplittableRandom random, int x, int y, String self) {
+        int count = 0;
+        int[] candidates = new int[DIRECTIONS.length];
+        for (int d = 0; d < DIRECTIONS.length; d++) {
+            int nx = x + DIRECTIONS[d][0];
+            int ny = y + DIRECTIONS[d][1];
             if (nx >= 0 && nx < rows && ny >= 0 && ny < cols) {
-                neighbors.add("G_" + nx + "_" + ny);
+                candidates[count++] = d;
             }
         }
-        return neighbors;
+        if (count == 0) return self;
+        int[] dir = DIRECTIONS[candidates[random.nextInt(count)]];
+        return "G_" + (x + dir[0]) + "_" + (y + dir[1]);
     }
 
     public void saveToJson(TransportData data, String filename) {
-        try (FileWriter file = new FileWriter(filename)) {
-            StringBuilder json = new StringBuilder();
-            json.append("{\n");
+        try (Writer out = newWriter(Path.of(filename))) {
+            out.write("{\n");
+            if (data.profile != null) {
+                writeGeneratorInfo(out, data.seed, data.profile);
+            }
 
             // mapa
-            json.append("  \"countryMap\": [\n");
+            out.write("  \"countryMap\": [\n");
             for (int i = 0; i < data.countryMap.length; i++) {
-                json.append("    [");
-                for (int j = 0; j < data.countryMap[i].length; j++) {
-                    json.append("\"").append(data.countryMap[i][j]).append("\"");
-                    if (j < data.countryMap[i].length - 1) json.append(", ");
-                }
-                json.append("]");
-                if (i < data.countryMap.length - 1) json.append(",");
-                json.append("\n");
+                writeCountryRow(out, data.countryMap[i], i < data.countryMap.length - 1);
             }
-            json.append("  ],\n");
+            out.write("  ],\n");
 
             // stanice
-            json.append("  \"stations\": [\n");
+            out.write("  \"stations\": [\n");
+            StringBuilder json = new StringBuilder();
             for (int i = 0; i < data.stations.size(); i++) {
-                Station s = data.stations.get(i);
-                json.append("    {\"city\": \"").append(s.city)
-                        .append("\", \"busStation\": \"").append(s.busStation)
-                        .append("\", \"trainStation\": \"").append(s.trainStation)
-                        .append("\"}");
-                if (i < data.stations.size() - 1) json.append(",");
-                json.append("\n");
+                appendStation(json, data.stations.get(i), i < data.stations.size() - 1);
+                out.append(json);
+                json.setLength(0);
             }
-            json.append("  ],\n");
+            out.write("  ],\n");
 
             // polasci
-            json.append("  \"departures\": [\n");
+            out.write("  \"departures\": [\n");
             for (int i = 0; i < data.departures.size(); i++) {
-                Departure d = data.departures.get(i);
-                json.append("    {\"type\": \"").append(d.type)
-                        .append("\", \"from\": \"").append(d.from)
-                        .append("\", \"to\": \"").append(d.to)
-                        .append("\", \"departureTime\": \"").append(d.departureTime)
-                        .append("\", \"duration\": ").append(d.duration)
-                        .append(", \"price\": ").append(d.price)
-                        .append(", \"minTransferTime\": ").append(d.minTransferTime)
-                        .append("}");
-                if (i < data.departures.size() - 1) json.append(",");
-                json.append("\n");
+                appendDeparture(json, data.departures.get(i));
+                json.append(i < data.departures.size() - 1 ? ",\n" : "\n");
+                out.append(json);
+                json.setLength(0);
             }
-            json.append("  ]\n");
+            out.write("  ]\n");
 
-            json.append("}");
-            file.write(json.toString());
+            out.write("}");
         } catch (IOException e) {
             e.printStackTrace();
         }
     }
+
+    /**
+     * Generiše podatke i piše ih direktno u JSON fajl, u istom obliku kao
+     * {@link #saveToJson}, ali bez pravljenja {@link TransportData}.
+     * <p>
+     * Mapa i stanice se pišu red po red. Polasci se generišu paralelno po pojasevima
+     * redova, svaki pojas u svoj tekstualni blok, a blokovi se upisuju redom čim su
+     * spremni. U obradi je najviše dvostruko više pojaseva nego niti, pa potrošnja
+     * memorije ne zavisi od veličine mreže. Rezultat je isti kao
+     * {@code saveToJson(generateData(), ...)} sa istim sjemenom.
+     * </p>
+     *
+     * @param path putanja JSON fajla
+     * @throws IOException ako upis nije uspio
+     */
+    public void writeJson(Path path) throws IOException {
+        try (Writer out = newWriter(path)) {
+            out.write("{\n");
+            writeGeneratorInfo(out, seed, profile);
+
+            out.write("  \"countryMap\": [\n");
+            String[] row = new String[cols];
+            for (int x = 0; x < rows; x++) {
+                for (int y = 0; y < cols; y++) {
+                    row[y] = "G_" + x + "_" + y;
+                }
+                writeCountryRow(out, row, x < rows - 1);
+            }
+            out.write("  ],\n");
+
+            out.write("  \"stations\": [\n");
+            StringBuilder json = new StringBuilder();
+            for (int x = 0; x < rows; x++) {
+                for (int y = 0; y < cols; y++) {
+                    appendStation(json, station(x, y), x < rows - 1 || y < cols - 1);
+                }
+                out.append(json);
+                json.setLength(0);
+            }
+            out.write("  ],\n");
+
+            out.write("  \"departures\": [\n");
+            writeDepartures(out);
+            out.write("  ]\n");
+
+            out.write("}");
+        }
+    }
+
+    private void writeDepartures(Writer out) throws IOException {
+        SplittableRandom[] randoms = bandRandoms();
+        int window = 2 * ForkJoinPool.getCommonPoolParallelism();
+        ArrayDeque<CompletableFuture<String>> pending = new ArrayDeque<>();
+        int next = 0;
+        boolean first = true;
+        while (next < randoms.length || !pending.isEmpty()) {
+            while (next < randoms.length && pending.size() < window) {
+                int band = next++;
+                pending.add(CompletableFuture.supplyAsync(() -> bandJson(band, randoms[band])));
+            }
+            String text = pending.remove().join();
+            if (text.isEmpty()) continue;
+            if (!first) out.write(",\n");
+            out.write(text);
+            first = false;
+        }
+        if (!first) out.write("\n");
+    }
+
+    /**
+     * @return polasci pojasa u JSON obliku, razdvojeni zarezom, bez zareza iza posljednjeg
+     */
+    private String bandJson(int band, SplittableRandom random) {
+        StringBuilder json = new StringBuilder();
+        for (Departure departure : generateBand(band, random)) {
+            if (!json.isEmpty()) json.append(",\n");
+            appendDeparture(json, departure);
+        }
+        return json.toString();
+    }
+
+    private static Writer newWriter(Path path) throws IOException {
+        return new BufferedWriter(new OutputStreamWriter(Files.newOutputStream(path), StandardCharsets.UTF_8), 1 << 16);
+    }
+
+    /**
+     * Upisuje sekciju {@code generator} sa sjemenom i profilom; učitavanje je preskače.
+     */
+    private static void writeGeneratorInfo(Writer out, long seed, GenerationProfile profile) throws IOException {
+        StringBuilder json = new StringBuilder("  \"generator\": {\"seed\": ").append(seed).append(", \"profile\": ");
+        profile.appendJson(json);
+        out.append(json).append("},\n");
+    }
+
+    private static void writeCountryRow(Writer out, String[] row, boolean more) throws IOException {
+        out.write("    [");
+        for (int j = 0; j < row.length; j++) {
+            out.write("\"");
+            out.write(row[j]);
+            out.write("\"");
+            if (j < row.length - 1) out.write(", ");
+        }
+        out.write("]");
+        if (more) out.write(",");
+        out.write("\n");
+    }
+
+    private static void appendStation(StringBuilder json, Station s, boolean more) {
+        json.append("    {\"city\": \"").append(s.city)
+                .append("\", \"busStation\": \"").append(s.busStation)
+                .append("\", \"trainStation\": \"").append(s.trainStation)
+                .append("\"}");
+        if (more) json.append(",");
+        json.append("\n");
+    }
+
+    private static void appendDeparture(StringBuilder json, Departure d) {
+        json.append("    {\"type\": \"").append(d.type)
+                .append("\", \"from\": \"").append(d.from)
+                .append("\", \"to\": \"").append(d.to)
+                .append("\", \"departureTime\": \"").append(d.departureTime)
+                .append("\", \"duration\": ").append(d.duration)
+                .append(", \"price\": ").append(d.price)
+                .append(", \"minTransferTime\": ").append(d.minTransferTime)
+                .append("}");
+    }
+
+    /**
+     * Pravi mrežu gradova direktno iz generisanih podataka, isto kao
+     * {@link JsonLoader#loadCityMap(String)} nakon čuvanja u fajl, ali bez pisanja i
+     * ponovnog parsiranja teksta. Polasci se upisuju u jednu {@link DepartureTable}.
+     *
+     * @param data generisani podaci
+     * @return mapa gradova po nazivu
+     */
+    public Map<String, City> buildCityMap(TransportData data) {
+        DepartureTable table = new DepartureTable();
+        Map<String, City> cityMap = new HashMap<>(data.stations.size() * 2);
+        Map<String, org.unibl.etf.model.Station> stationMap = new HashMap<>(data.stations.size() * 4);
+        for (Station s : data.stations) {
+            org.unibl.etf.model.Station bus = new org.unibl.etf.model.Station(s.busStation, table);
+            org.unibl.etf.model.Station train = new org.unibl.etf.model.Station(s.trainStation, table);
+            stationMap.put(s.busStation, bus);
+            stationMap.put(s.trainStation, train);
+            cityMap.put(s.city, new City(s.city, bus, train));
+        }
+        for (Departure d : data.departures) {
+            org.unibl.etf.model.Station from = stationMap.get(d.from);
+            if (from == null) continue;
+            from.addDeparture(table.add(TransportType.fromCode(d.type), d.from, d.to,
+                    JsonLoader.parseMinute(d.departureTime), d.duration, d.price, d.minTransferTime));
+        }
+        table.trimToSize();
+        for (org.unibl.etf.model.Station station : stationMap.values()) {
+            station.trimToSize();
+        }
+        return cityMap;
+    }
+
+    /**
+     * Čuva podatke u binarnom formatu ({@link BinaryTimetable}), bez izvornog JSON fajla.
+     *
+     * @param data     generisani podaci
+     * @param filename putanja binarnog fajla
+     * @throws IOException ako upis nije uspio
+     */
+    public void saveToBinary(TransportData data, Path filename) throws IOException {
+        saveToBinary(data, filename, null);
+    }
+
+    /**
+     * Čuva podatke u binarnom formatu ({@link BinaryTimetable}) i u njega upisuje JSON fajl
+     * sa istim podacima, sačuvan prije toga ({@link #saveToJson}). Dok se taj JSON fajl ne
+     * izmijeni, {@link org.unibl.etf.data.JsonLoader#loadCityMap(String)} koristi binarni
+     * fajl umjesto JSON-a.
+     *
+     * @param data     generisani podaci
+     * @param filename putanja binarnog fajla
+     * @param json     putanja JSON fajla sa istim podacima, ili {@code null}
+     * @throws IOException ako upis nije uspio
+     */
+    public void saveToBinary(TransportData data, Path filename, Path json) throws IOException {
+        BinaryTimetable.Builder builder = new BinaryTimetable.Builder();
+        for (Station s : data.stations) {
+            builder.addCity(s.city, s.busStation, s.trainStation);
+        }
+        for (Departure d : data.departures) {
+            builder.addDeparture(TransportType.fromCode(d.type), d.from, d.to, JsonLoader.parseMinute(d.departureTime),
+                    d.duration, d.price, d.minTransferTime);
+        }
+        builder.write(filename, json != null ? BinaryTimetable.Source.of(json) : null);
+    }
+
+    /**
+     * Generiše mrežu za mjerenja direktno u JSON fajl ({@link #writeJson(Path)}).
+     * <p>
+     * Argumenti: {@code redovi kolone [sjeme] [fajl] [profil]}; podrazumijevani fajl je
+     * {@code transport_data.json}, a profil {@code uniform} ({@link GenerationProfile#forName}).
+     * </p>
+     */
+    public static void main(String[] args) throws IOException {
+        if (args.length < 2) {
+            System.err.println("Upotreba: TransportDataGenerator redovi kolone [sjeme] [fajl] [profil]");
+            System.exit(1);
+        }
+        int rows = Integer.parseInt(args[0]);
+        int cols = Integer.parseInt(args[1]);
+        long seed = args.length > 2 ? Long.parseLong(args[2]) : new SplittableRandom().nextLong();
+        Path path = Path.of(args.length > 3 ? args[3] : "transport_data.json");
+        GenerationProfile profile = args.length > 4 ? GenerationProfile.forName(args[4]) : GenerationProfile.uniform();
+        TransportDataGenerator generator = new TransportDataGenerator(rows, cols, seed, profile);
+
+        long start = System.nanoTime();
+        generator.writeJson(path);
+        System.out.printf("%dx%d, profil %s, sjeme %d -> %s (%.1f s)%n", rows, cols, profile.getName(),
+                generator.getSeed(), path, (System.nanoTime() - start) / 1e9);
+    }
 }
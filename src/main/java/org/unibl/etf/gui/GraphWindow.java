@@ -9,23 +9,31 @@ import javafx.scene.canvas.Canvas;
 import javafx.scene.control.*;
 import javafx.scene.input.MouseEvent;
 import javafx.scene.layout.BorderPane;
+import javafx.scene.layout.HBox;
 import javafx.scene.layout.VBox;
 import javafx.stage.Screen;
 import javafx.stage.Stage;
+import org.unibl.etf.algo.CompiledNetwork;
+import org.unibl.etf.algo.Isochrone;
+import org.unibl.etf.algo.Journey;
+import org.unibl.etf.algo.RouteCache;
+import org.unibl.etf.algo.QueryOptions;
 import org.unibl.etf.algo.RouteFinder;
+import org.unibl.etf.algo.SearchResult;
+import org.unibl.etf.algo.SearchStatus;
+import org.unibl.etf.data.JsonLoader;
 import org.unibl.etf.model.City;
 import org.unibl.etf.model.Departure;
 import org.unibl.etf.model.Station;
 
 import java.time.Duration;
-import java.time.LocalDate;
-import java.time.LocalDateTime;
 import java.time.LocalTime;
-import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import java.util.function.BooleanSupplier;
 
 /**
  * GraphWindow je GUI klasa koja prikazuje mapu gradova sa njihovim stanicama i polascima.
@@ -42,15 +50,28 @@ import java.util.Optional;
  *   <li>TableView za prikaz izabrane rute</li>
  *   <li>Label za prikaz ukupnog trajanja i cijene rute</li>
  *   <li>Button za pronalaženje rute i prikaz dodatnih top ruta</li>
+ *   <li>Izbor vremena polaska – ruta tada kreće u zadato vrijeme ili kasnije</li>
+ *   <li>ListView sa redom vožnje – svim nedominiranim polascima u izabranom vremenskom prozoru</li>
+ *   <li>Toplotna mapa dostupnosti iz početnog grada do zadate granice kriterijuma</li>
  * </ul>
  *
  * @author Saša Vujančević
  */
 public class GraphWindow {
 
+    /**
+     * Keš rezultata pretrage zajednički za sve prozore; prazni se kada {@link JsonLoader}
+     * učita novu verziju mreže.
+     */
+    private static final RouteCache ROUTE_CACHE = new RouteCache(256, 20_000, JsonLoader::datasetVersion);
+
+    /** Najduže trajanje jedne pretrage pokrenute iz prozora. */
+    private static final Duration SEARCH_DEADLINE = Duration.ofSeconds(10);
+
     private final int rows;
     private final int cols;
     private final Map<String, City> cityMap;
+    private final CompiledNetwork network;
 
     private boolean selectingStart = true;
     private City selectedStartNode = null;
@@ -62,16 +83,29 @@ public class GraphWindow {
     private ComboBox<String> startCityBox = new ComboBox<>();
     private ComboBox<String> endCityBox = new ComboBox<>();
     private ComboBox<RouteFinder.Criteria> criteriaBox = new ComboBox<>();
+    private CheckBox departAtCheckBox = new CheckBox("Polazak u (HH:mm):");
+    private TextField departAtField = new TextField("08:00");
     private TableView<Departure> routeTableView = new TableView<>();
     private Label totalLabel = new Label("Ukupno: ");
+    private TextField timetableFromField = new TextField("06:00");
+    private TextField timetableToField = new TextField("12:00");
+    private ListView<String> timetableListView = new ListView<>();
+    private TextField isochroneStartField = new TextField("08:00");
+    private TextField isochroneLimitField = new TextField("360");
     private List<Departure> bestRoute = new ArrayList<>();
+    private Task<?> runningSearch;
 
     private final TransportGraphPainter graphPainter;
 
     public GraphWindow(int rows, int cols, Map<String, City> cityMap) {
+        this(rows, cols, cityMap, CompiledNetwork.compile(cityMap));
+    }
+
+    public GraphWindow(int rows, int cols, Map<String, City> cityMap, CompiledNetwork network) {
         this.rows = rows;
         this.cols = cols;
         this.cityMap = cityMap;
+        this.network = network;
         this.graphPainter = new TransportGraphPainter(cityMap);
     }
 
@@ -168,6 +202,11 @@ public class GraphWindow {
         criteriaLabel.setStyle("-fx-font-weight: bold; -fx-font-size: 12px; -fx-text-fill: #495057;");
         criteriaBox.setStyle("-fx-background-color: white; -fx-border-color: #ced4da; -fx-border-radius: 5;");
 
+        departAtCheckBox.setStyle("-fx-font-weight: bold; -fx-font-size: 12px; -fx-text-fill: #495057;");
+        departAtField.setPrefWidth(80);
+        departAtField.disableProperty().bind(departAtCheckBox.selectedProperty().not());
+        HBox departAtBox = new HBox(10, departAtCheckBox, departAtField);
+
         Button searchButton = new Button("Pronađi rutu");
         searchButton.setStyle("-fx-background-color: #007bff; -fx-text-fill: white; -fx-font-weight: bold; -fx-border-radius: 5; -fx-padding: 8 16;");
         searchButton.setOnAction(e -> handleSearchAction());
@@ -176,6 +215,39 @@ public class GraphWindow {
         top5RoutesButton.setStyle("-fx-background-color: #28a745; -fx-text-fill: white; -fx-font-weight: bold; -fx-border-radius: 5; -fx-padding: 8 16;");
         top5RoutesButton.setOnAction(e -> handleTop5RoutesAction());
 
+        Button paretoRoutesButton = new Button("Uporedi sve opcije");
+        paretoRoutesButton.setStyle("-fx-background-color: #6f42c1; -fx-text-fill: white; -fx-font-weight: bold; -fx-border-radius: 5; -fx-padding: 8 16;");
+        paretoRoutesButton.setOnAction(e -> handleParetoRoutesAction());
+
+        Label timetableLabel = new Label("RED VOŽNJE");
+        timetableLabel.setStyle("-fx-font-weight: bold; -fx-font-size: 16px; -fx-text-fill: #2E86AB; -fx-padding: 10 0 10 0;");
+
+        Label timetableWindowLabel = new Label("Polazak od - do (HH:mm):");
+        timetableWindowLabel.setStyle("-fx-font-weight: bold; -fx-font-size: 12px; -fx-text-fill: #495057;");
+        timetableFromField.setPrefWidth(80);
+        timetableToField.setPrefWidth(80);
+        HBox timetableWindowBox = new HBox(10, timetableFromField, timetableToField);
+
+        Button timetableButton = new Button("Prikaži red vožnje");
+        timetableButton.setStyle("-fx-background-color: #17a2b8; -fx-text-fill: white; -fx-font-weight: bold; -fx-border-radius: 5; -fx-padding: 8 16;");
+        timetableButton.setOnAction(e -> handleTimetableAction());
+
+        timetableListView.setMaxHeight(150);
+        timetableListView.setStyle("-fx-background-color: white; -fx-border-color: #ced4da; -fx-border-radius: 5;");
+
+        Label isochroneLabel = new Label("DOSTUPNOST");
+        isochroneLabel.setStyle("-fx-font-weight: bold; -fx-font-size: 16px; -fx-text-fill: #2E86AB; -fx-padding: 10 0 10 0;");
+
+        Label isochroneInputLabel = new Label("Polazak (HH:mm) i granica (min / KM / presjedanja):");
+        isochroneInputLabel.setStyle("-fx-font-weight: bold; -fx-font-size: 12px; -fx-text-fill: #495057;");
+        isochroneStartField.setPrefWidth(80);
+        isochroneLimitField.setPrefWidth(80);
+        HBox isochroneInputBox = new HBox(10, isochroneStartField, isochroneLimitField);
+
+        Button isochroneButton = new Button("Prikaži dostupnost");
+        isochroneButton.setStyle("-fx-background-color: #fd7e14; -fx-text-fill: white; -fx-font-weight: bold; -fx-border-radius: 5; -fx-padding: 8 16;");
+        isochroneButton.setOnAction(e -> handleIsochroneAction());
+
         Label routeLabel = new Label("REZULTAT PRETRAGE");
         routeLabel.setStyle("-fx-font-weight: bold; -fx-font-size: 16px; -fx-text-fill: #2E86AB; -fx-padding: 10 0 10 0;");
 
@@ -192,11 +264,20 @@ public class GraphWindow {
                 startCityLabel, startCityBox,
                 endCityLabel, endCityBox,
                 criteriaLabel, criteriaBox,
+                departAtBox,
                 searchButton,
                 routeLabel,
                 routeTableView,
                 totalLabel,
-                top5RoutesButton
+                top5RoutesButton,
+                paretoRoutesButton,
+                timetableLabel,
+                timetableWindowLabel, timetableWindowBox,
+                timetableButton,
+                timetableListView,
+                isochroneLabel,
+                isochroneInputLabel, isochroneInputBox,
+                isochroneButton
         );
         return detailsBox;
     }
@@ -208,29 +289,26 @@ public class GraphWindow {
     private void setupRouteTableView() {
         TableColumn<Departure, String> fromCol = new TableColumn<>("Polazak");
         fromCol.setCellValueFactory(data -> {
-            String from = data.getValue().from;
-            String time = data.getValue().departureTime;
+            String from = data.getValue().getFrom();
+            String time = data.getValue().getDepartureTimeText();
             return new SimpleStringProperty(from + " (" + time + ")");
         });
         fromCol.setPrefWidth(150);
 
         TableColumn<Departure, String> toCol = new TableColumn<>("Dolazak");
         toCol.setCellValueFactory(data -> {
-            String to = data.getValue().to;
-            int minutes = data.getValue().duration;
-            String depTime = data.getValue().departureTime;
-
-            String arrivalTime = computeArrivalTime(depTime, minutes);
+            String to = data.getValue().getTo();
+            String arrivalTime = computeArrivalTime(data.getValue());
             return new SimpleStringProperty(to + " (" + arrivalTime + ")");
         });
         toCol.setPrefWidth(150);
 
         TableColumn<Departure, String> typeCol = new TableColumn<>("Tip");
-        typeCol.setCellValueFactory(data -> new SimpleStringProperty(data.getValue().type));
+        typeCol.setCellValueFactory(data -> new SimpleStringProperty(data.getValue().getType().getCode()));
         typeCol.setPrefWidth(80);
 
         TableColumn<Departure, Integer> priceCol = new TableColumn<>("Cijena");
-        priceCol.setCellValueFactory(data -> new SimpleIntegerProperty(data.getValue().price).asObject());
+        priceCol.setCellValueFactory(data -> new SimpleIntegerProperty(data.getValue().getPrice()).asObject());
         priceCol.setPrefWidth(80);
 
         routeTableView.getColumns().addAll(fromCol, toCol, typeCol, priceCol);
@@ -285,8 +363,12 @@ public class GraphWindow {
                 City city = cityMap.get(cityName);
                 if (city != null) {
                     Station station = newVal.toLowerCase().contains("bus") ? city.getBusStation() : city.getTrainStation();
-                    for (Departure d : station.getDepartures()) {
-                        departureListView.getItems().add(d.toString());
+                    List<Departure> departures = station.getDepartures();
+                    // uz izabrano vrijeme polaska lista počinje prvim polaskom koji se može uhvatiti
+                    Integer departAt = departAtCheckBox.isSelected() ? parseMinute(departAtField.getText()) : null;
+                    int first = departAt != null ? Math.max(station.nextDepartureIndex(departAt), 0) : 0;
+                    for (int i = 0; i < departures.size(); i++) {
+                        departureListView.getItems().add(departures.get((first + i) % departures.size()).toString());
                     }
                 }
             }
@@ -310,6 +392,7 @@ public class GraphWindow {
                 }
 
                 selectingStart = !selectingStart;
+                cancelRunningSearch();
                 bestRoute.clear();
                 graphPainter.drawGraph(rows, cols, selectedStartNode, selectedEndNode);
             });
@@ -336,26 +419,46 @@ public class GraphWindow {
             return;
         }
 
+        Integer departAt = null;
+        if (departAtCheckBox.isSelected()) {
+            departAt = parseMinute(departAtField.getText());
+            if (departAt == null) {
+                totalLabel.setText("Unesite vrijeme polaska u formatu HH:mm.");
+                return;
+            }
+        }
+        Integer departureMinute = departAt;
+
         totalLabel.setText("Tražim rutu...");
 
-        Task<List<Departure>> task = new Task<>() {
+        Task<SearchResult<List<Departure>>> task = new Task<>() {
             @Override
-            protected List<Departure> call() {
-                RouteFinder rf = new RouteFinder(cityMap);
-                return rf.findRoute(from, to, crit);
+            protected SearchResult<List<Departure>> call() {
+                RouteFinder rf = new RouteFinder(network, ROUTE_CACHE);
+                if (departureMinute != null) {
+                    return rf.findRouteDepartingAt(from, to, crit, departureMinute, searchOptions(this::isCancelled));
+                }
+                return rf.findRoute(from, to, crit, searchOptions(this::isCancelled));
             }
 
             @Override
             protected void succeeded() {
-                List<Departure> route = getValue();
+                SearchResult<List<Departure>> result = getValue();
+                List<Departure> route = result.getValue();
                 routeTableView.getItems().clear();
 
                 if (route.isEmpty() || from.equals(to)) {
-                    totalLabel.setText("Nema dostupne rute.");
+                    totalLabel.setText(result.isComplete() ? "Nema dostupne rute." : describeStatus(result.getStatus()));
                     bestRoute.clear();
                 } else {
                     routeTableView.getItems().addAll(route);
                     calculateAndDisplayTotal(route);
+                    if (departureMinute != null) {
+                        totalLabel.setText(totalLabel.getText() + "\n" + describeDepartAt(route, departureMinute));
+                    }
+                    if (!result.isComplete()) {
+                        totalLabel.setText(totalLabel.getText() + "\n" + describeStatus(result.getStatus()));
+                    }
 
                     bestRoute = new ArrayList<>(route);
                     highlightBestRoute();
@@ -371,7 +474,7 @@ public class GraphWindow {
                 graphPainter.drawGraph(rows, cols, selectedStartNode, selectedEndNode);
             }
         };
-        new Thread(task).start();
+        startSearch(task);
     }
 
     /**
@@ -397,8 +500,8 @@ public class GraphWindow {
         Task<List<Departure>> task = new Task<>() {
             @Override
             protected List<Departure> call() {
-                RouteFinder rf = new RouteFinder(cityMap);
-                return rf.findBestRoute(from, to, crit);
+                RouteFinder rf = new RouteFinder(network, ROUTE_CACHE);
+                return rf.findBestRoute(from, to, crit, searchOptions(this::isCancelled)).getValue();
             }
 
             @Override
@@ -423,74 +526,288 @@ public class GraphWindow {
                 graphPainter.drawGraph(rows, cols, selectedStartNode, selectedEndNode);
             }
         };
-        new Thread(task).start();
+        startSearch(task);
 
-        new TopRoutesWindow(cityMap, from, to, crit).show();
+        new TopRoutesWindow(network, ROUTE_CACHE, from, to, crit).show();
     }
 
     /**
-     * Računa i prikazuje ukupno trajanje i cijenu rute.
-     * Uključuje vrijeme transfera između polazaka.
+     * Pokreće pretragu u zasebnom Thread-u, uz prethodno otkazivanje pretrage koja još traje.
+     * Otkazani {@link Task} vraća {@code true} iz {@code isCancelled()}, pa pretraga koja ga
+     * koristi kao uslov otkazivanja ({@link #searchOptions}) prestaje da troši procesor.
      *
-     * @param route lista {@link Departure} objekata koji čine rutu
+     * @param task zadatak pretrage
      */
-    private void calculateAndDisplayTotal(List<Departure> route) {
+    private void startSearch(Task<?> task) {
+        cancelRunningSearch();
+        runningSearch = task;
+        Thread thread = new Thread(task);
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    /**
+     * Otkazuje pretragu pokrenutu iz ovog prozora, ako još traje.
+     */
+    private void cancelRunningSearch() {
+        if (runningSearch != null) {
+            runningSearch.cancel();
+            runningSearch = null;
+        }
+    }
+
+    /**
+     * Opcije upita za pretrage pokrenute iz prozora: podrazumijevani budžet, rok
+     * {@link #SEARCH_DEADLINE} i otkazivanje preko zadatog {@link Task}-a.
+     */
+    private static QueryOptions searchOptions(BooleanSupplier cancelled) {
+        return QueryOptions.defaults()
+                .withDeadline(SEARCH_DEADLINE)
+                .withCancellation(cancelled);
+    }
+
+    /**
+     * Opisuje razlog zbog kojeg je pretraga prekinuta prije kraja.
+     */
+    static String describeStatus(SearchStatus status) {
+        return switch (status) {
+            case COMPLETE -> "";
+            case DEADLINE_EXCEEDED -> "Pretraga je prekinuta jer je isteklo vrijeme; prikazan je najbolji pronađeni rezultat.";
+            case BUDGET_EXHAUSTED -> "Pretraga je prekinuta nakon dozvoljenog broja koraka; prikazan je najbolji pronađeni rezultat.";
+            case CANCELLED -> "Pretraga je otkazana.";
+        };
+    }
+
+    /**
+     * Rukuje akcijom poređenja svih opcija između izabranih gradova.
+     * Otvara {@link TopRoutesWindow} sa Pareto-optimalnim rutama po vremenu, cijeni
+     * i broju presjedanja, koje se dobijaju jednom pretragom umjesto posebne pretrage
+     * za svaki kriterijum. Ako je izabrano vrijeme polaska, pretraga kreće od njega,
+     * a inače od ponoći.
+     */
+    private void handleParetoRoutesAction() {
+        String from = startCityBox.getValue();
+        String to = endCityBox.getValue();
+
+        if (from == null || to == null) {
+            totalLabel.setText("Molimo odaberite početni i odredišni grad.");
+            return;
+        }
+
+        if (from.equals(to)) {
+            totalLabel.setText("Početni i odredišni grad ne mogu biti isti.");
+            return;
+        }
+
+        int departureMinute = 0;
+        if (departAtCheckBox.isSelected()) {
+            Integer departAt = parseMinute(departAtField.getText());
+            if (departAt == null) {
+                totalLabel.setText("Unesite vrijeme polaska u formatu HH:mm.");
+                return;
+            }
+            departureMinute = departAt;
+        }
+
+        new TopRoutesWindow(network, from, to, departureMinute).show();
+    }
+
+    /**
+     * Rukuje akcijom prikaza reda vožnje između izabranih gradova.
+     * Svi nedominirani polasci u zadatom prozoru dobijaju se jednim profilnim upitom
+     * ({@link RouteFinder#findProfile(String, String, int, int, QueryOptions)}) u zasebnom
+     * Thread-u, koji se otkazuje kao i ostale pretrage prozora ({@link #startSearch(Task)}).
+     */
+    private void handleTimetableAction() {
+        String from = startCityBox.getValue();
+        String to = endCityBox.getValue();
+
+        if (from == null || to == null) {
+            totalLabel.setText("Molimo odaberite početni i odredišni grad.");
+            return;
+        }
+
+        if (from.equals(to)) {
+            totalLabel.setText("Početni i odredišni grad ne mogu biti isti.");
+            return;
+        }
+
+        int fromMinute;
+        int toMinute;
         try {
-            DateTimeFormatter formatter = DateTimeFormatter.ofPattern("HH:mm");
-            LocalDate currentDate = LocalDate.now();
+            fromMinute = LocalTime.parse(timetableFromField.getText().trim()).toSecondOfDay() / 60;
+            toMinute = LocalTime.parse(timetableToField.getText().trim()).toSecondOfDay() / 60;
+        } catch (DateTimeParseException ex) {
+            totalLabel.setText("Unesite vrijeme u formatu HH:mm.");
+            return;
+        }
 
-            LocalDateTime firstDeparture = LocalDateTime.of(currentDate, LocalTime.parse(route.get(0).departureTime, formatter));
-            LocalDateTime lastArrival = firstDeparture;
+        timetableListView.getItems().setAll("Tražim polaske...");
 
-            for (Departure d : route) {
-                LocalTime depTime = LocalTime.parse(d.departureTime, formatter);
-                LocalDateTime depDateTime = LocalDateTime.of(currentDate, depTime);
+        Task<SearchResult<List<Journey>>> task = new Task<>() {
+            @Override
+            protected SearchResult<List<Journey>> call() {
+                RouteFinder rf = new RouteFinder(network);
+                return rf.findProfile(from, to, fromMinute, toMinute, searchOptions(this::isCancelled));
+            }
 
-                if (depDateTime.isBefore(lastArrival)) {
-                    currentDate = currentDate.plusDays(1);
-                    depDateTime = LocalDateTime.of(currentDate, depTime);
+            @Override
+            protected void succeeded() {
+                SearchResult<List<Journey>> result = getValue();
+                List<Journey> journeys = result.getValue();
+                timetableListView.getItems().clear();
+                if (journeys.isEmpty() && result.isComplete()) {
+                    timetableListView.getItems().add("Nema polazaka u izabranom periodu.");
+                }
+                for (Journey journey : journeys) {
+                    timetableListView.getItems().add(formatTimetableEntry(journey));
                 }
+                if (!result.isComplete()) {
+                    timetableListView.getItems().add(describeStatus(result.getStatus()));
+                }
+            }
+
+            @Override
+            protected void failed() {
+                timetableListView.getItems().setAll("Greška prilikom traženja polazaka.");
+                System.err.println("Greška prilikom traženja polazaka: " + getException().getMessage());
+            }
+        };
+        startSearch(task);
+    }
+
+    /**
+     * Rukuje akcijom prikaza dostupnosti iz početnog grada.
+     * Najbolje rute do svih gradova po izabranom kriterijumu računaju se jednim upitom
+     * ({@link RouteFinder#findIsochrone(String, int, RouteFinder.Criteria, QueryOptions)}) u
+     * zasebnom Thread-u, koji se otkazuje kao i ostale pretrage prozora, a rezultat se crta
+     * kao toplotna mapa do zadate granice.
+     */
+    private void handleIsochroneAction() {
+        String from = startCityBox.getValue();
+        RouteFinder.Criteria crit = criteriaBox.getValue();
+
+        if (from == null || crit == null) {
+            totalLabel.setText("Molimo odaberite početni grad i kriterijum.");
+            return;
+        }
+
+        int startMinute;
+        int limit;
+        try {
+            startMinute = LocalTime.parse(isochroneStartField.getText().trim()).toSecondOfDay() / 60;
+            limit = Integer.parseInt(isochroneLimitField.getText().trim());
+        } catch (DateTimeParseException | NumberFormatException ex) {
+            totalLabel.setText("Unesite vrijeme u formatu HH:mm i cjelobrojnu granicu.");
+            return;
+        }
+
+        totalLabel.setText("Računam dostupnost...");
 
-                LocalDateTime arrDateTime = depDateTime.plusMinutes(d.duration);
-                lastArrival = arrDateTime;
+        Task<SearchResult<Isochrone>> task = new Task<>() {
+            @Override
+            protected SearchResult<Isochrone> call() {
+                RouteFinder rf = new RouteFinder(network);
+                return rf.findIsochrone(from, startMinute, crit, searchOptions(this::isCancelled));
             }
 
-            Duration totalDuration = Duration.between(firstDeparture, lastArrival);
-            long totalMinutes = totalDuration.toMinutes();
+            @Override
+            protected void succeeded() {
+                SearchResult<Isochrone> result = getValue();
+                Isochrone isochrone = result.getValue();
+                if (isochrone == null) {
+                    totalLabel.setText("Grad nije pronađen.");
+                    return;
+                }
+                graphPainter.drawIsochrone(rows, cols, network, isochrone, limit, cityMap.get(from));
+                totalLabel.setText("Dostupno gradova: " + isochrone.countWithin(limit) + " / " + isochrone.getCityCount());
+                if (!result.isComplete()) {
+                    totalLabel.setText(totalLabel.getText() + "\n" + describeStatus(result.getStatus()));
+                }
+            }
 
-            int totalTransferTime = 0;
-            for (int i = 0; i < route.size() - 1; i++) {
-                totalTransferTime += route.get(i).minTransferTime;
+            @Override
+            protected void failed() {
+                totalLabel.setText("Greška prilikom računanja dostupnosti.");
+                System.err.println("Greška prilikom računanja dostupnosti: " + getException().getMessage());
             }
-            totalMinutes += totalTransferTime;
-            
-            int hours = (int) (totalMinutes / 60);
-            int minutes = (int) (totalMinutes % 60);
-            int totalPrice = route.stream().mapToInt(d -> d.price).sum();
-            totalLabel.setText("Ukupno: " + hours + "h " + minutes + "min, " + totalPrice + " novčanih jedinica.");
-        } catch (Exception ex) {
-            totalLabel.setText("Greška u računanju vremena.");
+        };
+        startSearch(task);
+    }
+
+    /**
+     * Formatira jedno putovanje iz reda vožnje, npr. "06:15 → 09:30 (+2 d), 51h 15min, 2 presjedanja, 1234 KM".
+     *
+     * @param journey putovanje iz profilnog upita
+     * @return tekst za prikaz u {@link #timetableListView}
+     */
+    private String formatTimetableEntry(Journey journey) {
+        int days = journey.getArrivalTime() / Departure.MINUTES_PER_DAY;
+        int duration = journey.getDuration();
+        return Departure.formatMinute(journey.getDepartureTime()) + " → "
+                + Departure.formatMinute(journey.getArrivalTime())
+                + (days > 0 ? " (+" + days + " d)" : "")
+                + ", " + duration / 60 + "h " + duration % 60 + "min, "
+                + journey.getTransfers() + " presjedanja, " + journey.getPrice() + " KM";
+    }
+
+    /**
+     * Računa i prikazuje ukupno trajanje i cijenu rute.
+     * Uključuje vrijeme transfera između polazaka.
+     *
+     * @param route lista {@link Departure} objekata koji čine rutu
+     */
+    private void calculateAndDisplayTotal(List<Departure> route) {
+        Journey journey = Journey.of(route);
+        int totalMinutes = journey.getDuration();
+        int hours = totalMinutes / 60;
+        int minutes = totalMinutes % 60;
+        totalLabel.setText("Ukupno: " + hours + "h " + minutes + "min, " + journey.getPrice() + " novčanih jedinica.");
+    }
+
+    /**
+     * Opisuje rutu pretraženu od zadatog vremena polaska: vrijeme dolaska i ukupno
+     * vrijeme od polaska, uključujući čekanje na prvi polazak.
+     *
+     * @param route           ruta
+     * @param departureMinute izabrano vrijeme polaska u minutima od ponoći
+     * @return tekst za {@link #totalLabel}
+     */
+    private static String describeDepartAt(List<Departure> route, int departureMinute) {
+        int ready = departureMinute;
+        int arrival = departureMinute;
+        for (Departure d : route) {
+            arrival = CompiledNetwork.departureAtOrAfter(ready, d.getDepartureMinute()) + d.getDuration();
+            ready = arrival + d.getMinTransferTime();
         }
+        int total = arrival - departureMinute;
+        return "Polazak od " + Departure.formatMinute(departureMinute) + ", dolazak u " + Departure.formatMinute(arrival)
+                + " (sa čekanjem: " + total / 60 + "h " + total % 60 + "min).";
     }
 
     /**
-     * Računa vrijeme dolaska na osnovu vremena polaska i trajanja putovanja.
+     * Čita vrijeme u formatu "HH:mm".
      *
-     * @param depTime vrijeme polaska u formatu "HH:mm"
-     * @param duration trajanje putovanja u minutima
-     * @return vrijeme dolaska u formatu "HH:mm" ili "??:??" ako dođe do greške
+     * @return broj minuta od ponoći ili {@code null} ako unos nije ispravan
      */
-    private String computeArrivalTime(String depTime, int duration) {
+    private static Integer parseMinute(String text) {
         try {
-            DateTimeFormatter formatter = DateTimeFormatter.ofPattern("HH:mm");
-            LocalTime time = LocalTime.parse(depTime, formatter);
-            time = time.plusMinutes(duration);
-            return time.format(formatter);
-        } catch (Exception e) {
-            return "??:??";
+            return LocalTime.parse(text.trim()).toSecondOfDay() / 60;
+        } catch (DateTimeParseException ex) {
+            return null;
         }
     }
 
+    /**
+     * Računa vrijeme dolaska na osnovu vremena polaska i trajanja putovanja.
+     *
+     * @param departure polazak
+     * @return vrijeme dolaska u formatu "HH:mm"
+     */
+    private String computeArrivalTime(Departure departure) {
+        return Departure.formatMinute(departure.getArrivalMinute());
+    }
+
     /**
      * Ističe trenutno najbolju rutu na grafu.
      * Ako {@link #bestRoute} nije prazna, crta graf sa istaknutom rutom.
@@ -9,10 +9,15 @@ import javafx.scene.control.TextField;
 import javafx.scene.layout.GridPane;
 import javafx.scene.layout.BorderPane;
 import javafx.stage.Stage;
+import org.unibl.etf.algo.CompiledNetwork;
+import org.unibl.etf.data.BinaryTimetable;
 import org.unibl.etf.data.JsonLoader;
 import org.unibl.etf.generator.TransportDataGenerator;
 import org.unibl.etf.model.City;
 
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.util.Map;
 
 /**
@@ -23,17 +28,22 @@ import java.util.Map;
  * <ul>
  *     <li>Unos broja redova i kolona preko tekstualnih polja</li>
  *     <li>Generisanje transportne mape koristeći {@link TransportDataGenerator}</li>
- *     <li>Čuvanje generisanih podataka u JSON fajl</li>
- *     <li>Učitavanje podataka iz JSON-a pomoću {@link JsonLoader}</li>
+ *     <li>Pravljenje mreže direktno iz generisanih podataka, bez čitanja fajla</li>
  *     <li>Prikaz generisanog grafa u {@link GraphWindow}</li>
+ *     <li>Čuvanje generisanih podataka u JSON i binarni fajl u pozadini, nakon prikaza grafa</li>
+ *     <li>Učitavanje prethodno sačuvane mape pomoću {@link JsonLoader#loadCityMap(String)}, koji
+ *     koristi binarni red vožnje kada nije stariji od JSON fajla</li>
  * </ul>
  *
  * @author Saša Vujančević
  */
 public class InputWindow {
 
+    private static final String DATA_FILE = "transport_data.json";
+
     private final Stage primaryStage;
     private Map<String, City> cityMap;
+    private CompiledNetwork network;
 
     public InputWindow(Stage primaryStage) {
         this.primaryStage = primaryStage;
@@ -54,6 +64,7 @@ public class InputWindow {
         TextField colsField = new TextField();
 
         Button generateBtn = new Button("Generiši mapu i prikaži graf");
+        Button loadBtn = new Button("Učitaj sačuvanu mapu");
         Label statusLabel = new Label();
 
         inputGrid.add(rowsLabel, 0, 0);
@@ -61,11 +72,12 @@ public class InputWindow {
         inputGrid.add(colsLabel, 0, 1);
         inputGrid.add(colsField, 1, 1);
         inputGrid.add(generateBtn, 0, 2, 2, 1);
-        inputGrid.add(statusLabel, 0, 3, 2, 1);
+        inputGrid.add(loadBtn, 0, 3, 2, 1);
+        inputGrid.add(statusLabel, 0, 4, 2, 1);
 
         root.setCenter(inputGrid);
 
-        Scene scene = new Scene(root, 350, 180);
+        Scene scene = new Scene(root, 350, 215);
         primaryStage.setScene(scene);
         primaryStage.setTitle("🚂 Pathfinder - Unos dimenzija");
         primaryStage.show();
@@ -77,20 +89,23 @@ public class InputWindow {
 
                 statusLabel.setText("Generišem...");
 
-                Task<Void> task = new Task<>() {
+                TransportDataGenerator generator = new TransportDataGenerator(rows, cols);
+                Task<TransportDataGenerator.TransportData> task = new Task<>() {
                     @Override
-                    protected Void call() throws Exception {
-                        TransportDataGenerator generator = new TransportDataGenerator(rows, cols);
+                    protected TransportDataGenerator.TransportData call() throws Exception {
                         TransportDataGenerator.TransportData data = generator.generateData();
-                        generator.saveToJson(data, "transport_data.json");
-                        cityMap = JsonLoader.loadCityMap("transport_data.json");
-                        return null;
+                        cityMap = generator.buildCityMap(data);
+                        JsonLoader.datasetReplaced();
+                        network = CompiledNetwork.compile(cityMap);
+                        return data;
                     }
 
                     @Override
                     protected void succeeded() {
-                        GraphWindow graphWindow = new GraphWindow(rows, cols, cityMap);
+                        GraphWindow graphWindow = new GraphWindow(rows, cols, cityMap, network);
                         graphWindow.showGraph();
+                        saveInBackground(generator, getValue());
+                        network.prepareContractionHierarchy();
                         statusLabel.setText("Mapa generisana i prikazana.");
                         primaryStage.close();
                     }
@@ -108,5 +123,60 @@ public class InputWindow {
                 statusLabel.setText("Unesite ispravne brojeve za redove i kolone.");
             }
         });
+
+        loadBtn.setOnAction(e -> {
+            statusLabel.setText("Učitavam...");
+
+            Task<Void> task = new Task<>() {
+                @Override
+                protected Void call() throws Exception {
+                    if (!Files.exists(Path.of(DATA_FILE)) && !Files.exists(BinaryTimetable.pathFor(DATA_FILE))) {
+                        throw new IOException("Sačuvana mapa ne postoji.");
+                    }
+                    cityMap = JsonLoader.loadCityMap(DATA_FILE);
+                    network = CompiledNetwork.compile(cityMap);
+                    if (network.gridRows() == 0) {
+                        throw new IOException("Sačuvani fajl ne sadrži mrežu gradova.");
+                    }
+                    return null;
+                }
+
+                @Override
+                protected void succeeded() {
+                    GraphWindow graphWindow = new GraphWindow(network.gridRows(), network.gridColumns(), cityMap, network);
+                    graphWindow.showGraph();
+                    network.prepareContractionHierarchy();
+                    statusLabel.setText("Mapa učitana i prikazana.");
+                    primaryStage.close();
+                }
+
+                @Override
+                protected void failed() {
+                    Throwable ex = getException();
+                    statusLabel.setText("Greška: " + (ex != null ? ex.getMessage() : "Nepoznata greška."));
+                }
+            };
+
+            new Thread(task).start();
+        });
+    }
+
+    /**
+     * Čuva generisane podatke u JSON fajl, a zatim u binarni fajl pored njega, u zasebnoj
+     * niti, dok je graf već prikazan. Nit nije pozadinska (daemon), pa zatvaranje
+     * aplikacije sačeka da se upis završi. Binarni fajl se piše posljednji i pamti
+     * veličinu i vrijeme izmjene JSON fajla, pa se koristi pri narednom učitavanju
+     * ("Učitaj sačuvanu mapu") sve dok se JSON fajl ne izmijeni.
+     */
+    private static void saveInBackground(TransportDataGenerator generator, TransportDataGenerator.TransportData data) {
+        Thread thread = new Thread(() -> {
+            generator.saveToJson(data, DATA_FILE);
+            try {
+                generator.saveToBinary(data, BinaryTimetable.pathFor(DATA_FILE), Path.of(DATA_FILE));
+            } catch (IOException e) {
+                System.err.println("Greška pri upisu binarnog reda vožnje: " + e.getMessage());
+            }
+        }, "transport-data-writer");
+        thread.start();
     }
 }
\ No newline at end of file
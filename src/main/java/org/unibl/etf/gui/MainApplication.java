@@ -2,6 +2,9 @@ package org.unibl.etf.gui;
 
 import javafx.application.Application;
 import javafx.stage.Stage;
+import org.unibl.etf.stats.SalesLedger;
+
+import java.io.IOException;
 
 /**
  * Glavna klasa JavaFX aplikacije "Pathfinder" koja pokreće GUI.
@@ -9,7 +12,8 @@ import javafx.stage.Stage;
  * <p>Glavne funkcionalnosti:</p>
  * <ul>
  *     <li>Pokretanje {@link InputWindow} za unos dimenzija transportne mreže</li>
- *     <li>Prikaz statistike prodaje karata preko {@link StatisticsWindow} nakon kratkog odlaganja</li>
+ *     <li>Otvaranje knjige prodaje ({@link SalesLedger}) u pozadinskoj niti i zatim prikaz
+ *     statistike prodaje karata preko {@link StatisticsWindow}</li>
  *     <li>Pokretanje JavaFX aplikacije</li>
  * </ul>
  */
@@ -23,10 +27,15 @@ public class MainApplication extends Application {
         new Thread(() -> {
             try {
                 Thread.sleep(500);
-                javafx.application.Platform.runLater(StatisticsWindow::showStatistics);
+                // prvo otvaranje može popunjavati knjigu iz računa, pa se ne radi u niti interfejsa
+                SalesLedger.getDefault().open();
+            } catch (IOException e) {
+                System.err.println("Greška pri otvaranju knjige prodaje: " + e.getMessage());
             } catch (InterruptedException e) {
                 Thread.currentThread().interrupt();
+                return;
             }
+            javafx.application.Platform.runLater(StatisticsWindow::showStatistics);
         }).start();
     }
 
@@ -8,6 +8,9 @@ import javafx.scene.layout.VBox;
 import javafx.stage.Modality;
 import javafx.stage.Stage;
 import org.unibl.etf.stats.ReceiptStatistics;
+import org.unibl.etf.stats.SalesLedger;
+
+import java.io.IOException;
 
 /**
  * StatisticsWindow je pomoćna klasa koja prikazuje
@@ -19,6 +22,10 @@ import org.unibl.etf.stats.ReceiptStatistics;
  *     <li>Prikaz ukupnog prihoda od prodaje</li>
  *     <li>Automatsko zatvaranje prozora nakon nekoliko sekundi</li>
  * </ul>
+ *
+ * <p>Vrijednosti se čitaju iz snimka zbirova knjige prodaje ({@link SalesLedger}), bez čitanja
+ * računa i bez čekanja na upis prodaje koji je u toku. Knjigu otvara {@link MainApplication}
+ * pri pokretanju, van niti korisničkog interfejsa.</p>
  */
 public class StatisticsWindow {
     
@@ -32,7 +39,13 @@ public class StatisticsWindow {
         root.setPadding(new Insets(20));
         root.setAlignment(Pos.CENTER);
 
-        ReceiptStatistics.StatisticsData stats = ReceiptStatistics.calculateStatistics();
+        ReceiptStatistics.StatisticsData stats;
+        try {
+            stats = SalesLedger.getDefault().getStatistics();
+        } catch (IOException e) {
+            System.err.println("Greška pri čitanju knjige prodaje: " + e.getMessage());
+            stats = ReceiptStatistics.calculateStatistics();
+        }
 
         Label headerLabel = new Label("STATISTIKA PRODAJE KARATA");
         headerLabel.setStyle("-fx-font-weight: bold; -fx-font-size: 18px; -fx-text-fill: #2E86AB;");
@@ -1,5 +1,6 @@
 package org.unibl.etf.gui;
 
+import javafx.application.Platform;
 import javafx.beans.property.SimpleIntegerProperty;
 import javafx.beans.property.SimpleStringProperty;
 import javafx.concurrent.Task;
@@ -9,28 +10,27 @@ import javafx.scene.control.*;
 import javafx.scene.layout.VBox;
 import javafx.stage.Modality;
 import javafx.stage.Stage;
+import org.unibl.etf.algo.CompiledNetwork;
+import org.unibl.etf.algo.Journey;
+import org.unibl.etf.algo.RouteCache;
+import org.unibl.etf.algo.QueryOptions;
 import org.unibl.etf.algo.RouteFinder;
-import org.unibl.etf.model.City;
+import org.unibl.etf.algo.SearchResult;
 import org.unibl.etf.model.Departure;
+import org.unibl.etf.stats.ReceiptWriter;
 
 import java.io.File;
-import java.io.FileWriter;
-import java.io.IOException;
-import java.nio.file.Files;
-import java.nio.file.Path;
-import java.nio.file.Paths;
 import java.time.Duration;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
-import java.time.LocalTime;
 import java.time.format.DateTimeFormatter;
 import java.util.List;
-import java.util.Map;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 
 /**
- * TopRoutesWindow je GUI klasa koja prikazuje top N ruta između dva grada prema određenom kriterijumu.
+ * TopRoutesWindow je GUI klasa koja prikazuje top N ruta između dva grada prema određenom kriterijumu,
+ * ili sve Pareto-optimalne rute po vremenu, cijeni i broju presjedanja ako kriterijum nije zadat.
  * Omogućava korisniku pregled svih ruta, detalja o polascima i kupovinu karata.
  *
  * <p>Korisnički interfejs uključuje:</p>
@@ -47,21 +47,54 @@ import java.util.concurrent.Executors;
  */
 public class TopRoutesWindow {
 
-    private final Map<String, City> cityMap;
+    /** Najduže trajanje pretrage top ruta. */
+    private static final Duration SEARCH_DEADLINE = Duration.ofSeconds(30);
+
+    private final CompiledNetwork network;
+    private final RouteCache routeCache;
     private final String startCity;
     private final String endCity;
     private final RouteFinder.Criteria criteria;
+    private final int departureMinute;
     private final Label statusLabel = new Label();
     private final VBox tableContainer = new VBox(10);
     private final ProgressIndicator progressIndicator = new ProgressIndicator();
     private final ExecutorService executorService = Executors.newSingleThreadExecutor();
     private Stage stage;
+    private Task<?> searchTask;
+
+    /**
+     * Kreira prozor sa top 5 ruta po zadatom kriterijumu.
+     *
+     * @param routeCache keš rezultata pretrage, ili {@code null} ako se rezultati ne čuvaju
+     */
+    public TopRoutesWindow(CompiledNetwork network, RouteCache routeCache, String startCity, String endCity, RouteFinder.Criteria criteria) {
+        this(network, routeCache, startCity, endCity, criteria, 0);
+    }
+
+    /**
+     * Kreira prozor koji jednim pozivom
+     * {@link RouteFinder#findParetoRoutes(String, String, int, QueryOptions)} prikazuje sve
+     * Pareto-optimalne rute između dva grada.
+     *
+     * @param departureMinute vrijeme polaska u minutima od ponoći
+     */
+    public TopRoutesWindow(CompiledNetwork network, String startCity, String endCity, int departureMinute) {
+        this(network, null, startCity, endCity, null, departureMinute);
+    }
 
-    public TopRoutesWindow(Map<String, City> cityMap, String startCity, String endCity, RouteFinder.Criteria criteria) {
-        this.cityMap = cityMap;
+    private TopRoutesWindow(CompiledNetwork network, RouteCache routeCache, String startCity, String endCity,
+                            RouteFinder.Criteria criteria, int departureMinute) {
+        this.network = network;
+        this.routeCache = routeCache;
         this.startCity = startCity;
         this.endCity = endCity;
         this.criteria = criteria;
+        this.departureMinute = departureMinute;
+    }
+
+    private String criteriaName() {
+        return criteria != null ? criteria.name() : "PARETO";
     }
 
     /**
@@ -70,13 +103,14 @@ public class TopRoutesWindow {
      */
     public void show() {
         stage = new Stage();
-        stage.setTitle("Top 5 ruta po kriterijumu: " + criteria.name());
+        stage.setTitle(criteria != null ? "Top 5 ruta po kriterijumu: " + criteria.name() : "Pareto-optimalne rute");
         stage.initModality(Modality.APPLICATION_MODAL);
 
         VBox root = new VBox(10);
         root.setPadding(new Insets(10));
 
-        Label headerLabel = new Label("Top 5 ruta od " + startCity + " do " + endCity + ":");
+        Label headerLabel = new Label((criteria != null ? "Top 5 ruta od " : "Pareto-optimalne rute od ")
+                + startCity + " do " + endCity + ":");
         headerLabel.setStyle("-fx-font-weight: bold; -fx-font-size: 16px;");
 
         VBox progressBox = new VBox(5);
@@ -94,6 +128,9 @@ public class TopRoutesWindow {
         stage.setScene(scene);
 
         stage.setOnCloseRequest(event -> {
+            if (searchTask != null) {
+                searchTask.cancel();
+            }
             executorService.shutdown();
         });
 
@@ -106,20 +143,28 @@ public class TopRoutesWindow {
      * Ažurira statusLabel i progressIndicator tokom pretrage.
      */
     private void startSearch() {
-        statusLabel.setText("Tražim top 5 ruta...");
+        statusLabel.setText(criteria != null ? "Tražim top 5 ruta..." : "Tražim Pareto-optimalne rute...");
         progressIndicator.setVisible(true);
         tableContainer.getChildren().clear();
 
-        Task<List<List<Departure>>> task = new Task<>() {
+        Task<SearchResult<List<List<Departure>>>> task = new Task<>() {
             @Override
-            protected List<List<Departure>> call() {
-                RouteFinder rf = new RouteFinder(cityMap);
-                return rf.findTopRoutes(startCity, endCity, criteria, 5);
+            protected SearchResult<List<List<Departure>>> call() {
+                RouteFinder rf = new RouteFinder(network, routeCache);
+                QueryOptions options = QueryOptions.unlimited()
+                        .withDeadline(SEARCH_DEADLINE)
+                        .withCancellation(this::isCancelled);
+                if (criteria == null) {
+                    SearchResult<List<Journey>> pareto = rf.findParetoRoutes(startCity, endCity, departureMinute, options);
+                    return new SearchResult<>(pareto.getValue().stream().map(Journey::getLegs).toList(), pareto.getStatus());
+                }
+                return rf.findTopRoutes(startCity, endCity, criteria, 5, options);
             }
 
             @Override
             protected void succeeded() {
-                List<List<Departure>> topRoutes = getValue();
+                SearchResult<List<List<Departure>>> result = getValue();
+                List<List<Departure>> topRoutes = result.getValue();
                 progressIndicator.setVisible(false);
                 displayTopRoutes(topRoutes);
                 
@@ -128,6 +173,9 @@ public class TopRoutesWindow {
                 } else {
                     statusLabel.setText("Prikazano " + topRoutes.size() + " ruta.");
                 }
+                if (!result.isComplete()) {
+                    statusLabel.setText(statusLabel.getText() + " " + GraphWindow.describeStatus(result.getStatus()));
+                }
             }
 
             @Override
@@ -138,6 +186,7 @@ public class TopRoutesWindow {
             }
         };
 
+        searchTask = task;
         executorService.submit(task);
     }
 
@@ -201,32 +250,30 @@ public class TopRoutesWindow {
         
         TableColumn<Departure, String> fromCol = new TableColumn<>("Polazak");
         fromCol.setCellValueFactory(data -> {
-            String from = data.getValue().from;
-            String time = data.getValue().departureTime;
+            String from = data.getValue().getFrom();
+            String time = data.getValue().getDepartureTimeText();
             return new SimpleStringProperty(from + " (" + time + ")");
         });
         fromCol.setPrefWidth(200);
 
         TableColumn<Departure, String> toCol = new TableColumn<>("Dolazak");
         toCol.setCellValueFactory(data -> {
-            String to = data.getValue().to;
-            String depTime = data.getValue().departureTime;
-            int duration = data.getValue().duration;
-            String arrivalTime = computeArrivalTime(depTime, duration);
+            String to = data.getValue().getTo();
+            String arrivalTime = computeArrivalTime(data.getValue());
             return new SimpleStringProperty(to + " (" + arrivalTime + ")");
         });
         toCol.setPrefWidth(200);
 
         TableColumn<Departure, String> typeCol = new TableColumn<>("Tip");
-        typeCol.setCellValueFactory(data -> new SimpleStringProperty(data.getValue().type));
+        typeCol.setCellValueFactory(data -> new SimpleStringProperty(data.getValue().getType().getCode()));
         typeCol.setPrefWidth(100);
 
         TableColumn<Departure, Integer> priceCol = new TableColumn<>("Cijena");
-        priceCol.setCellValueFactory(data -> new SimpleIntegerProperty(data.getValue().price).asObject());
+        priceCol.setCellValueFactory(data -> new SimpleIntegerProperty(data.getValue().getPrice()).asObject());
         priceCol.setPrefWidth(80);
 
         TableColumn<Departure, Integer> durationCol = new TableColumn<>("Trajanje (min)");
-        durationCol.setCellValueFactory(data -> new SimpleIntegerProperty(data.getValue().duration).asObject());
+        durationCol.setCellValueFactory(data -> new SimpleIntegerProperty(data.getValue().getDuration()).asObject());
         durationCol.setPrefWidth(120);
 
         table.getColumns().addAll(fromCol, toCol, typeCol, priceCol, durationCol);
@@ -244,133 +291,89 @@ public class TopRoutesWindow {
             return "N/A";
         }
 
-        try {
-            DateTimeFormatter formatter = DateTimeFormatter.ofPattern("HH:mm");
-            LocalDate currentDate = LocalDate.now();
-            LocalDateTime firstDeparture = LocalDateTime.of(currentDate, LocalTime.parse(route.get(0).departureTime, formatter));
-            LocalDateTime lastArrival = firstDeparture;
-
-            for (Departure d : route) {
-                LocalTime depTime = LocalTime.parse(d.departureTime, formatter);
-                LocalDateTime depDateTime = LocalDateTime.of(currentDate, depTime);
-                
-                if (depDateTime.isBefore(lastArrival)) {
-                    currentDate = currentDate.plusDays(1);
-                    depDateTime = LocalDateTime.of(currentDate, depTime);
-                }
-                
-                LocalDateTime arrDateTime = depDateTime.plusMinutes(d.duration);
-                lastArrival = arrDateTime;
-            }
-
-            Duration totalDuration = Duration.between(firstDeparture, lastArrival);
-            long totalMinutes = totalDuration.toMinutes();
+        Journey journey = Journey.of(route);
+        int totalMinutes = journey.getDuration();
+        int hours = totalMinutes / 60;
+        int minutes = totalMinutes % 60;
 
-            int totalTransferTime = 0;
-            for (int i = 0; i < route.size() - 1; i++) {
-                totalTransferTime += route.get(i).minTransferTime;
-            }
-            totalMinutes += totalTransferTime;
-            
-            int hours = (int) (totalMinutes / 60);
-            int minutes = (int) (totalMinutes % 60);
-            int totalPrice = route.stream().mapToInt(d -> d.price).sum();
-            int transfers = route.size() - 1;
-
-            return String.format("%dh %dmin, %d KM, %d presjedanja", hours, minutes, totalPrice, transfers);
-        } catch (Exception ex) {
-            return "Greška u računanju.";
-        }
+        return String.format("%dh %dmin, %d KM, %d presjedanja", hours, minutes, journey.getPrice(), journey.getTransfers());
     }
 
     /**
-     * Računa vreme dolaska na osnovu vremena polaska i trajanja putovanja.
+     * Računa vrijeme dolaska na osnovu vremena polaska i trajanja putovanja.
      *
-     * @param depTime vrijeme polaska u formatu "HH:mm"
-     * @param duration trajanje putovanja u minutima
-     * @return vrijeme dolaska u formatu "HH:mm" ili "??:??" ako dođe do greške
+     * @param departure polazak
+     * @return vrijeme dolaska u formatu "HH:mm"
      */
-    private String computeArrivalTime(String depTime, int duration) {
-        try {
-            DateTimeFormatter formatter = DateTimeFormatter.ofPattern("HH:mm");
-            LocalTime time = LocalTime.parse(depTime, formatter);
-            time = time.plusMinutes(duration);
-            return time.format(formatter);
-        } catch (Exception e) {
-            return "??:??";
-        }
+    private String computeArrivalTime(Departure departure) {
+        return Departure.formatMinute(departure.getArrivalMinute());
     }
 
     /**
      * Rukuje akcijom kupovine karte za određenu rutu.
-     * Generiše tekstualni račun u folderu "racuni" i prikazuje Alert korisniku.
+     * Generiše tekstualni račun i predaje ga {@link ReceiptWriter}-u, koji ga upisuje u
+     * folder "racuni" u pozadini. Alert se prikazuje kada je račun trajno sačuvan, pa
+     * prozor ostaje upotrebljiv i dok se račun upisuje.
      *
      * @param routeNumber redni broj rute
      * @param route lista {@link Departure} objekata koji čine rutu
      */
     private void handleBuyTicket(int routeNumber, List<Departure> route) {
-        try {
-            Path receiptsDir = Paths.get("racuni");
-            if (!Files.exists(receiptsDir)) {
-                Files.createDirectories(receiptsDir);
-            }
-
-            String timestamp = LocalDateTime.now().format(DateTimeFormatter.ofPattern("ddMMyyyy_HHmmss"));
-            String filename = "racun_" + startCity + "_do_" + endCity + "_ruta" + routeNumber + "_" + timestamp + ".txt";
-            Path receiptPath = receiptsDir.resolve(filename);
-
-            String relation = startCity + " → " + endCity;
-            String time = calculateRouteTime(route);
-            int price = calculateRoutePrice(route);
-            String date = LocalDate.now().format(DateTimeFormatter.ofPattern("dd.MM.yyyy"));
-            String purchaseTime = LocalDateTime.now().format(DateTimeFormatter.ofPattern("dd.MM.yyyy HH:mm:ss"));
-
-            StringBuilder receipt = new StringBuilder();
-            receipt.append("==========================================\n");
-            receipt.append("              KARTA ZA PUTOVANJE\n");
-            receipt.append("==========================================\n\n");
-            receipt.append("Datum kupovine: ").append(purchaseTime).append("\n");
-            receipt.append("Relacija: ").append(relation).append("\n");
-            receipt.append("Kriterijum: ").append(criteria.name()).append("\n");
-            receipt.append("Ruta broj: ").append(routeNumber).append("\n\n");
-            receipt.append("DETALJI PUTOVANJA:\n");
-            receipt.append("------------------------------------------\n");
-
-            for (int i = 0; i < route.size(); i++) {
-                Departure dep = route.get(i);
-                String arrivalTime = computeArrivalTime(dep.departureTime, dep.duration);
-                receipt.append(String.format("%d. %s (%s) → %s (%s) [%s] - %d KM\n", 
-                    i + 1, dep.from, dep.departureTime, dep.to, arrivalTime, dep.type, dep.price));
-            }
-
-            receipt.append("\n------------------------------------------\n");
-            receipt.append("Ukupno vrijeme: ").append(time).append("\n");
-            receipt.append("Ukupna cijena: ").append(price).append(" KM\n");
-            receipt.append("Broj presjedanja: ").append(route.size() - 1).append("\n\n");
-            receipt.append("==========================================\n");
-            receipt.append("Hvala na kupovini!\n");
-            receipt.append("==========================================\n");
-
-            try (FileWriter writer = new FileWriter(receiptPath.toFile())) {
-                writer.write(receipt.toString());
-            }
-
-            Alert alert = new Alert(Alert.AlertType.INFORMATION);
-            alert.setTitle("Karta kupljena");
-            alert.setHeaderText("Uspješno ste kupili kartu!");
-            alert.setContentText("Račun je sačuvan u: " + receiptPath.toFile());
-            alert.showAndWait();
-
-            StatisticsWindow.showStatistics();
-
-        } catch (IOException e) {
-            Alert alert = new Alert(Alert.AlertType.ERROR);
-            alert.setTitle("Greška");
-            alert.setHeaderText("Greška prilikom kupovine karte");
-            alert.setContentText("Nije moguće sačuvati račun: " + e.getMessage());
-            alert.showAndWait();
-            e.printStackTrace();
+        String timestamp = LocalDateTime.now().format(DateTimeFormatter.ofPattern("ddMMyyyy_HHmmss"));
+        String filename = "racun_" + startCity + "_do_" + endCity + "_ruta" + routeNumber + "_" + timestamp + ".txt";
+
+        String relation = startCity + " → " + endCity;
+        String time = calculateRouteTime(route);
+        int price = calculateRoutePrice(route);
+        String date = LocalDate.now().format(DateTimeFormatter.ofPattern("dd.MM.yyyy"));
+        String purchaseTime = LocalDateTime.now().format(DateTimeFormatter.ofPattern("dd.MM.yyyy HH:mm:ss"));
+
+        StringBuilder receipt = new StringBuilder();
+        receipt.append("==========================================\n");
+        receipt.append("              KARTA ZA PUTOVANJE\n");
+        receipt.append("==========================================\n\n");
+        receipt.append("Datum kupovine: ").append(purchaseTime).append("\n");
+        receipt.append("Relacija: ").append(relation).append("\n");
+        receipt.append("Kriterijum: ").append(criteriaName()).append("\n");
+        receipt.append("Ruta broj: ").append(routeNumber).append("\n\n");
+        receipt.append("DETALJI PUTOVANJA:\n");
+        receipt.append("------------------------------------------\n");
+
+        for (int i = 0; i < route.size(); i++) {
+            Departure dep = route.get(i);
+            String arrivalTime = computeArrivalTime(dep);
+            receipt.append(String.format("%d. %s (%s) → %s (%s) [%s] - %d KM\n", 
+                i + 1, dep.getFrom(), dep.getDepartureTimeText(), dep.getTo(), arrivalTime, dep.getType(), dep.getPrice()));
         }
+
+        receipt.append("\n------------------------------------------\n");
+        receipt.append("Ukupno vrijeme: ").append(time).append("\n");
+        receipt.append("Ukupna cijena: ").append(price).append(" KM\n");
+        receipt.append("Broj presjedanja: ").append(route.size() - 1).append("\n\n");
+        receipt.append("==========================================\n");
+        receipt.append("Hvala na kupovini!\n");
+        receipt.append("==========================================\n");
+
+        ReceiptWriter.getDefault().submit(filename, receipt.toString(), price)
+                .whenComplete((receiptPath, error) -> Platform.runLater(() -> {
+                    if (error != null) {
+                        Alert alert = new Alert(Alert.AlertType.ERROR);
+                        alert.setTitle("Greška");
+                        alert.setHeaderText("Greška prilikom kupovine karte");
+                        alert.setContentText("Nije moguće sačuvati račun: " + error.getMessage());
+                        alert.showAndWait();
+                        error.printStackTrace();
+                        return;
+                    }
+
+                    Alert alert = new Alert(Alert.AlertType.INFORMATION);
+                    alert.setTitle("Karta kupljena");
+                    alert.setHeaderText("Uspješno ste kupili kartu!");
+                    alert.setContentText("Račun je sačuvan u: " + receiptPath.toFile());
+                    alert.showAndWait();
+
+                    StatisticsWindow.showStatistics();
+                }));
     }
 
     /**
@@ -382,41 +385,11 @@ public class TopRoutesWindow {
     private String calculateRouteTime(List<Departure> route) {
         if (route.isEmpty()) return "N/A";
 
-        try {
-            DateTimeFormatter formatter = DateTimeFormatter.ofPattern("HH:mm");
-            LocalDate currentDate = LocalDate.now();
-            LocalDateTime firstDeparture = LocalDateTime.of(currentDate, LocalTime.parse(route.get(0).departureTime, formatter));
-            LocalDateTime lastArrival = firstDeparture;
-
-            for (Departure d : route) {
-                LocalTime depTime = LocalTime.parse(d.departureTime, formatter);
-                LocalDateTime depDateTime = LocalDateTime.of(currentDate, depTime);
-                
-                if (depDateTime.isBefore(lastArrival)) {
-                    currentDate = currentDate.plusDays(1);
-                    depDateTime = LocalDateTime.of(currentDate, depTime);
-                }
-                
-                LocalDateTime arrDateTime = depDateTime.plusMinutes(d.duration);
-                lastArrival = arrDateTime;
-            }
-
-            Duration totalDuration = Duration.between(firstDeparture, lastArrival);
-            long totalMinutes = totalDuration.toMinutes();
+        int totalMinutes = Journey.of(route).getDuration();
+        int hours = totalMinutes / 60;
+        int minutes = totalMinutes % 60;
 
-            int totalTransferTime = 0;
-            for (int i = 0; i < route.size() - 1; i++) {
-                totalTransferTime += route.get(i).minTransferTime;
-            }
-            totalMinutes += totalTransferTime;
-            
-            int hours = (int) (totalMinutes / 60);
-            int minutes = (int) (totalMinutes % 60);
-            
-            return String.format("%dh %dmin", hours, minutes);
-        } catch (Exception ex) {
-            return "N/A";
-        }
+        return String.format("%dh %dmin", hours, minutes);
     }
 
     /**
@@ -426,6 +399,6 @@ public class TopRoutesWindow {
      * @return ukupna cijena rute
      */
     private int calculateRoutePrice(List<Departure> route) {
-        return route.stream().mapToInt(dep -> dep.price).sum();
+        return route.stream().mapToInt(Departure::getPrice).sum();
     }
 } 
\ No newline at end of file
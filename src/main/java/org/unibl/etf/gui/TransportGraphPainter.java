@@ -2,10 +2,15 @@ package org.unibl.etf.gui;
 
 import javafx.scene.canvas.Canvas;
 import javafx.scene.canvas.GraphicsContext;
+import javafx.scene.image.PixelFormat;
+import javafx.scene.image.PixelWriter;
 import javafx.scene.paint.Color;
+import org.unibl.etf.algo.CompiledNetwork;
+import org.unibl.etf.algo.Isochrone;
 import org.unibl.etf.model.City;
 import org.unibl.etf.model.Departure;
 
+import java.nio.IntBuffer;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -21,6 +26,7 @@ import java.util.Optional;
  *     <li>Isticanje početnog i krajnjeg grada</li>
  *     <li>Prikaz rute između gradova sa označenim gradovima</li>
  *     <li>Prepoznavanje gradova klikom miša na Canvas</li>
+ *     <li>Toplotna mapa dostupnosti iz jednog grada ({@link Isochrone})</li>
  * </ul>
  *
  * @author Saša Vujančević
@@ -28,6 +34,7 @@ import java.util.Optional;
 public class TransportGraphPainter {
 
     private static final double NODE_RADIUS = 15;
+    private static final int HEATMAP_COLORS = 256;
     private final Map<String, City> cityMap;
     private final Map<CircleNode, City> cityNodes = new HashMap<>();
     private Canvas canvas;
@@ -58,6 +65,127 @@ public class TransportGraphPainter {
 
         GraphicsContext gc = canvas.getGraphicsContext2D();
         gc.clearRect(0, 0, canvas.getWidth(), canvas.getHeight());
+        drawNetwork(gc, rows, cols, selectedStartNode, selectedEndNode);
+    }
+
+    /**
+     * Crta mrežu preko toplotne mape dostupnosti iz jednog grada.
+     * <p>
+     * Svaki piksel dobija boju na osnovu vrijednosti kriterijuma ({@link Isochrone#getCost(int)})
+     * u četiri najbliža grada, bilinearnom interpolacijom: zeleno su gradovi blizu polaznog,
+     * crveno oni na samoj granici, a oblasti iznad granice ostaju neobojene. Pikseli se upisuju
+     * red po red kroz {@link PixelWriter} Canvas-a, uz jedan bafer za cijeli red, pa se
+     * mapa crta bez poziva {@code fillRect} za svaki piksel.
+     * </p>
+     *
+     * @param rows              broj redova u mreži
+     * @param cols              broj kolona u mreži
+     * @param network           kompaktna mreža za koju je izračunata izohrona
+     * @param isochrone         rezultat pretrage iz polaznog grada
+     * @param limit             granica vrijednosti kriterijuma (minute, KM ili broj presjedanja)
+     * @param selectedStartNode početni grad
+     */
+    public void drawIsochrone(int rows, int cols, CompiledNetwork network, Isochrone isochrone, int limit, City selectedStartNode) {
+        if (canvas == null) return;
+
+        GraphicsContext gc = canvas.getGraphicsContext2D();
+        gc.clearRect(0, 0, canvas.getWidth(), canvas.getHeight());
+
+        int cellSize = 80;
+        int padding = 50;
+
+        // normalizovana vrijednost po gradu: 0 u polaznom gradu, 1 na granici, NaN iznad granice
+        double[][] level = new double[rows][cols];
+        for (int x = 0; x < rows; x++) {
+            for (int y = 0; y < cols; y++) {
+                int city = network.cityId("G_" + x + "_" + y);
+                int cost = city < 0 ? Integer.MAX_VALUE : isochrone.getCost(city);
+                level[x][y] = cost <= limit ? (limit == 0 ? 0 : (double) cost / limit) : Double.NaN;
+            }
+        }
+
+        int[] palette = new int[HEATMAP_COLORS];
+        for (int i = 0; i < HEATMAP_COLORS; i++) {
+            Color color = Color.hsb(120.0 * (1 - (double) i / (HEATMAP_COLORS - 1)), 0.45, 1.0);
+            palette[i] = 0xFF000000
+                    | (int) Math.round(color.getRed() * 255) << 16
+                    | (int) Math.round(color.getGreen() * 255) << 8
+                    | (int) Math.round(color.getBlue() * 255);
+        }
+
+        int width = (int) canvas.getWidth();
+        int height = (int) canvas.getHeight();
+        int[] line = new int[width];
+        PixelWriter writer = gc.getPixelWriter();
+        PixelFormat<IntBuffer> format = PixelFormat.getIntArgbInstance();
+
+        for (int py = 0; py < height; py++) {
+            double gx = Math.max(0, Math.min(rows - 1, (py - padding) / (double) cellSize));
+            int x0 = (int) gx;
+            int x1 = Math.min(x0 + 1, rows - 1);
+            double fx = gx - x0;
+
+            for (int px = 0; px < width; px++) {
+                double gy = Math.max(0, Math.min(cols - 1, (px - padding) / (double) cellSize));
+                int y0 = (int) gy;
+                int y1 = Math.min(y0 + 1, cols - 1);
+                double fy = gy - y0;
+
+                double value = interpolate(level[x0][y0], level[x0][y1], level[x1][y0], level[x1][y1], fx, fy);
+                line[px] = Double.isNaN(value) ? 0 : palette[(int) Math.round(value * (HEATMAP_COLORS - 1))];
+            }
+            writer.setPixels(0, py, width, 1, format, line, 0, width);
+        }
+
+        drawNetwork(gc, rows, cols, selectedStartNode, null);
+    }
+
+    /**
+     * Bilinearna interpolacija vrijednosti u četiri ugla ćelije. Uglovi bez vrijednosti se
+     * zanemaruju, a tačka u kojoj neki takav ugao nosi više od polovine težine ostaje bez
+     * vrijednosti, pa granica dostupnosti prolazi na pola puta između gradova. Poziva se
+     * za svaki piksel, pa se težine računaju u lokalnim promjenljivim, bez nizova.
+     */
+    private static double interpolate(double v00, double v01, double v10, double v11, double fx, double fy) {
+        double w00 = (1 - fx) * (1 - fy);
+        double w01 = (1 - fx) * fy;
+        double w10 = fx * (1 - fy);
+        double w11 = fx * fy;
+        double sum = 0;
+        double weight = 0;
+        double missing = 0;
+        if (Double.isNaN(v00)) {
+            missing = w00;
+        } else {
+            sum += v00 * w00;
+            weight += w00;
+        }
+        if (Double.isNaN(v01)) {
+            missing = Math.max(missing, w01);
+        } else {
+            sum += v01 * w01;
+            weight += w01;
+        }
+        if (Double.isNaN(v10)) {
+            missing = Math.max(missing, w10);
+        } else {
+            sum += v10 * w10;
+            weight += w10;
+        }
+        if (Double.isNaN(v11)) {
+            missing = Math.max(missing, w11);
+        } else {
+            sum += v11 * w11;
+            weight += w11;
+        }
+        if (weight == 0 || missing > 0.5) return Double.NaN;
+        return Math.min(1, sum / weight);
+    }
+
+    /**
+     * Crta gradove i veze između njih bez brisanja Canvas-a.
+     */
+    private void drawNetwork(GraphicsContext gc, int rows, int cols, City selectedStartNode, City selectedEndNode) {
         gc.setStroke(Color.GRAY);
         gc.setLineWidth(2);
         gc.setFill(Color.LIGHTBLUE);
@@ -176,8 +304,8 @@ public class TransportGraphPainter {
 
             for (int i = 0; i < route.size(); i++) {
                 Departure dep = route.get(i);
-                String fromCity = dep.from;
-                String toCity = dep.to;
+                String fromCity = dep.getFrom();
+                String toCity = dep.getTo();
 
                 double fromX = 0, fromY = 0, toX = 0, toY = 0;
                 boolean foundFrom = false, foundTo = false;
@@ -217,7 +345,7 @@ public class TransportGraphPainter {
 
             gc.setFill(Color.YELLOW);
             for (Departure dep : route) {
-                String cityName = dep.to;
+                String cityName = dep.getTo();
                 for (int x = 0; x < rows; x++) {
                     for (int y = 0; y < cols; y++) {
                         String gridCityName = "G_" + x + "_" + y;
@@ -1,6 +1,5 @@
 package org.unibl.etf.model;
 
-import java.time.LocalDateTime;
 import java.time.LocalTime;
 
 /**
@@ -11,44 +10,129 @@ import java.time.LocalTime;
  * polaznoj i odredišnoj stanici, vremenu polaska, trajanju putovanja,
  * ceni karte i minimalnom vremenu potrebnom za presedanje.
  *
+ * Polazak je pogled (<i>flyweight</i>) na jedan red tabele {@link DepartureTable}: čuva samo
+ * referencu na tabelu i broj reda, a svi atributi se čitaju iz kolona tabele. Objekti
+ * polazaka se zato prave tek kada su potrebni (npr. za prikaz rute) i ne zauzimaju memoriju
+ * dok se ne koriste. Dva pogleda na isti red su jednaka.
+ *
+ * Vrijeme polaska se čuva kao broj minuta od ponoći ({@link #getDepartureMinute()}), pa
+ * pretraga i prikaz ruta ne moraju da parsiraju vrijeme.
+ *
  * Ova klasa omogućava jednostavno modelovanje i praćenje svih
  * relevantnih podataka vezanih za jedno putovanje između dvije stanice.
  *
  * @author Saša Vujančević
  */
-public class Departure {
-    public String type;
-    public String from;
-    public String to;
-    public String departureTime;
-    public int duration;
-    public int price;
-    public int minTransferTime;
-
-    public Departure(String type, String from, String to, String departureTime,
-                     int duration, int price, int minTransferTime) {
-        this.type = type;
-        this.from = from;
-        this.to = to;
-        this.departureTime = departureTime;
-        this.duration = duration;
-        this.price = price;
-        this.minTransferTime = minTransferTime;
+public final class Departure {
+    public static final int MINUTES_PER_DAY = 24 * 60;
+
+    private final DepartureTable table;
+    private final int row;
+
+    /**
+     * @param table tabela polazaka
+     * @param row   red polaska u tabeli
+     */
+    public Departure(DepartureTable table, int row) {
+        this.table = table;
+        this.row = row;
+    }
+
+    public DepartureTable getTable() {
+        return table;
+    }
+
+    public int getRow() {
+        return row;
+    }
+
+    public TransportType getType() {
+        return table.type(row);
+    }
+
+    /**
+     * @return identifikator polazne stanice
+     */
+    public String getFrom() {
+        return table.from(row);
+    }
+
+    /**
+     * @return naziv odredišnog grada
+     */
+    public String getTo() {
+        return table.to(row);
+    }
+
+    /**
+     * @return minut polaska od ponoći
+     */
+    public int getDepartureMinute() {
+        return table.minute(row);
+    }
+
+    /**
+     * @return vrijeme polaska u formatu "HH:mm"
+     */
+    public String getDepartureTimeText() {
+        return formatMinute(getDepartureMinute());
+    }
+
+    public int getDuration() {
+        return table.duration(row);
+    }
+
+    public int getPrice() {
+        return table.price(row);
+    }
+
+    public int getMinTransferTime() {
+        return table.minTransfer(row);
     }
 
     public LocalTime getDepartureTime() {
-        return LocalTime.parse(departureTime);
+        int minute = getDepartureMinute();
+        return LocalTime.of(minute / 60, minute % 60);
     }
 
     public LocalTime getArrivalTime() {
-        return LocalTime.parse(departureTime).plusMinutes(duration);
+        int arrival = getArrivalMinute() % MINUTES_PER_DAY;
+        return LocalTime.of(arrival / 60, arrival % 60);
+    }
+
+    /**
+     * @return minut dolaska računat od ponoći dana polaska (može biti veći od 1440)
+     */
+    public int getArrivalMinute() {
+        return getDepartureMinute() + getDuration();
+    }
+
+    /**
+     * Formatira broj minuta kao vrijeme dana u formatu "HH:mm".
+     *
+     * @param minutes broj minuta od ponoći, vrijednosti preko jednog dana se svode na vrijeme dana
+     * @return vrijeme u formatu "HH:mm"
+     */
+    public static String formatMinute(int minutes) {
+        int minute = Math.floorMod(minutes, MINUTES_PER_DAY);
+        return String.format("%02d:%02d", minute / 60, minute % 60);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        return o instanceof Departure other && table == other.table && row == other.row;
+    }
+
+    @Override
+    public int hashCode() {
+        return 31 * System.identityHashCode(table) + row;
     }
 
     @Override
     public String toString() {
         return String.format(
                 "Tip: %s, Polazi sa: %s, Destinacija: %s, Vreme polaska: %s, Trajanje: %d min, Cena: %d, Min. vreme presedanja: %d min",
-                type, from, to, departureTime, duration, price, minTransferTime
+                getType(), getFrom(), getTo(), getDepartureTimeText(), getDuration(), getPrice(), getMinTransferTime()
         );
     }
 
@@ -0,0 +1,233 @@
+package org.unibl.etf.model;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Klasa {@code DepartureTable} čuva sve polaske jednog skupa podataka po kolonama.
+ * <p>
+ * Svaki atribut polaska je jedna kolona – niz primitivnog tipa u kojem polazak zauzima
+ * jedno mjesto (red). Vrsta prevoza je {@code byte}, minut polaska {@code short}, a
+ * polazna stanica i odredišni grad su indeksi u rječniku naziva, pa se svaki naziv čuva
+ * samo jednom, bez obzira na broj polazaka koji ga koriste. Jedan polazak tako zauzima
+ * 23 bajta u tabeli, bez zaglavlja objekta i bez {@code String} polja.
+ * </p>
+ * <p>
+ * {@link Departure} je samo pogled na jedan red tabele, a {@link Station} čuva redove
+ * svojih polazaka. Tabela se puni pri učitavanju podataka – red po red ili, iz binarnog
+ * reda vožnje, cijelim kolonama odjednom – i nakon toga se samo čita, pa je čitanje
+ * bezbjedno iz više niti.
+ * </p>
+ *
+ * @author Saša Vujančević
+ */
+public class DepartureTable {
+
+    private Map<String, Integer> nameIds;
+    private String[] names;
+    private int nameCount;
+
+    private byte[] type;
+    private int[] from;
+    private int[] to;
+    private short[] minute;
+    private int[] duration;
+    private int[] price;
+    private int[] minTransfer;
+    private int size;
+
+    /**
+     * Pravi praznu tabelu koja se puni pomoću {@link #add}.
+     */
+    public DepartureTable() {
+        nameIds = new HashMap<>();
+        names = new String[64];
+        type = new byte[64];
+        from = new int[64];
+        to = new int[64];
+        minute = new short[64];
+        duration = new int[64];
+        price = new int[64];
+        minTransfer = new int[64];
+    }
+
+    /**
+     * Pravi tabelu iz gotovih kolona, npr. pročitanih iz binarnog reda vožnje. Nizovi se
+     * ne kopiraju i tabela ih nakon toga posjeduje; polazna stanica i odredište su
+     * indeksi u nizu naziva, a vrsta prevoza je redni broj {@link TransportType}.
+     * Kolone se samo jednom provjeravaju, bez pravljenja objekata po polasku.
+     *
+     * @throws IllegalArgumentException ako kolone nisu iste dužine ili sadrže vrijednost van opsega
+     */
+    public DepartureTable(String[] names, byte[] type, int[] from, int[] to, short[] minute,
+                          int[] duration, int[] price, int[] minTransfer) {
+        int n = type.length;
+        if (from.length != n || to.length != n || minute.length != n || duration.length != n
+                || price.length != n || minTransfer.length != n) {
+            throw new IllegalArgumentException("Kolone tabele polazaka nisu iste dužine");
+        }
+        int typeCount = TransportType.values().length;
+        for (int row = 0; row < n; row++) {
+            if (type[row] < 0 || type[row] >= typeCount
+                    || from[row] < 0 || from[row] >= names.length
+                    || to[row] < 0 || to[row] >= names.length
+                    || minute[row] < 0 || minute[row] >= Departure.MINUTES_PER_DAY) {
+                throw new IllegalArgumentException("Neispravan polazak u redu " + row);
+            }
+        }
+        this.names = names;
+        this.nameCount = names.length;
+        this.type = type;
+        this.from = from;
+        this.to = to;
+        this.minute = minute;
+        this.duration = duration;
+        this.price = price;
+        this.minTransfer = minTransfer;
+        this.size = n;
+    }
+
+    /**
+     * Dodaje polazak u tabelu.
+     *
+     * @param type            vrsta prevoza
+     * @param from            identifikator polazne stanice
+     * @param to              naziv odredišnog grada
+     * @param departureMinute minut polaska od ponoći, {@code [0, 1440)}
+     * @param duration        trajanje u minutima
+     * @param price           cijena
+     * @param minTransferTime minimalno vrijeme presjedanja u minutima
+     * @return red dodatog polaska
+     */
+    public int add(TransportType type, String from, String to, int departureMinute,
+                   int duration, int price, int minTransferTime) {
+        if (departureMinute < 0 || departureMinute >= Departure.MINUTES_PER_DAY) {
+            throw new IllegalArgumentException("Minut polaska van dana: " + departureMinute);
+        }
+        if (size == this.type.length) {
+            int capacity = Math.max(64, size * 2);
+            this.type = Arrays.copyOf(this.type, capacity);
+            this.from = Arrays.copyOf(this.from, capacity);
+            this.to = Arrays.copyOf(this.to, capacity);
+            this.minute = Arrays.copyOf(this.minute, capacity);
+            this.duration = Arrays.copyOf(this.duration, capacity);
+            this.price = Arrays.copyOf(this.price, capacity);
+            this.minTransfer = Arrays.copyOf(this.minTransfer, capacity);
+        }
+        int row = size++;
+        this.type[row] = (byte) type.ordinal();
+        this.from[row] = nameId(from);
+        this.to[row] = nameId(to);
+        this.minute[row] = (short) departureMinute;
+        this.duration[row] = duration;
+        this.price[row] = price;
+        this.minTransfer[row] = minTransferTime;
+        return row;
+    }
+
+    /**
+     * Vraća identifikator naziva u rječniku tabele, dodajući naziv ako ga još nema.
+     * Isti naziv uvijek dobija isti identifikator i isti {@code String} primjerak.
+     *
+     * @param name naziv stanice ili grada
+     * @return identifikator naziva
+     */
+    public int nameId(String name) {
+        if (nameIds == null) {
+            nameIds = new HashMap<>(nameCount * 2);
+            for (int i = 0; i < nameCount; i++) nameIds.put(names[i], i);
+        }
+        Integer id = nameIds.get(name);
+        if (id == null) {
+            if (nameCount == names.length) {
+                names = Arrays.copyOf(names, Math.max(64, nameCount * 2));
+            }
+            id = nameCount;
+            names[nameCount++] = name;
+            nameIds.put(name, id);
+        }
+        return id;
+    }
+
+    /**
+     * @return naziv sa zadatim identifikatorom iz rječnika tabele
+     */
+    public String name(int nameId) {
+        return names[nameId];
+    }
+
+    /**
+     * Skraćuje kolone na stvarni broj polazaka i oslobađa mapu za pretragu rječnika;
+     * poziva se nakon učitavanja. Mapa se ponovo gradi ako se tabela kasnije dopunjava.
+     */
+    public void trimToSize() {
+        if (size == type.length && nameCount == names.length) {
+            nameIds = null;
+            return;
+        }
+        type = Arrays.copyOf(type, size);
+        from = Arrays.copyOf(from, size);
+        to = Arrays.copyOf(to, size);
+        minute = Arrays.copyOf(minute, size);
+        duration = Arrays.copyOf(duration, size);
+        price = Arrays.copyOf(price, size);
+        minTransfer = Arrays.copyOf(minTransfer, size);
+        names = Arrays.copyOf(names, nameCount);
+        nameIds = null;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    /**
+     * @return broj naziva u rječniku tabele
+     */
+    public int nameCount() {
+        return nameCount;
+    }
+
+    /**
+     * @return pogled na polazak u zadatom redu
+     */
+    public Departure get(int row) {
+        return new Departure(this, row);
+    }
+
+    public TransportType type(int row) {
+        return TransportType.ofOrdinal(type[row]);
+    }
+
+    public int fromId(int row) {
+        return from[row];
+    }
+
+    public int toId(int row) {
+        return to[row];
+    }
+
+    public String from(int row) {
+        return names[from[row]];
+    }
+
+    public String to(int row) {
+        return names[to[row]];
+    }
+
+    public int minute(int row) {
+        return minute[row];
+    }
+
+    public int duration(int row) {
+        return duration[row];
+    }
+
+    public int price(int row) {
+        return price[row];
+    }
+
+    public int minTransfer(int row) {
+        return minTransfer[row];
+    }
+}
@@ -1,7 +1,9 @@
 package org.unibl.etf.model;
 
-import java.util.ArrayList;
+import java.util.AbstractList;
+import java.util.Arrays;
 import java.util.List;
+import java.util.RandomAccess;
 
 /**
  * Klasa {@code Station} predstavlja stanicu u sistemu modelovanja mreže gradova.
@@ -11,25 +13,212 @@ import java.util.List;
  * u grafu transportne mreže i omogućava dodavanje, čuvanje i pristup svim polascima
  * koji su povezani sa njom.
  *
+ * Sami polasci se čuvaju u zajedničkoj tabeli ({@link DepartureTable}), a stanica pamti
+ * samo redove svojih polazaka u nizu cijelih brojeva. {@link #getDepartures()} vraća
+ * pogled na te redove, pa objekti polazaka nastaju tek pri čitanju.
+ *
+ * Polasci se čuvaju poređani po minutu polaska ({@link Departure#getDepartureMinute()}), pa se
+ * naredni polazak od zadatog vremena pronalazi binarnom pretragom. Red vožnje se ponavlja
+ * svakog dana, pa iza posljednjeg polaska dana slijedi prvi polazak narednog dana.
+ * Učitavanje podataka nakon dodavanja polazaka poziva {@link #trimToSize()}, koji ih
+ * jednom sortira, pa je stanica nakon toga samo za čitanje. Ako se polasci dodaju i
+ * kasnije, lista se sortira pri narednom čitanju, pod zaključavanjem stanice, a sortirani
+ * niz se objavljuje kroz {@code volatile} oznaku, pa je čitanje i tada bezbjedno iz više
+ * niti. Samo dodavanje polazaka nije predviđeno za istovremeno čitanje.
+ *
+ * Stanica iz binarnog reda vožnje ne pravi niz redova: njeni polasci su uzastopni redovi
+ * tabele, pa se pamte samo prvi red i broj polazaka.
+ *
  */
 public class Station {
     private final String id;
-    private final List<Departure> departures = new ArrayList<>();
+    private final DepartureTable table;
+    /** Redovi polazaka ili {@code null} ako su polasci redovi {@code [firstRow, firstRow + size)}. */
+    private int[] rows;
+    private int firstRow;
+    private int size;
+    private volatile boolean sorted = true;
+
+    /**
+     * @param id    identifikator stanice
+     * @param table tabela u kojoj se čuvaju polasci sa stanice
+     */
+    public Station(String id, DepartureTable table) {
+        this.id = id;
+        this.table = table;
+        this.rows = new int[4];
+    }
 
-    public Station(String id) {
+    /**
+     * Pravi stanicu čiji su polasci uzastopni redovi tabele, već poređani po minutu
+     * polaska; redovi se ne kopiraju.
+     *
+     * @param id       identifikator stanice
+     * @param table    tabela u kojoj se čuvaju polasci sa stanice
+     * @param firstRow prvi red polazaka stanice
+     * @param count    broj polazaka stanice
+     * @throws IllegalArgumentException ako redovi nisu u tabeli ili nisu poređani po minutu polaska
+     */
+    public Station(String id, DepartureTable table, int firstRow, int count) {
+        if (firstRow < 0 || count < 0 || firstRow > table.size() - count) {
+            throw new IllegalArgumentException("Polasci stanice " + id + " su van tabele polazaka");
+        }
+        for (int row = firstRow + 1; row < firstRow + count; row++) {
+            if (table.minute(row - 1) > table.minute(row)) {
+                throw new IllegalArgumentException("Polasci stanice " + id + " nisu poređani po minutu polaska");
+            }
+        }
         this.id = id;
+        this.table = table;
+        this.firstRow = firstRow;
+        this.size = count;
     }
 
     public String getId() {
         return id;
     }
 
+    public DepartureTable getDepartureTable() {
+        return table;
+    }
+
+    /**
+     * @return nepromjenljiv pogled na polaske, poređane po minutu polaska
+     */
     public List<Departure> getDepartures() {
-        return departures;
+        ensureSorted();
+        return new Departures();
+    }
+
+    /**
+     * @return broj polazaka sa stanice
+     */
+    public int getDepartureCount() {
+        return size;
+    }
+
+    /**
+     * Vraća red u tabeli polazaka za polazak sa zadatim indeksom u {@link #getDepartures()}.
+     */
+    public int getDepartureRow(int index) {
+        ensureSorted();
+        if (index < 0 || index >= size) throw new IndexOutOfBoundsException(index);
+        return row(index);
     }
 
     public void addDeparture(Departure departure) {
-        departures.add(departure);
+        if (departure.getTable() != table) {
+            throw new IllegalArgumentException("Polazak pripada drugoj tabeli polazaka");
+        }
+        addDeparture(departure.getRow());
     }
 
+    /**
+     * Dodaje polazak iz zadatog reda tabele polazaka stanice.
+     *
+     * @param row red polaska u {@link #getDepartureTable()}
+     */
+    public synchronized void addDeparture(int row) {
+        if (rows == null) {
+            rows = new int[Math.max(4, size * 2)];
+            for (int i = 0; i < size; i++) rows[i] = firstRow + i;
+        }
+        if (size > 0 && table.minute(rows[size - 1]) > table.minute(row)) {
+            sorted = false;
+        }
+        if (size == rows.length) {
+            rows = Arrays.copyOf(rows, Math.max(4, size * 2));
+        }
+        rows[size++] = row;
+    }
+
+    /**
+     * Vraća indeks prvog polaska u minutu {@code minute} ili kasnije istog dana. Ako takvog
+     * polaska nema, naredni polazak je prvi polazak narednog dana, pa se vraća {@code 0}.
+     *
+     * @param minute vrijeme u minutima od ponoći; vrijednosti preko jednog dana se svode na vrijeme dana
+     * @return indeks u {@link #getDepartures()} ili {@code -1} ako stanica nema polazaka
+     */
+    public int nextDepartureIndex(int minute) {
+        ensureSorted();
+        if (size == 0) return -1;
+        int time = Math.floorMod(minute, Departure.MINUTES_PER_DAY);
+        int lo = 0;
+        int hi = size;
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (table.minute(row(mid)) < time) lo = mid + 1;
+            else hi = mid;
+        }
+        return lo == size ? 0 : lo;
+    }
+
+    /**
+     * Vraća prvi polazak koji se može uhvatiti u minutu {@code minute} ili kasnije,
+     * uključujući prelazak na naredni dan.
+     *
+     * @param minute vrijeme u minutima od ponoći
+     * @return naredni polazak ili {@code null} ako stanica nema polazaka
+     */
+    public Departure nextDeparture(int minute) {
+        int index = nextDepartureIndex(minute);
+        return index < 0 ? null : table.get(row(index));
+    }
+
+    private int row(int index) {
+        return rows != null ? rows[index] : firstRow + index;
+    }
+
+    private void ensureSorted() {
+        if (!sorted) sort();
+    }
+
+    /**
+     * Sortira polaske i skraćuje niz redova na njihov broj; poziva se jednom, nakon što su
+     * polasci stanice učitani.
+     */
+    public synchronized void trimToSize() {
+        sort();
+        if (rows != null && rows.length != size) {
+            rows = Arrays.copyOf(rows, size);
+        }
+    }
+
+    /**
+     * Sortira redove po minutu polaska, zadržavajući redoslijed dodavanja za isti minut.
+     */
+    private synchronized void sort() {
+        if (sorted) return;
+        long[] keys = new long[size];
+        for (int i = 0; i < size; i++) {
+            keys[i] = ((long) table.minute(rows[i]) << 32) | i;
+        }
+        Arrays.sort(keys);
+        int[] sortedRows = new int[rows.length];
+        for (int i = 0; i < size; i++) {
+            sortedRows[i] = rows[(int) keys[i]];
+        }
+        rows = sortedRows;
+        sorted = true;
+    }
+
+    /**
+     * Pogled na polaske stanice; svaki pristup pravi {@link Departure} za traženi red.
+     */
+    private class Departures extends AbstractList<Departure> implements RandomAccess {
+        private final int[] snapshot = rows;
+        private final int first = firstRow;
+        private final int count = size;
+
+        @Override
+        public Departure get(int index) {
+            if (index < 0 || index >= count) throw new IndexOutOfBoundsException(index);
+            return table.get(snapshot != null ? snapshot[index] : first + index);
+        }
+
+        @Override
+        public int size() {
+            return count;
+        }
+    }
 }
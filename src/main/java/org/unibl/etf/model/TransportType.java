@@ -0,0 +1,49 @@
+package org.unibl.etf.model;
+
+/**
+ * Vrsta prevoza kojom se obavlja polazak.
+ *
+ * @author Saša Vujančević
+ */
+public enum TransportType {
+    BUS("bus"),
+    TRAIN("train");
+
+    private static final TransportType[] VALUES = values();
+
+    private final String code;
+
+    TransportType(String code) {
+        this.code = code;
+    }
+
+    /**
+     * @return oznaka vrste prevoza kakva se koristi u ulaznim fajlovima ("bus", "train")
+     */
+    public String getCode() {
+        return code;
+    }
+
+    /**
+     * Vraća vrstu prevoza sa zadatom oznakom.
+     *
+     * @param code oznaka iz ulaznog fajla
+     * @return vrsta prevoza
+     * @throws IllegalArgumentException ako oznaka nije poznata
+     */
+    public static TransportType fromCode(String code) {
+        for (TransportType type : VALUES) {
+            if (type.code.equals(code)) return type;
+        }
+        throw new IllegalArgumentException("Nepoznata vrsta prevoza: " + code);
+    }
+
+    static TransportType ofOrdinal(int ordinal) {
+        return VALUES[ordinal];
+    }
+
+    @Override
+    public String toString() {
+        return code;
+    }
+}
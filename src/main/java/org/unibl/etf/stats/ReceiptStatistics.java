@@ -7,6 +7,7 @@ import java.nio.file.Paths;
 import java.util.List;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
+import java.util.stream.Stream;
 
 /**
  * Klasa za prikupljanje i izračunavanje statistike prodaje karata iz računa.
@@ -18,12 +19,16 @@ import java.util.regex.Pattern;
  * </ul>
  *
  * <p>Računi se očekuju u direktorijumu {@code racuni} i moraju biti tekstualni fajlovi.</p>
+ *
+ * <p>{@link #calculateStatistics()} čita sve račune, pa traje srazmjerno broju prodatih
+ * karata. Aplikacija ukupne vrijednosti čita iz knjige prodaje ({@link SalesLedger}), a
+ * ova klasa se koristi za njeno početno popunjavanje iz postojećih računa.</p>
  * @author Saša Vujančević
  */
 public class ReceiptStatistics {
     
     private static final Pattern PRICE_PATTERN = Pattern.compile("Ukupna cijena: (\\d+) KM");
-    private static final String RECEIPTS_DIR = "racuni";
+    static final String RECEIPTS_DIR = "racuni";
     
     public static StatisticsData calculateStatistics() {
         StatisticsData stats = new StatisticsData();
@@ -34,23 +39,13 @@ public class ReceiptStatistics {
                 return stats;
             }
 
-            List<Path> receiptFiles = Files.walk(receiptsPath)
-                    .filter(path -> path.toString().endsWith(".txt"))
-                    .toList();
+            List<Path> receiptFiles = listReceipts(receiptsPath);
             
             stats.setTotalTickets(receiptFiles.size());
 
             int totalMoney = 0;
             for (Path receiptFile : receiptFiles) {
-                try {
-                    String content = Files.readString(receiptFile);
-                    Matcher matcher = PRICE_PATTERN.matcher(content);
-                    if (matcher.find()) {
-                        totalMoney += Integer.parseInt(matcher.group(1));
-                    }
-                } catch (IOException e) {
-                    System.err.println("Greška pri čitanju fajla: " + receiptFile);
-                }
+                totalMoney += readPrice(receiptFile);
             }
             
             stats.setTotalMoneyEarned(totalMoney);
@@ -61,6 +56,33 @@ public class ReceiptStatistics {
         
         return stats;
     }
+
+    /**
+     * @return svi fajlovi računa ({@code .txt}) u direktorijumu, poređani po putanji
+     */
+    static List<Path> listReceipts(Path receiptsPath) throws IOException {
+        try (Stream<Path> paths = Files.walk(receiptsPath)) {
+            return paths.filter(path -> path.toString().endsWith(".txt"))
+                    .sorted()
+                    .toList();
+        }
+    }
+
+    /**
+     * @return ukupna cijena sa računa ili {@code 0} ako je račun nečitljiv ili je nema
+     */
+    static int readPrice(Path receiptFile) {
+        try {
+            String content = Files.readString(receiptFile);
+            Matcher matcher = PRICE_PATTERN.matcher(content);
+            if (matcher.find()) {
+                return Integer.parseInt(matcher.group(1));
+            }
+        } catch (IOException e) {
+            System.err.println("Greška pri čitanju fajla: " + receiptFile);
+        }
+        return 0;
+    }
     
     public static class StatisticsData {
         private int totalTickets;
@@ -70,6 +92,11 @@ public class ReceiptStatistics {
             this.totalTickets = 0;
             this.totalMoneyEarned = 0;
         }
+
+        public StatisticsData(int totalTickets, int totalMoneyEarned) {
+            this.totalTickets = totalTickets;
+            this.totalMoneyEarned = totalMoneyEarned;
+        }
         
         public int getTotalTickets() {
             return totalTickets;
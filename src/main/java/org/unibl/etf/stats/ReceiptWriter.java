@@ -0,0 +1,264 @@
+package org.unibl.etf.stats;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Upisuje račune u pozadinskoj niti, grupišući više računa u jedan upis.
+ * <p>
+ * {@link #submit} samo stavlja račun u ograničen red i odmah vraća
+ * {@link CompletableFuture}, pa nit korisničkog interfejsa ne čeka na disk. Nit za upis
+ * preuzima iz reda sve račune koji su se u međuvremenu nakupili (najviše
+ * {@link #MAX_BATCH}) i za cijelu grupu:
+ * <ol>
+ *     <li>najavljuje upis knjizi prodaje ({@link SalesLedger}), koja trajno upisuje
+ *     oznaku nedovršene prodaje,</li>
+ *     <li>upisuje fajlove računa, a zatim ih sinhronizuje na disk,</li>
+ *     <li>jednom sinhronizuje direktorijum računa, da bi novi fajlovi preživjeli pad,</li>
+ *     <li>dodaje sve prodaje u knjigu prodaje jednim upisom i jednom sinhronizacijom, a
+ *     zatim uklanja oznaku.</li>
+ * </ol>
+ * Budućnost računa se završava tek nakon toga, pa njen završetak znači da je račun
+ * trajno sačuvan i uračunat u statistiku. Pri naletu kupovina se sinhronizacija
+ * direktorijuma i knjige dijeli na sve račune grupe. Neuspjeh upisa jednog računa ne
+ * utiče na ostale račune iz grupe.
+ * </p>
+ * <p>
+ * Postojeći račun se nikada ne prepisuje: ako fajl sa traženim nazivom već postoji (npr.
+ * dvije kupovine iste rute u istoj sekundi), nazivu se dodaje redni broj. Ako upis u
+ * knjigu prodaje ne uspije, upisani računi grupe se brišu, pa neuspješna kupovina ne
+ * ostavlja račun koji nije uračunat. Nakon pada aplikacije između upisa računa i upisa u
+ * knjigu oznaka ostaje, pa se knjiga pri narednom otvaranju ponovo gradi iz računa.
+ * </p>
+ * <p>
+ * Nit za upis se pokreće sa prvim računom i završava kada red ostane prazan
+ * {@link #IDLE_TIMEOUT_MS} milisekundi. Nije pozadinska (daemon), pa zatvaranje
+ * aplikacije sačeka upis računa koji su već u redu.
+ * </p>
+ *
+ * @author Saša Vujančević
+ */
+public class ReceiptWriter {
+
+    /** Najveći broj računa koji čekaju na upis. */
+    public static final int QUEUE_CAPACITY = 256;
+    /** Najveći broj računa koji se upisuju zajedno. */
+    public static final int MAX_BATCH = 64;
+    /** Najveći redni broj koji se dodaje nazivu računa kada fajl već postoji. */
+    static final int MAX_NAME_SUFFIX = 1000;
+    static final long IDLE_TIMEOUT_MS = 1000;
+
+    private static ReceiptWriter defaultWriter;
+
+    private final Path receiptsDir;
+    private final SalesLedger ledger;
+    private final BlockingQueue<Receipt> queue = new ArrayBlockingQueue<>(QUEUE_CAPACITY);
+    private Thread worker;
+
+    /**
+     * @param receiptsDir direktorijum u koji se upisuju računi
+     * @param ledger      knjiga prodaje u koju se upisuju prodaje
+     */
+    public ReceiptWriter(Path receiptsDir, SalesLedger ledger) {
+        this.receiptsDir = receiptsDir;
+        this.ledger = ledger;
+    }
+
+    /**
+     * @return pisač računa za direktorijum {@code racuni} i podrazumijevanu knjigu prodaje
+     */
+    public static synchronized ReceiptWriter getDefault() {
+        if (defaultWriter == null) {
+            defaultWriter = new ReceiptWriter(Paths.get(ReceiptStatistics.RECEIPTS_DIR), SalesLedger.getDefault());
+        }
+        return defaultWriter;
+    }
+
+    /**
+     * Stavlja račun u red za upis.
+     *
+     * @param fileName naziv fajla računa u direktorijumu računa; ako fajl već postoji,
+     *                 nazivu se dodaje redni broj
+     * @param content  tekst računa
+     * @param price    ukupna cijena karte, za knjigu prodaje
+     * @return budućnost koja se završava stvarnom putanjom računa kada je račun trajno upisan i
+     * uračunat u knjigu prodaje, ili izuzetkom ako upis nije uspio; ako je red pun,
+     * budućnost je odmah završena sa {@link RejectedExecutionException}
+     */
+    public CompletableFuture<Path> submit(String fileName, String content, int price) {
+        Receipt receipt = new Receipt(receiptsDir.resolve(fileName), content, price);
+        if (!queue.offer(receipt)) {
+            return CompletableFuture.failedFuture(new RejectedExecutionException("Red računa za upis je pun"));
+        }
+        ensureWorker();
+        return receipt.done;
+    }
+
+    private synchronized void ensureWorker() {
+        if (worker == null) {
+            worker = new Thread(this::run, "receipt-writer");
+            worker.start();
+        }
+    }
+
+    private void run() {
+        List<Receipt> batch = new ArrayList<>(MAX_BATCH);
+        while (true) {
+            Receipt first;
+            try {
+                first = queue.poll(IDLE_TIMEOUT_MS, TimeUnit.MILLISECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                first = null;
+            }
+            if (first == null) {
+                synchronized (this) {
+                    // račun dodat nakon isteka čekanja preuzima ova ista nit
+                    if (queue.isEmpty() || Thread.currentThread().isInterrupted()) {
+                        worker = null;
+                        return;
+                    }
+                }
+                continue;
+            }
+            batch.add(first);
+            queue.drainTo(batch, MAX_BATCH - 1);
+            try {
+                writeBatch(batch);
+            } catch (RuntimeException e) {
+                for (Receipt receipt : batch) receipt.done.completeExceptionally(e);
+            }
+            batch.clear();
+        }
+    }
+
+    private void writeBatch(List<Receipt> batch) {
+        try {
+            Files.createDirectories(receiptsDir);
+            ledger.beginSales();
+        } catch (IOException e) {
+            for (Receipt receipt : batch) receipt.done.completeExceptionally(e);
+            return;
+        }
+        // oznaka nedovršene prodaje se uklanja samo ako nije ostao neuračunat račun
+        List<Receipt> recorded = null;
+        try {
+            recorded = writeAndRecord(batch);
+        } finally {
+            if (recorded != null) ledger.endSales();
+        }
+        if (recorded == null) return;
+        // budućnosti se završavaju tek nakon uklanjanja oznake
+        for (Receipt receipt : recorded) {
+            receipt.done.complete(receipt.path);
+        }
+    }
+
+    /**
+     * @return računi uračunati u knjigu, ili {@code null} ako je na disku ostao račun koji
+     * nije uračunat
+     */
+    private List<Receipt> writeAndRecord(List<Receipt> batch) {
+        List<Receipt> written = new ArrayList<>(batch.size());
+        for (Receipt receipt : batch) {
+            try {
+                write(receipt);
+                written.add(receipt);
+            } catch (IOException e) {
+                receipt.done.completeExceptionally(e);
+            }
+        }
+        if (written.isEmpty()) return written;
+
+        SalesLedger.syncDirectory(receiptsDir);
+
+        String[] names = new String[written.size()];
+        int[] prices = new int[written.size()];
+        for (int i = 0; i < written.size(); i++) {
+            names[i] = written.get(i).path.getFileName().toString();
+            prices[i] = written.get(i).price;
+        }
+        try {
+            ledger.recordSales(names, prices, written.size());
+        } catch (IOException e) {
+            // prodaja nije uračunata, pa ni račun ne smije ostati
+            boolean deleted = true;
+            for (Receipt receipt : written) {
+                try {
+                    Files.deleteIfExists(receipt.path);
+                } catch (IOException ignored) {
+                    // ostaje neuračunat račun; otkriva se oznakom pri narednom otvaranju knjige
+                    deleted = false;
+                }
+                receipt.done.completeExceptionally(e);
+            }
+            SalesLedger.syncDirectory(receiptsDir);
+            return deleted ? Collections.emptyList() : null;
+        }
+        return written;
+    }
+
+    /**
+     * Upisuje račun u novi fajl i sinhronizuje ga na disk. Ako fajl sa traženim nazivom
+     * već postoji, pokušava se sa nazivom uz redni broj ({@code naziv_2.txt}, ...).
+     * Djelimično upisan fajl se briše.
+     */
+    private void write(Receipt receipt) throws IOException {
+        String fileName = receipt.path.getFileName().toString();
+        int dot = fileName.lastIndexOf('.');
+        String base = dot > 0 ? fileName.substring(0, dot) : fileName;
+        String extension = dot > 0 ? fileName.substring(dot) : "";
+
+        for (int suffix = 1; ; suffix++) {
+            Path path = suffix == 1 ? receipt.path : receiptsDir.resolve(base + "_" + suffix + extension);
+            FileChannel channel;
+            try {
+                channel = FileChannel.open(path, StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE);
+            } catch (FileAlreadyExistsException e) {
+                if (suffix == MAX_NAME_SUFFIX) throw e;
+                continue;
+            }
+            try (channel) {
+                ByteBuffer buffer = ByteBuffer.wrap(receipt.content.getBytes(StandardCharsets.UTF_8));
+                while (buffer.hasRemaining()) {
+                    channel.write(buffer);
+                }
+                channel.force(false);
+            } catch (IOException e) {
+                Files.deleteIfExists(path);
+                throw e;
+            }
+            receipt.path = path;
+            return;
+        }
+    }
+
+    private static class Receipt {
+        /** Traženi, a nakon upisa stvarni naziv fajla računa. */
+        Path path;
+        final String content;
+        final int price;
+        final CompletableFuture<Path> done = new CompletableFuture<>();
+
+        Receipt(Path path, String content, int price) {
+            this.path = path;
+            this.content = content;
+            this.price = price;
+        }
+    }
+}
@@ -0,0 +1,334 @@
+package org.unibl.etf.stats;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Knjiga prodaje – fajl u koji se za svaku prodatu kartu dodaje jedan red, bez izmjene
+ * postojećih redova.
+ * <p>
+ * Red ima oblik {@code račun;cijena;ukupnoKarata;ukupnoKM}: pored same prodaje, svaki
+ * red nosi i zbirne vrijednosti nakon nje. Zato je za statistiku dovoljno pročitati
+ * posljednji red fajla, bez obzira na broj prodaja. Red se upisuje i sinhronizuje na disk
+ * ({@link FileChannel#force(boolean)}) u okviru same kupovine.
+ * </p>
+ * <p>
+ * Nakon otvaranja se zbirovi drže u memoriji kao nepromjenljiv snimak koji se objavljuje
+ * tek kada je upis sinhronizovan. {@link #getStatistics()} čita taj snimak bez
+ * zaključavanja, pa nit korisničkog interfejsa ne čeka na upis i sinhronizaciju koje
+ * upravo izvodi {@link ReceiptWriter}. Aplikacija knjigu otvara pri pokretanju
+ * ({@link #open()}) van niti korisničkog interfejsa.
+ * </p>
+ * <p>
+ * Ako knjiga još ne postoji, pri prvom otvaranju se jednom popunjava iz postojećih
+ * računa ({@link ReceiptStatistics}). Red koji je ostao nedovršen zbog prekida upisa se
+ * odbacuje, a oštećena knjiga se ponovo gradi iz računa ({@link #rebuild()}). Inače se pri
+ * otvaranju računi ne čitaju.
+ * </p>
+ * <p>
+ * Pad aplikacije između upisa računa i upisa u knjigu se otkriva oznakom nedovršene
+ * prodaje ({@value #PENDING_FILE}): {@link ReceiptWriter} je trajno upisuje prije fajlova
+ * računa ({@link #beginSales()}), a uklanja se tek kada su prodaje upisane u knjigu
+ * ({@link #endSales()}). Knjiga se pri otvaranju ponovo gradi iz računa samo ako oznaka
+ * postoji. Ručno dodati ili obrisani računi se ne otkrivaju sami; nakon njih se poziva
+ * {@link #rebuild()}.
+ * </p>
+ *
+ * @author Saša Vujančević
+ */
+public class SalesLedger {
+
+    static final String LEDGER_FILE = "prodaja.log";
+    static final String PENDING_FILE = "prodaja.pending";
+
+    private static SalesLedger defaultLedger;
+
+    private final Path receiptsDir;
+    private final Path file;
+    private final Path pendingFile;
+    private FileChannel channel;
+    private int pendingBatches;
+    /** Zbirovi nakon posljednjeg sinhronizovanog upisa; {@code null} dok knjiga nije otvorena. */
+    private volatile Totals totals;
+
+    /**
+     * @param receiptsDir direktorijum računa; knjiga se čuva u njemu
+     */
+    public SalesLedger(Path receiptsDir) {
+        this.receiptsDir = receiptsDir;
+        this.file = receiptsDir.resolve(LEDGER_FILE);
+        this.pendingFile = receiptsDir.resolve(PENDING_FILE);
+    }
+
+    /**
+     * @return knjiga prodaje u direktorijumu {@code racuni}
+     */
+    public static synchronized SalesLedger getDefault() {
+        if (defaultLedger == null) {
+            defaultLedger = new SalesLedger(Paths.get(ReceiptStatistics.RECEIPTS_DIR));
+        }
+        return defaultLedger;
+    }
+
+    /**
+     * Otvara knjigu i čita zbirove, ako to već nije urađeno. Može potrajati (npr. prvo
+     * popunjavanje iz računa), pa se poziva van niti korisničkog interfejsa.
+     *
+     * @throws IOException ako knjigu nije moguće otvoriti
+     */
+    public synchronized void open() throws IOException {
+        openChannel();
+    }
+
+    /**
+     * Vraća ukupan broj prodatih karata i ukupan prihod. Kada je knjiga otvorena,
+     * vrijednosti se čitaju iz snimka u memoriji bez zaključavanja i bez čekanja na upis
+     * koji je u toku; u suprotnom se knjiga prvo otvara.
+     *
+     * @return zbirna statistika prodaje
+     * @throws IOException ako knjigu nije moguće otvoriti
+     */
+    public ReceiptStatistics.StatisticsData getStatistics() throws IOException {
+        Totals current = totals;
+        if (current == null) {
+            synchronized (this) {
+                openChannel();
+                current = totals;
+            }
+        }
+        return new ReceiptStatistics.StatisticsData(current.tickets, current.money);
+    }
+
+    /**
+     * Dodaje jednu prodaju u knjigu; isto kao {@link #recordSales} sa jednim računom.
+     * Prodaje se upisuju samo preko {@link ReceiptWriter}, između {@link #beginSales()}
+     * i {@link #endSales()}.
+     *
+     * @param receiptName naziv fajla računa
+     * @param price       ukupna cijena karte
+     * @throws IOException ako upis nije uspio; zbirovi tada ostaju nepromijenjeni
+     */
+    void recordSale(String receiptName, int price) throws IOException {
+        recordSales(new String[]{receiptName}, new int[]{price}, 1);
+    }
+
+    /**
+     * Dodaje više prodaja jednim upisom i jednom sinhronizacijom na disk; koristi ga
+     * {@link ReceiptWriter} za grupu računa upisanih zajedno.
+     *
+     * @param receiptNames nazivi fajlova računa
+     * @param prices       ukupne cijene karata
+     * @param count        broj prodaja
+     * @throws IOException ako upis nije uspio; zbirovi tada ostaju nepromijenjeni
+     */
+    synchronized void recordSales(String[] receiptNames, int[] prices, int count) throws IOException {
+        openChannel();
+        int tickets = totals.tickets;
+        int money = totals.money;
+        StringBuilder lines = new StringBuilder();
+        for (int i = 0; i < count; i++) {
+            tickets++;
+            money += prices[i];
+            lines.append(line(receiptNames[i], prices[i], tickets, money));
+        }
+        ByteBuffer buffer = ByteBuffer.wrap(lines.toString().getBytes(StandardCharsets.UTF_8));
+        long end = channel.position();
+        try {
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+            channel.force(false);
+        } catch (IOException e) {
+            // djelimično upisani redovi se uklanjaju, da naredni upis ne bi nastavio na njih
+            channel.truncate(end);
+            channel.position(end);
+            throw e;
+        }
+        totals = new Totals(tickets, money);
+    }
+
+    /**
+     * Najavljuje upis računa čije prodaje tek treba dodati u knjigu: otvara knjigu (da je
+     * prvo popunjavanje iz računa ne bi uračunalo) i trajno upisuje oznaku nedovršene
+     * prodaje, prije nego što se upiše ijedan fajl računa.
+     *
+     * @throws IOException ako knjigu ili oznaku nije moguće upisati
+     */
+    synchronized void beginSales() throws IOException {
+        openChannel();
+        if (pendingBatches == 0) {
+            try (FileChannel marker = FileChannel.open(pendingFile, StandardOpenOption.CREATE,
+                    StandardOpenOption.WRITE)) {
+                marker.force(true);
+            }
+            syncDirectory(receiptsDir);
+        }
+        pendingBatches++;
+    }
+
+    /**
+     * Završava upis najavljen sa {@link #beginSales()}, nakon što su prodaje upisane u
+     * knjigu ili su upisani računi uklonjeni. Oznaka se briše kada nema drugih najavljenih
+     * upisa; ako brisanje ne uspije, knjiga se pri narednom otvaranju samo ponovo gradi.
+     */
+    synchronized void endSales() {
+        if (pendingBatches > 0 && --pendingBatches == 0) {
+            try {
+                Files.deleteIfExists(pendingFile);
+            } catch (IOException e) {
+                System.err.println("Oznaka nedovršene prodaje nije obrisana: " + e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Ponovo gradi knjigu iz fajlova računa, npr. nakon ručnog dodavanja ili brisanja
+     * računa. Nova knjiga se piše u privremeni fajl koji zamjenjuje postojeći. Ne smije se
+     * pozivati dok {@link ReceiptWriter} upisuje račune, jer bi njihovi upisani, a još
+     * neuračunati računi bili uračunati dvaput.
+     *
+     * @throws IOException ako upis nije uspio
+     */
+    public synchronized void rebuild() throws IOException {
+        close();
+        writeFromReceipts();
+        openChannel();
+    }
+
+    /**
+     * Zatvara fajl knjige; naredni poziv ga ponovo otvara.
+     */
+    public synchronized void close() throws IOException {
+        if (channel != null) {
+            channel.close();
+            channel = null;
+        }
+        totals = null;
+    }
+
+    private void openChannel() throws IOException {
+        if (channel != null) return;
+        boolean fresh = !Files.exists(file);
+        if (fresh) {
+            writeFromReceipts();
+        }
+        channel = FileChannel.open(file, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        Totals read;
+        try {
+            read = readTotals();
+            if (!fresh && pendingBatches == 0 && Files.exists(pendingFile)) {
+                System.err.println("Prodaja nije dovršena prije zatvaranja aplikacije; knjiga se gradi ponovo iz računa.");
+                read = reopenFromReceipts();
+            }
+        } catch (IOException | RuntimeException e) {
+            System.err.println("Knjiga prodaje je oštećena, gradi se ponovo iz računa: " + e.getMessage());
+            read = reopenFromReceipts();
+        }
+        if (pendingBatches == 0) {
+            Files.deleteIfExists(pendingFile);
+        }
+        channel.position(channel.size());
+        totals = read;
+    }
+
+    private Totals reopenFromReceipts() throws IOException {
+        channel.close();
+        channel = null;
+        writeFromReceipts();
+        channel = FileChannel.open(file, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        return readTotals();
+    }
+
+    /**
+     * Čita zbirove iz posljednjeg potpunog reda. Nedovršen red na kraju fajla se odsijeca.
+     */
+    private Totals readTotals() throws IOException {
+        long size = channel.size();
+        if (size == 0) return new Totals(0, 0);
+
+        int block = 4096;
+        while (true) {
+            int length = (int) Math.min(size, block);
+            ByteBuffer tail = ByteBuffer.allocate(length);
+            channel.read(tail, size - length);
+            byte[] bytes = tail.array();
+
+            int end = length - 1;
+            while (end >= 0 && bytes[end] != '\n') end--;
+            if (end < 0 && length < size) {
+                block *= 2;
+                continue;
+            }
+            if (end < length - 1) {
+                size = size - length + end + 1;
+                channel.truncate(size);
+            }
+            if (end < 0) return new Totals(0, 0);
+
+            int start = end - 1;
+            while (start >= 0 && bytes[start] != '\n') start--;
+            if (start < 0 && length < size) {
+                block *= 2;
+                continue;
+            }
+            String last = new String(bytes, start + 1, end - start - 1, StandardCharsets.UTF_8);
+            int moneySeparator = last.lastIndexOf(';');
+            int ticketsSeparator = last.lastIndexOf(';', moneySeparator - 1);
+            return new Totals(Integer.parseInt(last.substring(ticketsSeparator + 1, moneySeparator)),
+                    Integer.parseInt(last.substring(moneySeparator + 1)));
+        }
+    }
+
+    private void writeFromReceipts() throws IOException {
+        Files.createDirectories(receiptsDir);
+        Path temp = file.resolveSibling(LEDGER_FILE + ".tmp");
+        try (BufferedWriter out = Files.newBufferedWriter(temp, StandardCharsets.UTF_8)) {
+            int tickets = 0;
+            int money = 0;
+            for (Path receipt : ReceiptStatistics.listReceipts(receiptsDir)) {
+                int price = ReceiptStatistics.readPrice(receipt);
+                tickets++;
+                money += price;
+                out.write(line(receipt.getFileName().toString(), price, tickets, money));
+            }
+        }
+        Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * Sinhronizuje direktorijum, da bi upisani nazivi novih fajlova bili trajni. Na
+     * sistemima koji ne podržavaju otvaranje direktorijuma (Windows) se preskače.
+     */
+    static void syncDirectory(Path directory) {
+        try (FileChannel channel = FileChannel.open(directory, StandardOpenOption.READ)) {
+            channel.force(true);
+        } catch (IOException e) {
+            // nije podržano na ovom sistemu; fajlovi su svakako sinhronizovani
+        }
+    }
+
+    private static String line(String receiptName, int price, int tickets, int money) {
+        return receiptName.replace(';', '_').replace('\n', '_') + ";" + price + ";" + tickets + ";" + money + "\n";
+    }
+
+    /**
+     * Nepromjenljiv snimak zbirova, koji se objavljuje kao cjelina.
+     */
+    private static class Totals {
+        final int tickets;
+        final int money;
+
+        Totals(int tickets, int money) {
+            this.tickets = tickets;
+            this.money = money;
+        }
+    }
+}
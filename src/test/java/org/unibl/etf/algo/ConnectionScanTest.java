@@ -0,0 +1,131 @@
+package org.unibl.etf.algo;
+
+import org.junit.jupiter.api.Test;
+import org.unibl.etf.generator.GenerationProfile;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Poredi najranije dolaske {@link ConnectionScan} pretrage sa pretragom prema svim
+ * gradovima ({@link Isochrone}, Dijkstra nad vremenom spremnosti) i sa {@link Raptor}
+ * pretragom na generisanoj mreži, a na ručno sastavljenoj mreži
+ * ({@link TestNetworks#edgeCases()}) provjerava polazak prije ponoći, presjedanje koje
+ * prebacuje putovanje u naredni dan i nedostižan grad.
+ *
+ * @author Saša Vujančević
+ */
+class ConnectionScanTest {
+
+    private static final int[] START_TIMES = {0, 7 * 60 + 13, 12 * 60, 23 * 60 + 50};
+    private static final int DAY = ConnectionScan.MINUTES_PER_DAY;
+
+    private static void assertSameArrivals(CompiledNetwork network) {
+        ConnectionScan scan = network.connectionScan();
+        Raptor raptor = network.raptor();
+
+        for (int origin = 0; origin < network.cityCount(); origin++) {
+            for (int startTime : START_TIMES) {
+                Isochrone isochrone = Isochrone.compute(network, origin, startTime, RouteFinder.Criteria.TIME);
+                for (int target = 0; target < network.cityCount(); target++) {
+                    if (target == origin) continue;
+                    String query = network.cityName(origin) + " -> " + network.cityName(target) + " u " + startTime;
+                    Journey csa = scan.earliestArrival(origin, target, startTime);
+
+                    if (!isochrone.isReachable(target)) {
+                        assertNull(csa, query);
+                        continue;
+                    }
+                    assertNotNull(csa, query);
+                    assertEquals(isochrone.getArrivalTime(target), csa.getArrivalTime(), query);
+                    assertTrue(csa.getDepartureTime() >= startTime, query);
+
+                    Journey rounds = raptor.run(origin, target, startTime, network.cityCount())
+                            .fastestWithin(network.cityCount());
+                    assertNotNull(rounds, query);
+                    assertEquals(csa.getArrivalTime(), rounds.getArrivalTime(), query);
+                }
+            }
+        }
+    }
+
+    @Test
+    void realisticNetworkMatchesOtherEngines() {
+        assertSameArrivals(TestNetworks.generated(6, 5, 7, GenerationProfile.realistic()));
+    }
+
+    @Test
+    void lastDepartureOfTheDayArrivesAfterMidnight() {
+        CompiledNetwork network = TestNetworks.edgeCases();
+        ConnectionScan scan = network.connectionScan();
+        int origin = network.cityId("G_0_0");
+        int target = network.cityId("G_0_1");
+
+        Journey night = scan.earliestArrival(origin, target, 23 * 60);
+        assertEquals(23 * 60 + 50, night.getDepartureTime());
+        assertEquals(DAY + 20, night.getArrivalTime());
+
+        // posljednji polazak je prošao, pa se čeka prvi polazak narednog dana
+        Journey missed = scan.earliestArrival(origin, target, 23 * 60 + 55);
+        assertEquals(DAY + 8 * 60, missed.getDepartureTime());
+        assertEquals(DAY + 9 * 60, missed.getArrivalTime());
+        assertSameArrivals(network);
+    }
+
+    @Test
+    void transferTimeMovesConnectionToNextDay() {
+        CompiledNetwork network = TestNetworks.edgeCases();
+        ConnectionScan scan = network.connectionScan();
+        int origin = network.cityId("G_0_0");
+        int target = network.cityId("G_0_2");
+
+        // 08:00 do 09:00, presjedanje 5 minuta, pa polazak u 00:25 narednog dana
+        assertEquals(DAY + 45, scan.earliestArrival(origin, target, 0).getArrivalTime());
+
+        // dolazak u 00:20 uz presjedanje od 15 minuta propušta polazak u 00:25
+        Journey journey = scan.earliestArrival(origin, target, 23 * 60);
+        assertEquals(2 * DAY + 45, journey.getArrivalTime());
+        assertEquals(2, journey.getLegs().size());
+        Isochrone isochrone = Isochrone.compute(network, origin, 23 * 60, RouteFinder.Criteria.TIME);
+        assertEquals(2 * DAY + 45, isochrone.getArrivalTime(target));
+    }
+
+    @Test
+    void unreachableCityHasNoJourney() {
+        CompiledNetwork network = TestNetworks.edgeCases();
+        int origin = network.cityId("G_0_0");
+        int target = network.cityId("G_1_0");
+
+        for (int startTime : START_TIMES) {
+            assertNull(network.connectionScan().earliestArrival(origin, target, startTime));
+            assertFalse(Isochrone.compute(network, origin, startTime, RouteFinder.Criteria.TIME).isReachable(target));
+            assertEquals(-1, network.raptor().run(origin, target, startTime, 10).fewestLegs());
+        }
+        assertTrue(network.connectionScan().profile(origin, target, 0, DAY - 1).isEmpty());
+    }
+
+    @Test
+    void profileMatchesSingleScans() {
+        CompiledNetwork network = TestNetworks.generated(5, 5, 3, GenerationProfile.rushHour());
+        ConnectionScan scan = network.connectionScan();
+        int origin = 0;
+        int target = network.cityCount() - 1;
+
+        List<Journey> profile = scan.profile(origin, target, 6 * 60, 10 * 60);
+        assertFalse(profile.isEmpty());
+        for (int i = 0; i < profile.size(); i++) {
+            Journey journey = profile.get(i);
+            if (i > 0) {
+                assertTrue(journey.getDepartureTime() > profile.get(i - 1).getDepartureTime());
+                assertTrue(journey.getArrivalTime() > profile.get(i - 1).getArrivalTime());
+            }
+            Journey single = scan.earliestArrival(origin, target, journey.getDepartureTime());
+            assertEquals(single.getArrivalTime(), journey.getArrivalTime());
+        }
+    }
+}
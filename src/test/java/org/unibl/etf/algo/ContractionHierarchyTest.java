@@ -0,0 +1,72 @@
+package org.unibl.etf.algo;
+
+import org.junit.jupiter.api.Test;
+import org.unibl.etf.generator.GenerationProfile;
+import org.unibl.etf.model.Departure;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+/**
+ * Provjerava da {@link ContractionHierarchy} daje istu najmanju cijenu kao A* pretraga
+ * iz {@link RouteFinder} za sve parove gradova generisane mreže, i najmanje cijene na
+ * ručno sastavljenoj mreži ({@link TestNetworks#edgeCases()}), uključujući nedostižan grad.
+ *
+ * @author Saša Vujančević
+ */
+class ContractionHierarchyTest {
+
+    private static void assertSamePrices(CompiledNetwork network) {
+        // hijerarhija se ne registruje u mreži, pa RouteFinder i dalje koristi A*
+        RouteFinder routeFinder = new RouteFinder(network);
+        ContractionHierarchy hierarchy = new ContractionHierarchy(network);
+
+        for (int origin = 0; origin < network.cityCount(); origin++) {
+            for (int target = 0; target < network.cityCount(); target++) {
+                if (origin == target) continue;
+                List<Departure> astar = routeFinder.findRoute(network.cityName(origin), network.cityName(target),
+                        RouteFinder.Criteria.PRICE, QueryOptions.unlimited()).getValue();
+                Journey ch = hierarchy.cheapest(origin, target);
+                String pair = network.cityName(origin) + " -> " + network.cityName(target);
+
+                if (astar.isEmpty()) {
+                    assertNull(ch, pair);
+                    continue;
+                }
+                assertEquals(Journey.of(astar).getPrice(), ch.getPrice(), pair);
+                assertEquals(ch.getPrice(), ch.getLegs().stream().mapToInt(Departure::getPrice).sum(), pair);
+            }
+        }
+    }
+
+    @Test
+    void realisticNetworkMatchesAStar() {
+        assertSamePrices(TestNetworks.generated(7, 5, 7, GenerationProfile.realistic()));
+    }
+
+    @Test
+    void edgeCaseNetworkHasExpectedPrices() {
+        CompiledNetwork network = TestNetworks.edgeCases();
+        ContractionHierarchy hierarchy = new ContractionHierarchy(network);
+        int a = network.cityId("G_0_0");
+        int b = network.cityId("G_0_1");
+        int c = network.cityId("G_0_2");
+        int unreachable = network.cityId("G_1_0");
+
+        // najjeftiniji je polazak u 23:50, iako zbog presjedanja stiže tek dan kasnije
+        assertEquals(10, hierarchy.cheapest(a, b).getPrice());
+        assertEquals(15, hierarchy.cheapest(a, c).getPrice());
+        assertEquals(35, hierarchy.cheapest(unreachable, c).getPrice());
+        assertNull(hierarchy.cheapest(a, unreachable));
+        assertNull(hierarchy.cheapest(c, a));
+        assertSamePrices(network);
+    }
+
+    @Test
+    void sameCityHasNoRoute() {
+        CompiledNetwork network = TestNetworks.generated(3, 3, 1, GenerationProfile.uniform());
+        assertNull(new ContractionHierarchy(network).cheapest(4, 4));
+    }
+}
@@ -0,0 +1,104 @@
+package org.unibl.etf.algo;
+
+import org.junit.jupiter.api.Test;
+import org.unibl.etf.generator.GenerationProfile;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Provjerava da {@link McRaptor} sa stanjem ponovo korišćenim između upita vraća iste
+ * Pareto frontove kao nova instanca, da front poštuje vrijeme polaska i da u njemu nema
+ * dominiranih putovanja. Na ručno sastavljenoj mreži ({@link TestNetworks#edgeCases()})
+ * provjerava front sa putovanjem preko ponoći i nedostižan grad.
+ *
+ * @author Saša Vujančević
+ */
+class McRaptorTest {
+
+    private static final int MAX_ROUNDS = 50;
+
+    private static String describe(List<Journey> journeys) {
+        StringBuilder text = new StringBuilder();
+        for (Journey journey : journeys) {
+            text.append(journey.getDepartureTime()).append('/').append(journey.getArrivalTime()).append('/')
+                    .append(journey.getPrice()).append('/').append(journey.getLegs().size()).append(' ');
+        }
+        return text.toString();
+    }
+
+    @Test
+    void reusedSearchMatchesFreshSearch() {
+        CompiledNetwork network = TestNetworks.generated(5, 6, 42, GenerationProfile.realistic());
+        McRaptor reused = network.mcRaptor();
+
+        int[] startTimes = {0, 8 * 60, 17 * 60 + 30};
+        for (int origin = 0; origin < network.cityCount(); origin++) {
+            for (int target = 0; target < network.cityCount(); target++) {
+                if (origin == target) continue;
+                int startTime = startTimes[(origin + target) % startTimes.length];
+                String query = network.cityName(origin) + " -> " + network.cityName(target) + " u " + startTime;
+
+                List<Journey> front = reused.paretoFront(origin, target, startTime, MAX_ROUNDS);
+                assertEquals(describe(new McRaptor(network).paretoFront(origin, target, startTime, MAX_ROUNDS)),
+                        describe(front), query);
+
+                for (Journey journey : front) {
+                    assertTrue(journey.getDepartureTime() >= startTime, query);
+                    for (Journey other : front) {
+                        assertFalse(dominates(other, journey), query);
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * @return da li je {@code a} po svim kriterijumima jednako dobro kao {@code b}, a po barem jednom bolje
+     */
+    private static boolean dominates(Journey a, Journey b) {
+        boolean noWorse = a.getArrivalTime() <= b.getArrivalTime() && a.getPrice() <= b.getPrice()
+                && a.getLegs().size() <= b.getLegs().size();
+        boolean better = a.getArrivalTime() < b.getArrivalTime() || a.getPrice() < b.getPrice()
+                || a.getLegs().size() < b.getLegs().size();
+        return noWorse && better;
+    }
+
+    @Test
+    void paretoRoutesStartAtDepartureMinute() {
+        CompiledNetwork network = TestNetworks.generated(4, 4, 3, GenerationProfile.uniform());
+        RouteFinder routeFinder = new RouteFinder(network);
+        String start = network.cityName(0);
+        String end = network.cityName(network.cityCount() - 1);
+
+        SearchResult<List<Journey>> late = routeFinder.findParetoRoutes(start, end, 20 * 60, QueryOptions.unlimited());
+        assertTrue(late.isComplete());
+        assertFalse(late.getValue().isEmpty());
+        for (Journey journey : late.getValue()) {
+            assertTrue(journey.getDepartureTime() >= 20 * 60);
+        }
+        assertEquals(describe(routeFinder.findParetoRoutes(start, end)),
+                describe(routeFinder.findParetoRoutes(start, end, 0, QueryOptions.unlimited()).getValue()));
+
+        SearchResult<List<Journey>> cancelled = routeFinder.findParetoRoutes(start, end, 0,
+                QueryOptions.unlimited().withCancellation(() -> true));
+        assertEquals(SearchStatus.CANCELLED, cancelled.getStatus());
+    }
+
+    @Test
+    void frontKeepsCheaperTripOverMidnight() {
+        CompiledNetwork network = TestNetworks.edgeCases();
+        McRaptor mcRaptor = network.mcRaptor();
+        int origin = network.cityId("G_0_0");
+
+        // 08:00 stiže ranije (09:00, cijena 30), a 23:50 jeftinije (00:20 narednog dana, cijena 10)
+        assertEquals("480/540/30/1 1430/1460/10/1 ",
+                describe(mcRaptor.paretoFront(origin, network.cityId("G_0_1"), 0, MAX_ROUNDS)));
+        assertEquals("1430/1460/10/1 ",
+                describe(mcRaptor.paretoFront(origin, network.cityId("G_0_1"), 9 * 60, MAX_ROUNDS)));
+        assertTrue(mcRaptor.paretoFront(origin, network.cityId("G_1_0"), 0, MAX_ROUNDS).isEmpty());
+    }
+}
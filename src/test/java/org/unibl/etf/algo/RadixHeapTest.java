@@ -0,0 +1,67 @@
+package org.unibl.etf.algo;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Provjerava redoslijed preuzimanja iz {@link RadixHeap} na nasumičnom monotonom nizu
+ * operacija sa smanjenjem ključa, kao i da se ključ manji od posljednjeg preuzetog odbija.
+ *
+ * @author Saša Vujančević
+ */
+class RadixHeapTest {
+
+    @Test
+    void popsKeysInOrderWithDecreaseKey() {
+        int capacity = 500;
+        RadixHeap heap = new RadixHeap(capacity);
+        // očekivani ključ svakog čvora u redu, Long.MAX_VALUE za čvor van reda
+        long[] expected = new long[capacity];
+        Random random = new Random(11);
+
+        for (int round = 0; round < 3; round++) {
+            Arrays.fill(expected, Long.MAX_VALUE);
+            heap.clear();
+            long last = 0;
+            for (int step = 0; step < 5000; step++) {
+                if (heap.isEmpty() || random.nextInt(3) > 0) {
+                    int node = random.nextInt(capacity);
+                    long key = last + random.nextInt(1 << random.nextInt(20));
+                    heap.push(node, key);
+                    expected[node] = Math.min(expected[node], key);
+                    assertTrue(heap.contains(node));
+                } else {
+                    long min = Arrays.stream(expected).min().getAsLong();
+                    int node = heap.pop();
+                    assertEquals(min, heap.lastKey());
+                    assertEquals(min, expected[node]);
+                    assertFalse(heap.contains(node));
+                    expected[node] = Long.MAX_VALUE;
+                    last = min;
+                }
+            }
+        }
+    }
+
+    @Test
+    void keyBelowLastPopIsRejected() {
+        RadixHeap heap = new RadixHeap(4);
+        heap.push(0, 10);
+        heap.push(1, 20);
+        assertEquals(0, heap.pop());
+
+        assertThrows(IllegalArgumentException.class, () -> heap.push(2, 9));
+        heap.push(2, 10);
+        assertEquals(2, heap.pop());
+        assertEquals(1, heap.pop());
+        assertFalse(heap.contains(1));
+        assertTrue(heap.isEmpty());
+    }
+}
@@ -0,0 +1,90 @@
+package org.unibl.etf.algo;
+
+import org.junit.jupiter.api.Test;
+import org.unibl.etf.generator.GenerationProfile;
+
+import java.util.TreeSet;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+/**
+ * Poredi {@link Raptor#fewestTransfers} – jedan prolaz kroz sve minute polaska – sa
+ * zasebnim RAPTOR pretragama za svaki minut polaska iz početnog grada, na generisanoj i
+ * na ručno sastavljenoj mreži ({@link TestNetworks#edgeCases()}).
+ *
+ * @author Saša Vujančević
+ */
+class RaptorTest {
+
+    private static final int MAX_ROUNDS = 50;
+
+    private static void assertSameAsSeparateRuns(CompiledNetwork network) {
+        Raptor raptor = network.raptor();
+        for (int origin = 0; origin < network.cityCount(); origin++) {
+            TreeSet<Integer> minutes = new TreeSet<>();
+            for (int d = network.firstDeparture(origin); d < network.endDeparture(origin); d++) {
+                minutes.add(network.minute(d));
+            }
+            for (int target = 0; target < network.cityCount(); target++) {
+                if (target == origin) continue;
+                String pair = network.cityName(origin) + " -> " + network.cityName(target);
+
+                int legs = -1;
+                int duration = Integer.MAX_VALUE;
+                for (int minute : minutes) {
+                    Raptor.Result result = raptor.run(origin, target, minute, MAX_ROUNDS);
+                    int fewest = result.fewestLegs();
+                    if (fewest < 0) continue;
+                    if (legs < 0 || fewest < legs) {
+                        legs = fewest;
+                        duration = Integer.MAX_VALUE;
+                    }
+                    if (fewest == legs) {
+                        duration = Math.min(duration, result.fastestWithin(legs).getDuration());
+                    }
+                }
+
+                Journey journey = raptor.fewestTransfers(origin, target, MAX_ROUNDS, SearchBudget.unlimited());
+                if (legs < 0) {
+                    assertNull(journey, pair);
+                    continue;
+                }
+                assertNotNull(journey, pair);
+                assertEquals(legs, journey.getLegs().size(), pair);
+                assertEquals(duration, journey.getDuration(), pair);
+            }
+        }
+    }
+
+    @Test
+    void expressNetworkMatchesSeparateRuns() {
+        assertSameAsSeparateRuns(TestNetworks.generated(6, 5, 9, GenerationProfile.express()));
+    }
+
+    @Test
+    void edgeCaseNetworkMatchesSeparateRuns() {
+        assertSameAsSeparateRuns(TestNetworks.edgeCases());
+    }
+
+    @Test
+    void fewestTransfersPicksShortestTripOverMidnight() {
+        CompiledNetwork network = TestNetworks.edgeCases();
+        Raptor raptor = network.raptor();
+        int origin = network.cityId("G_0_0");
+        int target = network.cityId("G_0_2");
+
+        // polazak u 08:00 stiže u 00:45 narednog dana; polazak u 23:50 zbog presjedanja tek dan kasnije
+        Journey journey = raptor.fewestTransfers(origin, target, MAX_ROUNDS, SearchBudget.unlimited());
+        assertEquals(2, journey.getLegs().size());
+        assertEquals(8 * 60, journey.getDepartureTime());
+        assertEquals(ConnectionScan.MINUTES_PER_DAY + 45, journey.getArrivalTime());
+
+        Raptor.Result late = raptor.run(origin, target, 23 * 60, MAX_ROUNDS);
+        assertEquals(2, late.fewestLegs());
+        assertEquals(2 * ConnectionScan.MINUTES_PER_DAY + 45, late.fastestWithin(2).getArrivalTime());
+
+        assertNull(raptor.fewestTransfers(origin, network.cityId("G_1_0"), MAX_ROUNDS, SearchBudget.unlimited()));
+    }
+}
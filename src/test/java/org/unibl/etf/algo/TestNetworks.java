@@ -0,0 +1,88 @@
+package org.unibl.etf.algo;
+
+import org.unibl.etf.data.JsonLoader;
+import org.unibl.etf.generator.GenerationProfile;
+import org.unibl.etf.generator.TransportDataGenerator;
+import org.unibl.etf.model.City;
+import org.unibl.etf.model.DepartureTable;
+import org.unibl.etf.model.Station;
+import org.unibl.etf.model.TransportType;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Mreže za testove pretraga: generisane mreže i male ručno sastavljene mreže, na kojima
+ * se provjeravaju granični slučajevi (polazak prije ponoći, presjedanje koje prebacuje
+ * putovanje u naredni dan, nedostižan grad).
+ *
+ * @author Saša Vujančević
+ */
+final class TestNetworks {
+
+    private TestNetworks() {
+    }
+
+    /**
+     * @return kompaktna mreža od podataka {@link TransportDataGenerator} generatora
+     */
+    static CompiledNetwork generated(int rows, int cols, long seed, GenerationProfile profile) {
+        TransportDataGenerator generator = new TransportDataGenerator(rows, cols, seed, profile);
+        return CompiledNetwork.compile(generator.buildCityMap(generator.generateData()));
+    }
+
+    /**
+     * Mreža od četiri grada na kojoj je svaki granični slučaj postavljen ručno:
+     * <ul>
+     *     <li>{@code G_0_0 -> G_0_1} polazi u 08:00 (60 minuta, cijena 30, presjedanje 5)
+     *     i u 23:50, kada stiže u 00:20 narednog dana (cijena 10, presjedanje 15),</li>
+     *     <li>{@code G_0_1 -> G_0_2} polazi samo u 00:25 (20 minuta, cijena 5), pa se nakon
+     *     polaska u 23:50 zbog presjedanja čeka još jedan dan,</li>
+     *     <li>{@code G_1_0} ima samo polazak prema {@code G_0_0} (cijena 20), pa do njega
+     *     nema puta.</li>
+     * </ul>
+     */
+    static CompiledNetwork edgeCases() {
+        return new Builder()
+                .bus("G_0_0", "G_0_1", "08:00", 60, 30, 5)
+                .bus("G_0_0", "G_0_1", "23:50", 30, 10, 15)
+                .bus("G_0_1", "G_0_2", "00:25", 20, 5, 5)
+                .bus("G_1_0", "G_0_0", "08:00", 60, 20, 5)
+                .compile();
+    }
+
+    /**
+     * Sastavlja mrežu gradova {@code G_x_y} sa autobuskom ({@code A_x_y}) i željezničkom
+     * ({@code Z_x_y}) stanicom, isto kao {@link TransportDataGenerator#buildCityMap}.
+     */
+    static class Builder {
+        private final DepartureTable table = new DepartureTable();
+        private final Map<String, City> cityMap = new HashMap<>();
+
+        /**
+         * Dodaje autobuski polazak; gradovi koji još ne postoje se dodaju.
+         *
+         * @param departureTime vrijeme polaska u obliku {@code HH:mm}
+         * @return ovaj builder
+         */
+        Builder bus(String from, String to, String departureTime, int duration, int price, int minTransferTime) {
+            City city = city(from);
+            city(to);
+            Station station = city.getBusStation();
+            station.addDeparture(table.add(TransportType.BUS, station.getId(), to,
+                    JsonLoader.parseMinute(departureTime), duration, price, minTransferTime));
+            return this;
+        }
+
+        private City city(String name) {
+            return cityMap.computeIfAbsent(name, n -> {
+                String coordinates = n.substring(n.indexOf('_'));
+                return new City(n, new Station("A" + coordinates, table), new Station("Z" + coordinates, table));
+            });
+        }
+
+        CompiledNetwork compile() {
+            return CompiledNetwork.compile(cityMap);
+        }
+    }
+}
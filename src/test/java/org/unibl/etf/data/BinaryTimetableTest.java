@@ -0,0 +1,113 @@
+package org.unibl.etf.data;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.unibl.etf.generator.GenerationProfile;
+import org.unibl.etf.generator.TransportDataGenerator;
+import org.unibl.etf.model.City;
+import org.unibl.etf.model.Departure;
+import org.unibl.etf.model.Station;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.TreeSet;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * Provjerava da {@link BinaryTimetable} nakon upisa i čitanja vraća iste gradove,
+ * stanice i polaske, da se ne koristi kada mu JSON fajl više ne odgovara i da skraćen
+ * fajl odbija umjesto da vrati nepotpun red vožnje.
+ *
+ * @author Saša Vujančević
+ */
+class BinaryTimetableTest {
+
+    @TempDir
+    Path dir;
+
+    /**
+     * Opisuje sve gradove, stanice i polaske redom, pa se dva reda vožnje porede kao tekst.
+     */
+    private static String describe(Map<String, City> cityMap) {
+        StringBuilder text = new StringBuilder();
+        for (String name : new TreeSet<>(cityMap.keySet())) {
+            City city = cityMap.get(name);
+            text.append(city.getName()).append('\n');
+            for (Station station : new Station[]{city.getBusStation(), city.getTrainStation()}) {
+                text.append("  ").append(station.getId()).append('\n');
+                for (Departure d : station.getDepartures()) {
+                    text.append("    ").append(d.getType()).append(' ').append(d.getFrom()).append(' ')
+                            .append(d.getTo()).append(' ').append(d.getDepartureMinute()).append(' ')
+                            .append(d.getDuration()).append(' ').append(d.getPrice()).append(' ')
+                            .append(d.getMinTransferTime()).append('\n');
+                }
+            }
+        }
+        return text.toString();
+    }
+
+    @Test
+    void writtenCityMapIsReadBack() throws IOException {
+        TransportDataGenerator generator = new TransportDataGenerator(6, 7, 42, GenerationProfile.realistic());
+        Map<String, City> cityMap = generator.buildCityMap(generator.generateData());
+        Path file = dir.resolve("transport_data.bin");
+
+        BinaryTimetable.write(cityMap, file);
+
+        assertEquals(describe(cityMap), describe(BinaryTimetable.read(file)));
+    }
+
+    @Test
+    void generatorOutputMatchesJson() throws IOException {
+        TransportDataGenerator generator = new TransportDataGenerator(4, 5, 7);
+        TransportDataGenerator.TransportData data = generator.generateData();
+        Path json = dir.resolve("transport_data.json");
+        Path binary = BinaryTimetable.pathFor(json.toString());
+
+        generator.saveToJson(data, json.toString());
+        generator.saveToBinary(data, binary, json);
+        assertEquals(BinaryTimetable.Source.of(json), BinaryTimetable.readSource(binary));
+
+        Map<String, City> fromBinary = BinaryTimetable.read(binary);
+        Files.delete(binary);
+        assertEquals(describe(JsonLoader.loadCityMap(json.toString())), describe(fromBinary));
+    }
+
+    @Test
+    void jsonReplacedByOlderCopyIsReadAgain() throws IOException {
+        Path json = dir.resolve("transport_data.json");
+        Path binary = BinaryTimetable.pathFor(json.toString());
+        TransportDataGenerator first = new TransportDataGenerator(3, 4, 1);
+        first.saveToJson(first.generateData(), json.toString());
+        JsonLoader.loadCityMap(json.toString());
+        assertEquals(BinaryTimetable.Source.of(json), BinaryTimetable.readSource(binary));
+
+        // kopija drugog reda vožnje sa vremenom izmjene starijim od binarnog fajla
+        TransportDataGenerator second = new TransportDataGenerator(4, 3, 2);
+        second.saveToJson(second.generateData(), json.toString());
+        Files.setLastModifiedTime(json, FileTime.fromMillis(
+                Files.getLastModifiedTime(binary).toMillis() - 24 * 60 * 60 * 1000));
+        Map<String, City> expected = second.buildCityMap(second.generateData());
+
+        assertEquals(describe(expected), describe(JsonLoader.loadCityMap(json.toString())));
+        assertEquals(BinaryTimetable.Source.of(json), BinaryTimetable.readSource(binary));
+    }
+
+    @Test
+    void truncatedFileIsRejected() throws IOException {
+        TransportDataGenerator generator = new TransportDataGenerator(3, 3, 1);
+        Path file = dir.resolve("transport_data.bin");
+        BinaryTimetable.write(generator.buildCityMap(generator.generateData()), file);
+
+        byte[] bytes = Files.readAllBytes(file);
+        Files.write(file, Arrays.copyOf(bytes, bytes.length / 2));
+
+        assertThrows(IOException.class, () -> BinaryTimetable.read(file));
+    }
+}
@@ -0,0 +1,62 @@
+package org.unibl.etf.stats;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Provjerava da {@link ReceiptWriter} upisuje svaki račun u poseban fajl, i kada se
+ * nazivi poklope, i da je svaki upisani račun uračunat u knjigu prodaje.
+ *
+ * @author Saša Vujančević
+ */
+class ReceiptWriterTest {
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void receiptsWithSameNameAreKeptApart() throws Exception {
+        SalesLedger ledger = new SalesLedger(dir);
+        ReceiptWriter writer = new ReceiptWriter(dir, ledger);
+
+        List<CompletableFuture<Path>> futures = new ArrayList<>();
+        for (int i = 1; i <= 5; i++) {
+            futures.add(writer.submit("racun.txt", "Ukupna cijena: " + i * 10 + " KM\n", i * 10));
+        }
+        List<Path> paths = new ArrayList<>();
+        for (CompletableFuture<Path> future : futures) {
+            paths.add(future.get());
+        }
+
+        assertEquals(5, new HashSet<>(paths).size());
+        assertEquals(dir.resolve("racun.txt"), paths.get(0));
+        for (int i = 0; i < paths.size(); i++) {
+            assertEquals("Ukupna cijena: " + (i + 1) * 10 + " KM\n", Files.readString(paths.get(i)));
+        }
+        assertEquals(5, ledger.getStatistics().getTotalTickets());
+        assertEquals(150, ledger.getStatistics().getTotalMoneyEarned());
+    }
+
+    @Test
+    void ledgerAgreesWithReceiptsAfterReopening() throws Exception {
+        Files.writeString(dir.resolve("stari.txt"), "Ukupna cijena: 7 KM\n");
+        SalesLedger ledger = new SalesLedger(dir);
+        ReceiptWriter writer = new ReceiptWriter(dir, ledger);
+
+        writer.submit("novi.txt", "Ukupna cijena: 12 KM\n", 12).get();
+        ledger.close();
+
+        ReceiptStatistics.StatisticsData statistics = new SalesLedger(dir).getStatistics();
+        assertEquals(2, statistics.getTotalTickets());
+        assertEquals(19, statistics.getTotalMoneyEarned());
+    }
+}
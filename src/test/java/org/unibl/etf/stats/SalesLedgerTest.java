@@ -0,0 +1,170 @@
+package org.unibl.etf.stats;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Provjerava da {@link SalesLedger} čuva zbirove prodaje između otvaranja i da se
+ * usklađuje sa fajlovima računa na disku.
+ *
+ * @author Saša Vujančević
+ */
+class SalesLedgerTest {
+
+    @TempDir
+    Path dir;
+
+    private void writeReceipt(String name, int price) throws IOException {
+        Files.writeString(dir.resolve(name), "RAČUN\nUkupna cijena: " + price + " KM\n");
+    }
+
+    /**
+     * Prodaje kartu redom kojim to radi {@link ReceiptWriter}: najava upisa, račun, upis u
+     * knjigu i uklanjanje oznake nedovršene prodaje.
+     */
+    private void sell(SalesLedger ledger, String name, int price) throws IOException {
+        ledger.beginSales();
+        writeReceipt(name, price);
+        ledger.recordSale(name, price);
+        ledger.endSales();
+    }
+
+    private static void assertTotals(int tickets, int money, SalesLedger ledger) throws IOException {
+        ReceiptStatistics.StatisticsData statistics = ledger.getStatistics();
+        assertEquals(tickets, statistics.getTotalTickets());
+        assertEquals(money, statistics.getTotalMoneyEarned());
+    }
+
+    @Test
+    void firstOpenCountsExistingReceipts() throws IOException {
+        writeReceipt("racun_1.txt", 30);
+        writeReceipt("racun_2.txt", 45);
+
+        assertTotals(2, 75, new SalesLedger(dir));
+    }
+
+    @Test
+    void salesSurviveReopening() throws IOException {
+        SalesLedger ledger = new SalesLedger(dir);
+        sell(ledger, "racun_1.txt", 20);
+        sell(ledger, "racun_2.txt", 35);
+        sell(ledger, "racun_3.txt", 5);
+        assertTotals(3, 60, ledger);
+        ledger.close();
+
+        assertTotals(3, 60, new SalesLedger(dir));
+    }
+
+    @Test
+    void partialLastLineIsDiscarded() throws IOException {
+        SalesLedger ledger = new SalesLedger(dir);
+        sell(ledger, "racun_1.txt", 20);
+        ledger.close();
+        Files.writeString(dir.resolve(SalesLedger.LEDGER_FILE), "racun_2.txt;15;2", StandardOpenOption.APPEND);
+
+        SalesLedger reopened = new SalesLedger(dir);
+        assertTotals(1, 20, reopened);
+        sell(reopened, "racun_2.txt", 15);
+        reopened.close();
+
+        assertTotals(2, 35, new SalesLedger(dir));
+    }
+
+    @Test
+    void interruptedSaleTriggersRebuild() throws IOException {
+        SalesLedger ledger = new SalesLedger(dir);
+        sell(ledger, "racun_1.txt", 20);
+        assertFalse(Files.exists(dir.resolve(SalesLedger.PENDING_FILE)));
+        // pad aplikacije nakon upisa računa, a prije upisa u knjigu
+        ledger.beginSales();
+        writeReceipt("racun_2.txt", 40);
+        ledger.close();
+        assertTrue(Files.exists(dir.resolve(SalesLedger.PENDING_FILE)));
+
+        assertTotals(2, 60, new SalesLedger(dir));
+        assertFalse(Files.exists(dir.resolve(SalesLedger.PENDING_FILE)));
+    }
+
+    @Test
+    void receiptsAreNotReadWithoutPendingMarker() throws IOException {
+        SalesLedger ledger = new SalesLedger(dir);
+        sell(ledger, "racun_1.txt", 20);
+        ledger.close();
+        writeReceipt("rucno_dodat.txt", 40);
+
+        SalesLedger reopened = new SalesLedger(dir);
+        assertTotals(1, 20, reopened);
+        reopened.rebuild();
+        assertTotals(2, 60, reopened);
+    }
+
+    @Test
+    void corruptLedgerIsRebuiltFromReceipts() throws IOException {
+        SalesLedger ledger = new SalesLedger(dir);
+        sell(ledger, "racun_1.txt", 20);
+        sell(ledger, "racun_2.txt", 40);
+        ledger.close();
+        Files.writeString(dir.resolve(SalesLedger.LEDGER_FILE), "nije knjiga\n");
+
+        assertTotals(2, 60, new SalesLedger(dir));
+    }
+
+    @Test
+    void rebuildFollowsDeletedReceipts() throws IOException {
+        SalesLedger ledger = new SalesLedger(dir);
+        sell(ledger, "racun_1.txt", 20);
+        sell(ledger, "racun_2.txt", 40);
+        Files.delete(dir.resolve("racun_1.txt"));
+
+        ledger.rebuild();
+
+        assertTotals(1, 40, ledger);
+    }
+
+    @Test
+    void statisticsDoNotWaitForWriteInProgress() throws Exception {
+        SalesLedger ledger = new SalesLedger(dir);
+        sell(ledger, "racun_1.txt", 20);
+
+        // nit drži zaključavanje knjige, kao upis grupe računa koji čeka na sinhronizaciju
+        CountDownLatch locked = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        Thread writer = new Thread(() -> {
+            synchronized (ledger) {
+                locked.countDown();
+                try {
+                    release.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        });
+        writer.start();
+        try {
+            assertTrue(locked.await(5, TimeUnit.SECONDS));
+            CompletableFuture<ReceiptStatistics.StatisticsData> statistics = CompletableFuture.supplyAsync(() -> {
+                try {
+                    return ledger.getStatistics();
+                } catch (IOException e) {
+                    throw new RuntimeException(e);
+                }
+            });
+            assertEquals(1, statistics.get(5, TimeUnit.SECONDS).getTotalTickets());
+        } finally {
+            release.countDown();
+            writer.join();
+        }
+    }
+}